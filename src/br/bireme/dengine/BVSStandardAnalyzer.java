@@ -22,12 +22,11 @@
 
 package br.bireme.dengine;
 
-import java.io.IOException;
 import java.io.Reader;
 import java.util.Map;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.util.AttributeFactory;
 
 /**
  *
@@ -35,26 +34,19 @@ import org.apache.lucene.analysis.Analyzer;
  * date: 20150122
  */
 public class BVSStandardAnalyzer extends Analyzer {   
-    private class DeCSTokenStreamComponents extends TokenStreamComponents {
-
-        public DeCSTokenStreamComponents(final Reader reader) 
-                                                            throws IOException {            
-            super(new DeCSTokenizer(reader, decs, parameters, true));
-        }
-        
-        @Override
-        protected void setReader(final Reader reader) throws IOException {
-            assert reader != null;
-            
-            ((DeCSTokenizer)getTokenizer())
-                                    .fillDeque(new RemoveAccentsReader(reader));            
-        }
-    }
-    
     private final DecsParams parameters;
-    private final Map<String,DecsSyn> decs;
+    private final DecsHandle decs;
     
     public BVSStandardAnalyzer(final Map<String,DecsSyn> decs) {
+        this(new DecsHandle(decs));
+    }
+    
+    /**
+     * The analyzer reads the DeCS map through the handle, so a new map
+     * swapped in the handle is used by the next token streams.
+     * @param decs - handle of the DeCS map
+     */
+    public BVSStandardAnalyzer(final DecsHandle decs) {
         if (decs == null) {
             throw new NullPointerException("decs");
         }        
@@ -68,17 +60,11 @@ public class BVSStandardAnalyzer extends Analyzer {
         assert string != null;
         assert reader != null;
         
-        TokenStreamComponents tsc;
-        
-        try {
-            final Reader filter = (new RemoveAccentsReader(reader));
-            tsc = new DeCSTokenStreamComponents(filter);
-        } catch (IOException ex) {
-            tsc = null;
-            Logger.getLogger(BVSStandardAnalyzer.class.getName())
-                                                   .log(Level.SEVERE, null, ex);
-        }
+        final Tokenizer tokenizer = new DeCSTokenizer(
+                    AttributeFactory.DEFAULT_ATTRIBUTE_FACTORY, reader, decs,
+                    parameters, true, DeCSTokenizer.DEF_MIN_TOKEN_SIZE,
+                    new DeCSTermLocator(), 0);
         
-        return tsc;
+        return new TokenStreamComponents(tokenizer);
     }        
 }
@@ -0,0 +1,55 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+/**
+ * Tells the term locators which chars separate the DeCS terms of an input
+ * string. A white char is a word separator (the char before a term start or
+ * after a term end, see DeCSTermLocator.possibleStart) and a delimiter is a
+ * punctuation char that can stand between a white char and the term. All
+ * the other chars are word chars.
+ * Locators do not call the detector while searching: it is compiled once
+ * into a CharClassTable.
+ * @author agent
+ * date: 20261017
+ */
+public interface BoundaryDetector {
+    /**
+     * word char class
+     */
+    public static final byte WORD = 0;
+    /**
+     * white char class
+     */
+    public static final byte WHITE = 1;
+    /**
+     * delimiter char class
+     */
+    public static final byte DELIMITER = 2;
+    
+    /**
+     * @param ch - the char to be classified
+     * @return WORD, WHITE or DELIMITER
+     */
+    public byte getCharClass(final char ch);
+}
@@ -0,0 +1,265 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Properties;
+
+/**
+ * BoundaryDetector compiled into a 64K entry table, so that checking a char
+ * is a single array load (no boxing or hashing).
+ * The default table keeps the white chars and acceptable delimiters
+ * DeCSTermLocator always used and adds the no-break space as a white char.
+ * Above Latin-1, Unicode space and line/paragraph separators are white chars
+ * and punctuation (dashes, brackets, quotes, CJK and fullwidth punctuation)
+ * are delimiters.
+ * Tables are immutable and can be shared by many locators (and threads).
+ * @author agent
+ * date: 20261017
+ */
+public final class CharClassTable implements BoundaryDetector {
+    /**
+     * property with the chars to be made white chars (see load)
+     */
+    public static final String WHITE_KEY = "white";
+    /**
+     * property with the chars to be made delimiters (see load)
+     */
+    public static final String DELIMITER_KEY = "delimiter";
+    /**
+     * property with the chars to be made word chars (see load)
+     */
+    public static final String WORD_KEY = "word";
+    
+    /**
+     * acceptable delimiters of the Latin-1 range
+     */
+    static final String LATIN_DELIMITERS = 
+                          "\"'!@#$%&*()_-+=§`{[ª^~}]º<,>.:;?/|\\";
+    /**
+     * white chars of the Latin-1 range
+     */
+    static final String LATIN_WHITES = " \t\r\n\f\u00A0";
+    
+    // Chars String.trim() removes but that are not white chars. They are
+    // word chars for the locators, but never part of a word (see isBoundary)
+    private static final byte BLANK = 4;
+    
+    private static final int TABLE_SIZE = Character.MAX_VALUE + 1;
+    
+    /**
+     * the default table
+     */
+    public static final CharClassTable DEFAULT = 
+                                        new CharClassTable(new BoundaryDetector() {
+        @Override
+        public byte getCharClass(final char ch) {
+            return getDefaultClass(ch);
+        }
+    });
+    
+    private final byte[] table;
+    
+    /**
+     * Compiles the detector into a table.
+     * @param detector - the boundary detector
+     */
+    public CharClassTable(final BoundaryDetector detector) {
+        if (detector == null) {
+            throw new NullPointerException("detector");
+        }
+        table = new byte[TABLE_SIZE];
+        for (int ch = 0; ch < TABLE_SIZE; ch++) {
+            setClass(table, (char)ch, detector.getCharClass((char)ch));
+        }
+    }
+    
+    /**
+     * @param detector - the boundary detector
+     * @return the detector itself if it is a CharClassTable or the table it
+     * compiles into
+     */
+    public static CharClassTable valueOf(final BoundaryDetector detector) {
+        if (detector == null) {
+            throw new NullPointerException("detector");
+        }
+        return (detector instanceof CharClassTable) ? (CharClassTable)detector
+                                                : new CharClassTable(detector);
+    }
+    
+    private CharClassTable(final byte[] table) {
+        assert table != null;
+        assert table.length == TABLE_SIZE;
+        
+        this.table = table;
+    }
+    
+    /**
+     * Loads a table from a properties file. The 'white', 'delimiter' and 
+     * 'word' properties list the chars (\\uXXXX escapes can be used) whose 
+     * class is changed. The other chars keep the class of the default table.
+     * Example:
+     * <pre>
+     * # guillemets and inverted marks are delimiters, '_' joins words
+     * delimiter = «»¡¿
+     * word = _
+     * </pre>
+     * @param reader - properties file reader
+     * @return the table
+     * @throws IOException 
+     */
+    public static CharClassTable load(final Reader reader) throws IOException {
+        return load(reader, DEFAULT);
+    }
+    
+    /**
+     * Loads a table from a properties file (see load(Reader)).
+     * @param reader - properties file reader
+     * @param base - the class of the chars not listed in the file
+     * @return the table
+     * @throws IOException 
+     */
+    public static CharClassTable load(final Reader reader,
+                                      final BoundaryDetector base) 
+                                                            throws IOException {
+        if (reader == null) {
+            throw new NullPointerException("reader");
+        }
+        if (base == null) {
+            throw new NullPointerException("base");
+        }
+        final Properties props = new Properties();
+        props.load(reader);
+        
+        for (String key : props.stringPropertyNames()) {
+            if (!key.equals(WHITE_KEY) && !key.equals(DELIMITER_KEY) && 
+                                                       !key.equals(WORD_KEY)) {
+                throw new IllegalArgumentException("unknown property: " + key);
+            }
+        }
+        final byte[] table = valueOf(base).table.clone();
+        setClass(table, props.getProperty(WORD_KEY), WORD);
+        setClass(table, props.getProperty(WHITE_KEY), WHITE);
+        setClass(table, props.getProperty(DELIMITER_KEY), DELIMITER);
+        
+        return new CharClassTable(table);
+    }
+    
+    /**
+     * @param ch - the char to be classified
+     * @return WORD, WHITE or DELIMITER
+     */
+    @Override
+    public byte getCharClass(final char ch) {
+        return (byte)(table[ch] & (WHITE | DELIMITER));
+    }
+    
+    /**
+     * @param ch - the char to be checked
+     * @return true if ch is a white char
+     */
+    public boolean isWhite(final char ch) {
+        return table[ch] == WHITE;
+    }
+    
+    /**
+     * @param ch - the char to be checked
+     * @return true if ch is a delimiter
+     */
+    public boolean isDelimiter(final char ch) {
+        return table[ch] == DELIMITER;
+    }
+    
+    /**
+     * @param ch - the char to be checked
+     * @return true if ch is neither a white char nor a delimiter
+     */
+    public boolean isWordChar(final char ch) {
+        return (table[ch] & (WHITE | DELIMITER)) == 0;
+    }
+    
+    /**
+     * @param ch - the char to be checked
+     * @return true if ch can not be part of a word: a white char, a 
+     * delimiter or a char String.trim() removes
+     */
+    public boolean isBoundary(final char ch) {
+        return table[ch] != WORD;
+    }
+    
+    private static void setClass(final byte[] table,
+                                 final String chars,
+                                 final byte cclass) {
+        if (chars != null) {
+            final int len = chars.length();
+            for (int idx = 0; idx < len; idx++) {
+                setClass(table, chars.charAt(idx), cclass);
+            }
+        }
+    }
+    
+    private static void setClass(final byte[] table,
+                                 final char ch,
+                                 final byte cclass) {
+        if ((cclass != WORD) && (cclass != WHITE) && (cclass != DELIMITER)) {
+            throw new IllegalArgumentException("invalid char class: " + cclass);
+        }
+        table[ch] = ((cclass == WORD) && (ch <= ' ')) ? BLANK : cclass;
+    }
+    
+    private static byte getDefaultClass(final char ch) {
+        final byte cclass;
+        
+        if (ch <= '\u00FF') {
+            if (LATIN_WHITES.indexOf(ch) != -1) {
+                cclass = WHITE;
+            } else if (LATIN_DELIMITERS.indexOf(ch) != -1) {
+                cclass = DELIMITER;
+            } else {
+                cclass = WORD;
+            }
+        } else {
+            switch (Character.getType(ch)) {
+                case Character.SPACE_SEPARATOR:
+                case Character.LINE_SEPARATOR:
+                case Character.PARAGRAPH_SEPARATOR:
+                    cclass = WHITE;
+                    break;
+                case Character.DASH_PUNCTUATION:
+                case Character.START_PUNCTUATION:
+                case Character.END_PUNCTUATION:
+                case Character.CONNECTOR_PUNCTUATION:
+                case Character.INITIAL_QUOTE_PUNCTUATION:
+                case Character.FINAL_QUOTE_PUNCTUATION:
+                case Character.OTHER_PUNCTUATION:
+                    cclass = DELIMITER;
+                    break;
+                default:
+                    cclass = WORD;
+            }
+        }
+        
+        return cclass;
+    }
+}
@@ -0,0 +1,191 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.text.Normalizer;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+
+/**
+ * Accent folding and lower casing kernel shared by the dictionary loaders
+ * (key normalization) and the analyzers (input text normalization), so that
+ * keys and text are always normalized the same way.
+ * Each char is folded into one char (the length is kept, so offsets are
+ * kept) with precomputed tables for Latin, Latin Extended, Greek and 
+ * Cyrillic: accents are removed (canonical decomposition without the 
+ * combining marks) and other letters are folded as ASCIIFoldingFilter does
+ * when it gives a single letter (ø -&gt; o, đ -&gt; d). The combining marks 
+ * U+0300 to U+036F are removed and the other chars are only lower cased.
+ * @author agent
+ * date: 20261017
+ */
+public final class CharFolder {
+    /**
+     * fold result of the chars that are removed (combining marks)
+     */
+    public static final char REMOVED = '\uFFFF';
+    
+    private static final int TABLE_SIZE = 0x2000;
+    
+    private static final char[] FOLD = new char[TABLE_SIZE];
+    private static final char[] UNACCENT = new char[TABLE_SIZE];
+    
+    static {
+        final char[] ascii = new char[4];
+        
+        for (int idx = 0; idx < TABLE_SIZE; idx++) {
+            final char ch = (char)idx;
+            char unaccent = ch;
+            
+            if (isMark(ch)) {
+                unaccent = REMOVED;
+            } else if ((idx < 0x530) || (idx >= 0x1E00)) { // Latin, Greek, 
+                                                           // Cyrillic
+                final String nfd = Normalizer.normalize(String.valueOf(ch), 
+                                                       Normalizer.Form.NFD);
+                if ((nfd.length() > 1) && !isMark(nfd.charAt(0)) && 
+                                                         onlyMarks(nfd, 1)) {
+                    unaccent = nfd.charAt(0);
+                } else if (Character.isLetter(ch) && 
+                     (ASCIIFoldingFilter.foldToASCII(new char[] {ch}, 0, 
+                                                        ascii, 0, 1) == 1) &&
+                                                 Character.isLetter(ascii[0])) {
+                    unaccent = ascii[0];
+                }
+            }
+            UNACCENT[idx] = unaccent;
+            FOLD[idx] = (unaccent == REMOVED) ? REMOVED 
+                                              : Character.toLowerCase(unaccent);
+        }
+    }
+    
+    private CharFolder() {
+    }
+    
+    private static boolean isMark(final char ch) {
+        return (ch >= '\u0300') && (ch <= '\u036F');
+    }
+    
+    private static boolean onlyMarks(final String str,
+                                     final int begin) {
+        boolean marks = true;
+        
+        for (int idx = begin; idx < str.length(); idx++) {
+            if (!isMark(str.charAt(idx))) {
+                marks = false;
+                break;
+            }
+        }
+        
+        return marks;
+    }
+    
+    /**
+     * @param ch - input char
+     * @return the char without accent and lower cased or REMOVED
+     */
+    public static char fold(final char ch) {
+        return (ch < TABLE_SIZE) ? FOLD[ch] : Character.toLowerCase(ch);
+    }
+    
+    /**
+     * Folds the chars in place. Removed chars are skipped, so the folded 
+     * chars may be fewer.
+     * @param buffer - chars to be folded
+     * @param offset - first char position
+     * @param length - number of chars
+     * @return the number of folded chars
+     */
+    public static int fold(final char[] buffer,
+                           final int offset,
+                           final int length) {
+        if (buffer == null) {
+            throw new NullPointerException("buffer");
+        }
+        final int end = offset + length;
+        int out = offset;
+        
+        for (int pos = offset; pos < end; pos++) {
+            final char ch = fold(buffer[pos]);
+            if (ch != REMOVED) {
+                buffer[out++] = ch;
+            }
+        }
+        
+        return out - offset;
+    }
+    
+    /**
+     * @param text - input text
+     * @return the text without accents and lower cased. It is the input
+     * string itself (no allocation) if it is already folded, as plain 
+     * lower case ASCII text is.
+     */
+    public static String fold(final String text) {
+        if (text == null) {
+            throw new NullPointerException("text");
+        }
+        final int len = text.length();
+        int pos = 0;
+        
+        while ((pos < len) && isFolded(text.charAt(pos))) {
+            pos++;
+        }
+        
+        final String ret;
+        if (pos == len) {
+            ret = text;
+        } else {
+            final char[] chars = text.toCharArray();
+            ret = new String(chars, 0, pos + fold(chars, pos, len - pos));
+        }
+        
+        return ret;
+    }
+    
+    /**
+     * @param text - input text
+     * @return the text without accents (case is kept)
+     */
+    public static String removeAccents(final String text) {
+        if (text == null) {
+            throw new NullPointerException("text");
+        }
+        final int len = text.length();
+        final char[] chars = new char[len];
+        int out = 0;
+        
+        for (int pos = 0; pos < len; pos++) {
+            final char ch = text.charAt(pos);
+            final char unaccent = (ch < TABLE_SIZE) ? UNACCENT[ch] : ch;
+            if (unaccent != REMOVED) {
+                chars[out++] = unaccent;
+            }
+        }
+        
+        return new String(chars, 0, out);
+    }
+    
+    private static boolean isFolded(final char ch) {
+        return (ch < 0x80) ? ((ch < 'A') || (ch > 'Z')) : (fold(ch) == ch);
+    }
+}
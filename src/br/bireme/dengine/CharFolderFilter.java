@@ -0,0 +1,57 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.IOException;
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+
+/**
+ * Removes the accents and lower cases the tokens in place (see CharFolder).
+ * @author agent
+ * date: 20261017
+ */
+public final class CharFolderFilter extends TokenFilter {
+    private final CharTermAttribute termAtt;
+    
+    public CharFolderFilter(final TokenStream input) {
+        super(input);
+        this.termAtt = addAttribute(CharTermAttribute.class);
+    }
+    
+    @Override
+    public boolean incrementToken() throws IOException {
+        final boolean ret;
+        
+        if (input.incrementToken()) {
+            termAtt.setLength(CharFolder.fold(termAtt.buffer(), 0, 
+                                                            termAtt.length()));
+            ret = true;
+        } else {
+            ret = false;
+        }
+        
+        return ret;
+    }
+}
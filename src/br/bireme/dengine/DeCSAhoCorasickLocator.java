@@ -0,0 +1,97 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.util.Map;
+
+/**
+ * Finds the same terms as DeCSTermLocator but, instead of looking up every
+ * window of the input string, runs the input once through an Aho-Corasick
+ * automaton of the dictionary keys. Only the key occurrences that begin and
+ * end at a word boundary are kept.
+ * An instance keeps scratch buffers and must not be shared among threads.
+ * The automaton itself can be shared.
+ * @author agent
+ * date: 20261017
+ */
+public class DeCSAhoCorasickLocator extends DeCSMatchLocator 
+                                        implements DecsAutomaton.MatchHandler {
+    private DecsAutomaton automaton;
+
+    public DeCSAhoCorasickLocator(final Map<String,DecsSyn> decs) {
+        this(DecsConcepts.forMap(decs).getAutomaton());
+    }
+
+    public DeCSAhoCorasickLocator(final DecsAutomaton automaton) {
+        this(automaton, CharClassTable.DEFAULT);
+    }
+
+    /**
+     * @param automaton - the automaton of the dictionary keys
+     * @param detector - decides the white chars and delimiters around terms
+     */
+    public DeCSAhoCorasickLocator(final DecsAutomaton automaton,
+                                  final BoundaryDetector detector) {
+        super(detector);
+        if (automaton == null) {
+            throw new NullPointerException("automaton");
+        }
+        this.automaton = automaton;
+    }
+
+    /**
+     * @return the automaton used by this locator
+     */
+    public DecsAutomaton getAutomaton() {
+        return automaton;
+    }
+
+    /**
+     * If concepts are not the ones the automaton was compiled from, the
+     * automaton of concepts is used (see DecsConcepts.getAutomaton).
+     * @param concepts - concept ordinals of the DeCS map
+     */
+    @Override
+    protected void prepare(final DecsConcepts concepts) {
+        if (concepts != automaton.getConcepts()) {
+            automaton = concepts.getAutomaton();
+        }
+    }
+
+    @Override
+    protected DecsConcepts getConcepts() {
+        return automaton.getConcepts();
+    }
+
+    @Override
+    protected void findMatches() {
+        automaton.scan(in, 0, endPos, this);
+    }
+
+    @Override
+    public void match(final int start,
+                      final int end,
+                      final int ordinal) {
+        addMatch(start, end, ordinal);
+    }
+}
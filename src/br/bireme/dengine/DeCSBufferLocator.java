@@ -0,0 +1,72 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+
+package br.bireme.dengine;
+
+import java.util.Map;
+
+/**
+ * A DeCSLocator that can also keep the terms it finds as records of a
+ * FoundTermBuffer, so that no FoundTerm is created per term. DeCSTokenizer
+ * uses these methods; a plain DeCSLocator given to it is wrapped by 
+ * DeCSLocatorAdapter.
+ * @author agent
+ * date: 20261017
+ */
+public interface DeCSBufferLocator extends DeCSLocator {
+    /**
+     * Finds the same terms as getTerms but keeps them as records of a 
+     * buffer, so that no FoundTerm is created. The buffer is cleared, its 
+     * concepts are set to the ones the term ordinals refer to and the terms
+     * are sorted by initial position. Unlike the set of getTerms, terms with
+     * the same initial position are all kept. The concept ordinals of decs
+     * are got from DecsConcepts.forMap.
+     * @param str - the input string
+     * @param decs - set of DeCS descrptors and qualifiers
+     * @param onlyPrecodTerms - process only precodified terms ( ^d11111 )
+     * @param found - buffer of the DeCS terms found in input string
+     */
+    public void getTerms(final String str,
+                         final Map<String,DecsSyn> decs,
+                         final boolean onlyPrecodTerms,
+                         final FoundTermBuffer found);
+    
+    /**
+     * Finds the terms as the method above, with the concept ordinals (and 
+     * the key length index and Bloom filter) built once for the map, for
+     * example by a DecsHandle.
+     * @param str - the input string
+     * @param concepts - concept ordinals of the DeCS map
+     * @param onlyPrecodTerms - process only precodified terms ( ^d11111 )
+     * @param found - buffer of the DeCS terms found in input string
+     */
+    public void getTerms(final String str,
+                         final DecsConcepts concepts,
+                         final boolean onlyPrecodTerms,
+                         final FoundTermBuffer found);
+    
+    /**
+     * @return the char classes used to find the term boundaries
+     */
+    public CharClassTable getCharClasses();
+}
@@ -0,0 +1,174 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+
+package br.bireme.dengine;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Makes a plain DeCSLocator usable where a DeCSBufferLocator is needed: the
+ * FoundTerm set of the wrapped locator is copied into the buffer. The term
+ * text is looked up in the input from the term initial position (the term
+ * positions are used if it is not there) and the concept ordinal is the 
+ * one of the FoundTerm, if it refers to the same concept, or else the one
+ * of its key. Terms whose concept is not in the map are dropped.
+ * @author agent
+ * date: 20261017
+ */
+final class DeCSLocatorAdapter implements DeCSBufferLocator {
+    private final DeCSLocator locator;
+    
+    private DeCSLocatorAdapter(final DeCSLocator locator) {
+        assert locator != null;
+        
+        this.locator = locator;
+    }
+    
+    /**
+     * @param locator - a DeCS locator
+     * @return the locator itself if it is a DeCSBufferLocator or else an
+     * adapter of it
+     */
+    static DeCSBufferLocator valueOf(final DeCSLocator locator) {
+        if (locator == null) {
+            throw new NullPointerException("locator");
+        }
+        return (locator instanceof DeCSBufferLocator) 
+                                    ? (DeCSBufferLocator)locator 
+                                    : new DeCSLocatorAdapter(locator);
+    }
+    
+    @Override
+    public Set<FoundTerm> getTerms(final String str,
+                                   final Map<String,DecsSyn> decs,
+                                   final boolean onlyPrecodTerms) {
+        return locator.getTerms(str, decs, onlyPrecodTerms);
+    }
+    
+    @Override
+    public void getTerms(final String str,
+                         final Map<String,DecsSyn> decs,
+                         final boolean onlyPrecodTerms,
+                         final FoundTermBuffer found) {
+        getTerms(str, DecsConcepts.forMap(decs), onlyPrecodTerms, found);
+    }
+    
+    @Override
+    public void getTerms(final String str,
+                         final DecsConcepts concepts,
+                         final boolean onlyPrecodTerms,
+                         final FoundTermBuffer found) {
+        if (str == null) {
+            throw new NullPointerException("str");
+        }
+        if (concepts == null) {
+            throw new NullPointerException("concepts");
+        }
+        if (found == null) {
+            throw new NullPointerException("found");
+        }
+        found.clear();
+        found.setConcepts(concepts);
+        for (FoundTerm term : locator.getTerms(str, concepts.getDecs(), 
+                                                           onlyPrecodTerms)) {
+            final boolean precod = term.getTerm().startsWith("^d");
+            final String key = precod ? term.getTerm().substring(2) 
+                                      : term.getTerm();
+            final int ordinal = getOrdinal(term, key, concepts);
+            
+            if (ordinal != DecsConcepts.NO_ORDINAL) {
+                final int textBegin = str.indexOf(key, term.getBeginPos());
+                final int index = (textBegin == -1)
+                    ? found.add(term.getBeginPos(), term.getEndPos(), ordinal,
+                                term.getBeginPos(), term.getEndPos(), precod)
+                    : found.add(term.getBeginPos(), term.getEndPos(), ordinal,
+                           textBegin, textBegin + key.length() - 1, precod);
+                final FoundTerm qualif = term.getQualifier();
+                
+                if (qualif != null) {
+                    setQualifier(str, qualif, precod, concepts, index, found);
+                }
+            }
+        }
+        found.sort();
+    }
+    
+    /**
+     * A plain locator does not tell its char classes.
+     * @return the default char classes
+     */
+    @Override
+    public CharClassTable getCharClasses() {
+        return CharClassTable.DEFAULT;
+    }
+    
+    private static void setQualifier(final String str,
+                                     final FoundTerm qualif,
+                                     final boolean precod,
+                                     final DecsConcepts concepts,
+                                     final int index,
+                                     final FoundTermBuffer found) {
+        assert str != null;
+        assert qualif != null;
+        assert concepts != null;
+        assert found != null;
+        
+        final String qterm = qualif.getTerm();
+        final String qkey = (precod && qterm.startsWith("^s")) 
+                                               ? qterm.substring(2) : qterm;
+        final int qord = getOrdinal(qualif, qkey, concepts);
+        
+        if (qord != DecsConcepts.NO_ORDINAL) {
+            final int qtextBegin = str.indexOf(qkey, qualif.getBeginPos());
+            
+            if (qtextBegin == -1) {
+                found.setQualifier(index, qualif.getBeginPos(), 
+                                   qualif.getEndPos(), qord, 
+                                   qualif.getBeginPos(), qualif.getEndPos());
+            } else {
+                found.setQualifier(index, qualif.getBeginPos(), 
+                                   qualif.getEndPos(), qord, qtextBegin, 
+                                   qtextBegin + qkey.length() - 1);
+            }
+        }
+    }
+    
+    /**
+     * @return the ordinal of the term concept or DecsConcepts.NO_ORDINAL
+     */
+    private static int getOrdinal(final FoundTerm term,
+                                  final String key,
+                                  final DecsConcepts concepts) {
+        assert term != null;
+        assert key != null;
+        assert concepts != null;
+        
+        final int ordinal = term.getOrdinal();
+        final boolean same = (ordinal >= 0) && (ordinal < concepts.size()) &&
+                  (term.getSyn() != null) && 
+                  term.getSyn().equals(concepts.getConcept(ordinal));
+        
+        return same ? ordinal : concepts.getKeyOrdinal(key);
+    }
+}
@@ -0,0 +1,498 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import static br.bireme.dengine.DeCSTermLocator.MAX_TOKEN_SIZE;
+import static br.bireme.dengine.DeCSTermLocator.MIN_TOKEN_SIZE;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Base of the locators that first collect the occurrences of dictionary keys
+ * in the input string and then choose among them the same terms
+ * DeCSTermLocator finds: the window choice of DeCSTermLocator (longest
+ * window first, then the next position after the found term) is reproduced
+ * over the collected occurrences instead of looking up every window.
+ * The occurrences carry concept ordinals (see DecsConcepts), which are only
+ * resolved to DecsSyn when a FoundTerm is created.
+ * An instance keeps scratch buffers and must not be shared among threads.
+ * @author agent
+ * date: 20261017
+ */
+abstract class DeCSMatchLocator implements DeCSBufferLocator {
+    // Sizes above which the occurrence buffers are dropped after an input,
+    // so that a single large input does not keep them large
+    private static final int MAX_POSITIONS = 64 * 1024;
+    private static final int MAX_MATCHES = 16 * 1024;
+    
+    /**
+     * the input string being processed
+     */
+    protected char[] in;
+    /**
+     * the last position of the input string
+     */
+    protected int endPos;
+    /**
+     * white chars and delimiters around terms
+     */
+    protected final CharClassTable classes;
+
+    // Key occurrences indexed by start position (linked lists)
+    private int[] termHead;     // keys without '/'
+    private int[] qualifHead;   // keys starting with '/'
+    private int[] mNext;
+    private int[] mEnd;
+    private int[] mOrdinal;
+    private int mSize;
+
+    // Candidates of the current start position
+    private int[] cEnd;
+    private int[] cSlash;
+    private int[] cTerm;
+    private int[] cQualif;
+
+    protected DeCSMatchLocator(final BoundaryDetector detector) {
+        this.classes = CharClassTable.valueOf(detector);
+        initHeads();
+        initMatches();
+        this.cEnd = new int[16];
+        this.cSlash = new int[16];
+        this.cTerm = new int[16];
+        this.cQualif = new int[16];
+    }
+
+    /**
+     * @return the char classes used to find the term boundaries
+     */
+    @Override
+    public CharClassTable getCharClasses() {
+        return classes;
+    }
+
+    /**
+     * Makes the locator ready to search the keys of the given concepts map.
+     * @param concepts - concept ordinals of the DeCS map
+     */
+    protected abstract void prepare(final DecsConcepts concepts);
+
+    /**
+     * @return the concept ordinals of the prepared map
+     */
+    protected abstract DecsConcepts getConcepts();
+
+    /**
+     * Reports, by calling addMatch(), the key occurrences of in[0, endPos].
+     * It is enough to report the occurrences that begin at a word start.
+     */
+    protected abstract void findMatches();
+
+    /**
+     *
+     * @param str - the input string
+     * @param decs - set of DeCS descrptors and qualifiers
+     * @param onlyPrecodTerms - process only precodified terms ( ^d11111 )
+     * @return set of DeCS terms found in input string
+     */
+    @Override
+    public Set<FoundTerm> getTerms(final String str,
+                                   final Map<String,DecsSyn> decs,
+                                   final boolean onlyPrecodTerms) {
+        final TreeSet<FoundTerm> foundTerms = new TreeSet<FoundTerm>(new
+                                                         FoundTermComparator());
+        getTerms(str, MAX_TOKEN_SIZE, MIN_TOKEN_SIZE, decs, onlyPrecodTerms,
+                                                                    foundTerms);
+        return foundTerms;
+    }
+
+    /**
+     *
+     * @param str - the input string
+     * @param decs - set of DeCS descrptors and qualifiers
+     * @param onlyPrecodTerms - process only precodified terms ( ^d11111 )
+     * @param found - buffer of the DeCS terms found in input string
+     */
+    @Override
+    public void getTerms(final String str,
+                         final Map<String,DecsSyn> decs,
+                         final boolean onlyPrecodTerms,
+                         final FoundTermBuffer found) {
+        getTerms(str, MAX_TOKEN_SIZE, MIN_TOKEN_SIZE, decs, onlyPrecodTerms,
+                                                                         found);
+    }
+
+    /**
+     *
+     * @param str - the input string
+     * @param concepts - concept ordinals of the DeCS map
+     * @param onlyPrecodTerms - process only precodified terms ( ^d11111 )
+     * @param found - buffer of the DeCS terms found in input string
+     */
+    @Override
+    public void getTerms(final String str,
+                         final DecsConcepts concepts,
+                         final boolean onlyPrecodTerms,
+                         final FoundTermBuffer found) {
+        getTerms(str, MAX_TOKEN_SIZE, MIN_TOKEN_SIZE, concepts, 
+                                                       onlyPrecodTerms, found);
+    }
+
+    /**
+     *
+     * @param str - the input string
+     * @param maxTokenSize - the maximum token size
+     * @param minTokenSize - the minimum token size
+     * @param decs - set of DeCS descrptors and qualifiers
+     * @param onlyPrecodTerms - process only precodified terms ( ^d11111 )
+     * @param foundTerms - set of DeCS terms found in input string
+     */
+    public void getTerms(final String str,
+                         final int maxTokenSize,
+                         final int minTokenSize,
+                         final Map<String,DecsSyn> decs,
+                         final boolean onlyPrecodTerms,
+                         final TreeSet<FoundTerm> foundTerms) {
+        if (foundTerms == null) {
+            throw new NullPointerException("foundTerms");
+        }
+        final FoundTermBuffer found = new FoundTermBuffer();
+
+        getTerms(str, maxTokenSize, minTokenSize, decs, onlyPrecodTerms, 
+                                                                        found);
+        found.addFoundTerms(str, decs, foundTerms);
+    }
+
+    /**
+     * The found terms are added to the buffer (cleared first), sorted by 
+     * initial position.
+     * @param str - the input string
+     * @param maxTokenSize - the maximum token size
+     * @param minTokenSize - the minimum token size
+     * @param decs - set of DeCS descrptors and qualifiers
+     * @param onlyPrecodTerms - process only precodified terms ( ^d11111 )
+     * @param found - buffer of the DeCS terms found in input string
+     */
+    public void getTerms(final String str,
+                         final int maxTokenSize,
+                         final int minTokenSize,
+                         final Map<String,DecsSyn> decs,
+                         final boolean onlyPrecodTerms,
+                         final FoundTermBuffer found) {
+        if (decs == null) {
+            throw new NullPointerException("decs");
+        }
+        getTerms(str, maxTokenSize, minTokenSize, DecsConcepts.forMap(decs),
+                                                       onlyPrecodTerms, found);
+    }
+
+    /**
+     * The found terms are added to the buffer (cleared first), sorted by 
+     * initial position.
+     * @param str - the input string
+     * @param maxTokenSize - the maximum token size
+     * @param minTokenSize - the minimum token size
+     * @param concepts - concept ordinals of the DeCS map
+     * @param onlyPrecodTerms - process only precodified terms ( ^d11111 )
+     * @param found - buffer of the DeCS terms found in input string
+     */
+    public void getTerms(final String str,
+                         final int maxTokenSize,
+                         final int minTokenSize,
+                         final DecsConcepts concepts,
+                         final boolean onlyPrecodTerms,
+                         final FoundTermBuffer found) {
+        if (found == null) {
+            throw new NullPointerException("found");
+        }
+        if (str == null) {
+            throw new NullPointerException("str");
+        }
+        if (minTokenSize < 1) {
+            throw new IllegalArgumentException("minTokenSize < 1");
+        }
+        if (concepts == null) {
+            throw new NullPointerException("concepts");
+        }
+        prepare(concepts);
+        found.clear();
+        found.setConcepts(getConcepts());
+
+        final int maxTSize = Math.min(Math.min(maxTokenSize, str.length()),
+                                                                MAX_TOKEN_SIZE);
+        final int minTSize = Math.max(minTokenSize, MIN_TOKEN_SIZE);
+
+        if (!onlyPrecodTerms) {
+            in = str.toCharArray();
+            endPos = in.length - 1;
+            try {
+                clearMatches();
+                if (in.length > 0) {
+                    findMatches();
+                }
+                searchTerms(maxTSize, minTSize, found);
+            } finally {
+                in = null;
+                trimMatches();
+            }
+        }
+        PrecodTermScanner.addTerms(str, getConcepts(), found);
+    }
+
+    private void initHeads() {
+        termHead = new int[256];
+        qualifHead = new int[256];
+    }
+    
+    private void initMatches() {
+        mNext = new int[64];
+        mEnd = new int[64];
+        mOrdinal = new int[64];
+    }
+    
+    /**
+     * Shrinks the occurrence buffers that grew above their maximum size.
+     */
+    private void trimMatches() {
+        if (termHead.length > MAX_POSITIONS) {
+            initHeads();
+        }
+        if (mEnd.length > MAX_MATCHES) {
+            initMatches();
+        }
+    }
+
+    private void clearMatches() {
+        final int len = in.length;
+
+        if (termHead.length < len) {
+            final int nlen = Math.max(len, termHead.length * 2);
+            termHead = new int[nlen];
+            qualifHead = new int[nlen];
+        }
+        Arrays.fill(termHead, 0, len, -1);
+        Arrays.fill(qualifHead, 0, len, -1);
+        mSize = 0;
+    }
+
+    /**
+     * Stores a key occurrence if it begins and ends at a possible token
+     * boundary.
+     * @param start - position of the first key character
+     * @param end - position of the last key character
+     * @param ordinal - ordinal of the concept associated with the key
+     */
+    protected void addMatch(final int start,
+                            final int end,
+                            final int ordinal) {
+        if ((end == endPos) || classes.isBoundary(in[end + 1])) {
+            if (in[start] == '/') {
+                add(qualifHead, start, end, ordinal);
+            } else if (((start == 0) || classes.isBoundary(in[start - 1]))
+                                                    && !hasSlash(start, end)) {
+                add(termHead, start, end, ordinal);
+            }
+        }
+    }
+
+    private void add(final int[] head,
+                     final int start,
+                     final int end,
+                     final int ordinal) {
+        if (mSize == mEnd.length) {
+            final int nlen = mSize * 2;
+            mNext = Arrays.copyOf(mNext, nlen);
+            mEnd = Arrays.copyOf(mEnd, nlen);
+            mOrdinal = Arrays.copyOf(mOrdinal, nlen);
+        }
+        mNext[mSize] = head[start];
+        mEnd[mSize] = end;
+        mOrdinal[mSize] = ordinal;
+        head[start] = mSize++;
+    }
+
+    private boolean hasSlash(final int start,
+                             final int end) {
+        boolean slash = false;
+
+        for (int pos = start; pos <= end; pos++) {
+            if (in[pos] == '/') {
+                slash = true;
+                break;
+            }
+        }
+        return slash;
+    }
+
+    /**
+     * Walks the input positions as DeCSTermLocator.searchTermRoot does, but
+     * only considers the windows whose trimmed content is a key occurrence.
+     */
+    private void searchTerms(final int maxTokenSize,
+                             final int minTokenSize,
+                             final FoundTermBuffer found) {
+        int curPos = 0;
+
+        while (true) {
+            final int rootEnd = Math.min(curPos + maxTokenSize - 1, endPos);
+
+            if (rootEnd - curPos + 1 < minTokenSize) {
+                break;
+            }
+            final int pStart = DeCSTermLocator.possibleStart(in, curPos,
+                                                                      classes);
+            int nextPos = curPos + 1;
+
+            if ((pStart != -1) &&
+                (DeCSTermLocator.possibleEnd(in, rootEnd, endPos, classes) 
+                                                                    != -1)) {
+                int begin = curPos;
+                while ((begin <= rootEnd) && (in[begin] <= ' ')) {
+                    begin++;
+                }
+                if (begin <= rootEnd) {
+                    final int after = searchCandidates(curPos, begin, pStart,
+                                           rootEnd, minTokenSize, found);
+                    if (after != -1) {
+                        nextPos = after;
+                    }
+                }
+            }
+            curPos = nextPos;
+        }
+    }
+
+    /**
+     * @return the position after the window of the found term or -1 if no
+     * term was found starting at curPos.
+     */
+    private int searchCandidates(final int curPos,
+                                 final int begin,
+                                 final int pStart,
+                                 final int rootEnd,
+                                 final int minTokenSize,
+                                 final FoundTermBuffer found) {
+        int cSize = 0;
+
+        for (int tm = termHead[begin]; tm != -1; tm = mNext[tm]) {
+            final int tend = mEnd[tm];
+
+            if (tend > rootEnd) {
+                continue;
+            }
+            if ((tend < endPos) && (in[tend + 1] == '/')) {
+                for (int qm = qualifHead[tend + 1]; qm != -1; qm = mNext[qm]) {
+                    if (mEnd[qm] <= rootEnd) {
+                        cSize = addCandidate(cSize, mEnd[qm], tend + 1,
+                                                  mOrdinal[tm], mOrdinal[qm]);
+                    }
+                }
+            }
+            cSize = addCandidate(cSize, tend, -1, mOrdinal[tm], 
+                                                      DecsConcepts.NO_ORDINAL);
+        }
+
+        int nextPos = -1;
+        for (int idx = 0; idx < cSize; idx++) {
+            final int cend = cEnd[idx];
+            int trimEnd = cend;
+            while ((trimEnd < rootEnd) && (in[trimEnd + 1] <= ' ')) {
+                trimEnd++;
+            }
+            final int minEnd = Math.max(cend, curPos + minTokenSize - 1);
+            for (int wend = trimEnd; wend >= minEnd; wend--) {
+                final int pEnd = DeCSTermLocator.possibleEnd(in, wend, endPos,
+                                                                      classes);
+                if (pEnd != -1) {
+                    addFoundTerm(curPos, begin, pStart, pEnd, wend == rootEnd,
+                                 cend, cSlash[idx], cTerm[idx], cQualif[idx],
+                                                                        found);
+                    nextPos = wend + 1;
+                    break;
+                }
+            }
+            if (nextPos != -1) {
+                break;
+            }
+        }
+
+        return nextPos;
+    }
+
+    /**
+     * Keeps the candidates sorted by decreasing end position.
+     */
+    private int addCandidate(final int cSize,
+                             final int end,
+                             final int slash,
+                             final int tord,
+                             final int qord) {
+        if (cSize == cEnd.length) {
+            final int nlen = cSize * 2;
+            cEnd = Arrays.copyOf(cEnd, nlen);
+            cSlash = Arrays.copyOf(cSlash, nlen);
+            cTerm = Arrays.copyOf(cTerm, nlen);
+            cQualif = Arrays.copyOf(cQualif, nlen);
+        }
+        int idx = cSize;
+        while ((idx > 0) && (cEnd[idx - 1] < end)) {
+            cEnd[idx] = cEnd[idx - 1];
+            cSlash[idx] = cSlash[idx - 1];
+            cTerm[idx] = cTerm[idx - 1];
+            cQualif[idx] = cQualif[idx - 1];
+            idx--;
+        }
+        cEnd[idx] = end;
+        cSlash[idx] = slash;
+        cTerm[idx] = tord;
+        cQualif[idx] = qord;
+
+        return cSize + 1;
+    }
+
+    /**
+     * Adds the found term exactly as DeCSTermLocator does for the window
+     * in[curPos, wend].
+     */
+    private void addFoundTerm(final int curPos,
+                              final int begin,
+                              final int pStart,
+                              final int pEnd,
+                              final boolean rootWindow,
+                              final int end,
+                              final int slash,
+                              final int tord,
+                              final int qord,
+                              final FoundTermBuffer found) {
+        if (slash == -1) {
+            found.add(pStart, pEnd, tord, begin, end, false);
+        } else {
+            final int tslash = slash - begin;  // slash position in the token
+            final int qbegin = rootWindow ? tslash : curPos + tslash - 1;
+            final int index = found.add(pStart, curPos + tslash - 1, tord,
+                                                    begin, slash - 1, false);
+            found.setQualifier(index, qbegin, pEnd, qord, slash, end);
+        }
+    }
+}
@@ -27,16 +27,13 @@ import static br.bireme.dengine.DeCSTermLocator.MIN_TOKEN_SIZE;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Check if the entire sentence (no break) is a DeCS term.
  * @author Heitor Barbieri
  * date: 20150205
  */
-public class DeCSSentenceTermLocator implements DeCSLocator {
-    
+public class DeCSSentenceTermLocator implements DeCSBufferLocator {
     /**
      *
      * @param str - the input string
@@ -52,6 +49,48 @@ public class DeCSSentenceTermLocator implements DeCSLocator {
                                                                onlyPrecodTerms);
     }
     
+    /**
+     *
+     * @param str - the input string
+     * @param decs - set of DeCS descrptors and qualifiers
+     * @param onlyPrecodTerms - process only precodified terms ( ^d11111 )
+     * @param found - buffer with one or no found term
+     */
+    @Override
+    public void getTerms(final String str,
+                         final Map<String,DecsSyn> decs,
+                         final boolean onlyPrecodTerms,
+                         final FoundTermBuffer found) {
+        getTerms(str, MAX_TOKEN_SIZE, MIN_TOKEN_SIZE, decs, onlyPrecodTerms,
+                                                                        found);
+    }
+    
+    /**
+     *
+     * @param str - the input string
+     * @param concepts - concept ordinals of the DeCS map
+     * @param onlyPrecodTerms - process only precodified terms ( ^d11111 )
+     * @param found - buffer with one or no found term
+     */
+    @Override
+    public void getTerms(final String str,
+                         final DecsConcepts concepts,
+                         final boolean onlyPrecodTerms,
+                         final FoundTermBuffer found) {
+        getTerms(str, MAX_TOKEN_SIZE, MIN_TOKEN_SIZE, concepts, 
+                                                       onlyPrecodTerms, found);
+    }
+    
+    /**
+     * The whole sentence is the term, so only the default char classes are
+     * used (to trim the sentence).
+     * @return the default char classes
+     */
+    @Override
+    public CharClassTable getCharClasses() {
+        return CharClassTable.DEFAULT;
+    }
+    
     /**
      * 
      * @param str - the input string
@@ -67,93 +106,120 @@ public class DeCSSentenceTermLocator implements DeCSLocator {
                                    final int minTokenSize,
                                    final Map<String,DecsSyn> decs,
                                    final boolean onlyPrecodTerms) {                
+        final TreeSet<FoundTerm> foundTerms = new TreeSet<FoundTerm>(new 
+                                                         FoundTermComparator());
+        final FoundTermBuffer found = new FoundTermBuffer(1);
+        
+        getTerms(str, maxTokenSize, minTokenSize, decs, onlyPrecodTerms, 
+                                                                        found);
+        found.addFoundTerms(str, decs, foundTerms);
+        
+        return foundTerms;
+    }
+    
+    /**
+     * 
+     * @param str - the input string
+     * @param maxTokenSize - the maximum token size
+     * @param minTokenSize - the minimum token size
+     * @param decs - set of DeCS descrptors and qualifiers
+     * @param onlyPrecodTerms - process only precodified terms ( ^d11111 )
+     * @param found - buffer with one or no found term
+     */
+    public void getTerms(final String str,
+                         final int maxTokenSize,
+                         final int minTokenSize,
+                         final Map<String,DecsSyn> decs,
+                         final boolean onlyPrecodTerms,
+                         final FoundTermBuffer found) {
+        if (decs == null) {
+            throw new NullPointerException("decs");
+        }
+        getTerms(str, maxTokenSize, minTokenSize, DecsConcepts.forMap(decs),
+                                                       onlyPrecodTerms, found);
+    }
+    
+    /**
+     * 
+     * @param str - the input string
+     * @param maxTokenSize - the maximum token size
+     * @param minTokenSize - the minimum token size
+     * @param concepts - concept ordinals of the DeCS map
+     * @param onlyPrecodTerms - process only precodified terms ( ^d11111 )
+     * @param found - buffer with one or no found term
+     */
+    public void getTerms(final String str,
+                         final int maxTokenSize,
+                         final int minTokenSize,
+                         final DecsConcepts concepts,
+                         final boolean onlyPrecodTerms,
+                         final FoundTermBuffer found) {
         if (str == null) {
             throw new NullPointerException("str");
         }
-        if (decs == null) {
-            throw new NullPointerException("decs");
+        if (concepts == null) {
+            throw new NullPointerException("concepts");
+        }
+        if (found == null) {
+            throw new NullPointerException("found");
         }
         
-        final TreeSet<FoundTerm> foundTerms = new TreeSet<FoundTerm>(new 
-                                                         FoundTermComparator());
         final int minTSize = Math.max(minTokenSize, MIN_TOKEN_SIZE); 
         final int maxTSize = Math.min(Math.min(maxTokenSize, str.length()), 
                                                                 MAX_TOKEN_SIZE);
         final int tsize = str.length();
         
+        found.clear();
+        found.setConcepts(concepts);
         if ((tsize >= minTSize) && (tsize <= maxTSize)) {       
-            if (onlyPrecodTerms) {
-                addPrecodTerms(str, decs, foundTerms);
-            } else {
-                searchTerm(str, decs, foundTerms);
-                if (foundTerms.isEmpty()) {
-                    addPrecodTerms(str, decs, foundTerms);
-                }
+            if (onlyPrecodTerms || !searchTerm(str, concepts, found)) {
+                PrecodTermScanner.addSentenceTerm(str, concepts, found);
             }
-            
         }
-        
-        return foundTerms;
     }
     
-    private static void searchTerm(final String in,
-                                   final Map<String,DecsSyn> decs,
-                                   final TreeSet<FoundTerm> foundTerms) {
+    private static boolean searchTerm(final String in,
+                                      final DecsConcepts concepts,
+                                      final FoundTermBuffer found) {
         assert in != null;
-        assert decs != null;
-        assert foundTerms != null;
+        assert concepts != null;
+        assert found != null;
         
         final int pEnd = in.length() - 1;
-        final String token = in.trim();
+        int tbegin = 0;
+        int tend = pEnd;
+        
+        while ((tbegin <= tend) && (in.charAt(tbegin) <= ' ')) {
+            tbegin++;
+        }
+        while ((tend >= tbegin) && (in.charAt(tend) <= ' ')) {
+            tend--;
+        }
+        final String token = in.substring(tbegin, tend + 1);
         final int slash = in.indexOf('/');
         final int tslash = token.indexOf('/');
-        final String term;
-        final String qualif;
-
-        if (tslash == -1) {
-            term = token;
-            qualif = null;
-        } else {
-            term = token.substring(0, tslash);
-            qualif = token.substring(tslash);
-        }
-        final DecsSyn tsyn = decs.get(term);
+        final String term = (tslash == -1) ? token 
+                                           : token.substring(0, tslash);
+        final int tord = concepts.getKeyOrdinal(term);
+        boolean added = false;
 
-        if (tsyn != null) { // Found a DeCS token
-            if (qualif == null) {
-                foundTerms.add(new FoundTerm(token, 0, pEnd, tsyn, null, 
-                                                                    false));
+        if (tord != DecsConcepts.NO_ORDINAL) { // Found a DeCS token
+            if (tslash == -1) {
+                found.add(0, pEnd, tord, tbegin, tend, false);
+                added = true;
             } else {
-                final DecsSyn qsyn = decs.get(qualif);
-                if (qsyn != null) { // Found a DeCS qualifier
-                    final FoundTerm fqual = new FoundTerm(qualif, slash,
-                                                          pEnd, qsyn, 
-                                                           null, false);
-                    foundTerms.add(new FoundTerm(term, 0, slash-1, tsyn, 
-                                                             fqual, false));
+                final int qord = concepts.getKeyOrdinal(
+                                                     token.substring(tslash));
+                if (qord != DecsConcepts.NO_ORDINAL) { // Found a qualifier
+                    final int index = found.add(0, slash - 1, tord, tbegin, 
+                                               tbegin + tslash - 1, false);
+                    found.setQualifier(index, slash, pEnd, qord, 
+                                                      tbegin + tslash, tend);
+                    added = true;
                 }       
             }                                                            
         }
-    }
-    
-    static void addPrecodTerms(final String str,
-                               final Map<String,DecsSyn> decs,
-                               final TreeSet<FoundTerm> foundTerms) {
-        assert str != null;
-        assert decs != null;
-        assert foundTerms != null;
         
-        final Matcher mat = Pattern.compile("\\s*(\\^[dD])" + 
-                            "(\\d{1,7})\\s*").matcher("");
-        mat.reset(str);
-        if (mat.matches()) {
-            final String id = mat.group(2);
-            final DecsSyn dSym = decs.get(id);
-            if (dSym != null) {
-                final FoundTerm term = new FoundTerm("^d" + id, mat.start(1), 
-                                         mat.end(2) - 1, dSym, null, false);
-                foundTerms.add(term);
-            }
-        }
+        return added;
     }
 }
@@ -22,20 +22,16 @@
 
 package br.bireme.dengine;
 
-import java.util.Arrays;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  *
  * @author Heitor Barbieri
  * date: 20150116
  */
-public class DeCSTermLocator implements DeCSLocator {
+public class DeCSTermLocator implements DeCSBufferLocator {
     /**
      * maximum DeCS token size
      */
@@ -45,20 +41,27 @@ public class DeCSTermLocator implements DeCSLocator {
      */
     public static final int MIN_TOKEN_SIZE = 2;
             
-    static final Character[] ACCEPTABLE_DELIM_ARRAY = new Character[] {
-        '\"', '\'', '!', '@', '#', '$', '%', '"', '&', '*', '(', ')', '_', '-',
-        '+', '=', '§', '\'', '`', '{', '[', 'ª', '^', '~', '}', ']', 'º', '<',
-        ',', '>', '.', ':', ';', '?', '/', '|', '\\' };
-        
-    static final Character[] WHITE_DELIM_ARRAY = new Character[] {
-        ' ', '\t', '\r', '\n', '\f' };
+    private final CharClassTable classes;
     
-    static final Set<Character> ACCEPTABLE_DELIMITER = 
-                  new HashSet<Character>(Arrays.asList(ACCEPTABLE_DELIM_ARRAY));        
+    public DeCSTermLocator() {
+        this(CharClassTable.DEFAULT);
+    }
+    
+    /**
+     * @param detector - decides the white chars and delimiters around terms
+     */
+    public DeCSTermLocator(final BoundaryDetector detector) {
+        this.classes = CharClassTable.valueOf(detector);
+    }
+    
+    /**
+     * @return the char classes used to find the term boundaries
+     */
+    @Override
+    public CharClassTable getCharClasses() {
+        return classes;
+    }
     
-    static final Set<Character> ACCEPTABLE_WHITE_DELIMITER = 
-                       new HashSet<Character>(Arrays.asList(WHITE_DELIM_ARRAY));
-            
     /**
      *
      * @param str - the input string
@@ -72,12 +75,53 @@ public class DeCSTermLocator implements DeCSLocator {
                                    final boolean onlyPrecodTerms) {
         final TreeSet<FoundTerm> foundTerms = new TreeSet<FoundTerm>(new 
                                                          FoundTermComparator());        
-        getTerms(str, MAX_TOKEN_SIZE, MIN_TOKEN_SIZE, decs, onlyPrecodTerms,
-                                                                    foundTerms);
+        final FoundTermBuffer found = new FoundTermBuffer();
+        
+        getTerms(str, decs, onlyPrecodTerms, found);
+        found.addFoundTerms(str, decs, foundTerms);
         
         return foundTerms;
     }
     
+    /**
+     *
+     * @param str - the input string
+     * @param decs - set of DeCS descrptors and qualifiers
+     * @param onlyPrecodTerms - process only precodified terms ( ^d11111 )
+     * @param found - buffer of the DeCS terms found in input string
+     */
+    @Override
+    public void getTerms(final String str,
+                         final Map<String,DecsSyn> decs,
+                         final boolean onlyPrecodTerms,
+                         final FoundTermBuffer found) {
+        getTerms(str, DecsConcepts.forMap(decs), onlyPrecodTerms, found);
+    }
+    
+    /**
+     *
+     * @param str - the input string
+     * @param concepts - concept ordinals of the DeCS map
+     * @param onlyPrecodTerms - process only precodified terms ( ^d11111 )
+     * @param found - buffer of the DeCS terms found in input string
+     */
+    @Override
+    public void getTerms(final String str,
+                         final DecsConcepts concepts,
+                         final boolean onlyPrecodTerms,
+                         final FoundTermBuffer found) {
+        if (concepts == null) {
+            throw new NullPointerException("concepts");
+        }
+        if (found == null) {
+            throw new NullPointerException("found");
+        }
+        found.clear();
+        found.setConcepts(concepts);
+        getTerms(str, MAX_TOKEN_SIZE, MIN_TOKEN_SIZE, concepts.getDecs(), 
+                               onlyPrecodTerms, classes, concepts, found);
+    }
+    
     /**
      * 
      * @param str - the input string
@@ -94,6 +138,46 @@ public class DeCSTermLocator implements DeCSLocator {
                                 final Map<String,DecsSyn> decs,
                                 final boolean onlyPrecodTerms,
                                 final TreeSet<FoundTerm> foundTerms) {
+        getTerms(str, maxTokenSize, minTokenSize, decs, onlyPrecodTerms,
+                                         CharClassTable.DEFAULT, foundTerms);
+    }
+    
+    /**
+     * 
+     * @param str - the input string
+     * @param maxTokenSize - the maximum token size
+     * @param minTokenSize - the minimum token size
+     * @param decs - set of DeCS descrptors and qualifiers
+     * @param onlyPrecodTerms - process only precodified terms ( ^d11111 )
+     * @param classes - white chars and delimiters around terms
+     * @param foundTerms - set of DeCS terms found in input string
+     */
+    public static void getTerms(final String str,
+                                final int maxTokenSize,
+                                final int minTokenSize,
+                                final Map<String,DecsSyn> decs,
+                                final boolean onlyPrecodTerms,
+                                final CharClassTable classes,
+                                final TreeSet<FoundTerm> foundTerms) {
+        final FoundTermBuffer found = new FoundTermBuffer();
+        
+        getTerms(str, maxTokenSize, minTokenSize, decs, onlyPrecodTerms,
+                                                         classes, null, found);
+        found.addFoundTerms(str, decs, foundTerms);
+    }
+    
+    /**
+     * The found terms are added to the buffer, sorted by initial position.
+     * They carry concept ordinals if concepts is not null.
+     */
+    private static void getTerms(final String str,
+                                 final int maxTokenSize,
+                                 final int minTokenSize,
+                                 final Map<String,DecsSyn> decs,
+                                 final boolean onlyPrecodTerms,
+                                 final CharClassTable classes,
+                                 final DecsConcepts concepts,
+                                 final FoundTermBuffer found) {
         if (str == null) {
             throw new NullPointerException("str");
         }
@@ -103,6 +187,9 @@ public class DeCSTermLocator implements DeCSLocator {
         if (decs == null) {
             throw new NullPointerException("decs");
         }
+        if (classes == null) {
+            throw new NullPointerException("classes");
+        }
         
         final int maxTSize = Math.min(Math.min(maxTokenSize, str.length()), 
                                                                 MAX_TOKEN_SIZE);
@@ -110,119 +197,101 @@ public class DeCSTermLocator implements DeCSLocator {
         final int endPos = str.length() - 1;
         
         if (!onlyPrecodTerms) {
-            searchTermRoot(str.toCharArray(), 0, maxTSize, minTSize, endPos, 
-                                                          decs, foundTerms);
+            searchTermRoot(str.toCharArray(), maxTSize, minTSize, endPos, 
+                                                decs, classes, concepts, found);
         }
-        addPrecodTerms(str, decs, foundTerms);
+        addPrecodTerms(str, decs, concepts, found);
     }
     
-    private static int searchTermRoot(final char[] in,
-                                      final int curPos,
-                                      final int tokenSize,
-                                      final int minTokenSize,
-                                      final int endPos,
-                                      final Map<String,DecsSyn> decs,
-                                      final TreeSet<FoundTerm> foundTerms) {
+    /**
+     * Walks the input string looking for DeCS terms. At each position, the
+     * largest window is tried first and then the smaller ones (see 
+     * searchTerm). The loop uses constant stack space whatever the input 
+     * size.
+     * @param in - the input string
+     * @param maxTokenSize - the maximum token size
+     * @param minTokenSize - the minimum token size
+     * @param endPos - end string position
+     * @param decs - set of DeCS descrptors and qualifiers
+     * @param classes - white chars and delimiters around terms
+     * @param concepts - concept ordinals of decs or null
+     * @param found - buffer of the DeCS terms found in input string
+     */
+    private static void searchTermRoot(final char[] in,
+                                       final int maxTokenSize,
+                                       final int minTokenSize,
+                                       final int endPos,
+                                       final Map<String,DecsSyn> decs,
+                                       final CharClassTable classes,
+                                       final DecsConcepts concepts,
+                                       final FoundTermBuffer found) {
         assert in != null;
-        assert curPos >= 0;
         assert minTokenSize > 0;
-        assert endPos >= 0;
         assert decs != null;
-        assert foundTerms != null;
+        assert found != null;
         
-        final int nextPos;
-        final int endTokenPos = curPos + tokenSize - 1;
-
-//System.out.println("#curPos=" + curPos + " tokenSize=" + tokenSize);
+        final DecsLengthIndex index = (concepts == null) ? null 
+                                                : concepts.getLengthIndex();
+        int curPos = 0;
+        int tokenSize = Math.min(maxTokenSize, endPos + 1);
         
-        if (tokenSize < minTokenSize) {
-            nextPos = -1;
-        } else if (endTokenPos <= endPos) {
-            final int pStart = possibleStart(in, curPos);
-            final int pEnd = possibleEnd(in, endTokenPos, endPos);
+        while (tokenSize >= minTokenSize) {
+            final int endTokenPos = curPos + tokenSize - 1;
+            final int pStart = possibleStart(in, curPos, classes);
+            final int pEnd = possibleEnd(in, endTokenPos, endPos, classes);
+            int nextPos = curPos + 1;
             
             if ((pStart != -1) && (pEnd != -1)) { // Found a possible place for a token
-                final String token = new String(in, curPos, tokenSize).trim();
-                final int slash = token.indexOf('/');
-                final String term;
-                final String qualif;
-                
-                if (slash == -1) {
-                    term = token;
-                    qualif = null;
-                } else {
-                    term = token.substring(0, slash);
-                    qualif = token.substring(slash);
+                // first key char and first '/' of all the windows at curPos
+                int begin = curPos;
+                while ((begin <= endTokenPos) && (in[begin] <= ' ')) {
+                    begin++;
                 }
-                
-                final DecsSyn tsyn = decs.get(term);
-
-                if (tsyn == null) { // Do not find a DeCS token
+                int slash = begin;
+                while ((slash <= endTokenPos) && (in[slash] != '/')) {
+                    slash++;
+                }
+                final boolean added = 
+                   canMatch(in, endTokenPos, begin, slash, index)
+                   && addTerm(in, curPos, tokenSize, pStart, pEnd, true, decs, 
+                                                             concepts, found);
+                if (added) { // Found a DeCS token
+                    nextPos = curPos + tokenSize;
+                } else { // Do not find a DeCS token
                     final int auxPos = searchTerm(in, pStart, curPos, 
-                         tokenSize - 1, minTokenSize, endPos, decs, foundTerms);
-                    if (auxPos == -1) {
-                        nextPos = searchTermRoot(in, curPos + 1, tokenSize, 
-                                        minTokenSize, endPos, decs, foundTerms);
-                    } else {
-                        nextPos = searchTermRoot(in, auxPos, tokenSize, 
-                                        minTokenSize, endPos, decs, foundTerms);
+                                  tokenSize - 1, minTokenSize, endPos, decs, 
+                                  classes, concepts, index, begin, slash,
+                                                                       found);
+                    if (auxPos != -1) {
+                        nextPos = auxPos;
                     }
-                } else { // Found a DeCS token
-                    if (qualif == null) {
-                        foundTerms.add(new FoundTerm(token, pStart, pEnd, 
-                                                            tsyn, null, false));
-                        nextPos = searchTermRoot(in, curPos + tokenSize, 
-                                                 tokenSize, minTokenSize, endPos, 
-                                                               decs, foundTerms);
-                    } else {
-                        final DecsSyn qsyn = decs.get(qualif);
-                        if (qsyn == null) { // Do not find a DeCS qualifier
-                            final int auxPos = searchTerm(in, pStart, curPos, 
-                                               tokenSize - 1, minTokenSize, 
-                                               endPos, decs, foundTerms);
-                            if (auxPos == -1) {
-                                nextPos = searchTermRoot(in, curPos + 1, 
-                                        tokenSize, minTokenSize, endPos, decs, 
-                                                                    foundTerms);
-                            } else {
-                                nextPos = searchTermRoot(in, auxPos, tokenSize, 
-                                        minTokenSize, endPos, decs, foundTerms);
-                            }
-                        } else { // Find a DeCS qualifier
-                            final FoundTerm fqual = new FoundTerm(qualif, slash,
-                                                                  pEnd, qsyn, 
-                                                                   null, false);
-                            foundTerms.add(new FoundTerm(term, pStart, 
-                                                         curPos + slash-1, tsyn, 
-                                                         fqual, false));
-                            nextPos = searchTermRoot(in, curPos + tokenSize, 
-                                                     tokenSize, minTokenSize, 
-                                                     endPos, decs, foundTerms);
-                        }       
-                    }                                                            
                 }
-            } else { // Did not find a possible place for a token
-                nextPos = searchTermRoot(in, curPos + 1, tokenSize, minTokenSize, 
-                                                      endPos, decs, foundTerms);
-            }        
-        } else { // Not enought size for a DeCS token here
-            nextPos = searchTermRoot(in, curPos, endPos - curPos + 1, 
-                                        minTokenSize, endPos, decs, foundTerms);
+            }
+            curPos = nextPos;
+            // Not enought size for a DeCS token at the end of the string
+            tokenSize = Math.min(tokenSize, endPos - curPos + 1);
         }
-        
-        return nextPos;
     }
     
     /**
-     * Add to foundTerms a DeCS term if found in the input string from
-     * current position inside a range size.
+     * Add to found a DeCS term if found in the input string from
+     * current position inside a range size. Windows are tried from the
+     * largest to the smallest one.
      * @param in - the input string
      * @param possibleStart - 
      * @param curPos - the current position in the input string
-     * @param tokenSize - the supposed size of the token
+     * @param tokenSize - the size of the largest window
      * @param minTokenSize - the minimum token size
+     * @param endPos - end string position
      * @param decs - set of DeCS descrptors and qualifiers
-     * @param foundTerms - set of DeCS terms found in input string
+     * @param classes - white chars and delimiters around terms
+     * @param concepts - concept ordinals of decs or null
+     * @param index - key lengths of decs or null
+     * @param begin - position of the first window char that is not white
+     * @param slash - position of the first '/' from begin (or after the
+     * largest window)
+     * @param found - buffer of the DeCS terms found in input string
+     * @return the position after the found term or -1 if no term was found
      */
     private static int searchTerm(final char[] in,
                                   final int possibleStart,
@@ -231,101 +300,243 @@ public class DeCSTermLocator implements DeCSLocator {
                                   final int minTokenSize,
                                   final int endPos,
                                   final Map<String,DecsSyn> decs,
-                                  final TreeSet<FoundTerm> foundTerms) {
+                                  final CharClassTable classes,
+                                  final DecsConcepts concepts,
+                                  final DecsLengthIndex index,
+                                  final int begin,
+                                  final int slash,
+                                  final FoundTermBuffer found) {
         assert in != null;
         assert possibleStart >= 0;
         assert curPos >= 0;
-        assert tokenSize > 0;
         assert minTokenSize > 0;
         assert endPos >= 0;
         assert decs != null;
-        assert foundTerms != null;
+        assert found != null;
         
-        final int nextPos;
-        final int endTokenPos = curPos + tokenSize - 1;
+        int nextPos = -1;
+        
+        for (int size = tokenSize; (nextPos == -1) && (size >= minTokenSize) 
+                                      && (curPos + size - 1 <= endPos); size--) {
+            final int pEnd = possibleEnd(in, curPos + size - 1, endPos, 
+                                                                      classes);
+            
+            if ((pEnd != -1) && // Found a possible place for a token
+                canMatch(in, curPos + size - 1, begin, slash, index) &&
+                addTerm(in, curPos, size, possibleStart, pEnd, false, decs, 
+                                                   concepts, found)) {
+                nextPos = curPos + size; // Found a DeCS token
+            }
+        }
+        
+        return nextPos;
+    }
 
-//System.out.println("curPos=" + curPos + " possibleStart=" + possibleStart + " tokenSize=" + tokenSize);
+    /**
+     * Checks the length of the key of a window (its trimmed part before the
+     * first '/') in the index, without looking it up.
+     * @param in - the input string
+     * @param end - last window position
+     * @param begin - position of the first window char that is not white
+     * @param slash - position of the first '/' from begin
+     * @param index - key lengths of the DeCS map or null
+     * @return false if the window surely is not a DeCS key
+     */
+    private static boolean canMatch(final char[] in,
+                                    final int end,
+                                    final int begin,
+                                    final int slash,
+                                    final DecsLengthIndex index) {
+        final boolean can;
         
-        if ((tokenSize >= minTokenSize) && (endTokenPos <= endPos)) {
-            final int pEnd = possibleEnd(in, endTokenPos, endPos);
+        if (index == null) {
+            can = true;
+        } else {
+            int keyEnd;
             
-            if (pEnd != -1) { // Found a possible place for a token
-                final String token = new String(in, curPos, tokenSize).trim();
-                final int slash = token.indexOf('/');
-                final String term;
-                final String qualif;
-                
-                if (slash == -1) {
-                    term = token;
-                    qualif = null;
-                } else {
-                    term = token.substring(0, slash);
-                    qualif = token.substring(slash);
-                }
-                                
-                final DecsSyn tsyn = decs.get(term);
-                if (tsyn == null) { // Do not find a DeCS token
-                    nextPos = searchTerm(in, possibleStart,curPos, tokenSize -1, 
-                                        minTokenSize, endPos, decs, foundTerms);
-                } else { // Found a DeCS token
-                    if (qualif == null) {
-                        foundTerms.add(new FoundTerm(token, possibleStart, 
-                                                     pEnd, tsyn, null, false));
-                        nextPos = curPos + tokenSize;
-                    } else {
-                        final DecsSyn qsyn = decs.get(qualif);
-                        if (qsyn == null) { // Do not find a DeCS qualifier
-                            nextPos = searchTerm(in, possibleStart ,curPos, 
-                                              tokenSize-1, minTokenSize, endPos, 
-                                                              decs, foundTerms);
-                        } else { // Find a DeCS qualifier
-                            final FoundTerm fqual = new FoundTerm(qualif, 
-                                                        curPos + slash - 1,
-                                                        pEnd,qsyn, null, false);
-                            foundTerms.add(new FoundTerm(term, possibleStart, 
-                                                         curPos + slash-1, tsyn, 
-                                                         fqual, false));
-                            nextPos = curPos + tokenSize;
-                        }       
-                    }
+            if (slash <= end) {
+                keyEnd = slash - 1;
+            } else {
+                keyEnd = end;
+                while ((keyEnd >= begin) && (in[keyEnd] <= ' ')) {
+                    keyEnd--;
                 }
-            } else { // Did not find a possible place for a token
-                nextPos = searchTerm(in, possibleStart, curPos, tokenSize - 1, 
-                                        minTokenSize, endPos, decs, foundTerms);
-            }        
-        } else { // Not enought size for a DeCS token here
-            nextPos = -1;
+            }
+            can = index.mayContain(in, begin, keyEnd);
         }
         
-        return nextPos;
+        return can;
+    }
+    
+    /**
+     * Look up the window in[curPos, curPos + tokenSize - 1] (trimmed) in the
+     * DeCS map and adds it to found if it is a DeCS term. A 
+     * 'descriptor/qualifier' window is found only if both parts are found.
+     * @param in - the input string
+     * @param curPos - the current position in the input string
+     * @param tokenSize - the size of the window
+     * @param pStart - the token start position (see possibleStart)
+     * @param pEnd - the token end position (see possibleEnd)
+     * @param rootWindow - true if the window is the largest one tried at
+     * curPos
+     * @param decs - set of DeCS descrptors and qualifiers
+     * @param concepts - concept ordinals of decs or null
+     * @param found - buffer of the DeCS terms found in input string
+     * @return true if the window is a DeCS term
+     */
+    private static boolean addTerm(final char[] in,
+                                   final int curPos,
+                                   final int tokenSize,
+                                   final int pStart,
+                                   final int pEnd,
+                                   final boolean rootWindow,
+                                   final Map<String,DecsSyn> decs,
+                                   final DecsConcepts concepts,
+                                   final FoundTermBuffer found) {
+        assert in != null;
+        assert curPos >= 0;
+        assert tokenSize > 0;
+        assert decs != null;
+        
+        boolean added = false;
+        
+        if (isPossibleTerm(in, curPos, tokenSize, decs, concepts)) {
+            // avoids creating the window strings otherwise
+            int tbegin = curPos;
+            int tend = curPos + tokenSize - 1;
+
+            while ((tbegin <= tend) && (in[tbegin] <= ' ')) {
+                tbegin++;
+            }
+            while ((tend >= tbegin) && (in[tend] <= ' ')) {
+                tend--;
+            }
+            final String token = new String(in, tbegin, tend - tbegin + 1);
+            final int slash = token.indexOf('/');
+            final String term = (slash == -1) ? token 
+                                              : token.substring(0, slash);
+            final int tord = getOrdinal(term, concepts);
+            final DecsSyn tsyn = getSyn(term, tord, decs, concepts);
+            
+            if (tsyn == null) { 
+                // Do not find a DeCS token
+            } else if (slash == -1) {
+                found.add(pStart, pEnd, tord, tbegin, tend, false);
+                added = true;
+            } else {
+                final String qualif = token.substring(slash);
+                final int qord = getOrdinal(qualif, concepts);
+                final DecsSyn qsyn = getSyn(qualif, qord, decs, concepts);
+                if (qsyn != null) { // Find a DeCS qualifier
+                    final int index = found.add(pStart, curPos + slash - 1,
+                                   tord, tbegin, tbegin + slash - 1, false);
+                    found.setQualifier(index, 
+                                    rootWindow ? slash : curPos + slash - 1,
+                                           pEnd, qord, tbegin + slash, tend);
+                    added = true;
+                }       
+            }
+        }
+        
+        return added;
+    }
+    
+    private static int getOrdinal(final String key,
+                                  final DecsConcepts concepts) {
+        return (concepts == null) ? DecsConcepts.NO_ORDINAL
+                                  : concepts.getKeyOrdinal(key);
+    }
+    
+    private static DecsSyn getSyn(final String key,
+                                  final int ordinal,
+                                  final Map<String,DecsSyn> decs,
+                                  final DecsConcepts concepts) {
+        final DecsSyn syn;
+        
+        if (concepts == null) {
+            syn = decs.get(key);
+        } else if (ordinal == DecsConcepts.NO_ORDINAL) {
+            syn = null;
+        } else {
+            syn = concepts.getConcept(ordinal);
+        }
+        
+        return syn;
     }
+    
+    /**
+     * Checks the trimmed window part before the first '/' against the 
+     * Bloom filter of the keys and, if decs is a DecsDictionary, looks it 
+     * up in the dictionary, without creating strings.
+     * @return false if the window is surely not a DeCS key
+     */
+    private static boolean isPossibleTerm(final char[] in,
+                                          final int curPos,
+                                          final int tokenSize,
+                                          final Map<String,DecsSyn> decs,
+                                          final DecsConcepts concepts) {
+        final DecsBloomFilter filter = (concepts == null) ? null 
+                                                      : concepts.getFilter();
+        final boolean isDict = (decs instanceof DecsDictionary);
+        boolean possible = true;
+        
+        if ((filter != null) || isDict) {
+            int begin = curPos;
+            int end = curPos + tokenSize - 1;
 
+            while ((begin <= end) && (in[begin] <= ' ')) {
+                begin++;
+            }
+            while ((end >= begin) && (in[end] <= ' ')) {
+                end--;
+            }
+            for (int pos = begin; pos <= end; pos++) {
+                if (in[pos] == '/') {
+                    end = pos - 1;
+                    break;
+                }
+            }
+            if (filter != null) {
+                possible = filter.mightContain(in, begin, end);
+            }
+            if (possible && isDict) {
+                possible = 
+                     (((DecsDictionary)decs).getOrdinal(in, begin, end) != -1);
+            }
+        }
+        
+        return possible;
+    }
+    
     /**
      * Check if a token can start here, i.e., preceded by a space followed by not 
      * alphanumerical characters.
      * @param in - the input string
      * @param pos - current position
+     * @param classes - white chars and delimiters around terms
      * @return position of the previous white char or 0 if the beginning of the
      * string or -1 if here is not a possible token start position.
      */
     static int possibleStart(final char[] in,
-                             final int pos) {
+                             final int pos,
+                             final CharClassTable classes) {
         assert in != null;
         assert pos >= 0;
+        assert classes != null;
  
+        int cur = pos;
+        
+        // skips the delimiters before the token
+        while ((cur > 0) && classes.isDelimiter(in[cur - 1])) {
+            cur--;
+        }
+        
         final int whitePos;
         
-        if (pos == 0) {
-            whitePos = (ACCEPTABLE_WHITE_DELIMITER.contains(in[0])) ? -1 : 0;                
+        if (cur == 0) {
+            whitePos = classes.isWhite(in[0]) ? -1 : 0;
         } else {
-            final Character ch = in[pos - 1];
-            
-            if (ACCEPTABLE_WHITE_DELIMITER.contains(ch)) {
-                whitePos = pos - 1;
-            } else {
-                whitePos = ACCEPTABLE_DELIMITER.contains(ch) ?
-                           possibleStart(in, pos - 1) : -1;
-            }
+            whitePos = classes.isWhite(in[cur - 1]) ? cur - 1 : -1;
         }
         
         return whitePos;
@@ -337,31 +548,34 @@ public class DeCSTermLocator implements DeCSLocator {
      * @param in - the input string
      * @param pos - current position
      * @param endPos - end string position
+     * @param classes - white chars and delimiters around terms
      * @return position before the next white char or endPos if the end of the
      * string or -1 if here is not a possible token end position.
      */
     static int possibleEnd(final char[] in,
                            final int pos,
-                           final int endPos) {
+                           final int endPos,
+                           final CharClassTable classes) {
         assert in != null;
         assert pos >= 0;
         assert endPos >= 0;
+        assert classes != null;
+        
+        int cur = pos;
+        
+        // skips the delimiters after the token
+        while ((cur < endPos) && classes.isDelimiter(in[cur + 1])) {
+            cur++;
+        }
         
         final int whitePos;
         
-        if (pos > endPos) {
+        if (cur > endPos) {
             whitePos = -1;
-        } else if (pos == endPos) {
+        } else if (cur == endPos) {
             whitePos = endPos;
         } else {
-            final Character ch = in[pos + 1];
-            
-            if (ACCEPTABLE_WHITE_DELIMITER.contains(ch)) {
-                whitePos = pos;
-            } else {
-                whitePos = ACCEPTABLE_DELIMITER.contains(ch) ?
-                                          possibleEnd(in, pos + 1, endPos) : -1;
-            }
+            whitePos = classes.isWhite(in[cur + 1]) ? cur : -1;
         }
         
         return whitePos;
@@ -369,44 +583,16 @@ public class DeCSTermLocator implements DeCSLocator {
     
     static void addPrecodTerms(final String str,
                                final Map<String,DecsSyn> decs,
-                               final TreeSet<FoundTerm> foundTerms) {
+                               final DecsConcepts concepts,
+                               final FoundTermBuffer found) {
         assert str != null;
         assert decs != null;
-        assert foundTerms != null;
-        
-        final Matcher mat = Pattern.compile("(?<=(\\s|^))([\\W&&\\S]*\\^[dD])" + 
-                "(\\d{1,7})([\\W&&\\S]*|(\\^\\w\\S+)*)(?=(\\s|^))").matcher("");
-        int lastPos = 0;     
+        assert found != null;
         
-        if (foundTerms.isEmpty()) {
-            mat.reset(str);
-            while (mat.find()) {
-                final String id = mat.group(3);
-                final DecsSyn dSym = decs.get(id);
-                if (dSym != null) {
-                    final FoundTerm term = new FoundTerm("^d" + id, mat.start(1), 
-                                             mat.end(4) - 1, dSym, null, false);
-                    foundTerms.add(term);
-                }
-            }
+        if (concepts == null) {
+            PrecodTermScanner.addTerms(str, decs, null, found);
         } else {
-            for (FoundTerm fterm : foundTerms) {
-                final int curPos = fterm.getBeginPos();
-
-                mat.reset(str.subSequence(lastPos, curPos));
-                while (mat.find()) {
-                    final String id = mat.group(3);
-                    final DecsSyn dSym = decs.get(id);
-
-                    if (dSym != null) {
-                        final FoundTerm term = new FoundTerm("^d" + id, 
-                                                   mat.start(1), mat.end(4) - 1, 
-                                                   dSym, null, false);
-                        foundTerms.add(term);
-                    }
-                }
-                lastPos = curPos;
-            }       
+            PrecodTermScanner.addTerms(str, concepts, found);
         }
     }
 }
@@ -24,37 +24,58 @@ package br.bireme.dengine;
 
 import java.io.IOException;
 import java.io.Reader;
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.TreeSet;
+import org.apache.lucene.analysis.CharFilter;
 import org.apache.lucene.analysis.Tokenizer;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
 import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.util.AttributeFactory;
 
 /**
- *
+ * Creates the DeCS tokens of its input. The tokenizer follows the Lucene
+ * reuse protocol: the input is read by reset() (after the constructor or 
+ * setReader()), end() sets the final offset and close() releases the 
+ * input. The tokens are kept in a DecsTokenBuffer and the input chars in
+ * scratch buffers reused by every input, and the terms are written with
+ * CharTermAttribute.copyBuffer, so a reused tokenizer allocates little 
+ * besides the terms found by the locator.
  * @author Heitor Barbieri
  * date: 20141114
  */
 public class DeCSTokenizer extends Tokenizer {
     public static final int DEF_MIN_TOKEN_SIZE = 2;
+    /**
+     * suggested number of chars read by region in streaming mode
+     */
+    public static final int DEF_CHUNK_SIZE = 8192;
     
-    private final Map<String,DecsSyn> decs;
+    private Map<String,DecsSyn> decs;  // changed only by reset
+    private DecsConcepts concepts;     // of decs, changed only by reset
+    private final DecsHandle handle;   // map read by reset() or null
+    private final DecsTokenCache cache; // tokens of repeated inputs or null
     private final DecsParams parameters;
-    private final DeCSLocator locator;
-    private final Deque<FoundTerm> tokenDeque;
+    private final DeCSBufferLocator locator; // see DeCSLocatorAdapter
+    private final DecsTokenBuffer tokens;
+    private final FoundTermBuffer found;  // terms found by the locator
+    private DecsConcepts expConcepts;     // concepts of expansions or null
+    private DecsExpansions expansions;    // tokens of the concepts or null
     private final OffsetAttribute offsetAtt;
     private final CharTermAttribute termAtt;
     private final PositionIncrementAttribute posIncrAtt;
     private final int minTokSize;
     private final boolean breakSentence;
+    private final char[] buffer;   // streaming mode region buffer or null
+    private final StringBuilder content; // scratch buffer of the input
+    private final char[] readBuffer;     // scratch buffer of the reads
     
-    private Iterator<FoundTerm> allTokens;
+    private CharFilter charFilter; // corrects the offsets or null
+    private RemoveAccentsCharFilter accents; // reused by reset() or null
+    private Reader stream;         // streaming mode input or null if consumed
+    private int bufLen;            // number of chars in buffer
+    private int bufOffset;         // input offset of buffer[0]
+    private int tokenOffset;       // input offset of the tokens in tokens
+    private int inputLength;       // number of chars read from the input
     
     public DeCSTokenizer(final Reader input,
                          final Map<String,DecsSyn> decs,
@@ -68,11 +89,149 @@ public class DeCSTokenizer extends Tokenizer {
                          final DecsParams parameters,
                          final boolean breakSentence,
                          final int minTokenSize) throws IOException {
-        super(input);
-        
+        this(input, decs, parameters, breakSentence, minTokenSize, 
+                 breakSentence ? new DeCSTermLocator() 
+                               : new DeCSSentenceTermLocator());
+    }
+    
+    public DeCSTokenizer(final Reader input,
+                         final Map<String,DecsSyn> decs,
+                         final DecsParams parameters,
+                         final boolean breakSentence,
+                         final int minTokenSize,
+                         final DeCSLocator locator) throws IOException {
+        this(input, decs, parameters, breakSentence, minTokenSize, locator, 0);
+    }
+    
+    /**
+     * In streaming mode (chunkSize > 0 and breakSentence), the input is read
+     * in regions of about chunkSize chars plus a carry-over window of
+     * MAX_TOKEN_SIZE chars, and the tokens of each region are emitted before
+     * the next one is read. Regions are cut at a space char that is not
+     * inside a found term, so memory does not grow with the input size.
+     * @param input - the input reader
+     * @param decs - set of DeCS descrptors and qualifiers
+     * @param parameters - token generation parameters
+     * @param breakSentence - if true, the input is broken into tokens,
+     * if false, the whole input is a token
+     * @param minTokenSize - the minimum token size
+     * @param locator - the DeCS term locator
+     * @param chunkSize - number of chars read by region or 0 to read the 
+     * whole input before the first token
+     * @throws IOException 
+     */
+    public DeCSTokenizer(final Reader input,
+                         final Map<String,DecsSyn> decs,
+                         final DecsParams parameters,
+                         final boolean breakSentence,
+                         final int minTokenSize,
+                         final DeCSLocator locator,
+                         final int chunkSize) throws IOException {
+        this(input, decs, parameters, breakSentence, minTokenSize, locator,
+                                                              chunkSize, null);
+    }
+
+    /**
+     * @param input - the input reader
+     * @param decs - set of DeCS descrptors and qualifiers
+     * @param parameters - token generation parameters
+     * @param breakSentence - if true, the input is broken into tokens,
+     * if false, the whole input is a token
+     * @param minTokenSize - the minimum token size
+     * @param locator - the DeCS term locator
+     * @param chunkSize - number of chars read by region or 0 to read the 
+     * whole input before the first token
+     * @param cache - tokens of the inputs already seen (not used in 
+     * streaming mode) or null
+     * @throws IOException 
+     */
+    public DeCSTokenizer(final Reader input,
+                         final Map<String,DecsSyn> decs,
+                         final DecsParams parameters,
+                         final boolean breakSentence,
+                         final int minTokenSize,
+                         final DeCSLocator locator,
+                         final int chunkSize,
+                         final DecsTokenCache cache) throws IOException {
+        this(AttributeFactory.DEFAULT_ATTRIBUTE_FACTORY, input, 
+                   getConcepts(decs), null, parameters, breakSentence, 
+                   minTokenSize, locator, chunkSize, cache);
+    }
+
+    /**
+     * Creates a tokenizer whose input accents are removed by a 
+     * RemoveAccentsCharFilter and that tokenizes each input with the map of
+     * the handle when reset() is called. Used by the analyzers and by 
+     * DeCSTokenizerFactory.
+     * @param factory - the attribute factory
+     * @param input - the input reader
+     * @param handle - handle of the DeCS map
+     * @param parameters - token generation parameters
+     * @param breakSentence - if true, the input is broken into tokens,
+     * if false, the whole input is a token
+     * @param minTokenSize - the minimum token size
+     * @param locator - the DeCS term locator
+     * @param chunkSize - number of chars read by region or 0 to read the 
+     * whole input before the first token
+     */
+    public DeCSTokenizer(final AttributeFactory factory,
+                         final Reader input,
+                         final DecsHandle handle,
+                         final DecsParams parameters,
+                         final boolean breakSentence,
+                         final int minTokenSize,
+                         final DeCSLocator locator,
+                         final int chunkSize) {
+        this(factory, input, handle, parameters, breakSentence, minTokenSize,
+                                                     locator, chunkSize, null);
+    }
+
+    /**
+     * See the constructor above.
+     * @param cache - tokens of the inputs already seen (not used in 
+     * streaming mode) or null
+     */
+    public DeCSTokenizer(final AttributeFactory factory,
+                         final Reader input,
+                         final DecsHandle handle,
+                         final DecsParams parameters,
+                         final boolean breakSentence,
+                         final int minTokenSize,
+                         final DeCSLocator locator,
+                         final int chunkSize,
+                         final DecsTokenCache cache) {
+        this(factory, input, getConcepts(handle), handle, parameters, 
+                       breakSentence, minTokenSize, locator, chunkSize, cache);
+    }
+
+    private static DecsConcepts getConcepts(final Map<String,DecsSyn> decs) {
         if (decs == null) {
             throw new NullPointerException("decs");
         }
+        return DecsConcepts.forMap(decs);
+    }
+
+    private static DecsConcepts getConcepts(final DecsHandle handle) {
+        if (handle == null) {
+            throw new NullPointerException("handle");
+        }
+        return handle.getSnapshot().getConcepts();
+    }
+
+    private DeCSTokenizer(final AttributeFactory factory,
+                          final Reader input,
+                          final DecsConcepts concepts,
+                          final DecsHandle handle,
+                          final DecsParams parameters,
+                          final boolean breakSentence,
+                          final int minTokenSize,
+                          final DeCSLocator locator,
+                          final int chunkSize,
+                          final DecsTokenCache cache) {
+        super(factory, input);
+        
+        assert concepts != null;
+        
         if (parameters == null) {
             throw new NullPointerException("parameters");
         } 
@@ -80,32 +239,81 @@ public class DeCSTokenizer extends Tokenizer {
             throw new IllegalArgumentException("token size[" + minTokenSize  + 
                                                                        "] < 1");
         }
+        if (locator == null) {
+            throw new NullPointerException("locator");
+        }
+        if ((chunkSize != 0) && (chunkSize < DeCSTermLocator.MAX_TOKEN_SIZE)) {
+            throw new IllegalArgumentException("chunk size[" + chunkSize  + 
+                                        "] < " + DeCSTermLocator.MAX_TOKEN_SIZE);
+        }
         
-        this.decs = decs;
+        this.decs = concepts.getDecs();
+        this.concepts = concepts;
+        this.handle = handle;
+        this.cache = cache;
         this.parameters = parameters;
-        this.locator = breakSentence ? new DeCSTermLocator() 
-                                     : new DeCSSentenceTermLocator();  
+        this.locator = DeCSLocatorAdapter.valueOf(locator);
         this.minTokSize = minTokenSize;
-        this.tokenDeque = new ArrayDeque<FoundTerm>();        
-        fillDeque(input);        
+        this.breakSentence = breakSentence;
+        this.buffer = ((chunkSize > 0) && breakSentence) 
+                         ? new char[chunkSize + DeCSTermLocator.MAX_TOKEN_SIZE]
+                         : null;
+        this.tokens = new DecsTokenBuffer();
+        this.found = new FoundTermBuffer();
+        this.content = new StringBuilder();
+        this.readBuffer = new char[1024];
         this.offsetAtt = addAttribute(OffsetAttribute.class);
         this.termAtt = addAttribute(CharTermAttribute.class);
         this.posIncrAtt = addAttribute(PositionIncrementAttribute.class); 
-        this.breakSentence = breakSentence;
-        input.close();
+    }
+
+    /**
+     * Reads the input set by the constructor or by setReader(). If the 
+     * tokenizer was created with a DecsHandle, the current map of the 
+     * handle (and its concepts, built with the map) is used until the next
+     * reset(), and the input is read through a RemoveAccentsCharFilter
+     * that every reset() reuses.
+     * @throws IOException 
+     */
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        if (stream != null) { // previous input was not fully consumed
+            stream.close();
+            stream = null;
+        }
+        if (handle == null) {
+            fillTokens(input);
+        } else {
+            concepts = handle.getSnapshot().getConcepts();
+            decs = concepts.getDecs();
+            if (accents == null) {
+                accents = new RemoveAccentsCharFilter(input);
+            } else {
+                accents.setReader(input);
+            }
+            fillTokens(accents);
+        }
     }
         
     @Override
     public final boolean incrementToken() throws IOException {
         final boolean ret;
         
-        if (allTokens.hasNext()) {
-            final FoundTerm term = allTokens.next();
+        while ((!tokens.hasNext()) && (stream != null)) {
+            tokens.clear();
+            fillRegion();
+        }
+        if (tokens.hasNext()) {
+            final int token = tokens.next();
             
-            offsetAtt.setOffset(term.getBeginPos(), term.getEndPos() + 1);
-            termAtt.setEmpty();
-            termAtt.append(term.getTerm());
-            posIncrAtt.setPositionIncrement(term.getSamePos() ? 0 : 1);
+            clearAttributes();
+            offsetAtt.setOffset(
+                     getInputOffset(tokenOffset + tokens.getBegin(token)),
+                     getInputOffset(tokenOffset + tokens.getEnd(token) + 1));
+            termAtt.copyBuffer(tokens.getChars(), tokens.getStart(token),
+                                                     tokens.getLength(token));
+            posIncrAtt.setPositionIncrement(tokens.getSamePos(token) ? 0 : 1);
             ret = true;
         } else {
             ret = false;
@@ -114,315 +322,395 @@ public class DeCSTokenizer extends Tokenizer {
         return ret;
     }
     
-    final void fillDeque(final Reader input) throws IOException {
+    @Override
+    public void end() throws IOException {
+        super.end();
+        final int finalOffset = getInputOffset(inputLength);
+        offsetAtt.setOffset(finalOffset, finalOffset);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        super.close();
+        if (stream != null) { // input was not fully consumed
+            stream.close();
+            stream = null;
+        }
+        tokens.clear();
+        charFilter = null;
+    }
+    
+    /**
+     * @param offset - offset of the text read from the input reader
+     * @return offset of the original text if the input reader is a 
+     * CharFilter (see RemoveAccentsCharFilter)
+     */
+    private int getInputOffset(final int offset) {
+        return (charFilter == null) ? offset 
+                                    : charFilter.correctOffset(offset);
+    }
+    
+    /**
+     * Creates the tokens of a new input (or prepares the streaming mode).
+     * @param input - the input reader
+     * @throws IOException 
+     */
+    private void fillTokens(final Reader input) throws IOException {
         assert input != null;
-        assert tokenDeque != null;
 
-        tokenDeque.clear();
-        final String in = getReaderContent(input);        
-        if (!in.isEmpty()) {
-            final Set<FoundTerm> fTerms = locator.getTerms(in, decs, 
-                                  parameters.processOnlyPrecodTerms);
-            final Iterator<FoundTerm> terms = fTerms.iterator();
-            getTokens(in, 0, in.length() - 1, parameters, terms, tokenDeque);            
-        }        
-        allTokens = tokenDeque.iterator();
+        tokens.clear();
+        tokenOffset = 0;
+        inputLength = 0;
+        charFilter = (input instanceof CharFilter) ? (CharFilter)input : null;
+        if (buffer == null) {
+            stream = null;
+            final String in = getReaderContent(input);        
+            inputLength = in.length();
+            if (!in.isEmpty()) {
+                final DecsTokenBuffer cached = (cache == null) ? null 
+                                                      : cache.get(in, decs);
+                if (cached == null) {
+                    locator.getTerms(in, concepts, 
+                                   parameters.processOnlyPrecodTerms, found);
+                    getTokens(in, 0, in.length() - 1, parameters, 
+                                                            found.size());
+                    if (cache != null) {
+                        cache.put(in, decs, tokens.copy());
+                    }
+                } else {
+                    tokens.addAll(cached);
+                }
+            }
+        } else {  // tokens are created by incrementToken
+            stream = input;
+            bufLen = 0;
+            bufOffset = 0;
+        }
+    }
+    
+    /**
+     * Reads the input until the buffer is full and creates the tokens of the
+     * buffer region that can not be affected by the chars not read yet.
+     * The remaining chars are moved to the buffer beginning.
+     * @throws IOException 
+     */
+    private void fillRegion() throws IOException {
+        assert stream != null;
+        assert buffer != null;
+        
+        boolean eof = false;
+        
+        while ((!eof) && (bufLen < buffer.length)) {
+            final int charsRead = stream.read(buffer, bufLen, 
+                                                        buffer.length - bufLen);
+            if (charsRead == -1) {
+                eof = true;
+            } else {
+                bufLen += charsRead;
+            }
+        }
+        if (bufLen > 0) {
+            final String in = new String(buffer, 0, bufLen);
+            locator.getTerms(in, concepts, 
+                                   parameters.processOnlyPrecodTerms, found);
+            final int cut = eof ? bufLen : getRegionEnd(in);
+            // the region includes the space at cut unless a term begins there,
+            // so that addStrTokens splits it as the whole input
+            int rEnd = Math.min(cut, bufLen - 1);
+            int rCount = 0;    // the terms are sorted by initial position
+            
+            while ((rCount < found.size()) && (found.getBegin(rCount) < cut)) {
+                rCount++;
+            }
+            if ((rCount < found.size()) && (found.getBegin(rCount) == cut)) {
+                rEnd = cut - 1;
+            }
+            getTokens(in, 0, rEnd, parameters, rCount);
+            tokenOffset = bufOffset;
+            bufLen -= cut;
+            bufOffset += cut;
+            System.arraycopy(buffer, cut, buffer, 0, bufLen);
+        }
+        if (eof) {
+            inputLength = bufOffset + bufLen;
+            stream.close();
+            stream = null;
+        }
+    }
+    
+    /**
+     * Looks for the region end. Every position up to it must be followed by
+     * at least MAX_TOKEN_SIZE chars in the buffer, so that the terms found 
+     * there do not depend on the chars not read yet, and no found term may
+     * cross it.
+     * @param in - buffer content
+     * @return the position after the region
+     */
+    private int getRegionEnd(final String in) {
+        assert in != null;
+        
+        final int scut = getRegionEnd(in, true);
+        final int cut = (scut == -1) ? getRegionEnd(in, false) : scut;
+        
+        return (cut == -1) ? in.length() : cut;
+    }
+    
+    /**
+     * @param in - buffer content
+     * @param strict - see getCutPos
+     * @return the position after the region or -1 if there is none
+     */
+    private int getRegionEnd(final String in,
+                             final boolean strict) {
+        assert in != null;
+        
+        // a term beginning at the cut is found at the next position and its
+        // window must be followed by a char (see DeCSTermLocator.possibleEnd)
+        final int limit = in.length() - DeCSTermLocator.MAX_TOKEN_SIZE - 2;
+        int cut = getCutPos(in, limit, strict);
+        boolean moved = (cut != -1);
+        
+        while (moved) { // moves the cut to before the terms crossing it
+            moved = false;
+            for (int term = 0; term < found.size(); term++) {
+                final int beginPos = found.getBegin(term);
+                
+                if (beginPos >= cut) {
+                    break;
+                }
+                if (found.getLastPos(term) >= cut) {
+                    cut = getCutPos(in, beginPos, strict);
+                    moved = (cut != -1);
+                    break;
+                }
+            }
+        }
+        
+        return cut;
+    }
+    
+    /**
+     * Looks backward for a space char. If strict, it must be between word 
+     * chars (neither white nor delimiter chars), so that a region beginning
+     * there is tokenized as if it were in the middle of the input string.
+     * @param in - buffer content
+     * @param pos - initial search position
+     * @param strict - the space must be between word chars
+     * @return the position of the space char or -1 if there is none
+     */
+    private int getCutPos(final String in,
+                          final int pos,
+                          final boolean strict) {
+        assert in != null;
+        assert pos >= 0;
+        
+        final CharClassTable classes = locator.getCharClasses();
+        int cur = Math.min(pos, in.length() - 2);
+        int cut = -1;
+        
+        while ((cut == -1) && (cur > 0)) {
+            if ((in.charAt(cur) == ' ') && (!strict || 
+                (classes.isWordChar(in.charAt(cur - 1)) && 
+                                    classes.isWordChar(in.charAt(cur + 1))))) {
+                cut = cur;
+            }
+            cur--;
+        }
+        
+        return cut;
     }
     
     private String getReaderContent(final Reader reader) throws IOException {
         assert reader != null;
         
-        final StringBuilder builder = new StringBuilder();
-        final char[] chars = new char[256];
-        
+        content.setLength(0);
         while (true) {
-            final int charsRead = reader.read(chars);
+            final int charsRead = reader.read(readBuffer);
             if (charsRead == -1) {
                 break;
             }
-            builder.append(chars, 0, charsRead);
+            content.append(readBuffer, 0, charsRead);
         }
         reader.close();
         
-        return builder.toString();
+        return content.toString();
     }
     
+    /**
+     * Creates the tokens of in[init, end] with the first count terms of the
+     * found buffer.
+     */
     private void getTokens(final String in,
                            final int init,
                            final int end,                               
                            final DecsParams parameters,
-                           final Iterator<FoundTerm> terms,
-                           final Deque<FoundTerm> tokenDeque) {
+                           final int count) {
         assert in != null;
         assert init >= 0;
         assert end >= init;        
         assert parameters != null;        
-        assert terms != null;
-        assert tokenDeque != null;
+        assert count >= 0;
         
-        if (terms.hasNext()) {
-            final FoundTerm fterm = terms.next();
-            final FoundTerm qfterm = fterm.getQualifier();
-            final int beginPos = fterm.getBeginPos();
-            final int endPos = (qfterm == null) ? fterm.getEndPos()
-                                                : qfterm.getEndPos();
-            
-            if (breakSentence) {
-                if (init < beginPos) {
-                    addStrTokens(in, init, beginPos - 1, tokenDeque);
-                }
-                addDeCSTokens(fterm, parameters, tokenDeque);
-                if (endPos < end) {
-                    getTokens(in, endPos + 1, end, parameters, terms, tokenDeque);
+        int pos = init;
+        int term = 0;
+        boolean done = false;
+        
+        while (!done) {
+            if (term < count) {
+                final int beginPos = found.getBegin(term);
+                final int endPos = found.getLastPos(term);
+
+                if (breakSentence) {
+                    if (pos < beginPos) {
+                        addStrTokens(in, pos, beginPos - 1);
+                    }
+                    addDeCSTokens(in, term, parameters);
+                    if (endPos < end) {
+                        pos = endPos + 1;
+                        term++;
+                    } else {
+                        done = true;
+                    }
+                } else {
+                    addDeCSTokens(in, term, parameters);
+                    done = true;
                 }
             } else {
-                addDeCSTokens(fterm, parameters, tokenDeque);
+                addStrTokens(in, pos, end);
+                done = true;
             }
-        } else {
-            
-            addStrTokens(in, init, end, tokenDeque);
-        }                
+        }
     }
     
-    private void addDeCSTokens(final FoundTerm fterm,
-                               final DecsParams parameters,
-                               final Deque<FoundTerm> tokenDeque) {
-        assert fterm != null;
+    /**
+     * Adds the tokens of a found term: the expansions of its concept and of
+     * its qualifier (see DecsExpansions), its precodified id and the 
+     * 'descriptor/qualifier' joins.
+     */
+    private void addDeCSTokens(final String in,
+                               final int term,
+                               final DecsParams parameters) {
+        assert in != null;
         assert parameters != null;
-        assert tokenDeque != null;
         
-        final TreeSet<FoundTerm> tokenSet = new TreeSet<FoundTerm>();
-        final FoundTerm qualifier = fterm.getQualifier();
+        final DecsConcepts concepts = found.getConcepts();
+        final int from = tokens.size();
+        final int begin = found.getBegin(term);
+        final int end = found.getEnd(term);
+        boolean sorted = true;
         
-        if (qualifier == null) {
-            if (parameters.onlyQualifiers) {
-                // Do nothing
-            } else {
-                includeDescriptors(fterm, parameters, tokenSet);
-                includeOtherFields(fterm, parameters, tokenSet);
-            }
-        } else {
-            if (! parameters.onlyQualifiers) {
-                includeDescriptors(fterm, parameters, tokenSet);
-                includeOtherFields(fterm, parameters, tokenSet);
-            }           
-            if (parameters.keysForQualifiers) {
-                includeDescriptors(qualifier, parameters, tokenSet);
-            }
-            includeOtherFields(qualifier, parameters, tokenSet);
-            includeJoins(fterm, parameters, tokenSet);
+        if (concepts != expConcepts) {
+            expansions = concepts.getExpansions(parameters);
+            expConcepts = concepts;
+        }
+        if (! parameters.onlyQualifiers) {
+            tokens.addAll(expansions.getTokens(found.getOrdinal(term), true),
+                                                                 begin, end);
+            sorted = !includePrecod(in, term, begin, end, parameters);
         }
-        for (FoundTerm foterm : tokenSet) {
-            tokenDeque.addLast(foterm);
+        if (found.hasQualifier(term)) {
+            tokens.addAll(expansions.getTokens(
+                                  found.getQualifierOrdinal(term), 
+                                  parameters.keysForQualifiers),
+                                  found.getQualifierBegin(term), 
+                                  found.getQualifierEnd(term));
+            includeJoins(found.getSyn(term), found.getQualifierSyn(term), 
+                                 begin, found.getQualifierEnd(term), parameters);
+            sorted = false;
+        }
+        if (!sorted) {  // the tokens of a single expansion are sorted
+            tokens.sortUnique(from);
         }
     }
     
-    private void includeDescriptors(final FoundTerm fterm,
-                                    final DecsParams parameters,
-                                    final TreeSet<FoundTerm> tokenSet) {
-        assert fterm != null;
+    /**
+     * Include term ^d111111
+     * @return true if a token was added
+     */
+    private boolean includePrecod(final String in,
+                                  final int term,
+                                  final int begin,
+                                  final int end,
+                                  final DecsParams parameters) {
+        assert in != null;
         assert parameters != null;
-        assert tokenSet != null;
-        
-        final DecsSyn syn = fterm.getSyn();        
-        final List<String> descriptors = syn.getDescriptor();
-        final String term = fterm.getTerm();
         
-        for (int idx = 0; idx < descriptors.size(); idx++) {
-            final String descriptor = descriptors.get(idx);  
-            splitWords(descriptor, fterm, parameters, idx != 0, tokenSet);            
+        final int textBegin = found.getTextBegin(term);
+        final int textEnd = found.getTextEnd(term);
+        final int size = tokens.size();
+            
+        if (found.isPrecod(term)) {  // ^d followed by the id digits
+            tokens.add("^d", in, textBegin, textEnd + 1, begin, end, true);
+        } else if (in.startsWith("^d", textBegin)) {
+            DecsExpansions.splitWords(tokens, in, textBegin, textEnd + 1, 
+                                      begin, end, parameters.addWords, true);
         }
         
-        // Include term ^d111111        
-        if (term.startsWith("^d")) {
-            splitWords(term, fterm, parameters, true, tokenSet);
-        }                
+        return tokens.size() > size;
     }
     
     /**
      * Add 'descriptor/qualifier' tokens
-     * @param fterm
-     * @param parameters
-     * @param tokenSet 
      */
-    private void includeJoins(final FoundTerm fterm,
-                              final DecsParams parameters,
-                              final TreeSet<FoundTerm> tokenSet) {
-        assert fterm != null;
+    private void includeJoins(final DecsSyn syn,
+                              final DecsSyn qsyn,
+                              final int begin,
+                              final int end,
+                              final DecsParams parameters) {
+        assert syn != null;
+        assert qsyn != null;
         assert parameters != null;
-        assert tokenSet != null;
      
         if ((! parameters.onlyQualifiers) && (parameters.keysForQualifiers)) {            
-            final FoundTerm qualifier = fterm.getQualifier();
-            
-            if (qualifier != null) {
-                final DecsSyn qsyn = qualifier.getSyn();
-                final DecsSyn syn = fterm.getSyn();
-                final List<String> descriptors = syn.getDescriptor();
-                final List<String> qdescriptors = qsyn.getDescriptor();
-                //final TreeSet<String> sdescriptors = (TreeSet<String>)syn.getSynonym();
-                final int qdsize = qdescriptors.size();
+            final int qdsize = qsyn.getDescriptorCount();
                 
-                for (int idx = 0; idx < qdsize; idx++) {
-                    final String join = descriptors.get(idx) + 
-                                                          qdescriptors.get(idx);
-                    tokenSet.add(new FoundTerm(join, fterm.getBeginPos(), 
-                                                     qualifier.getEndPos(), syn, 
-                                                              qualifier, true));
-                }
-                /*
-                for (int idx = 0; idx < qdsize; idx++) {
-                    final String join = sdescriptors.get(idx) + 
-                                                          qdescriptors.get(idx);
-                    splitWords(join, fterm, parameters, true, tokenSet);
-                }
-                */
+            for (int idx = 0; idx < qdsize; idx++) {
+                tokens.add(syn.getDescriptor(idx), qsyn.getDescriptor(idx),
+                                                           begin, end, true);
             }
         }
     }
-    
-    /**
-     * Add Synonyns and category
-     * @param fterm
-     * @param parameters
-     * @param tokenSet 
-     */
-    private void includeOtherFields(final FoundTerm fterm,
-                                    final DecsParams parameters,
-                                    final TreeSet<FoundTerm> tokenSet) {
-        assert fterm != null;
-        assert parameters != null;
-        assert tokenSet != null;
-        
-        final DecsSyn syn = fterm.getSyn();
-        
-        if (parameters.addSyn) {
-            final Set<String> synonyns = syn.getSynonym();
-            if (synonyns != null) {
-                for (String synonym : synonyns) {
-                    splitWords(synonym, fterm, parameters, true, tokenSet);
-                }
-            }
-        }        
-        if (parameters.addCategory) {
-            final Set<String> categories = syn.getCategory();
-            if (categories != null) {
-                for (String category : categories) {
-                    splitWords(category, fterm, parameters, true, tokenSet);
-                }
-            }
-        }
-    }
-        
-    private void splitWords(final String str,
-                            final FoundTerm fterm,
-                            final DecsParams parameters,
-                            final boolean samePos,
-                            final TreeSet<FoundTerm> tokenSet) {
-    
-        assert str != null;
-        assert fterm != null;
-        assert parameters != null;
-        assert tokenSet != null;
-            
-        final DecsSyn syn = fterm.getSyn();
-        final int begin = fterm.getBeginPos();
-        final int end = fterm.getEndPos();
-        final FoundTerm qualifier = fterm.getQualifier();
-        
-        final String strTrim = str.trim();
-        final String str2;
-        
-        if (strTrim.charAt(0) == '/') {
-            tokenSet.add(new FoundTerm(strTrim, begin, end, syn, qualifier, 
-                                                                      samePos));
-            str2 = strTrim.substring(1);
-        } else {
-            str2 = strTrim;
-        }
-        
-        tokenSet.add(new FoundTerm(str2, begin, end, syn, qualifier, samePos));
-        
-        if (parameters.addWords) {
-            final String[] splitSpace = str2.split("[\\s\\-]+");
-            if (splitSpace.length > 1) {
-                for (String str3 : splitSpace) {
-                    tokenSet.add(new FoundTerm(str3, begin, end, syn, 
-                                                          qualifier, true));
-                }              
-            }
-        }        
-    }
 
     private void addStrTokens(final String in,
                               final int init,
-                              final int end,
-                              final Deque<FoundTerm> tokenDeque) {
+                              final int end) {
         assert in != null;
         assert init >= 0;
         assert end >= 0;
-        assert tokenDeque != null;
         
         if (breakSentence) {
-            if (init <= end) {
-                if (in.charAt(init) == ' ') {
-                    addStrTokens(in, init + 1, end, tokenDeque);
-                } else if (init < end) {
-                    final int pos2 = findEndTokenPos(in, init, end);
-                    if (pos2 == -1) {
-                        if (end - init + 1 >= minTokSize) {
-                            tokenDeque.addLast(new FoundTerm(
-                                                 in.substring(init, end + 1),
-                                                 init, end, null, null, false));
-                        }
-                    } else {
-                        if (pos2 - init + 1 >= minTokSize) {
-                            tokenDeque.addLast(new FoundTerm(
-                                                in.substring(init, pos2 + 1),
-                                                init, pos2, null, null, false));
-                        }
-                        if (pos2 < end) {
-                            addStrTokens(in, pos2 + 1, end, tokenDeque);
-                        }
+            int pos = init;
+            
+            while (pos <= end) {
+                if (in.charAt(pos) == ' ') {
+                    pos++;
+                } else {
+                    int pos2 = pos;
+                    while ((pos2 < end) && (in.charAt(pos2 + 1) != ' ')) {
+                        pos2++;
                     }
-                } else { // init == end. 
-                    if (minTokSize >= 1) {
-                        tokenDeque.addLast(new FoundTerm(
-                                                 in.substring(init, end + 1),
-                                                 init, end, null, null, false));
+                    // a single char at the end of the range is only 
+                    // checked against a zero minTokSize
+                    if ((pos == end) ? (minTokSize >= 1)
+                                     : (pos2 - pos + 1 >= minTokSize)) {
+                        tokens.add(in, pos, pos2 + 1, pos, pos2, false);
                     }
+                    pos = pos2 + 1;
                 }
             }
         } else {
-            final String str = in.substring(init, end + 1).trim();
-            if (str.length() >= minTokSize) {
-                final FoundTerm nterm = new FoundTerm(str, init, end, null, 
-                                                                   null, false);
-                tokenDeque.add(nterm);
+            int first = init;
+            int last = end + 1;
+            
+            while ((first < last) && (in.charAt(first) <= ' ')) {
+                first++;
             }
-        }
-    }
-    
-    private int findEndTokenPos(final String in,
-                                final int init,
-                                final int end) {
-        assert in != null;
-        assert init >= 0;
-        assert end >= 0;
-        
-        final int ret;
-        
-        if (init > end) {
-            ret = -1;
-        } else {
-            if (in.charAt(init) == ' ') {
-                ret = -1;
-            } else {
-                final int ret2 = findEndTokenPos(in, init + 1, end);
-                ret = (ret2 == -1) ? init : ret2;
+            while ((last > first) && (in.charAt(last - 1) <= ' ')) {
+                last--;
+            }
+            if (last - first >= minTokSize) {
+                tokens.add(in, first, last, init, end, false);
             }
         }
-        
-        return ret;
-    }        
+    }
 }
@@ -0,0 +1,165 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Map;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.util.ResourceLoader;
+import org.apache.lucene.analysis.util.ResourceLoaderAware;
+import org.apache.lucene.analysis.util.TokenizerFactory;
+import org.apache.lucene.util.AttributeFactory;
+
+/**
+ * Creates DeCSTokenizers for Solr schemas and Lucene CustomAnalyzers:
+ * <pre>
+ * &lt;tokenizer class="br.bireme.dengine.DeCSTokenizerFactory" 
+ *            decs="decs-metadata.xml" addCategory="true" 
+ *            addAncestors="false" addSyn="true"
+ *            addWords="true" keysForQualifiers="false" 
+ *            onlyQualifiers="false" processOnlyPrecodTerms="false"
+ *            breakSentence="true" minTokenSize="2" chunkSize="0"
+ *            cacheSize="0" filterFpp="0"/&gt;
+ * </pre>
+ * Only decs is required, the other arguments have the values above by 
+ * default (the DeCSStandardAnalyzer parameters). Instead of decs, dict may
+ * give the path of a dictionary file compiled by DecsDictionaryCompiler, 
+ * which is memory mapped (see MappedDecsDictionary) and not read through
+ * the resource loader. If cacheSize &gt; 0, the
+ * tokenizers share a DecsTokenCache of that many field values. If 
+ * filterFpp &gt; 0, the map gets a DecsBloomFilter of its keys of that 
+ * false positive probability (built once with each map version, the map
+ * itself is shared with the factories of other probabilities), and the
+ * locators reject most of the windows with it. If addAncestors is 
+ * true (and addCategory), the ancestor tree numbers of the categories (see
+ * DecsCategoryTrie) are also tokens. The DeCS file is got from DecsRegistry
+ * when the factory is informed of the resource loader, so all the 
+ * factories of the same file share one map. close() releases it.
+ * The tokenizers remove the accents of their input.
+ * @author agent
+ * date: 20261017
+ */
+public class DeCSTokenizerFactory extends TokenizerFactory 
+                                  implements ResourceLoaderAware, Closeable {
+    private final String decsPath;   // or null
+    private final String dictPath;   // or null
+    private final DecsParams parameters;
+    private final boolean breakSentence;
+    private final int minTokenSize;
+    private final int chunkSize;
+    private final DecsTokenCache cache;
+    private final double filterFpp;
+    private volatile DecsHandle decs;
+
+    public DeCSTokenizerFactory(final Map<String,String> args) {
+        super(args);
+        decsPath = get(args, "decs");
+        dictPath = get(args, "dict");
+        if ((decsPath == null) == (dictPath == null)) {
+            throw new IllegalArgumentException(
+                                   "either decs or dict parameter is required");
+        }
+        parameters = new DecsParams(
+                            getBoolean(args, "addCategory", true),
+                            getBoolean(args, "addAncestors", false),
+                            getBoolean(args, "addSyn", true),
+                            getBoolean(args, "addWords", true),
+                            getBoolean(args, "keysForQualifiers", false),
+                            getBoolean(args, "onlyQualifiers", false),
+                            getBoolean(args, "processOnlyPrecodTerms", false));
+        breakSentence = getBoolean(args, "breakSentence", true);
+        minTokenSize = getInt(args, "minTokenSize", 
+                                           DeCSTokenizer.DEF_MIN_TOKEN_SIZE);
+        chunkSize = getInt(args, "chunkSize", 0);
+        final int cacheSize = getInt(args, "cacheSize", 0);
+        cache = (cacheSize > 0) ? new DecsTokenCache(cacheSize) : null;
+        filterFpp = getFloat(args, "filterFpp", 0);
+        if ((filterFpp < 0) || (filterFpp >= 1)) {
+            throw new IllegalArgumentException("filterFpp[" + filterFpp
+                                                        + "] not in [0,1)");
+        }
+        if (!args.isEmpty()) {
+            throw new IllegalArgumentException("Unknown parameters: " + args);
+        }
+    }
+
+    @Override
+    public void inform(final ResourceLoader loader) throws IOException {
+        if (loader == null) {
+            throw new NullPointerException("loader");
+        }
+        final DecsHandle handle = (dictPath == null)
+                      ? DecsRegistry.acquire(decsPath, loader, filterFpp)
+                      : DecsRegistry.acquire(dictPath, filterFpp);
+
+        synchronized (this) {
+            if (decs != null) {
+                DecsRegistry.release(decs);
+            }
+            decs = handle;
+        }
+    }
+
+    /**
+     * @return the handle of the shared DeCS map or null if inform() was not
+     * called
+     */
+    public DecsHandle getDecsHandle() {
+        return decs;
+    }
+
+    /**
+     * @return the token cache of the tokenizers or null
+     */
+    public DecsTokenCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public Tokenizer create(final AttributeFactory factory,
+                            final Reader input) {
+        final DecsHandle handle = decs;
+        if (handle == null) {
+            throw new IllegalStateException("inform() was not called");
+        }
+        final DeCSLocator locator = breakSentence 
+                     ? new DeCSTermLocator()
+                     : new DeCSSentenceTermLocator();
+        
+        return new DeCSTokenizer(factory, input, handle, parameters, 
+                       breakSentence, minTokenSize, locator, chunkSize, cache);
+    }
+
+    /**
+     * Releases the DeCS map. The tokenizers already created keep working.
+     */
+    @Override
+    public synchronized void close() {
+        if (decs != null) {
+            DecsRegistry.release(decs);
+            decs = null;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Finds the same terms as DeCSTermLocator walking a word level trie of the
+ * dictionary keys. The input is split into words once and, from each word,
+ * the trie is followed word by word, so the number of probes is bounded by
+ * the number of words times the maximum number of words of a key. Each key
+ * reached is confirmed by comparing its chars (delimiters included) with the
+ * input.
+ * An instance keeps scratch buffers and must not be shared among threads.
+ * The trie itself can be shared.
+ * @author agent
+ * date: 20261017
+ */
+public class DeCSWordTrieLocator extends DeCSMatchLocator {
+    private DecsWordTrie trie;
+    
+    // Word spans of the input string
+    private int[] wStart;
+    private int[] wEnd;
+    private int[] wId;
+    
+    public DeCSWordTrieLocator(final Map<String,DecsSyn> decs) {
+        this(DecsConcepts.forMap(decs).getWordTrie(CharClassTable.DEFAULT));
+    }
+
+    /**
+     * @param decs - set of DeCS descrptors and qualifiers
+     * @param detector - decides the white chars and delimiters around terms
+     */
+    public DeCSWordTrieLocator(final Map<String,DecsSyn> decs,
+                               final BoundaryDetector detector) {
+        this(DecsConcepts.forMap(decs).getWordTrie(
+                                            CharClassTable.valueOf(detector)));
+    }
+
+    /**
+     * The locator uses the char classes the trie words were split with.
+     * @param trie - the word trie of the dictionary keys
+     */
+    public DeCSWordTrieLocator(final DecsWordTrie trie) {
+        super(checkTrie(trie).getCharClasses());
+        this.trie = trie;
+        this.wStart = new int[64];
+        this.wEnd = new int[64];
+        this.wId = new int[64];
+    }
+    
+    /**
+     * @return the trie used by this locator
+     */
+    public DecsWordTrie getTrie() {
+        return trie;
+    }
+
+    /**
+     * If concepts are not the ones the trie was built from, the trie of 
+     * concepts is used (see DecsConcepts.getWordTrie).
+     * @param concepts - concept ordinals of the DeCS map
+     */
+    @Override
+    protected void prepare(final DecsConcepts concepts) {
+        if (concepts != trie.getConcepts()) {
+            trie = concepts.getWordTrie(classes);
+        }
+    }
+
+    @Override
+    protected DecsConcepts getConcepts() {
+        return trie.getConcepts();
+    }
+
+    @Override
+    protected void findMatches() {
+        final int nwords = splitWords();
+        final int maxWords = trie.getMaxWords();
+        
+        for (int first = 0; first < nwords; first++) {
+            int node = 0;
+            final int last = Math.min(nwords, first + maxWords);
+            
+            for (int cur = first; cur < last; cur++) {
+                if (wId[cur] == -1) {
+                    break;
+                }
+                node = trie.getChild(node, wId[cur]);
+                if (node == -1) {
+                    break;
+                }
+                for (int entry = trie.getFirstEntry(node); entry != -1; 
+                                             entry = trie.getNextEntry(entry)) {
+                    final int begin = wStart[first] - trie.getEntryLead(entry);
+                    final int end = wEnd[cur] + trie.getEntryTrail(entry);
+                    
+                    if ((begin >= 0) && (end <= endPos) && 
+                         matches(trie.getEntryKey(entry), begin)) {
+                        addMatch(begin, end, trie.getEntryOrdinal(entry));
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Splits the input into words and looks up their ids.
+     * @return the number of words
+     */
+    private int splitWords() {
+        int nwords = 0;
+        int pos = 0;
+        
+        while (pos <= endPos) {
+            if (classes.isBoundary(in[pos])) {
+                pos++;
+                continue;
+            }
+            final int begin = pos;
+            while ((pos <= endPos) && !classes.isBoundary(in[pos])) {
+                pos++;
+            }
+            if (nwords == wStart.length) {
+                final int nlen = nwords * 2;
+                wStart = Arrays.copyOf(wStart, nlen);
+                wEnd = Arrays.copyOf(wEnd, nlen);
+                wId = Arrays.copyOf(wId, nlen);
+            }
+            wStart[nwords] = begin;
+            wEnd[nwords] = pos - 1;
+            wId[nwords] = trie.getWordId(in, begin, pos - 1);
+            nwords++;
+        }
+        
+        return nwords;
+    }
+    
+    private boolean matches(final String key,
+                            final int begin) {
+        final int len = key.length();
+        boolean match = true;
+        
+        for (int idx = 0; idx < len; idx++) {
+            if (key.charAt(idx) != in[begin + idx]) {
+                match = false;
+                break;
+            }
+        }
+        return match;
+    }
+    
+    private static DecsWordTrie checkTrie(final DecsWordTrie trie) {
+        if (trie == null) {
+            throw new NullPointerException("trie");
+        }
+        return trie;
+    }
+}
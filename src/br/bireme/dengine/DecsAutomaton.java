@@ -0,0 +1,273 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Aho-Corasick automaton compiled from the keys of a DeCS map. The terminal
+ * states keep the concept ordinals of the keys (see DecsConcepts). The 
+ * automaton is immutable after construction and can be shared by many 
+ * locators (and threads).
+ * @author agent
+ * date: 20261017
+ */
+public class DecsAutomaton {
+    /**
+     * Receives each dictionary key found by scan().
+     */
+    public interface MatchHandler {
+        /**
+         * @param start - position of the first key character
+         * @param end - position of the last key character
+         * @param ordinal - ordinal of the concept associated with the key
+         */
+        void match(int start, int end, int ordinal);
+    }
+
+    private final DecsConcepts concepts;
+
+    // State transitions: the edges of state s are labels/targets
+    // [edgeStart[s], edgeStart[s+1]), sorted by label.
+    private final int[] edgeStart;
+    private final char[] labels;
+    private final int[] targets;
+
+    private final int[] fail;       // failure link of each state
+    private final int[] output;     // next terminal state in the failure chain
+    private final int[] depth;      // length of the key spelled by each state
+    private final int[] ordinal;    // concept of terminal states or -1
+
+    /**
+     *
+     * @param decs - set of DeCS descrptors and qualifiers
+     */
+    public DecsAutomaton(final Map<String,DecsSyn> decs) {
+        this(DecsConcepts.forMap(decs));
+    }
+
+    /**
+     *
+     * @param concepts - concept ordinals of the DeCS map
+     */
+    public DecsAutomaton(final DecsConcepts concepts) {
+        if (concepts == null) {
+            throw new NullPointerException("concepts");
+        }
+        this.concepts = concepts;
+
+        final Map<String,DecsSyn> decs = concepts.getDecs();
+
+        // Builds the trie using linked lists of edges
+        int[] first = new int[1024];
+        int[] sibling = new int[1024];
+        int[] target = new int[1024];
+        char[] label = new char[1024];
+        int[] dep = new int[1024];
+        int[] tord = new int[1024];
+        int states = 1;
+        int edges = 0;
+
+        first[0] = -1;
+        tord[0] = DecsConcepts.NO_ORDINAL;
+        for (Map.Entry<String,DecsSyn> entry : decs.entrySet()) {
+            final String key = entry.getKey();
+            final int len = key.length();
+
+            if (len == 0) {
+                continue;
+            }
+            int state = 0;
+            for (int idx = 0; idx < len; idx++) {
+                final char ch = key.charAt(idx);
+                int edge = first[state];
+
+                while ((edge != -1) && (label[edge] != ch)) {
+                    edge = sibling[edge];
+                }
+                if (edge == -1) {
+                    if (states == first.length) {
+                        first = Arrays.copyOf(first, states * 2);
+                        dep = Arrays.copyOf(dep, states * 2);
+                        tord = Arrays.copyOf(tord, states * 2);
+                    }
+                    if (edges == label.length) {
+                        label = Arrays.copyOf(label, edges * 2);
+                        sibling = Arrays.copyOf(sibling, edges * 2);
+                        target = Arrays.copyOf(target, edges * 2);
+                    }
+                    first[states] = -1;
+                    dep[states] = idx + 1;
+                    tord[states] = DecsConcepts.NO_ORDINAL;
+                    label[edges] = ch;
+                    target[edges] = states;
+                    sibling[edges] = first[state];
+                    first[state] = edges;
+                    edges++;
+                    states++;
+                    edge = edges - 1;
+                }
+                state = target[edge];
+            }
+            tord[state] = concepts.getKeyOrdinal(key);
+        }
+
+        // Freezes the edges into sorted arrays
+        edgeStart = new int[states + 1];
+        labels = new char[edges];
+        targets = new int[edges];
+        int pos = 0;
+        for (int state = 0; state < states; state++) {
+            edgeStart[state] = pos;
+            final int begin = pos;
+            for (int edge = first[state]; edge != -1; edge = sibling[edge]) {
+                // insertion sort, the number of edges per state is small
+                int idx = pos++;
+                while ((idx > begin) && (labels[idx - 1] > label[edge])) {
+                    labels[idx] = labels[idx - 1];
+                    targets[idx] = targets[idx - 1];
+                    idx--;
+                }
+                labels[idx] = label[edge];
+                targets[idx] = target[edge];
+            }
+        }
+        edgeStart[states] = pos;
+        depth = Arrays.copyOf(dep, states);
+        ordinal = Arrays.copyOf(tord, states);
+
+        // Failure and output links, breadth first
+        fail = new int[states];
+        output = new int[states];
+        final int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+
+        queue[tail++] = 0;
+        while (head < tail) {
+            final int state = queue[head++];
+
+            for (int edge = edgeStart[state]; edge < edgeStart[state + 1];
+                                                                      edge++) {
+                final int next = targets[edge];
+
+                if (state == 0) {
+                    fail[next] = 0;
+                } else {
+                    int fst = fail[state];
+                    int fnext = transition(fst, labels[edge]);
+                    while ((fnext == -1) && (fst != 0)) {
+                        fst = fail[fst];
+                        fnext = transition(fst, labels[edge]);
+                    }
+                    fail[next] = (fnext == -1) ? 0 : fnext;
+                }
+                final int fnext = fail[next];
+                output[next] = (ordinal[fnext] == DecsConcepts.NO_ORDINAL) 
+                                                      ? output[fnext] : fnext;
+                queue[tail++] = next;
+            }
+        }
+    }
+
+    /**
+     * @return the map this automaton was compiled from
+     */
+    public Map<String,DecsSyn> getDecs() {
+        return concepts.getDecs();
+    }
+
+    /**
+     * @return the concept ordinals of the keys
+     */
+    public DecsConcepts getConcepts() {
+        return concepts;
+    }
+
+    /**
+     * @return number of automaton states
+     */
+    public int size() {
+        return depth.length;
+    }
+
+    /**
+     * Reports every dictionary key occurrence inside in[begin, end], in
+     * increasing order of end position.
+     * @param in - the input text
+     * @param begin - the first position to scan
+     * @param end - the last position to scan
+     * @param handler - receives the matches
+     */
+    public void scan(final char[] in,
+                     final int begin,
+                     final int end,
+                     final MatchHandler handler) {
+        if (in == null) {
+            throw new NullPointerException("in");
+        }
+        if (handler == null) {
+            throw new NullPointerException("handler");
+        }
+        int state = 0;
+
+        for (int pos = begin; pos <= end; pos++) {
+            final char ch = in[pos];
+            int next = transition(state, ch);
+
+            while ((next == -1) && (state != 0)) {
+                state = fail[state];
+                next = transition(state, ch);
+            }
+            state = (next == -1) ? 0 : next;
+
+            int out = (ordinal[state] == DecsConcepts.NO_ORDINAL) 
+                                                     ? output[state] : state;
+            while (out != 0) {
+                handler.match(pos - depth[out] + 1, pos, ordinal[out]);
+                out = output[out];
+            }
+        }
+    }
+
+    private int transition(final int state,
+                           final char ch) {
+        int low = edgeStart[state];
+        int high = edgeStart[state + 1] - 1;
+
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final char lab = labels[mid];
+
+            if (lab < ch) {
+                low = mid + 1;
+            } else if (lab > ch) {
+                high = mid - 1;
+            } else {
+                return targets[mid];
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,197 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.util.Collection;
+
+/**
+ * Bloom filter of the (normalized) keys of a DeCS map. Almost every window
+ * tried by DeCSTermLocator is not a key: the filter rejects most of them 
+ * with a few bit tests over the window chars, before a string is created 
+ * or hashed. A key of the map is never rejected; a string that is not a 
+ * key is accepted with the false positive probability given to the 
+ * constructor. Instances are immutable and can be shared among threads.
+ * @author agent
+ * date: 20261017
+ */
+public final class DecsBloomFilter {
+    private static final double LN2 = Math.log(2);
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long[] bits;
+    private final int numBits;
+    private final int numHashes;
+
+    /**
+     * @param keys - the keys of the DeCS map
+     * @param fpp - false positive probability (0 &lt; fpp &lt; 1)
+     */
+    public DecsBloomFilter(final Collection<String> keys,
+                           final double fpp) {
+        if (keys == null) {
+            throw new NullPointerException("keys");
+        }
+        if ((fpp <= 0) || (fpp >= 1)) {
+            throw new IllegalArgumentException("fpp[" + fpp 
+                                                      + "] not in (0,1)");
+        }
+        final int size = Math.max(1, keys.size());
+        final long mbits = (long)Math.ceil(-size * Math.log(fpp) 
+                                                               / (LN2 * LN2));
+        final long words = Math.min((mbits + 63) >>> 6, 
+                                                  Integer.MAX_VALUE >>> 6);
+
+        bits = new long[(int)Math.max(1, words)];
+        numBits = bits.length << 6;
+        numHashes = (int)Math.max(1, 
+                                  Math.round((double)numBits / size * LN2));
+        for (String key : keys) {
+            add(hash(key));
+        }
+    }
+
+    /**
+     * Creates the filter of the keys of other and some more keys, with the
+     * size of other (so the false positive probability grows with the keys
+     * added). The keys removed from the map can be kept in the filter: they
+     * are only false positives.
+     * @param other - filter of the keys of a previous version of the map
+     * @param keys - the keys added to the map
+     */
+    public DecsBloomFilter(final DecsBloomFilter other,
+                           final Collection<String> keys) {
+        if (other == null) {
+            throw new NullPointerException("other");
+        }
+        if (keys == null) {
+            throw new NullPointerException("keys");
+        }
+        bits = other.bits.clone();
+        numBits = other.numBits;
+        numHashes = other.numHashes;
+        for (String key : keys) {
+            add(hash(key));
+        }
+    }
+
+    /**
+     * @param key - a normalized key
+     * @return false if key is not a key of the map
+     */
+    public boolean mightContain(final CharSequence key) {
+        if (key == null) {
+            throw new NullPointerException("key");
+        }
+        return contains(hash(key));
+    }
+
+    /**
+     * @param in - chars of the key
+     * @param begin - position of the first key char
+     * @param end - position of the last key char (begin - 1 if the key is
+     * empty)
+     * @return false if in[begin, end] is not a key of the map
+     */
+    public boolean mightContain(final char[] in,
+                                final int begin,
+                                final int end) {
+        if (in == null) {
+            throw new NullPointerException("in");
+        }
+        long hash = FNV_OFFSET;
+
+        for (int pos = begin; pos <= end; pos++) {
+            hash = (hash ^ in[pos]) * FNV_PRIME;
+        }
+        return contains(mix(hash));
+    }
+
+    /**
+     * @return number of bits of the filter
+     */
+    public int getNumBits() {
+        return numBits;
+    }
+
+    /**
+     * @return number of bits tested by key
+     */
+    public int getNumHashes() {
+        return numHashes;
+    }
+
+    private static long hash(final CharSequence key) {
+        assert key != null;
+
+        final int len = key.length();
+        long hash = FNV_OFFSET;
+
+        for (int pos = 0; pos < len; pos++) {
+            hash = (hash ^ key.charAt(pos)) * FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(final long hash) {
+        long h = hash;
+
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+
+        return h;
+    }
+
+    private void add(final long hash) {
+        final int hash1 = (int)hash;
+        final int hash2 = (int)(hash >>> 32);
+
+        for (int idx = 1; idx <= numHashes; idx++) {
+            int combined = hash1 + idx * hash2;
+            if (combined < 0) {
+                combined = ~combined;
+            }
+            final int bit = combined % numBits;
+            bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private boolean contains(final long hash) {
+        final int hash1 = (int)hash;
+        final int hash2 = (int)(hash >>> 32);
+        boolean found = true;
+
+        for (int idx = 1; found && (idx <= numHashes); idx++) {
+            int combined = hash1 + idx * hash2;
+            if (combined < 0) {
+                combined = ~combined;
+            }
+            final int bit = combined % numBits;
+            found = (bits[bit >>> 6] & (1L << bit)) != 0;
+        }
+        return found;
+    }
+}
@@ -0,0 +1,236 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tree of the DeCS tree numbers (categories such as d02.705.539.900): each 
+ * node is a tree number and its parent the tree number without the last 
+ * '.' segment (d02.705.539), up to the top level one (d02). The nodes are 
+ * kept in parallel arrays with an open addressing index of the tree 
+ * numbers, and a tree number that is also a category shares its string 
+ * with the category. Ancestors missing from the categories are created, 
+ * so every ancestor of a category is found by following the parents.
+ * A trie is built while loading (see IndexDecs.getCategoryTrie) or, for 
+ * the maps of the other loaders, from the concepts of the map when its 
+ * DecsConcepts are built, and it is kept by these DecsConcepts. It is read
+ * only afterwards, so it can then be shared among threads.
+ * @author agent
+ * date: 20261017
+ */
+public final class DecsCategoryTrie {
+    /**
+     * the node of the strings that are not tree numbers of the trie
+     */
+    public static final int NO_NODE = -1;
+    
+    private String[] numbers;   // tree number of each node
+    private int[] parents;      // parent node or NO_NODE for top level ones
+    private int[] slots;        // index of the tree numbers: node + 1 or 0
+    private int size;
+
+    public DecsCategoryTrie() {
+        numbers = new String[64];
+        parents = new int[64];
+        slots = new int[128];
+    }
+
+    /**
+     * Creates a copy of a trie, so tree numbers can be added to it (for 
+     * example the ones of the terms of a DecsDelta) while the other is in 
+     * use.
+     * @param other - the trie to copy
+     */
+    public DecsCategoryTrie(final DecsCategoryTrie other) {
+        if (other == null) {
+            throw new NullPointerException("other");
+        }
+        numbers = other.numbers.clone();
+        parents = other.parents.clone();
+        slots = other.slots.clone();
+        size = other.size;
+    }
+    
+    /**
+     * Creates the trie of the categories of the concepts of a DeCS map.
+     * @param decs - set of DeCS descrptors and qualifiers
+     * @return the trie
+     */
+    public static DecsCategoryTrie build(final Map<String,DecsSyn> decs) {
+        if (decs == null) {
+            throw new NullPointerException("decs");
+        }
+        final DecsCategoryTrie trie = new DecsCategoryTrie();
+        
+        for (DecsSyn syn : decs.values()) {
+            trie.addCategories(syn);
+        }
+        
+        return trie;
+    }
+    
+    /**
+     * Adds all the categories of a concept.
+     * @param syn - the concept
+     */
+    public void addCategories(final DecsSyn syn) {
+        if (syn == null) {
+            throw new NullPointerException("syn");
+        }
+        for (int idx = 0; idx < syn.getCategoryCount(); idx++) {
+            add(syn.getCategory(idx));
+        }
+    }
+    
+    /**
+     * Adds a tree number and its ancestors.
+     * @param treeNumber - the tree number
+     * @return the node of the tree number
+     */
+    public int add(final String treeNumber) {
+        if (treeNumber == null) {
+            throw new NullPointerException("treeNumber");
+        }
+        int node = getNode(treeNumber);
+        
+        if (node == NO_NODE) {
+            final int dot = treeNumber.lastIndexOf('.');
+            final int parent = (dot <= 0) ? NO_NODE 
+                                   : add(treeNumber.substring(0, dot));
+            node = newNode(treeNumber, parent);
+        } else {
+            numbers[node] = treeNumber;  // shares the category string
+        }
+        
+        return node;
+    }
+    
+    /**
+     * @return number of tree numbers
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * @param treeNumber - the tree number
+     * @return the node of the tree number or NO_NODE if it is not in the 
+     * trie
+     */
+    public int getNode(final String treeNumber) {
+        if (treeNumber == null) {
+            throw new NullPointerException("treeNumber");
+        }
+        final int mask = slots.length - 1;
+        int slot = mix(treeNumber.hashCode()) & mask;
+        int node = NO_NODE;
+        
+        while (slots[slot] != 0) {
+            final int cur = slots[slot] - 1;
+            if (numbers[cur].equals(treeNumber)) {
+                node = cur;
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        
+        return node;
+    }
+    
+    /**
+     * @param node - a node
+     * @return the parent node or NO_NODE if node is a top level tree number
+     */
+    public int getParent(final int node) {
+        return parents[node];
+    }
+    
+    /**
+     * @param node - a node
+     * @return the tree number of the node
+     */
+    public String getTreeNumber(final int node) {
+        return numbers[node];
+    }
+    
+    /**
+     * @param treeNumber - the tree number
+     * @return the ancestors of the tree number, from the top level one to 
+     * its parent, or an empty list if it is not in the trie
+     */
+    public List<String> getAncestors(final String treeNumber) {
+        final List<String> ancestors = new ArrayList<String>();
+        final int node = getNode(treeNumber);
+        
+        if (node != NO_NODE) {
+            for (int cur = parents[node]; cur != NO_NODE; cur = parents[cur]) {
+                ancestors.add(0, numbers[cur]);
+            }
+        }
+        
+        return ancestors;
+    }
+    
+    private int newNode(final String treeNumber,
+                        final int parent) {
+        if (size == numbers.length) {
+            numbers = Arrays.copyOf(numbers, size * 2);
+            parents = Arrays.copyOf(parents, size * 2);
+        }
+        numbers[size] = treeNumber;
+        parents[size] = parent;
+        if (2 * (size + 1) > slots.length) {
+            rehash(slots.length * 2);
+        }
+        insert(size);
+        
+        return size++;
+    }
+    
+    private void insert(final int node) {
+        final int mask = slots.length - 1;
+        int slot = mix(numbers[node].hashCode()) & mask;
+        
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = node + 1;
+    }
+    
+    private void rehash(final int capacity) {
+        slots = new int[capacity];
+        for (int node = 0; node < size; node++) {
+            insert(node);
+        }
+    }
+    
+    private static int mix(final int hash) {
+        final int h = hash * 0x9E3779B9;
+        
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,852 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Dense int ordinals of the concepts of a DeCS map. Ordinals go from 0 to
+ * size() - 1 and index the concept table, so the locators can carry ints
+ * instead of DecsSyn references. The mfn ids (and any other all digits key)
+ * are resolved through an int indexed array, without creating or hashing
+ * strings. If the map is a DecsDictionary, its own ordinals and lookups are
+ * used, otherwise the concepts are the distinct DecsSyn instances of the
+ * map and their ordinals are found by identity. The key lengths are 
+ * indexed by DecsLengthIndex and, optionally, a DecsBloomFilter of the 
+ * keys rejects most of the strings that are not keys before the real 
+ * lookup (the concepts with other filters share all the other tables, see
+ * withFilter). The tokens of the concepts for each token
+ * profile (see DecsExpansions) are created on demand and kept with the 
+ * ordinals, as well as the DecsCategoryTrie of the categories (the one 
+ * built by the loader or one built from the concepts) and the automaton 
+ * and word trie compiled for the locators.
+ * All these tables are built once for each dictionary version: a 
+ * DecsHandle keeps the concepts of its map in the snapshot, and forMap() 
+ * finds the concepts of a map by identity, so the locators and tokenizers
+ * never build their own.
+ * Instances can be shared among threads.
+ * @author agent
+ * date: 20261017
+ */
+public final class DecsConcepts {
+    /**
+     * ordinal of the keys that are not found
+     */
+    public static final int NO_ORDINAL = -1;
+
+    // concepts of the maps in use, found by map identity (see forMap).
+    // Read without locking, changed with the SHARED lock.
+    private static final List<SoftReference<DecsConcepts>> SHARED =
+                      new CopyOnWriteArrayList<SoftReference<DecsConcepts>>();
+
+    private final Map<String,DecsSyn> decs;
+    private final int keyCount;                 // decs.size() when built
+    private final DecsDictionary dict;          // decs or null
+    private final DecsSyn[] concepts;           // null if dict != null
+    // by concept instance, so a lookup does not hash the concept strings
+    // (null if dict != null)
+    private final IdentityHashMap<DecsSyn,Integer> ordinals;
+
+    // all digits keys: idOrdinal[id] or, if the ids are too sparse, the
+    // sorted ids and their ordinals (binary search)
+    private final int[] idOrdinal;
+    private final int[] sparseIds;
+    private final int[] sparseOrdinals;
+
+    private final DecsLengthIndex lengthIndex;   // of the key lengths
+    private final DecsBloomFilter filter;        // of the keys or null
+    private final double filterFpp;              // of filter or 0
+    
+    // created on demand, by token profile
+    private final AtomicReferenceArray<DecsExpansions> expansions;
+    private final DecsCategoryTrie categoryTrie;  // of the categories
+    // compiled on demand for the locators
+    private final AtomicReference<DecsAutomaton> automaton;
+    private final AtomicReference<DecsWordTrie> wordTrie;
+
+    // the concepts built from decs: this or the ones the filter variants
+    // share the tables with
+    private final DecsConcepts base;
+    // concepts of decs with other filters (see withFilter), kept by base
+    private final List<DecsConcepts> variants;
+
+    /**
+     * @param decs - set of DeCS descrptors and qualifiers
+     */
+    public DecsConcepts(final Map<String,DecsSyn> decs) {
+        this(decs, 0);
+    }
+
+    /**
+     * @param decs - set of DeCS descrptors and qualifiers
+     * @param filterFpp - false positive probability of the Bloom filter of
+     * the keys or 0 to not create it
+     */
+    public DecsConcepts(final Map<String,DecsSyn> decs,
+                        final double filterFpp) {
+        this(decs, filterFpp, null);
+    }
+
+    /**
+     * @param decs - set of DeCS descrptors and qualifiers
+     * @param filterFpp - false positive probability of the Bloom filter of
+     * the keys or 0 to not create it
+     * @param categoryTrie - the trie of the categories of decs (see 
+     * IndexDecs.getCategoryTrie) or null to build it from the concepts
+     */
+    public DecsConcepts(final Map<String,DecsSyn> decs,
+                        final double filterFpp,
+                        final DecsCategoryTrie categoryTrie) {
+        if (decs == null) {
+            throw new NullPointerException("decs");
+        }
+        if ((filterFpp < 0) || (filterFpp >= 1)) {
+            throw new IllegalArgumentException("filterFpp[" + filterFpp
+                                                        + "] not in [0,1)");
+        }
+        this.decs = decs;
+        this.keyCount = decs.size();
+        this.lengthIndex = new DecsLengthIndex(decs.keySet(), 
+                                              DeCSTermLocator.MAX_TOKEN_SIZE);
+        this.filter = (filterFpp == 0) ? null 
+                                : new DecsBloomFilter(decs.keySet(), filterFpp);
+        this.filterFpp = filterFpp;
+        this.expansions = new AtomicReferenceArray<DecsExpansions>(
+                                                   DecsExpansions.PROFILES);
+        this.automaton = new AtomicReference<DecsAutomaton>();
+        this.wordTrie = new AtomicReference<DecsWordTrie>();
+        this.base = this;
+        this.variants = new CopyOnWriteArrayList<DecsConcepts>();
+        if (decs instanceof DecsDictionary) {
+            dict = (DecsDictionary)decs;
+            concepts = null;
+            ordinals = null;
+            idOrdinal = null;
+            sparseIds = null;
+            sparseOrdinals = null;
+        } else {
+            dict = null;
+            ordinals = new IdentityHashMap<DecsSyn,Integer>();
+
+            DecsSyn[] cpts = new DecsSyn[Math.max(16, decs.size() / 4)];
+            int[] ids = new int[cpts.length];
+            int[] idOrds = new int[cpts.length];
+            int idCount = 0;
+            int maxId = -1;
+
+            for (Map.Entry<String,DecsSyn> entry : decs.entrySet()) {
+                final DecsSyn syn = entry.getValue();
+                Integer ordinal = ordinals.get(syn);
+
+                if (ordinal == null) {
+                    ordinal = ordinals.size();
+                    if (ordinal == cpts.length) {
+                        cpts = Arrays.copyOf(cpts, ordinal * 2);
+                    }
+                    cpts[ordinal] = syn;
+                    ordinals.put(syn, ordinal);
+                }
+                final String key = entry.getKey();
+                final int id = parseId(key, 0, key.length() - 1);
+                if (id != -1) {
+                    if (idCount == ids.length) {
+                        ids = Arrays.copyOf(ids, idCount * 2);
+                        idOrds = Arrays.copyOf(idOrds, idCount * 2);
+                    }
+                    ids[idCount] = id;
+                    idOrds[idCount++] = ordinal;
+                    maxId = Math.max(maxId, id);
+                }
+            }
+            concepts = Arrays.copyOf(cpts, ordinals.size());
+
+            if (maxId < 4 * idCount + 1024) {
+                idOrdinal = new int[maxId + 1];
+                Arrays.fill(idOrdinal, NO_ORDINAL);
+                for (int idx = 0; idx < idCount; idx++) {
+                    idOrdinal[ids[idx]] = idOrds[idx];
+                }
+                sparseIds = null;
+                sparseOrdinals = null;
+            } else {
+                idOrdinal = null;
+                sparseIds = new int[idCount];
+                sparseOrdinals = new int[idCount];
+                sortIds(ids, idOrds, idCount);
+            }
+        }
+        this.categoryTrie = (categoryTrie == null) ? buildCategoryTrie() 
+                                                   : categoryTrie;
+    }
+
+    /**
+     * Concepts of a map changed by a delta, with the tables of the 
+     * concepts of the map the delta was applied to: the concept table, 
+     * ordinals and id table are copied and the concepts of the new terms 
+     * are appended (the removed concepts keep their ordinals, but no key 
+     * leads to them), the keys of the new terms are added to the length 
+     * index, Bloom filter and category trie (the removed keys stay in them,
+     * which only makes them less selective) and the ids of the keys of the
+     * changed terms are looked up again. See canUpdate.
+     * @param previous - the concepts of the map the delta was applied to
+     * @param decs - the new map
+     * @param oldTerms - the terms replaced or removed by the delta
+     * @param newTerms - the terms added by the delta
+     */
+    @SuppressWarnings("unchecked")
+    private DecsConcepts(final DecsConcepts previous,
+                         final Map<String,DecsSyn> decs,
+                         final List<DecsSyn> oldTerms,
+                         final List<DecsSyn> newTerms) {
+        assert previous != null;
+        assert previous.base == previous;
+        assert previous.idOrdinal != null;
+        assert decs != null;
+        assert oldTerms != null;
+        assert newTerms != null;
+
+        final List<String> newKeys = new ArrayList<String>();
+        final List<String> changedKeys = new ArrayList<String>();
+        final IdentityHashMap<DecsSyn,Integer> ords = 
+                 (IdentityHashMap<DecsSyn,Integer>)previous.ordinals.clone();
+        DecsSyn[] cpts = previous.concepts;
+
+        for (DecsSyn syn : newTerms) {
+            if (!ords.containsKey(syn)) {
+                final int ordinal = ords.size();
+                if (ordinal == cpts.length) {
+                    cpts = Arrays.copyOf(cpts, ordinal + newTerms.size());
+                }
+                cpts[ordinal] = syn;
+                ords.put(syn, ordinal);
+            }
+            addKeys(syn, newKeys);
+        }
+        for (DecsSyn syn : oldTerms) {
+            addKeys(syn, changedKeys);
+        }
+        changedKeys.addAll(newKeys);
+
+        int[] idOrds = previous.idOrdinal;
+        boolean copied = false;
+        for (String key : changedKeys) {
+            final int id = parseId(key, 0, key.length() - 1);
+            if (id != -1) {
+                final DecsSyn syn = decs.get(key);
+                final Integer ord = (syn == null) ? null : ords.get(syn);
+                if (!copied || (id >= idOrds.length)) {
+                    final int olen = idOrds.length;
+                    final int len = Math.max(olen, id + 1);
+                    idOrds = Arrays.copyOf(idOrds, len);
+                    Arrays.fill(idOrds, olen, len, NO_ORDINAL);
+                    copied = true;
+                }
+                idOrds[id] = (ord == null) ? NO_ORDINAL : ord;
+            }
+        }
+        final DecsCategoryTrie trie = 
+                                 new DecsCategoryTrie(previous.categoryTrie);
+        for (DecsSyn syn : newTerms) {
+            trie.addCategories(syn);
+        }
+
+        this.decs = decs;
+        this.keyCount = decs.size();
+        this.dict = null;
+        this.concepts = (ords.size() == cpts.length) ? cpts
+                                           : Arrays.copyOf(cpts, ords.size());
+        this.ordinals = ords;
+        this.idOrdinal = idOrds;
+        this.sparseIds = null;
+        this.sparseOrdinals = null;
+        this.lengthIndex = new DecsLengthIndex(previous.lengthIndex, newKeys);
+        this.filter = (previous.filter == null) ? null 
+                               : new DecsBloomFilter(previous.filter, newKeys);
+        this.filterFpp = previous.filterFpp;
+        this.expansions = new AtomicReferenceArray<DecsExpansions>(
+                                                   DecsExpansions.PROFILES);
+        this.categoryTrie = trie;
+        this.automaton = new AtomicReference<DecsAutomaton>();
+        this.wordTrie = new AtomicReference<DecsWordTrie>();
+        this.base = this;
+        this.variants = new CopyOnWriteArrayList<DecsConcepts>();
+        for (DecsConcepts variant : previous.variants) {
+            variants.add(new DecsConcepts(this, variant.filterFpp, 
+                                       (variant.filter == null) ? null 
+                               : new DecsBloomFilter(variant.filter, newKeys)));
+        }
+    }
+
+    /**
+     * Concepts of the map of base with another Bloom filter. All the other
+     * tables are the ones of base.
+     * @param filter - the Bloom filter of the keys of base or null
+     */
+    private DecsConcepts(final DecsConcepts base,
+                         final double filterFpp,
+                         final DecsBloomFilter filter) {
+        assert base != null;
+        assert base.base == base;
+
+        this.decs = base.decs;
+        this.keyCount = base.keyCount;
+        this.dict = base.dict;
+        this.concepts = base.concepts;
+        this.ordinals = base.ordinals;
+        this.idOrdinal = base.idOrdinal;
+        this.sparseIds = base.sparseIds;
+        this.sparseOrdinals = base.sparseOrdinals;
+        this.lengthIndex = base.lengthIndex;
+        this.filter = filter;
+        this.filterFpp = filterFpp;
+        this.expansions = base.expansions;
+        this.categoryTrie = base.categoryTrie;
+        this.automaton = base.automaton;
+        this.wordTrie = base.wordTrie;
+        this.base = base;
+        this.variants = base.variants;
+    }
+
+    /**
+     * Gets the concepts of a map: the ones registered for it (see register)
+     * or, if there are none, new ones that are registered for the next 
+     * calls. The registered concepts are softly referenced, so they are
+     * dropped when the memory is needed and no one else refers to them.
+     * If keys were added to or removed from decs after its concepts were
+     * built (the maps of IndexDecs can be changed), they are built again.
+     * The registered concepts are found without locking.
+     * @param decs - set of DeCS descrptors and qualifiers
+     * @return the concepts of decs
+     */
+    public static DecsConcepts forMap(final Map<String,DecsSyn> decs) {
+        if (decs == null) {
+            throw new NullPointerException("decs");
+        }
+        DecsConcepts concepts = find(decs);
+
+        if ((concepts == null) || concepts.isStale()) {
+            synchronized (SHARED) {
+                concepts = find(decs);
+                if ((concepts == null) || concepts.isStale()) {
+                    concepts = new DecsConcepts(decs);
+                    register(concepts);
+                }
+            }
+        }
+
+        return concepts;
+    }
+    
+    /**
+     * Gets the concepts of a map as forMap(decs).withFilter(filterFpp).
+     * @param decs - set of DeCS descrptors and qualifiers
+     * @param filterFpp - false positive probability of the Bloom filter of
+     * the keys or 0 to not create it
+     * @return the concepts of decs
+     */
+    public static DecsConcepts forMap(final Map<String,DecsSyn> decs,
+                                      final double filterFpp) {
+        return forMap(decs).withFilter(filterFpp);
+    }
+
+    /**
+     * Gets the concepts of the map of a delta applied to the map of 
+     * previous, with the same Bloom filter. If the delta was applied 
+     * without copying the map (see DecsDelta.apply), the tables of previous
+     * are updated with the terms of the delta instead of being built again
+     * from the whole map (the automaton and word trie of the locators are 
+     * compiled again, once for the new map). The concepts are registered.
+     * @param previous - the concepts of the map the delta was applied to
+     * @param result - the result of the delta
+     * @return the concepts of the new map
+     */
+    static DecsConcepts forDelta(final DecsConcepts previous,
+                                 final DecsDelta.Result result) {
+        assert previous != null;
+        assert result != null;
+
+        final DecsConcepts concepts;
+
+        if (canUpdate(previous.base, result)) {
+            concepts = new DecsConcepts(previous.base, result.getDecs(),
+                                result.getOldTerms(), result.getNewTerms());
+            register(concepts);
+        } else {
+            concepts = forMap(result.getDecs());
+        }
+
+        return concepts.withFilter(previous.filterFpp);
+    }
+
+    /**
+     * @return true if the concepts of the map of result can be created by
+     * updating the tables of previous: the delta was applied to the map of
+     * previous (a plain map with a dense id table) without copying it, and
+     * its ids keep the id table dense
+     */
+    private static boolean canUpdate(final DecsConcepts previous,
+                                     final DecsDelta.Result result) {
+        boolean update = (result.getDecs() instanceof DecsDeltaMap) && 
+                         (result.getSource() == previous.decs) &&
+                         (previous.dict == null) && 
+                         (previous.idOrdinal != null) && !previous.isStale();
+
+        if (update) {
+            final int maxId = 4 * previous.idOrdinal.length + 1024;
+            for (DecsSyn syn : result.getNewTerms()) {
+                final String id = syn.getId();
+                if ((id != null) && (parseId(id, 0, id.length() - 1) > maxId)) {
+                    update = false;
+                    break;
+                }
+            }
+        }
+
+        return update;
+    }
+
+    /**
+     * Adds the keys of a term (see IndexDecs.put) to a list.
+     */
+    private static void addKeys(final DecsSyn syn,
+                                final List<String> keys) {
+        assert syn != null;
+        assert keys != null;
+
+        for (int idx = 0; idx < syn.getDescriptorCount(); idx++) {
+            keys.add(syn.getDescriptor(idx));
+        }
+        for (int idx = 0; idx < syn.getSynonymCount(); idx++) {
+            keys.add(syn.getSynonym(idx));
+        }
+        if (syn.getAbbreviation() != null) {
+            keys.add(syn.getAbbreviation());
+        }
+        if (syn.getId() != null) {
+            keys.add(syn.getId());
+        }
+    }
+
+    /**
+     * Gets the concepts of the same map with a Bloom filter of the given
+     * false positive probability. They share all the other tables (the 
+     * ordinals, the length index, the expansions, the automaton...) with
+     * these concepts, so only the filter is built, once for each 
+     * probability.
+     * @param filterFpp - false positive probability of the Bloom filter of
+     * the keys or 0 to not use one
+     * @return these concepts or the ones of the same map with the filter
+     */
+    public DecsConcepts withFilter(final double filterFpp) {
+        if ((filterFpp < 0) || (filterFpp >= 1)) {
+            throw new IllegalArgumentException("filterFpp[" + filterFpp
+                                                        + "] not in [0,1)");
+        }
+        DecsConcepts found = (this.filterFpp == filterFpp) ? this 
+                                                   : base.getVariant(filterFpp);
+        if (found == null) {
+            synchronized (variants) {
+                found = base.getVariant(filterFpp);
+                if (found == null) {
+                    final DecsBloomFilter filt = (filterFpp == 0) ? null
+                                : new DecsBloomFilter(decs.keySet(), filterFpp);
+                    found = new DecsConcepts(base, filterFpp, filt);
+                    variants.add(found);
+                }
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * @return the concepts of the map with the given filter (base or one of
+     * its variants) or null
+     */
+    private DecsConcepts getVariant(final double filterFpp) {
+        DecsConcepts found = (this.filterFpp == filterFpp) ? this : null;
+
+        if (found == null) {
+            for (DecsConcepts variant : variants) {
+                if (variant.filterFpp == filterFpp) {
+                    found = variant;
+                    break;
+                }
+            }
+        }
+
+        return found;
+    }
+    
+    /**
+     * Makes forMap() return these concepts for their map (replacing the ones
+     * registered for it).
+     * @param concepts - the concepts of a map
+     */
+    public static void register(final DecsConcepts concepts) {
+        if (concepts == null) {
+            throw new NullPointerException("concepts");
+        }
+        synchronized (SHARED) {
+            if (find(concepts.decs) != concepts) {
+                unregister(concepts.decs);
+                SHARED.add(new SoftReference<DecsConcepts>(concepts));
+            }
+        }
+    }
+    
+    /**
+     * Removes the concepts registered for a map. The holders of the 
+     * concepts are not affected.
+     * @param decs - set of DeCS descrptors and qualifiers
+     */
+    public static void unregister(final Map<String,DecsSyn> decs) {
+        if (decs == null) {
+            throw new NullPointerException("decs");
+        }
+        synchronized (SHARED) {
+            for (SoftReference<DecsConcepts> ref : SHARED) {
+                final DecsConcepts concepts = ref.get();
+                
+                if ((concepts == null) || (concepts.decs == decs)) {
+                    SHARED.remove(ref);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Removes the concepts (or the ones they share the tables with, see 
+     * withFilter) from the registry if they are the ones registered for 
+     * their map. DecsHandle calls it when a map is replaced and 
+     * DecsRegistry when a map is released, so the old versions are not
+     * kept in memory by the registry.
+     * @param concepts - the concepts of a map
+     */
+    public static void unregister(final DecsConcepts concepts) {
+        if (concepts == null) {
+            throw new NullPointerException("concepts");
+        }
+        synchronized (SHARED) {
+            for (SoftReference<DecsConcepts> ref : SHARED) {
+                final DecsConcepts registered = ref.get();
+                
+                if ((registered == null) 
+                                   || (registered.base == concepts.base)) {
+                    SHARED.remove(ref);
+                }
+            }
+        }
+    }
+    
+    /**
+     * @return the concepts registered for decs or null
+     */
+    private static DecsConcepts find(final Map<String,DecsSyn> decs) {
+        DecsConcepts found = null;
+        
+        for (SoftReference<DecsConcepts> ref : SHARED) {
+            final DecsConcepts concepts = ref.get();
+
+            if ((concepts != null) && (concepts.decs == decs)) {
+                found = concepts;
+                break;
+            }
+        }
+        
+        return found;
+    }
+
+    /**
+     * @return true if keys were added to or removed from the map after the
+     * concepts were built
+     */
+    private boolean isStale() {
+        return decs.size() != keyCount;
+    }
+
+    /**
+     * @return the lengths of the keys by their first chars
+     */
+    public DecsLengthIndex getLengthIndex() {
+        return lengthIndex;
+    }
+
+    /**
+     * @return the Bloom filter of the keys or null
+     */
+    public DecsBloomFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * @return the false positive probability of the Bloom filter or 0
+     */
+    public double getFilterFpp() {
+        return filterFpp;
+    }
+
+    /**
+     * @param params - token generation parameters
+     * @return the tokens of the concepts for the token profile of params
+     */
+    DecsExpansions getExpansions(final DecsParams params) {
+        final int profile = DecsExpansions.getProfile(params);
+        DecsExpansions exp = expansions.get(profile);
+        
+        if (exp == null) {
+            exp = new DecsExpansions(this, params.addCategory, 
+                      params.addAncestors, params.addSyn, params.addWords);
+            if (!expansions.compareAndSet(profile, null, exp)) {
+                exp = expansions.get(profile);
+            }
+        }
+        
+        return exp;
+    }
+
+    /**
+     * Creates the expansions of the token profiles used with the previous
+     * concepts, and in them the tokens of the concepts already expanded
+     * there (see DecsExpansions.prepare). DecsHandle calls it before a new
+     * map is swapped, so the token streams find the tokens of the concepts
+     * in use ready instead of creating them after the swap.
+     * @param previous - concepts of the previous version of the map
+     */
+    public void prepare(final DecsConcepts previous) {
+        if (previous == null) {
+            throw new NullPointerException("previous");
+        }
+        if (previous != this) {
+            for (int profile = 0; profile < DecsExpansions.PROFILES; 
+                                                                  profile++) {
+                final DecsExpansions other = previous.expansions.get(profile);
+                
+                if (other != null) {
+                    DecsExpansions exp = expansions.get(profile);
+                    
+                    if (exp == null) {
+                        exp = new DecsExpansions(this, other);
+                        if (!expansions.compareAndSet(profile, null, exp)) {
+                            exp = expansions.get(profile);
+                        }
+                    }
+                    exp.prepare(other);
+                }
+            }
+        }
+    }
+
+    /**
+     * The automaton is compiled by the first caller and then shared by all
+     * the DeCSAhoCorasickLocator instances that use these concepts.
+     * @return the Aho-Corasick automaton of the keys
+     */
+    public DecsAutomaton getAutomaton() {
+        DecsAutomaton auto = automaton.get();
+
+        if (auto == null) {
+            auto = new DecsAutomaton(base);
+            if (!automaton.compareAndSet(null, auto)) {
+                auto = automaton.get();
+            }
+        }
+
+        return auto;
+    }
+
+    /**
+     * The trie is built by the first caller and then shared by all the
+     * DeCSWordTrieLocator instances that use these concepts and char 
+     * classes. Only the trie of the last char classes is kept.
+     * @param classes - char classes that split the keys into words
+     * @return the word trie of the keys
+     */
+    public DecsWordTrie getWordTrie(final CharClassTable classes) {
+        if (classes == null) {
+            throw new NullPointerException("classes");
+        }
+        DecsWordTrie trie = wordTrie.get();
+
+        if ((trie == null) || (trie.getCharClasses() != classes)) {
+            trie = new DecsWordTrie(base, classes);
+            wordTrie.set(trie);
+        }
+
+        return trie;
+    }
+
+    /**
+     * @return the trie of the categories of the concepts
+     */
+    public DecsCategoryTrie getCategoryTrie() {
+        return categoryTrie;
+    }
+
+    private DecsCategoryTrie buildCategoryTrie() {
+        final DecsCategoryTrie trie = new DecsCategoryTrie();
+        
+        for (int ord = 0; ord < size(); ord++) {
+            trie.addCategories(getConcept(ord));
+        }
+        
+        return trie;
+    }
+
+    /**
+     * @return the map the ordinals were assigned from
+     */
+    public Map<String,DecsSyn> getDecs() {
+        return decs;
+    }
+
+    /**
+     * @return number of distinct concepts
+     */
+    public int size() {
+        return (dict == null) ? concepts.length : dict.getConceptCount();
+    }
+
+    /**
+     * @param ordinal - concept ordinal
+     * @return the concept with the given ordinal
+     */
+    public DecsSyn getConcept(final int ordinal) {
+        return (dict == null) ? concepts[ordinal] : dict.getConcept(ordinal);
+    }
+
+    /**
+     * @param key - a DeCS map key
+     * @return the ordinal of the key concept or NO_ORDINAL if it is not a key
+     * (or if its concept was put in the map after the concepts were built)
+     */
+    public int getKeyOrdinal(final String key) {
+        if (key == null) {
+            throw new NullPointerException("key");
+        }
+        final int ordinal;
+
+        if ((filter != null) && !filter.mightContain(key)) {
+            ordinal = NO_ORDINAL;
+        } else if (dict == null) {
+            final DecsSyn syn = decs.get(key);
+            final Integer ord = (syn == null) ? null : ordinals.get(syn);
+            ordinal = (ord == null) ? NO_ORDINAL : ord;
+        } else {
+            ordinal = key.isEmpty() ? NO_ORDINAL
+                                    : dict.getOrdinal(key, 0, key.length() - 1);
+        }
+
+        return ordinal;
+    }
+
+    /**
+     * Looks up an all digits key (a precodified ^d or ^s id) without
+     * creating a string.
+     * @param in - input chars
+     * @param begin - id initial position
+     * @param end - id last position
+     * @return the ordinal of the in[begin, end] concept or NO_ORDINAL if it
+     * is not a key
+     */
+    public int getIdOrdinal(final CharSequence in,
+                            final int begin,
+                            final int end) {
+        if (in == null) {
+            throw new NullPointerException("in");
+        }
+        final int ordinal;
+
+        if (dict == null) {
+            final int id = parseId(in, begin, end);
+
+            if (id == -1) {
+                ordinal = NO_ORDINAL;
+            } else if (idOrdinal != null) {
+                ordinal = (id < idOrdinal.length) ? idOrdinal[id] : NO_ORDINAL;
+            } else {
+                final int pos = Arrays.binarySearch(sparseIds, id);
+                ordinal = (pos < 0) ? NO_ORDINAL : sparseOrdinals[pos];
+            }
+        } else {
+            ordinal = (begin > end) ? NO_ORDINAL 
+                                    : dict.getOrdinal(in, begin, end);
+        }
+
+        return ordinal;
+    }
+
+    /**
+     * @return the value of in[begin, end] or -1 if it is not an id: one to
+     * PrecodTermScanner.MAX_ID_SIZE digits without leading zeros (keys with
+     * leading zeros are different strings of the same number)
+     */
+    private static int parseId(final CharSequence in,
+                               final int begin,
+                               final int end) {
+        final int len = end - begin + 1;
+        int id = -1;
+
+        if ((len > 0) && (len <= PrecodTermScanner.MAX_ID_SIZE) &&
+                              ((len == 1) || (in.charAt(begin) != '0'))) {
+            id = 0;
+            for (int pos = begin; pos <= end; pos++) {
+                final char ch = in.charAt(pos);
+                if ((ch < '0') || (ch > '9')) {
+                    id = -1;
+                    break;
+                }
+                id = 10 * id + (ch - '0');
+            }
+        }
+
+        return id;
+    }
+
+    /**
+     * Sorts ids[0, count) and their ordinals into sparseIds and
+     * sparseOrdinals.
+     */
+    private void sortIds(final int[] ids,
+                         final int[] idOrds,
+                         final int count) {
+        final long[] pairs = new long[count];
+
+        for (int idx = 0; idx < count; idx++) {
+            pairs[idx] = ((long)ids[idx] << 32) | idOrds[idx];
+        }
+        Arrays.sort(pairs);
+        for (int idx = 0; idx < count; idx++) {
+            sparseIds[idx] = (int)(pairs[idx] >>> 32);
+            sparseOrdinals[idx] = (int)pairs[idx];
+        }
+    }
+}
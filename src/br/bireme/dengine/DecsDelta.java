@@ -0,0 +1,380 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * A set of corrections to a DeCS map: terms added, changed or removed.
+ * A delta file has the same format as the DeCS XML file. Each 
+ * &lt;term mfn="..."&gt; record replaces the term with the same mfn (or is
+ * added if there is no such term) and a record with the attribute
+ * action="remove" removes the term with that mfn:
+ * <pre>
+ * &lt;decs-syn-list&gt;
+ *   &lt;term mfn="3"&gt;...&lt;/term&gt;
+ *   &lt;term mfn="4" action="remove"/&gt;
+ * &lt;/decs-syn-list&gt;
+ * </pre>
+ * apply() does not copy the map: the new map is a DecsDeltaMap of the 
+ * current one and the keys of the terms in the delta (it is copied only 
+ * when the changes reach MAX_CHANGES of the map), so a small correction 
+ * does not need the DeCS file to be loaded again nor the map to be 
+ * copied. The keys are checked as IndexDecs does and the conflicts are 
+ * reported per delta. See DecsHandle.apply() to update a live map.
+ * @author agent
+ * date: 20261017
+ */
+public class DecsDelta {
+    /**
+     * Value of the action attribute of the records that remove a term
+     */
+    public static final String REMOVE = "remove";
+
+    /**
+     * Changed keys, as a fraction of the map size, above which apply()
+     * returns a copy of the map instead of a DecsDeltaMap
+     */
+    public static final double MAX_CHANGES = 0.125;
+
+    /**
+     * The outcome of applying a delta to a map.
+     */
+    public static final class Result {
+        private final Map<String,DecsSyn> source;
+        private final Map<String,DecsSyn> decs;
+        private final int added;
+        private final int changed;
+        private final int removed;
+        private final List<String> conflicts;
+        private final List<DecsSyn> oldTerms;   // replaced or removed
+        private final List<DecsSyn> newTerms;   // added or replacing
+
+        private Result(final Map<String,DecsSyn> source,
+                       final Map<String,DecsSyn> decs,
+                       final int added,
+                       final int changed,
+                       final int removed,
+                       final List<String> conflicts,
+                       final List<DecsSyn> oldTerms,
+                       final List<DecsSyn> newTerms) {
+            this.source = source;
+            this.decs = decs;
+            this.added = added;
+            this.changed = changed;
+            this.removed = removed;
+            this.conflicts = conflicts;
+            this.oldTerms = oldTerms;
+            this.newTerms = newTerms;
+        }
+
+        /**
+         * @return the map the delta was applied to
+         */
+        Map<String,DecsSyn> getSource() {
+            return source;
+        }
+
+        /**
+         * @return the terms replaced or removed from the source map
+         */
+        List<DecsSyn> getOldTerms() {
+            return oldTerms;
+        }
+
+        /**
+         * @return the terms added to the source map or replacing its terms
+         */
+        List<DecsSyn> getNewTerms() {
+            return newTerms;
+        }
+
+        /**
+         * @return the new (unmodifiable) DeCS map
+         */
+        public Map<String,DecsSyn> getDecs() {
+            return decs;
+        }
+
+        /**
+         * @return number of terms that were not in the map
+         */
+        public int getAdded() {
+            return added;
+        }
+
+        /**
+         * @return number of terms replaced
+         */
+        public int getChanged() {
+            return changed;
+        }
+
+        /**
+         * @return number of terms removed
+         */
+        public int getRemoved() {
+            return removed;
+        }
+
+        /**
+         * @return the keys found in other terms and the removed terms that
+         * were not in the map, one message per record
+         */
+        public List<String> getConflicts() {
+            return conflicts;
+        }
+
+        @Override
+        public String toString() {
+            return "added=" + added + " changed=" + changed + " removed=" 
+                           + removed + " conflicts=" + conflicts.size();
+        }
+    }
+
+    // mfn of each record and its new term (null if the term is removed)
+    private final List<String> ids;
+    private final List<DecsSyn> terms;
+
+    public DecsDelta() {
+        ids = new ArrayList<String>();
+        terms = new ArrayList<DecsSyn>();
+    }
+
+    /**
+     * Reads a delta file.
+     * @param xml - delta XML file path (ISO-8859-1)
+     * @return the delta
+     * @throws XMLStreamException
+     * @throws IOException
+     */
+    public static DecsDelta read(final String xml) 
+                                        throws XMLStreamException, IOException {
+        if (xml == null) {
+            throw new NullPointerException("xml");
+        }
+        final InputStream in = new BufferedInputStream(
+                                                     new FileInputStream(xml));
+        try {
+            return read(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads a delta.
+     * @param in - delta XML content (ISO-8859-1)
+     * @return the delta
+     * @throws XMLStreamException
+     */
+    public static DecsDelta read(final InputStream in) 
+                                                    throws XMLStreamException {
+        if (in == null) {
+            throw new NullPointerException("in");
+        }
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, 
+                                                                        false);
+        final XMLStreamReader reader = 
+                                factory.createXMLStreamReader(in, "ISO-8859-1");
+        final DecsDelta delta = new DecsDelta();
+        
+        try {
+            final DecsSynBuilder syn = new DecsSynBuilder();
+            boolean inTerm = false;
+            
+            while (reader.hasNext()) {
+                final int event = reader.next();
+                
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    final String name = reader.getLocalName();
+                    
+                    if (name.equals("term")) {
+                        final String id = reader.getAttributeValue(null, "mfn");
+                        if (id == null) {
+                            throw new XMLStreamException("missing mfn",
+                                                        reader.getLocation());
+                        }
+                        if (REMOVE.equals(
+                                   reader.getAttributeValue(null, "action"))) {
+                            delta.remove(id);
+                        } else {
+                            syn.clear();
+                            syn.setId(id);
+                            inTerm = true;
+                        }
+                    } else if (inTerm) {
+                        addElement(syn, name, reader);
+                    }
+                } else if ((event == XMLStreamConstants.END_ELEMENT) && 
+                            inTerm && reader.getLocalName().equals("term")) {
+                    delta.put(syn.build());
+                    inTerm = false;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        
+        return delta;
+    }
+
+    private static void addElement(final DecsSynBuilder syn,
+                                   final String name,
+                                   final XMLStreamReader reader) 
+                                                    throws XMLStreamException {
+        assert syn != null;
+        assert name != null;
+        assert reader != null;
+        
+        if (name.equals("descriptor")) {
+            syn.addDescriptor(IndexDecs.getNormText(reader.getElementText()));
+        } else if (name.equals("synonym")) {
+            syn.addSynonym(IndexDecs.getNormText(reader.getElementText()));
+        } else if (name.equals("category")) {
+            syn.addCategory(IndexDecs.getNormText(reader.getElementText()));
+        } else if (name.equals("abbreviation")) {
+            syn.setAbbreviation(
+                              IndexDecs.getNormText(reader.getElementText()));
+        }
+    }
+
+    /**
+     * Adds a term, or replaces the term with the same id.
+     * @param term - the new term (its keys must be normalized)
+     * @return this delta
+     */
+    public DecsDelta put(final DecsSyn term) {
+        if (term == null) {
+            throw new NullPointerException("term");
+        }
+        if (term.getId() == null) {
+            throw new IllegalArgumentException("term id == null");
+        }
+        ids.add(term.getId());
+        terms.add(term);
+
+        return this;
+    }
+
+    /**
+     * Removes the term with the given id.
+     * @param id - mfn of the term
+     * @return this delta
+     */
+    public DecsDelta remove(final String id) {
+        if (id == null) {
+            throw new NullPointerException("id");
+        }
+        ids.add(id);
+        terms.add(null);
+
+        return this;
+    }
+
+    /**
+     * @return number of records of this delta
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Applies the records, in order, to a DecsDeltaMap of decs (or a copy 
+     * of decs if the map has too many changes, see MAX_CHANGES). decs itself
+     * is not changed, so it can be in use by other threads.
+     * @param decs - the current DeCS map
+     * @return the new map and the counts and conflicts of this delta
+     */
+    public Result apply(final Map<String,DecsSyn> decs) {
+        if (decs == null) {
+            throw new NullPointerException("decs");
+        }
+        final DecsDeltaMap map = new DecsDeltaMap(decs);
+        final List<String> conflicts = new ArrayList<String>();
+        final List<DecsSyn> oldTerms = new ArrayList<DecsSyn>();
+        final List<DecsSyn> newTerms = new ArrayList<DecsSyn>();
+        final int size = ids.size();
+        int added = 0;
+        int changed = 0;
+        int removed = 0;
+
+        for (int idx = 0; idx < size; idx++) {
+            final String id = ids.get(idx);
+            final DecsSyn term = terms.get(idx);
+            final DecsSyn old = map.get(id);
+            final boolean found = (old != null) && id.equals(old.getId());
+
+            if (found) {
+                IndexDecs.remove(map, old);
+                oldTerms.add(old);
+            }
+            if (term == null) {
+                if (found) {
+                    removed++;
+                } else {
+                    conflicts.add("mfn[" + id + "] not found.");
+                }
+            } else {
+                if (found) {
+                    changed++;
+                } else {
+                    added++;
+                }
+                newTerms.add(term);
+                try {
+                    IndexDecs.put(map, term);
+                } catch (IOException ioe) {
+                    conflicts.add("mfn[" + id + "] " + ioe.getMessage());
+                }
+            }
+        }
+
+        final Map<String,DecsSyn> result;
+        if (map.getChangeCount() > MAX_CHANGES * map.getBase().size()) {
+            result = Collections.unmodifiableMap(
+                                             new HashMap<String,DecsSyn>(map));
+        } else {
+            map.seal();
+            result = map;
+        }
+
+        return new Result(decs, result, added, changed, removed, 
+                          Collections.unmodifiableList(conflicts), 
+                          oldTerms, newTerms);
+    }
+}
@@ -0,0 +1,216 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+
+package br.bireme.dengine;
+
+import java.util.AbstractMap;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A DeCS map made of an unchanged base map and the keys added, changed or
+ * removed by the deltas applied to it (see DecsDelta.apply), so a delta 
+ * does not copy the whole map. A map of a map of the same base has its 
+ * changes and the same base, so the lookups never go through more than 
+ * two maps. The map is changed only by DecsDelta, before it is sealed, and
+ * it can then be shared among threads.
+ * @author agent
+ * date: 20261017
+ */
+final class DecsDeltaMap extends AbstractMap<String,DecsSyn> {
+    private final Map<String,DecsSyn> base;
+    private final Map<String,DecsSyn> changes;  // a removed key maps to null
+    private int size;
+    private boolean sealed;
+
+    /**
+     * @param decs - the map the changes are applied to (if it is a 
+     * DecsDeltaMap, its base and a copy of its changes are used)
+     */
+    DecsDeltaMap(final Map<String,DecsSyn> decs) {
+        assert decs != null;
+
+        if (decs instanceof DecsDeltaMap) {
+            final DecsDeltaMap other = (DecsDeltaMap)decs;
+            base = other.base;
+            changes = new HashMap<String,DecsSyn>(other.changes);
+        } else {
+            base = decs;
+            changes = new HashMap<String,DecsSyn>();
+        }
+        size = decs.size();
+    }
+
+    /**
+     * @return the unchanged map
+     */
+    Map<String,DecsSyn> getBase() {
+        return base;
+    }
+
+    /**
+     * @return number of keys added, changed or removed from the base map
+     */
+    int getChangeCount() {
+        return changes.size();
+    }
+
+    /**
+     * Makes the map unmodifiable.
+     */
+    void seal() {
+        sealed = true;
+    }
+
+    @Override
+    public DecsSyn get(final Object key) {
+        final DecsSyn syn = changes.get(key);
+
+        return ((syn != null) || changes.containsKey(key)) ? syn 
+                                                          : base.get(key);
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public DecsSyn put(final String key,
+                       final DecsSyn value) {
+        if (sealed) {
+            throw new UnsupportedOperationException();
+        }
+        if (key == null) {
+            throw new NullPointerException("key");
+        }
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        final DecsSyn old = get(key);
+
+        changes.put(key, value);
+        if (old == null) {
+            size++;
+        }
+        return old;
+    }
+
+    @Override
+    public DecsSyn remove(final Object key) {
+        if (sealed) {
+            throw new UnsupportedOperationException();
+        }
+        final DecsSyn old = get(key);
+
+        if (old != null) {
+            if (base.containsKey(key)) {
+                changes.put((String)key, null);
+            } else {
+                changes.remove(key);
+            }
+            size--;
+        }
+        return old;
+    }
+
+    @Override
+    public Set<Map.Entry<String,DecsSyn>> entrySet() {
+        return new AbstractSet<Map.Entry<String,DecsSyn>>() {
+            @Override
+            public Iterator<Map.Entry<String,DecsSyn>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // the base entries not changed and then the added or changed ones
+    private final class EntryIterator 
+                               implements Iterator<Map.Entry<String,DecsSyn>> {
+        private Iterator<Map.Entry<String,DecsSyn>> it;
+        private boolean inChanges;
+        private Map.Entry<String,DecsSyn> next;
+
+        private EntryIterator() {
+            it = base.entrySet().iterator();
+            next = findNext();
+        }
+
+        private Map.Entry<String,DecsSyn> findNext() {
+            Map.Entry<String,DecsSyn> found = null;
+
+            while (found == null) {
+                if (it.hasNext()) {
+                    final Map.Entry<String,DecsSyn> entry = it.next();
+                    if (inChanges ? (entry.getValue() != null)
+                                  : !changes.containsKey(entry.getKey())) {
+                        found = entry;
+                    }
+                } else if (inChanges) {
+                    break;
+                } else {
+                    it = changes.entrySet().iterator();
+                    inChanges = true;
+                }
+            }
+            return found;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<String,DecsSyn> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            final Map.Entry<String,DecsSyn> entry = 
+                            new SimpleImmutableEntry<String,DecsSyn>(next);
+            next = findNext();
+
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
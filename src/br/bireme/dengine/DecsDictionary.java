@@ -0,0 +1,64 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+/**
+ * Read only DeCS map whose keys are mapped to concept ordinals. The locators
+ * use the ordinal lookups to check input windows without creating strings.
+ * @author agent
+ * date: 20261017
+ */
+public interface DecsDictionary {
+    /**
+     * Looks up a key without creating a string.
+     * @param in - input chars
+     * @param begin - key initial position
+     * @param end - key last position
+     * @return the concept ordinal of in[begin, end] or -1 if it is not a key
+     */
+    public int getOrdinal(final CharSequence in,
+                          final int begin,
+                          final int end);
+    
+    /**
+     * Looks up a key without creating a string.
+     * @param in - input chars
+     * @param begin - key initial position
+     * @param end - key last position
+     * @return the concept ordinal of in[begin, end] or -1 if it is not a key
+     */
+    public int getOrdinal(final char[] in,
+                          final int begin,
+                          final int end);
+    
+    /**
+     * @param ordinal - concept ordinal
+     * @return the concept with the given ordinal
+     */
+    public DecsSyn getConcept(final int ordinal);
+    
+    /**
+     * @return number of distinct concepts
+     */
+    public int getConceptCount();
+}
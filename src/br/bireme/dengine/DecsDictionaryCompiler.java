@@ -0,0 +1,205 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Offline compiler of the DeCS XML into the binary dictionary file used by
+ * MappedDecsDictionary (see its file layout). The file is written to a
+ * temporary file and then renamed, so readers never see a partial file.
+ * <pre>
+ * usage: DecsDictionaryCompiler &lt;decsXml&gt; &lt;dictFile&gt;
+ * </pre>
+ * @author agent
+ * date: 20261017
+ */
+public class DecsDictionaryCompiler {
+    /**
+     * Writes the dictionary file.
+     * @param decs - set of DeCS descrptors and qualifiers
+     * @param out - dictionary file
+     * @throws IOException 
+     */
+    public static void compile(final Map<String,DecsSyn> decs,
+                               final File out) throws IOException {
+        if (decs == null) {
+            throw new NullPointerException("decs");
+        }
+        if (out == null) {
+            throw new NullPointerException("out");
+        }
+        final IdentityHashMap<DecsSyn,Integer> ordinals = 
+                                         new IdentityHashMap<DecsSyn,Integer>();
+        final List<DecsSyn> concepts = new ArrayList<DecsSyn>();
+        final List<String> keys = new ArrayList<String>(decs.keySet());
+        int keyChars = 0;
+        
+        Collections.sort(keys);  // keys are binary searched
+        for (String key : keys) {
+            final DecsSyn syn = decs.get(key);
+            if (!ordinals.containsKey(syn)) {
+                ordinals.put(syn, concepts.size());
+                concepts.add(syn);
+            }
+            keyChars += key.length();
+        }
+        
+        // concept data
+        final ByteArrayOutputStream cbytes = new ByteArrayOutputStream();
+        final DataOutputStream cdata = new DataOutputStream(cbytes);
+        final int[] conceptStart = new int[concepts.size() + 1];
+        for (int idx = 0; idx < concepts.size(); idx++) {
+            final DecsSyn syn = concepts.get(idx);
+            conceptStart[idx] = cdata.size();
+            writeString(cdata, syn.getId());
+            writeString(cdata, syn.getTreeId());
+            writeString(cdata, syn.getAbbreviation());
+            writeStrings(cdata, syn.getDescriptor());
+            writeStrings(cdata, syn.getSynonym());
+            writeStrings(cdata, syn.getCategory());
+        }
+        conceptStart[concepts.size()] = cdata.size();
+        cdata.flush();
+        
+        final int keyCharsOffset = MappedDecsDictionary.HEADER_SIZE + 
+              4 * (keys.size() + 1) + 4 * keys.size() + 4 * conceptStart.length;
+        final int conceptDataOffset = align(keyCharsOffset + 2 * keyChars);
+        final int length = conceptDataOffset + cdata.size();
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        
+        buffer.putInt(MappedDecsDictionary.MAGIC);
+        buffer.putInt(MappedDecsDictionary.VERSION);
+        buffer.putLong(0);  // checksum
+        buffer.putInt(keys.size());
+        buffer.putInt(concepts.size());
+        buffer.putInt(keyCharsOffset);
+        buffer.putInt(conceptDataOffset);
+        buffer.putInt(length);
+        
+        int kstart = 0;
+        for (String key : keys) {
+            buffer.putInt(kstart);
+            kstart += key.length();
+        }
+        buffer.putInt(kstart);
+        for (String key : keys) {
+            buffer.putInt(ordinals.get(decs.get(key)));
+        }
+        for (int start : conceptStart) {
+            buffer.putInt(start);
+        }
+        for (String key : keys) {
+            for (int idx = 0; idx < key.length(); idx++) {
+                buffer.putChar(key.charAt(idx));
+            }
+        }
+        buffer.position(conceptDataOffset);
+        buffer.put(cbytes.toByteArray());
+        buffer.putLong(MappedDecsDictionary.CHECKSUM_POS, 
+                                    MappedDecsDictionary.getChecksum(buffer));
+        
+        final File dir = out.getAbsoluteFile().getParentFile();
+        final File tmp = File.createTempFile(out.getName(), ".tmp", dir);
+        try {
+            final FileOutputStream fos = new FileOutputStream(tmp);
+            try {
+                fos.write(buffer.array());
+                fos.getFD().sync();
+            } finally {
+                fos.close();
+            }
+            Files.move(tmp.toPath(), out.toPath(), 
+                                      StandardCopyOption.REPLACE_EXISTING,
+                                      StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            if (tmp.exists()) {
+                tmp.delete();
+            }
+        }
+    }
+    
+    private static int align(final int pos) {
+        return (pos + 3) & ~3;
+    }
+    
+    private static void writeString(final DataOutputStream out,
+                                    final String str) throws IOException {
+        assert out != null;
+        
+        if (str == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(str.length());
+            out.writeChars(str);
+        }
+    }
+    
+    private static void writeStrings(final DataOutputStream out,
+                                     final Collection<String> strs) 
+                                                            throws IOException {
+        assert out != null;
+        assert strs != null;
+        
+        final List<String> list = new ArrayList<String>(strs);
+        if (!(strs instanceof List)) {
+            Collections.sort(list);  // sets are written in a stable order
+        }
+        out.writeInt(list.size());
+        for (String str : list) {
+            writeString(out, str);
+        }
+    }
+    
+    private static void usage() {
+        System.err.println(
+                        "usage: DecsDictionaryCompiler <decsXml> <dictFile>");
+        System.exit(1);
+    }
+    
+    public static void main(final String[] args) throws Exception {
+        if (args.length != 2) {
+            usage();
+        }
+        final long start = System.currentTimeMillis();
+        final Map<String,DecsSyn> decs = new IndexDecs().indexTerms(args[0]);
+        final File out = new File(args[1]);
+        
+        compile(decs, out);
+        System.out.println("keys=" + decs.size() + " bytes=" + out.length() +
+                       " time=" + (System.currentTimeMillis() - start) + "ms");
+    }
+}
@@ -0,0 +1,310 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The tokens DeCSTokenizer creates for each concept of a DecsConcepts 
+ * table with a token profile (the addCategory, addAncestors, addSyn and 
+ * addWords flags of DecsParams): its descriptors, synonyms, categories and
+ * the ancestors of the categories in the DecsCategoryTrie, trimmed, without
+ * the initial '/' and split in words, sorted and without repetitions. They
+ * only depend on the concept and on the profile, so they are created at 
+ * the first occurrence of the concept and copied to the tokens of every 
+ * occurrence. The token positions of the expansions are meaningless.
+ * The expansions are kept by the DecsConcepts of each map version (see 
+ * DecsConcepts.getExpansions), so all the tokenizers of a map share them
+ * and each concept is expanded once by profile.
+ * Instances can be shared among threads.
+ * @author agent
+ * date: 20261017
+ */
+final class DecsExpansions {
+    /**
+     * number of token profiles
+     */
+    static final int PROFILES = 16;
+    
+    private final DecsConcepts concepts;
+    private final boolean addCategory;
+    private final boolean addAncestors;
+    private final boolean addSyn;
+    private final boolean addWords;
+    
+    // tokens of descriptors and other fields and of the other fields only
+    private final AtomicReferenceArray<DecsTokenBuffer> full;
+    private final AtomicReferenceArray<DecsTokenBuffer> others;
+
+    /**
+     * @param concepts - concept ordinals of the DeCS map
+     * @param addCategory - creates the tokens of the categories
+     * @param addAncestors - with addCategory, also creates the tokens of the
+     * ancestors of the categories
+     * @param addSyn - creates the tokens of the synonyms
+     * @param addWords - also creates a token for each word of the tokens
+     */
+    DecsExpansions(final DecsConcepts concepts,
+                   final boolean addCategory,
+                   final boolean addAncestors,
+                   final boolean addSyn,
+                   final boolean addWords) {
+        assert concepts != null;
+        
+        this.concepts = concepts;
+        this.addCategory = addCategory;
+        this.addAncestors = addCategory && addAncestors;
+        this.addSyn = addSyn;
+        this.addWords = addWords;
+        this.full = new AtomicReferenceArray<DecsTokenBuffer>(concepts.size());
+        this.others = new AtomicReferenceArray<DecsTokenBuffer>(
+                                                            concepts.size());
+    }
+    
+    /**
+     * Creates the expansions of concepts with the token profile of other.
+     * @param concepts - concept ordinals of the DeCS map
+     * @param other - expansions of another concepts table
+     */
+    DecsExpansions(final DecsConcepts concepts,
+                   final DecsExpansions other) {
+        this(concepts, other.addCategory, other.addAncestors, other.addSyn,
+                                                              other.addWords);
+    }
+    
+    /**
+     * Creates the tokens of the concepts whose tokens other has created (the
+     * concepts in use with the other table, for example of the previous 
+     * version of the map). The concepts are matched by their mfn id or by 
+     * their first descriptor, and the tokens come from the concepts of this
+     * table, so the changed concepts get their new tokens. The tokens of 
+     * the concepts that are the same instance in both tables (the ones not
+     * changed by a DecsDelta) are shared instead of created again.
+     * @param other - expansions of another concepts table with the same 
+     * token profile
+     */
+    void prepare(final DecsExpansions other) {
+        assert other != null;
+        
+        final DecsConcepts ocpts = other.concepts;
+        
+        for (int oord = 0; oord < ocpts.size(); oord++) {
+            final boolean hasFull = (other.full.get(oord) != null);
+            final boolean hasOthers = (other.others.get(oord) != null);
+            
+            if (hasFull || hasOthers) {
+                final DecsSyn syn = ocpts.getConcept(oord);
+                final String key = (syn.getId() != null) ? syn.getId()
+                   : (syn.getDescriptorCount() > 0) ? syn.getDescriptor(0) 
+                                                    : null;
+                final int ordinal = (key == null) ? DecsConcepts.NO_ORDINAL
+                                                : concepts.getKeyOrdinal(key);
+                if (ordinal != DecsConcepts.NO_ORDINAL) {
+                    final boolean same = (concepts.getConcept(ordinal) == syn);
+                    if (hasFull) {
+                        if (same) {
+                            full.compareAndSet(ordinal, null, 
+                                                      other.full.get(oord));
+                        } else {
+                            getTokens(ordinal, true);
+                        }
+                    }
+                    if (hasOthers) {
+                        if (same) {
+                            others.compareAndSet(ordinal, null, 
+                                                    other.others.get(oord));
+                        } else {
+                            getTokens(ordinal, false);
+                        }
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * @param params - token generation parameters
+     * @return the profile index of the params, from 0 to PROFILES - 1
+     */
+    static int getProfile(final DecsParams params) {
+        assert params != null;
+        
+        return (params.addCategory ? 1 : 0) | (params.addSyn ? 2 : 0) | 
+               (params.addWords ? 4 : 0) | 
+               ((params.addCategory && params.addAncestors) ? 8 : 0);
+    }
+    
+    /**
+     * @param ordinal - concept ordinal
+     * @param descriptors - if false, only the tokens of the synonyms and 
+     * categories
+     * @return the tokens of the concept. They must not be changed.
+     */
+    DecsTokenBuffer getTokens(final int ordinal,
+                              final boolean descriptors) {
+        final AtomicReferenceArray<DecsTokenBuffer> array = 
+                                                  descriptors ? full : others;
+        DecsTokenBuffer tokens = array.get(ordinal);
+        
+        if (tokens == null) {
+            tokens = createTokens(concepts.getConcept(ordinal), descriptors);
+            if (!array.compareAndSet(ordinal, null, tokens)) {
+                tokens = array.get(ordinal);
+            }
+        }
+        
+        return tokens;
+    }
+    
+    /**
+     * @param ordinal - concept ordinal
+     * @param descriptors - see getTokens
+     * @return true if the tokens of the concept were already created
+     */
+    boolean hasTokens(final int ordinal,
+                      final boolean descriptors) {
+        return (descriptors ? full : others).get(ordinal) != null;
+    }
+    
+    private DecsTokenBuffer createTokens(final DecsSyn syn,
+                                         final boolean descriptors) {
+        assert syn != null;
+        
+        final DecsTokenBuffer tokens = new DecsTokenBuffer();
+        
+        if (descriptors) {
+            for (int idx = 0; idx < syn.getDescriptorCount(); idx++) {
+                final String descriptor = syn.getDescriptor(idx);
+                splitWords(tokens, descriptor, 0, descriptor.length(), 0, 0,
+                                                        addWords, idx != 0);
+            }
+        }
+        if (addSyn) {
+            for (int idx = 0; idx < syn.getSynonymCount(); idx++) {
+                final String synonym = syn.getSynonym(idx);
+                splitWords(tokens, synonym, 0, synonym.length(), 0, 0, 
+                                                             addWords, true);
+            }
+        }        
+        if (addCategory) {
+            final DecsCategoryTrie trie = addAncestors 
+                                          ? concepts.getCategoryTrie() : null;
+            for (int idx = 0; idx < syn.getCategoryCount(); idx++) {
+                final String category = syn.getCategory(idx);
+                splitWords(tokens, category, 0, category.length(), 0, 0,
+                                                             addWords, true);
+                if (trie != null) {
+                    int node = trie.getNode(category);
+                    if (node != DecsCategoryTrie.NO_NODE) {
+                        node = trie.getParent(node);
+                    }
+                    while (node != DecsCategoryTrie.NO_NODE) {
+                        final String ancestor = trie.getTreeNumber(node);
+                        splitWords(tokens, ancestor, 0, ancestor.length(), 0,
+                                                          0, addWords, true);
+                        node = trie.getParent(node);
+                    }
+                }
+            }
+        }
+        tokens.sortUnique(0);
+        
+        return tokens.copy();
+    }
+    
+    /**
+     * Adds the trimmed str[from, to[ (without its initial '/') and, if 
+     * addWords, its words as str.split("[\\s\\-]+") would create them, 
+     * without allocating substrings.
+     * @param tokens - buffer of the new tokens
+     * @param begin - initial position of the tokens
+     * @param end - last position of the tokens
+     */
+    static void splitWords(final DecsTokenBuffer tokens,
+                           final String str,
+                           final int from,
+                           final int to,
+                           final int begin,
+                           final int end,
+                           final boolean addWords,
+                           final boolean samePos) {
+        assert tokens != null;
+        assert str != null;
+            
+        int first = from;
+        int last = to;
+        
+        while ((first < last) && (str.charAt(first) <= ' ')) {
+            first++;
+        }
+        while ((last > first) && (str.charAt(last - 1) <= ' ')) {
+            last--;
+        }
+        if ((first < last) && (str.charAt(first) == '/')) {
+            tokens.add(str, first, last, begin, end, samePos);
+            first++;
+        }
+        tokens.add(str, first, last, begin, end, samePos);
+        
+        if (addWords) {
+            int words = 0;
+            int pos = first;
+            
+            while (pos < last) {        // counts the non empty words
+                while ((pos < last) && isWordSeparator(str.charAt(pos))) {
+                    pos++;
+                }
+                if (pos < last) {
+                    words++;
+                    while ((pos < last) && !isWordSeparator(str.charAt(pos))) {
+                        pos++;
+                    }
+                }
+            }
+            if ((first < last) && isWordSeparator(str.charAt(first))) {
+                words++;                // split keeps a leading empty word
+            }
+            if (words > 1) {
+                pos = first;
+                while (pos < last) {
+                    final int wbegin = pos;
+                    while ((pos < last) && !isWordSeparator(str.charAt(pos))) {
+                        pos++;
+                    }
+                    tokens.add(str, wbegin, pos, begin, end, true);
+                    while ((pos < last) && isWordSeparator(str.charAt(pos))) {
+                        pos++;
+                    }
+                }
+            }
+        }        
+    }
+    
+    /**
+     * @return true if ch matches the regular expression [\s\-]
+     */
+    private static boolean isWordSeparator(final char ch) {
+        return (ch == ' ') || (ch == '-') || (ch == '\t') || (ch == '\n') || 
+               (ch == '\u000B') || (ch == '\f') || (ch == '\r');
+    }
+}
@@ -0,0 +1,502 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import org.apache.lucene.util.IntsRef;
+import org.apache.lucene.util.IntsRefBuilder;
+import org.apache.lucene.util.fst.Builder;
+import org.apache.lucene.util.fst.FST;
+import org.apache.lucene.util.fst.IntsRefFSTEnum;
+import org.apache.lucene.util.fst.PositiveIntOutputs;
+import org.apache.lucene.util.fst.Util;
+
+/**
+ * Read only DeCS dictionary compiled into a Lucene FST. Each normalized key
+ * (descriptor, synonym, abbreviation or mfn id) is mapped to the ordinal of
+ * its concept, and each concept is stored only once, packed into a single
+ * char array (a length char followed by the chars of each string) instead of
+ * a DecsSyn object graph. getConcept decodes a new DecsSyn on each call, as
+ * MappedDecsDictionary does. It can be used wherever the Map built by
+ * IndexDecs is used. 
+ * The lookups reuse one FST reader and arc per thread.
+ * @author agent
+ * date: 20261017
+ */
+public class DecsFST extends AbstractMap<String,DecsSyn> 
+                                                     implements DecsDictionary {
+    private final FST<Long> fst;
+    private final char[] data;          // packed concepts
+    private final int[] conceptStart;   // concept ordinal -> position in data
+    private final int size;
+    private final ThreadLocal<Scratch> scratch;
+    private Set<Map.Entry<String,DecsSyn>> entrySet;
+
+    /**
+     *
+     * @param decs - set of DeCS descrptors and qualifiers
+     * @throws IOException 
+     */
+    public DecsFST(final Map<String,DecsSyn> decs) throws IOException {
+        if (decs == null) {
+            throw new NullPointerException("decs");
+        }
+        final IdentityHashMap<DecsSyn,Integer> ordinals = 
+                                         new IdentityHashMap<DecsSyn,Integer>();
+        final List<Integer> starts = new ArrayList<Integer>();
+        final StringBuilder buffer = new StringBuilder();
+        final List<String> keys = new ArrayList<String>(decs.keySet());
+        
+        Collections.sort(keys);  // FST inputs must be added in sorted order
+        
+        final Builder<Long> builder = new Builder<Long>(FST.INPUT_TYPE.BYTE2, 
+                                            PositiveIntOutputs.getSingleton());
+        final IntsRefBuilder scratch = new IntsRefBuilder();
+        
+        for (String key : keys) {
+            final DecsSyn syn = decs.get(key);
+            Integer ordinal = ordinals.get(syn);
+            
+            if (ordinal == null) {
+                ordinal = starts.size();
+                ordinals.put(syn, ordinal);
+                starts.add(buffer.length());
+                putConcept(syn, buffer);
+            }
+            builder.add(Util.toUTF16(key, scratch), ordinal.longValue());
+        }
+        this.fst = builder.finish();
+        this.data = new char[buffer.length()];
+        buffer.getChars(0, data.length, data, 0);
+        this.conceptStart = new int[starts.size()];
+        for (int idx = 0; idx < conceptStart.length; idx++) {
+            conceptStart[idx] = starts.get(idx);
+        }
+        this.size = keys.size();
+        this.scratch = new ThreadLocal<Scratch>() {
+            @Override
+            protected Scratch initialValue() {
+                return new Scratch(fst);
+            }
+        };
+    }
+    
+    /**
+     * FST reader and arc of a thread.
+     */
+    private static class Scratch {
+        final FST.BytesReader reader;
+        final FST.Arc<Long> arc;
+        
+        Scratch(final FST<Long> fst) {
+            reader = fst.getBytesReader();
+            arc = new FST.Arc<Long>();
+        }
+    }
+    
+    private static void putConcept(final DecsSyn syn,
+                                   final StringBuilder buffer) {
+        assert syn != null;
+        assert buffer != null;
+        
+        putString(syn.getId(), buffer);
+        putString(syn.getTreeId(), buffer);
+        putString(syn.getAbbreviation(), buffer);
+        
+        final int dcount = syn.getDescriptorCount();
+        putCount(dcount, buffer);
+        for (int idx = 0; idx < dcount; idx++) {
+            putString(syn.getDescriptor(idx), buffer);
+        }
+        final int scount = syn.getSynonymCount();
+        putCount(scount, buffer);
+        for (int idx = 0; idx < scount; idx++) {
+            putString(syn.getSynonym(idx), buffer);
+        }
+        final int ccount = syn.getCategoryCount();
+        putCount(ccount, buffer);
+        for (int idx = 0; idx < ccount; idx++) {
+            putString(syn.getCategory(idx), buffer);
+        }
+    }
+    
+    private static void putCount(final int count,
+                                 final StringBuilder buffer) {
+        assert buffer != null;
+        
+        if (count > Character.MAX_VALUE) {
+            throw new IllegalArgumentException("too many strings: " + count);
+        }
+        buffer.append((char)count);
+    }
+    
+    /**
+     * Appends the string length plus one (0 for null) and its chars.
+     */
+    private static void putString(final String str,
+                                  final StringBuilder buffer) {
+        assert buffer != null;
+        
+        if (str == null) {
+            buffer.append((char)0);
+        } else {
+            if (str.length() >= Character.MAX_VALUE) {
+                throw new IllegalArgumentException("string too long: " + 
+                                                                str.length());
+            }
+            buffer.append((char)(str.length() + 1));
+            buffer.append(str);
+        }
+    }
+    
+    /**
+     * @param pos - position of a string in data (its length)
+     * @return the string or null
+     */
+    private String getString(final int pos) {
+        final int len = data[pos];
+        
+        return (len == 0) ? null : new String(data, pos + 1, len - 1);
+    }
+    
+    /**
+     * @param pos - position of a string in data (its length)
+     * @return the position after the string
+     */
+    private int skipString(final int pos) {
+        final int len = data[pos];
+        
+        return (len == 0) ? pos + 1 : pos + len;
+    }
+    
+    /**
+     * @param pos - position of a string count in data
+     * @return the strings
+     */
+    private String[] getStrings(final int pos) {
+        final String[] strs = new String[data[pos]];
+        int cur = pos + 1;
+        
+        for (int idx = 0; idx < strs.length; idx++) {
+            strs[idx] = getString(cur);
+            cur = skipString(cur);
+        }
+        
+        return strs;
+    }
+    
+    /**
+     * @param pos - position of a string count in data
+     * @return the position after the strings
+     */
+    private int skipStrings(final int pos) {
+        final int count = data[pos];
+        int cur = pos + 1;
+        
+        for (int idx = 0; idx < count; idx++) {
+            cur = skipString(cur);
+        }
+        
+        return cur;
+    }
+    
+    /**
+     * @param ordinal - concept ordinal
+     * @return a new copy of the concept with the given ordinal
+     */
+    @Override
+    public DecsSyn getConcept(final int ordinal) {
+        int pos = conceptStart[ordinal];
+        final String id = getString(pos);
+        pos = skipString(pos);
+        final String treeId = getString(pos);
+        pos = skipString(pos);
+        final String abbreviation = getString(pos);
+        pos = skipString(pos);
+        
+        // the strings were stored in the order of the DecsSyn arrays
+        final String[] descriptor = getStrings(pos);
+        pos = skipStrings(pos);
+        final String[] synonym = getStrings(pos);
+        pos = skipStrings(pos);
+        final String[] category = getStrings(pos);
+        final DecsSyn syn = new DecsSyn(id, treeId, abbreviation, descriptor, 
+                                                            synonym, category);
+        
+        return syn;
+    }
+    
+    /**
+     * @return number of distinct concepts
+     */
+    @Override
+    public int getConceptCount() {
+        return conceptStart.length;
+    }
+    
+    /**
+     * @return FST and packed concepts size in bytes
+     */
+    public long ramBytesUsed() {
+        return fst.ramBytesUsed() + 2L * data.length + 
+                                                    4L * conceptStart.length;
+    }
+    
+    /**
+     * @param key - normalized term
+     * @return the concept ordinal of the key or -1 if the key is not found
+     */
+    public int getOrdinal(final String key) {
+        if (key == null) {
+            throw new NullPointerException("key");
+        }
+        return getOrdinal(key, 0, key.length() - 1);
+    }
+    
+    /**
+     * Looks up a key without creating a string.
+     * @param in - input chars
+     * @param begin - key initial position
+     * @param end - key last position
+     * @return the concept ordinal of in[begin, end] or -1 if it is not a key
+     */
+    @Override
+    public int getOrdinal(final CharSequence in,
+                          final int begin,
+                          final int end) {
+        if (in == null) {
+            throw new NullPointerException("in");
+        }
+        final Scratch scr = scratch.get();
+        final FST.BytesReader reader = scr.reader;
+        final FST.Arc<Long> arc = fst.getFirstArc(scr.arc);
+        long output = 0;
+        int ordinal = -1;
+        
+        try {
+            int pos = begin;
+            for (; pos <= end; pos++) {
+                if (fst.findTargetArc(in.charAt(pos), arc, arc, reader) 
+                                                                      == null) {
+                    break;
+                }
+                output += arc.output;
+            }
+            if ((pos > end) && arc.isFinal()) {
+                ordinal = (int)(output + arc.nextFinalOutput);
+            }
+        } catch (IOException ioe) {
+            throw new IllegalStateException(ioe);
+        }
+        
+        return ordinal;
+    }
+    
+    /**
+     * Looks up a key without creating a string.
+     * @param in - input chars
+     * @param begin - key initial position
+     * @param end - key last position
+     * @return the concept ordinal of in[begin, end] or -1 if it is not a key
+     */
+    @Override
+    public int getOrdinal(final char[] in,
+                          final int begin,
+                          final int end) {
+        if (in == null) {
+            throw new NullPointerException("in");
+        }
+        final Scratch scr = scratch.get();
+        final FST.BytesReader reader = scr.reader;
+        final FST.Arc<Long> arc = fst.getFirstArc(scr.arc);
+        long output = 0;
+        int ordinal = -1;
+        
+        try {
+            int pos = begin;
+            for (; pos <= end; pos++) {
+                if (fst.findTargetArc(in[pos], arc, arc, reader) == null) {
+                    break;
+                }
+                output += arc.output;
+            }
+            if ((pos > end) && arc.isFinal()) {
+                ordinal = (int)(output + arc.nextFinalOutput);
+            }
+        } catch (IOException ioe) {
+            throw new IllegalStateException(ioe);
+        }
+        
+        return ordinal;
+    }
+    
+    /**
+     * Walks the FST from in[begin] and reports every key that is a prefix of
+     * in[begin, end]. The walk stops at the first char that can not continue
+     * any key.
+     * @param in - input chars
+     * @param begin - initial position
+     * @param end - last position
+     * @param ends - receives the last position of each key found
+     * @param ordinals - receives the concept ordinal of each key found
+     * @return the number of keys found (at most ends.length)
+     */
+    public int getPrefixes(final char[] in,
+                           final int begin,
+                           final int end,
+                           final int[] ends,
+                           final int[] ordinals) {
+        if (in == null) {
+            throw new NullPointerException("in");
+        }
+        if (ends == null) {
+            throw new NullPointerException("ends");
+        }
+        if (ordinals == null) {
+            throw new NullPointerException("ordinals");
+        }
+        final Scratch scr = scratch.get();
+        final FST.BytesReader reader = scr.reader;
+        final FST.Arc<Long> arc = fst.getFirstArc(scr.arc);
+        final int max = Math.min(ends.length, ordinals.length);
+        long output = 0;
+        int found = 0;
+        
+        try {
+            for (int pos = begin; (pos <= end) && (found < max); pos++) {
+                if (fst.findTargetArc(in[pos], arc, arc, reader) == null) {
+                    break;
+                }
+                output += arc.output;
+                if (arc.isFinal()) {
+                    ends[found] = pos;
+                    ordinals[found] = (int)(output + arc.nextFinalOutput);
+                    found++;
+                }
+            }
+        } catch (IOException ioe) {
+            throw new IllegalStateException(ioe);
+        }
+        
+        return found;
+    }
+    
+    @Override
+    public DecsSyn get(final Object key) {
+        final DecsSyn syn;
+        
+        if (key instanceof String) {
+            final int ordinal = getOrdinal((String)key);
+            syn = (ordinal == -1) ? null : getConcept(ordinal);
+        } else {
+            syn = null;
+        }
+        
+        return syn;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return (key instanceof String) && (getOrdinal((String)key) != -1);
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public Set<Map.Entry<String,DecsSyn>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Map.Entry<String,DecsSyn>>() {
+                @Override
+                public Iterator<Map.Entry<String,DecsSyn>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        return entrySet;
+    }
+    
+    private class EntryIterator implements Iterator<Map.Entry<String,DecsSyn>> {
+        private final IntsRefFSTEnum<Long> fenum;
+        private IntsRefFSTEnum.InputOutput<Long> current;
+        
+        EntryIterator() {
+            fenum = new IntsRefFSTEnum<Long>(fst);
+            current = nextEntry();
+        }
+        
+        private IntsRefFSTEnum.InputOutput<Long> nextEntry() {
+            try {
+                return fenum.next();
+            } catch (IOException ioe) {
+                throw new IllegalStateException(ioe);
+            }
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return current != null;
+        }
+
+        @Override
+        public Map.Entry<String,DecsSyn> next() {
+            if (current == null) {
+                throw new NoSuchElementException();
+            }
+            final IntsRef input = current.input;
+            final char[] chars = new char[input.length];
+            
+            for (int idx = 0; idx < input.length; idx++) {
+                chars[idx] = (char)input.ints[input.offset + idx];
+            }
+            final Map.Entry<String,DecsSyn> entry = 
+                    new AbstractMap.SimpleImmutableEntry<String,DecsSyn>(
+                  new String(chars), getConcept(current.output.intValue()));
+            current = nextEntry();
+            
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,356 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Versioned handle of the DeCS map read by the analyzers. A new DeCS 
+ * release is loaded by reload() (in the caller thread or in an executor) 
+ * while the analyzers keep using the current map, and then it is swapped 
+ * atomically. The DecsConcepts of each map (concept ordinals, key length
+ * index and the other derived tables) are built with it, before the swap,
+ * in the thread that loads or swaps the map, and kept in the snapshot. The
+ * tokens of the concepts in use with the current map are also created for
+ * the new one (see DecsConcepts.prepare), so the indexing and query 
+ * threads do not pause to build anything after a swap. Token streams get
+ * the snapshot when a new input is set, so the streams in flight finish 
+ * with the snapshot they started with.
+ * Small corrections are applied with apply(), without loading the whole
+ * release. The handle keeps the version and the load and swap times of the
+ * last reload. It can be used by many threads.
+ * @author agent
+ * date: 20261017
+ */
+public class DecsHandle {
+    /**
+     * A DeCS map, its concepts and its version.
+     */
+    public static final class Snapshot {
+        private final Map<String,DecsSyn> decs;
+        private final DecsConcepts concepts;
+        private final long version;
+
+        private Snapshot(final DecsConcepts concepts,
+                         final long version) {
+            this.decs = concepts.getDecs();
+            this.concepts = concepts;
+            this.version = version;
+        }
+
+        public Map<String,DecsSyn> getDecs() {
+            return decs;
+        }
+
+        public DecsConcepts getConcepts() {
+            return concepts;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+    }
+
+    private final AtomicReference<Snapshot> current;
+    private final double filterFpp;  // of the Bloom filter of each map or 0
+    private final AtomicLong reloads;
+    private final AtomicLong failedReloads;
+    private final AtomicLong deltas;
+    private volatile long lastLoadNanos;
+    private volatile long lastSwapNanos;
+    private volatile long lastSwapTime;
+
+    /**
+     * @param decs - the initial DeCS map (version 1)
+     */
+    public DecsHandle(final Map<String,DecsSyn> decs) {
+        this(DecsConcepts.forMap(decs));
+    }
+
+    /**
+     * The concepts of each map of the handle have a Bloom filter of the 
+     * keys, which rejects most of the strings that are not keys before 
+     * the real lookup. It is built with the concepts, once for each map.
+     * @param decs - the initial DeCS map (version 1)
+     * @param filterFpp - false positive probability of the Bloom filters
+     * or 0 to not create them
+     */
+    public DecsHandle(final Map<String,DecsSyn> decs,
+                      final double filterFpp) {
+        this(DecsConcepts.forMap(decs, filterFpp));
+    }
+
+    /**
+     * The next maps get a Bloom filter with the false positive probability
+     * of the filter of concepts (see DecsConcepts.getFilterFpp).
+     * @param concepts - the concepts of the initial DeCS map (version 1)
+     */
+    public DecsHandle(final DecsConcepts concepts) {
+        if (concepts == null) {
+            throw new NullPointerException("concepts");
+        }
+        filterFpp = concepts.getFilterFpp();
+        current = new AtomicReference<Snapshot>(new Snapshot(concepts, 1));
+        reloads = new AtomicLong();
+        failedReloads = new AtomicLong();
+        deltas = new AtomicLong();
+        lastSwapTime = System.currentTimeMillis();
+    }
+
+    /**
+     * @return the current map and its version
+     */
+    public Snapshot getSnapshot() {
+        return current.get();
+    }
+
+    /**
+     * @return the current DeCS map
+     */
+    public Map<String,DecsSyn> getDecs() {
+        return current.get().decs;
+    }
+
+    /**
+     * @return the version of the current DeCS map
+     */
+    public long getVersion() {
+        return current.get().version;
+    }
+
+    /**
+     * Makes decs the current map. Its concepts are built (see 
+     * getConcepts) in the caller thread before the swap. The token
+     * streams in flight are not affected.
+     * @param decs - the new DeCS map
+     * @return the new version
+     */
+    public long swap(final Map<String,DecsSyn> decs) {
+        if (decs == null) {
+            throw new NullPointerException("decs");
+        }
+        return swap(getConcepts(decs));
+    }
+
+    /**
+     * Makes the map of concepts the current map. The tokens of the concepts
+     * in use with the current map are first created in the caller thread 
+     * (see DecsConcepts.prepare). The token streams in flight are not 
+     * affected.
+     * @param concepts - the concepts of the new DeCS map
+     * @return the new version
+     */
+    public long swap(final DecsConcepts concepts) {
+        if (concepts == null) {
+            throw new NullPointerException("concepts");
+        }
+        concepts.prepare(current.get().concepts);
+        
+        final long start = System.nanoTime();
+        Snapshot old;
+        Snapshot snapshot;
+
+        do {
+            old = current.get();
+            snapshot = new Snapshot(concepts, old.version + 1);
+        } while (!current.compareAndSet(old, snapshot));
+        lastSwapNanos = System.nanoTime() - start;
+        lastSwapTime = System.currentTimeMillis();
+        replaced(old.concepts, concepts);
+
+        return snapshot.version;
+    }
+
+    /**
+     * Loads a new DeCS map, builds its concepts and swaps it. The current 
+     * map is used until the load finishes and is kept if the load fails.
+     * @param loader - creates the new DeCS map (for example calling
+     * StaxIndexDecs.indexTerms)
+     * @return the new version
+     * @throws IOException if the loader fails
+     */
+    public long reload(final Callable<? extends Map<String,DecsSyn>> loader)
+                                                            throws IOException {
+        if (loader == null) {
+            throw new NullPointerException("loader");
+        }
+        final long start = System.nanoTime();
+        final Map<String,DecsSyn> decs;
+
+        try {
+            decs = loader.call();
+        } catch (IOException ioe) {
+            failedReloads.incrementAndGet();
+            throw ioe;
+        } catch (Exception ex) {
+            failedReloads.incrementAndGet();
+            throw new IOException(ex);
+        }
+        if (decs == null) {
+            failedReloads.incrementAndGet();
+            throw new IOException("loader returned null");
+        }
+        final DecsConcepts concepts = getConcepts(decs);
+        
+        lastLoadNanos = System.nanoTime() - start;
+        reloads.incrementAndGet();
+
+        return swap(concepts);
+    }
+
+    /**
+     * Calls reload() in an executor thread, so the indexing and query 
+     * threads are never blocked by the load.
+     * @param loader - creates the new DeCS map
+     * @param executor - runs the reload
+     * @return the new version
+     */
+    public Future<Long> reloadAsync(
+                         final Callable<? extends Map<String,DecsSyn>> loader,
+                         final ExecutorService executor) {
+        if (loader == null) {
+            throw new NullPointerException("loader");
+        }
+        if (executor == null) {
+            throw new NullPointerException("executor");
+        }
+        return executor.submit(new Callable<Long>() {
+            @Override
+            public Long call() throws IOException {
+                return reload(loader);
+            }
+        });
+    }
+
+    /**
+     * Applies a delta to the current map and swaps the result, with its 
+     * concepts updated from the current ones (see DecsConcepts.forDelta) 
+     * in the caller thread. If the map
+     * is swapped by another thread meanwhile, the delta is applied again to
+     * the new map.
+     * @param delta - terms added, changed or removed
+     * @return the counts and conflicts of the delta
+     */
+    public DecsDelta.Result apply(final DecsDelta delta) {
+        if (delta == null) {
+            throw new NullPointerException("delta");
+        }
+        final long start = System.nanoTime();
+        Snapshot old;
+        DecsDelta.Result result;
+        DecsConcepts concepts;
+
+        do {
+            old = current.get();
+            result = delta.apply(old.decs);
+            concepts = DecsConcepts.forDelta(old.concepts, result);
+            concepts.prepare(old.concepts);
+        } while (!current.compareAndSet(old, 
+                                     new Snapshot(concepts, old.version + 1)));
+        lastSwapNanos = System.nanoTime() - start;
+        lastSwapTime = System.currentTimeMillis();
+        deltas.incrementAndGet();
+        replaced(old.concepts, concepts);
+
+        return result;
+    }
+
+    /**
+     * Removes the concepts of the replaced map from the DecsConcepts 
+     * registry, so they are dropped when the token streams in flight end.
+     */
+    private static void replaced(final DecsConcepts old,
+                                 final DecsConcepts concepts) {
+        if (old != concepts) {
+            DecsConcepts.unregister(old);
+        }
+    }
+
+    /**
+     * @param decs - a DeCS map
+     * @return the concepts of decs (see DecsConcepts.forMap) with a Bloom
+     * filter if the handle filterFpp &gt; 0
+     */
+    private DecsConcepts getConcepts(final Map<String,DecsSyn> decs) {
+        return DecsConcepts.forMap(decs, filterFpp);
+    }
+
+    /**
+     * @return the false positive probability of the Bloom filters of the 
+     * maps or 0 if they have none
+     */
+    public double getFilterFpp() {
+        return filterFpp;
+    }
+
+    /**
+     * @return number of apply() calls
+     */
+    public long getDeltaCount() {
+        return deltas.get();
+    }
+
+    /**
+     * @return number of successful reload() calls
+     */
+    public long getReloadCount() {
+        return reloads.get();
+    }
+
+    /**
+     * @return number of failed reload() calls
+     */
+    public long getFailedReloadCount() {
+        return failedReloads.get();
+    }
+
+    /**
+     * @return time spent by the loader and building the concepts in the 
+     * last successful reload, in nanoseconds
+     */
+    public long getLastLoadNanos() {
+        return lastLoadNanos;
+    }
+
+    /**
+     * @return time spent swapping the map in the last swap (including the
+     * delta application for apply()), in nanoseconds
+     */
+    public long getLastSwapNanos() {
+        return lastSwapNanos;
+    }
+
+    /**
+     * @return time of the last swap (or of the handle creation) in 
+     * milliseconds since the epoch
+     */
+    public long getLastSwapTime() {
+        return lastSwapTime;
+    }
+}
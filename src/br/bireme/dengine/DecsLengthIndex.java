@@ -0,0 +1,168 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.util.Collection;
+
+/**
+ * The lengths of the keys of a DeCS map grouped by their first two chars.
+ * DeCSTermLocator tries the windows of every size at each input position;
+ * with this index only the windows whose key could have one of the 
+ * lengths of the keys that begin with the same chars are looked up in the 
+ * map, so most window sizes are discarded with a bit test. The groups are
+ * hashed: two char pairs may share a group, which only makes the index 
+ * less selective.
+ * The index is built with the DecsConcepts of each map version (when the
+ * map is loaded or swapped in a DecsHandle) and shared by all the locators
+ * that use the map.
+ * Instances are immutable and can be shared among threads.
+ * @author agent
+ * date: 20261017
+ */
+public final class DecsLengthIndex {
+    private static final int GROUP_BITS = 12;
+    private static final int GROUP_MASK = (1 << GROUP_BITS) - 1;
+    // flags of addKeys()
+    private static final int EMPTY = 1;
+    private static final int LONGER = 2;
+
+    private final int maxLength;
+    private final int words;      // longs by group
+    private final long[] lengths; // lengths bit set of each group
+    private final boolean hasEmpty;
+    private final boolean hasLonger;
+
+    /**
+     * @param keys - the keys of the DeCS map
+     * @param maxLength - the maximum key length looked up (longer keys are
+     * not indexed)
+     */
+    public DecsLengthIndex(final Collection<String> keys,
+                           final int maxLength) {
+        if (keys == null) {
+            throw new NullPointerException("keys");
+        }
+        if (maxLength < 1) {
+            throw new IllegalArgumentException("maxLength[" + maxLength 
+                                                                   + "] < 1");
+        }
+        this.maxLength = maxLength;
+        this.words = (maxLength >>> 6) + 1;
+        this.lengths = new long[(GROUP_MASK + 1) * words];
+
+        final int flags = addKeys(keys);
+        this.hasEmpty = (flags & EMPTY) != 0;
+        this.hasLonger = (flags & LONGER) != 0;
+    }
+
+    /**
+     * Creates the index of the keys of other and some more keys. The keys
+     * removed from the map can be kept in the index: it only makes it less
+     * selective.
+     * @param other - index of the keys of a previous version of the map
+     * @param keys - the keys added to the map
+     */
+    public DecsLengthIndex(final DecsLengthIndex other,
+                           final Collection<String> keys) {
+        if (other == null) {
+            throw new NullPointerException("other");
+        }
+        if (keys == null) {
+            throw new NullPointerException("keys");
+        }
+        this.maxLength = other.maxLength;
+        this.words = other.words;
+        this.lengths = other.lengths.clone();
+
+        final int flags = addKeys(keys);
+        this.hasEmpty = other.hasEmpty || ((flags & EMPTY) != 0);
+        this.hasLonger = other.hasLonger || ((flags & LONGER) != 0);
+    }
+
+    /**
+     * Sets the length bits of the keys.
+     * @return EMPTY if there is an empty key, plus LONGER if a key is 
+     * longer than maxLength
+     */
+    private int addKeys(final Collection<String> keys) {
+        int flags = 0;
+
+        for (String key : keys) {
+            final int len = key.length();
+
+            if (len == 0) {
+                flags |= EMPTY;
+            } else if (len > maxLength) {
+                flags |= LONGER;
+            } else {
+                final int pos = group(key.charAt(0), 
+                                 (len == 1) ? 0 : key.charAt(1)) * words 
+                                                               + (len >>> 6);
+                lengths[pos] |= 1L << len;
+            }
+        }
+        return flags;
+    }
+
+    /**
+     * @param in - chars of the key
+     * @param begin - position of the first key char
+     * @param end - position of the last key char (end &lt; begin if the 
+     * key is empty)
+     * @return false if no key begins with the chars of in[begin, end] and 
+     * has its length
+     */
+    public boolean mayContain(final char[] in,
+                              final int begin,
+                              final int end) {
+        if (in == null) {
+            throw new NullPointerException("in");
+        }
+        final int len = end - begin + 1;
+        final boolean contains;
+
+        if (len <= 0) {
+            contains = hasEmpty;
+        } else if (len > maxLength) {
+            contains = hasLonger;
+        } else {
+            final int pos = group(in[begin], (len == 1) ? 0 : in[begin + 1]) 
+                                                      * words + (len >>> 6);
+            contains = (lengths[pos] & (1L << len)) != 0;
+        }
+
+        return contains;
+    }
+
+    /**
+     * @return the maximum key length indexed
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    private static int group(final int first,
+                             final int second) {
+        return ((first * 31) + second) & GROUP_MASK;
+    }
+}
@@ -0,0 +1,98 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds the DeCS map from its terms. The map is created with the expected 
+ * capacity and build() hands it off as an unmodifiable map, without copying
+ * it. The builder can not be used after build().
+ * @author agent
+ * date: 20261017
+ */
+public class DecsMapBuilder {
+    private static final float LOAD_FACTOR = 0.75f;
+    
+    private HashMap<String,DecsSyn> map;
+    
+    public DecsMapBuilder() {
+        this(16);
+    }
+    
+    /**
+     * @param expectedKeys - expected number of keys (descriptors, synonyms, 
+     * abbreviations and mfns)
+     */
+    public DecsMapBuilder(final int expectedKeys) {
+        if (expectedKeys < 0) {
+            throw new IllegalArgumentException("expectedKeys[" + expectedKeys
+                                                                    + "] < 0");
+        }
+        map = new HashMap<String,DecsSyn>(
+                            (int)(expectedKeys / LOAD_FACTOR) + 1, LOAD_FACTOR);
+    }
+    
+    /**
+     * Adds the keys of a term.
+     * @param syn - the term
+     * @throws IOException if a key of another term is found (see 
+     * IndexDecs.put)
+     */
+    public void add(final DecsSyn syn) throws IOException {
+        if (syn == null) {
+            throw new NullPointerException("syn");
+        }
+        checkOpen();
+        IndexDecs.put(map, syn);
+    }
+    
+    /**
+     * @return number of keys added
+     */
+    public int size() {
+        checkOpen();
+        return map.size();
+    }
+    
+    /**
+     * @return the unmodifiable DeCS map
+     */
+    public Map<String,DecsSyn> build() {
+        checkOpen();
+        
+        final Map<String,DecsSyn> decs = Collections.unmodifiableMap(map);
+        map = null;
+        
+        return decs;
+    }
+    
+    private void checkOpen() {
+        if (map == null) {
+            throw new IllegalStateException("map already built");
+        }
+    }
+}
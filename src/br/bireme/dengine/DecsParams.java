@@ -29,6 +29,7 @@ package br.bireme.dengine;
  */
 public class DecsParams {
     final boolean addCategory;            // gera token para categoria 
+    final boolean addAncestors;           // gera tokens para os ancestrais das categorias
     final boolean addSyn;                 // gera tokens para sinonimos
     final boolean addWords;               // gera tokens quebrando em palavras os tokens gerados
     final boolean keysForQualifiers;      // gera tokens para os qualificadores
@@ -42,7 +43,23 @@ public class DecsParams {
                       final boolean keysForQualifiers, 
                       final boolean onlyQualifiers, 
                       final boolean processOnlyPrecodTerms) {
+        this(addCategory, false, addSyn, addWords, keysForQualifiers, 
+                                     onlyQualifiers, processOnlyPrecodTerms);
+    }
+    
+    /**
+     * @param addAncestors - with addCategory, also creates a token for each
+     * ancestor of the categories (d02 and d02.705 for d02.705.539)
+     */
+    public DecsParams(final boolean addCategory, 
+                      final boolean addAncestors, 
+                      final boolean addSyn, 
+                      final boolean addWords, 
+                      final boolean keysForQualifiers, 
+                      final boolean onlyQualifiers, 
+                      final boolean processOnlyPrecodTerms) {
         this.addCategory = addCategory;
+        this.addAncestors = addAncestors;
         this.addSyn = addSyn;
         this.addWords = addWords;
         this.keysForQualifiers = keysForQualifiers;
@@ -0,0 +1,458 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+
+package br.bireme.dengine;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+import javax.xml.stream.XMLStreamException;
+import org.apache.lucene.analysis.util.ResourceLoader;
+
+/**
+ * Process wide registry of the loaded DeCS maps. The maps are keyed by
+ * source path and content checksum, so all the analyzers, fields and Solr
+ * cores that use the same DeCS file share one loaded copy (and one 
+ * DecsHandle for each false positive probability of the Bloom filter of 
+ * the keys, so a reload is seen by all of them). The handles of the same 
+ * map with different filters share the map and all its tables but the 
+ * filter (see DecsConcepts.withFilter). Each acquire() must be paired with
+ * a release(); the map is dropped from the registry when its last user 
+ * releases it. The registry can be used by many threads: a file is loaded
+ * by the first thread that asks for it, without holding the registry lock,
+ * and the other threads that ask for the same file wait for that load. The
+ * checksum of a file is computed again only when its modification time or
+ * size change (the resources of a ResourceLoader are read to compute it, 
+ * but not kept in memory). A file compiled by DecsDictionaryCompiler is
+ * memory mapped instead of loaded.
+ * @author agent
+ * date: 20261017
+ */
+public final class DecsRegistry {
+    // a DeCS file, loaded once by the first acquire() of its key
+    private static final class Entry {
+        private final String key;
+        private final FutureTask<DecsConcepts> loading;
+        private final Map<Double,Ref> refs;      // by filterFpp
+        private DecsConcepts concepts;           // of the loaded map or null
+        private int pending;                     // acquire() calls running
+
+        private Entry(final String key,
+                      final Source source) {
+            this.key = key;
+            this.loading = new FutureTask<DecsConcepts>(
+                                               new Callable<DecsConcepts>() {
+                @Override
+                public DecsConcepts call() throws IOException {
+                    return DecsConcepts.forMap(source.load());
+                }
+            });
+            this.refs = new HashMap<Double,Ref>();
+        }
+    }
+
+    // a handle of a loaded DeCS file
+    private static final class Ref {
+        private final Entry entry;
+        private final double filterFpp;
+        private final DecsHandle handle;
+        private int count;
+
+        private Ref(final Entry entry,
+                    final DecsConcepts concepts) {
+            this.entry = entry;
+            this.filterFpp = concepts.getFilterFpp();
+            this.handle = new DecsHandle(concepts);
+        }
+    }
+
+    // where the content of a DeCS file is read from
+    private abstract static class Source {
+        protected long length;   // of the content, set by getChecksum()
+
+        protected abstract InputStream open() throws IOException;
+
+        protected Map<String,DecsSyn> load() throws IOException {
+            return DecsRegistry.load(this);
+        }
+
+        protected long getChecksum() throws IOException {
+            return readChecksum();
+        }
+
+        // reads the whole content
+        protected final long readChecksum() throws IOException {
+            final CRC32 crc = new CRC32();
+            final InputStream in = open();
+            final byte[] buffer = new byte[8192];
+            long len = 0;
+
+            try {
+                while (true) {
+                    final int read = in.read(buffer);
+                    if (read == -1) {
+                        break;
+                    }
+                    crc.update(buffer, 0, read);
+                    len += read;
+                }
+            } finally {
+                in.close();
+            }
+            length = len;
+
+            return crc.getValue();
+        }
+    }
+
+    // checksum of a file and the time and size it was computed with
+    private static final class Stamp {
+        private final long modified;
+        private final long length;
+        private final long checksum;
+
+        private Stamp(final long modified,
+                      final long length,
+                      final long checksum) {
+            this.modified = modified;
+            this.length = length;
+            this.checksum = checksum;
+        }
+    }
+
+    private static final Map<String,Entry> ENTRIES =
+                                                  new HashMap<String,Entry>();
+    private static final Map<DecsHandle,Ref> HANDLES =
+                                        new IdentityHashMap<DecsHandle,Ref>();
+    // by canonical file path
+    private static final Map<String,Stamp> STAMPS =
+                                                  new HashMap<String,Stamp>();
+
+    private DecsRegistry() {
+    }
+
+    /**
+     * Gets the DeCS map of a file, loading it if it is not registered.
+     * @param path - DeCS XML file path
+     * @return the handle of the shared DeCS map
+     * @throws IOException 
+     */
+    public static DecsHandle acquire(final String path) throws IOException {
+        return acquire(path, 0);
+    }
+
+    /**
+     * Gets the DeCS map of a file, loading it if it is not registered. A
+     * dictionary file written by DecsDictionaryCompiler (recognized by its
+     * magic number) is memory mapped (see MappedDecsDictionary) instead of
+     * loaded into the heap.
+     * @param path - DeCS XML file path or dictionary file path
+     * @param filterFpp - false positive probability of the Bloom filter of
+     * the keys or 0 to not create it
+     * @return the handle of the shared DeCS map
+     * @throws IOException 
+     */
+    public static DecsHandle acquire(final String path,
+                                     final double filterFpp) 
+                                                            throws IOException {
+        if (path == null) {
+            throw new NullPointerException("path");
+        }
+        final File file = new File(path).getCanonicalFile();
+
+        return acquire(file.getPath(), new Source() {
+            @Override
+            protected InputStream open() throws IOException {
+                return new FileInputStream(file);
+            }
+
+            @Override
+            protected long getChecksum() throws IOException {
+                return getFileChecksum(file, this);
+            }
+
+            @Override
+            protected Map<String,DecsSyn> load() throws IOException {
+                return isDictionary(file) ? new MappedDecsDictionary(file)
+                                          : super.load();
+            }
+        }, filterFpp);
+    }
+
+    /**
+     * Gets the DeCS map of a resource, loading it if it is not registered.
+     * @param path - DeCS XML resource name
+     * @param loader - opens the resource (for example the Solr core loader)
+     * @return the handle of the shared DeCS map
+     * @throws IOException 
+     */
+    public static DecsHandle acquire(final String path,
+                                     final ResourceLoader loader) 
+                                                            throws IOException {
+        return acquire(path, loader, 0);
+    }
+
+    /**
+     * Gets the DeCS map of a resource, loading it if it is not registered.
+     * @param path - DeCS XML resource name
+     * @param loader - opens the resource (for example the Solr core loader)
+     * @param filterFpp - false positive probability of the Bloom filter of
+     * the keys or 0 to not create it
+     * @return the handle of the shared DeCS map
+     * @throws IOException 
+     */
+    public static DecsHandle acquire(final String path,
+                                     final ResourceLoader loader,
+                                     final double filterFpp) 
+                                                            throws IOException {
+        if (path == null) {
+            throw new NullPointerException("path");
+        }
+        if (loader == null) {
+            throw new NullPointerException("loader");
+        }
+        return acquire(path, new Source() {
+            @Override
+            protected InputStream open() throws IOException {
+                return loader.openResource(path);
+            }
+        }, filterFpp);
+    }
+
+    private static DecsHandle acquire(final String path,
+                                      final Source source,
+                                      final double filterFpp) 
+                                                            throws IOException {
+        assert path != null;
+        assert source != null;
+
+        if ((filterFpp < 0) || (filterFpp >= 1)) {
+            throw new IllegalArgumentException("filterFpp[" + filterFpp
+                                                        + "] not in [0,1)");
+        }
+        final String key = path + "#" + 
+                                    Long.toHexString(source.getChecksum());
+        final Entry entry;
+        final boolean miss;
+
+        synchronized (ENTRIES) {
+            final Entry registered = ENTRIES.get(key);
+
+            miss = (registered == null);
+            entry = miss ? new Entry(key, source) : registered;
+            if (miss) {
+                ENTRIES.put(key, entry);
+            }
+            entry.pending++;
+        }
+        if (miss) {
+            entry.loading.run();
+        }
+
+        final DecsConcepts loaded;
+        try {
+            loaded = getConcepts(entry);
+        } catch (IOException ioe) {
+            synchronized (ENTRIES) {
+                entry.pending--;
+                if (ENTRIES.get(key) == entry) {
+                    ENTRIES.remove(key);   // the next acquire() loads again
+                }
+            }
+            throw ioe;
+        }
+        final DecsConcepts concepts = loaded.withFilter(filterFpp);
+
+        synchronized (ENTRIES) {
+            Ref ref = entry.refs.get(filterFpp);
+
+            entry.pending--;
+            entry.concepts = loaded;
+            if (ref == null) {
+                ref = new Ref(entry, concepts);
+                entry.refs.put(filterFpp, ref);
+                HANDLES.put(ref.handle, ref);
+            }
+            ref.count++;
+
+            return ref.handle;
+        }
+    }
+
+    /**
+     * Waits for the load of an entry.
+     * @return the concepts of the loaded map
+     */
+    private static DecsConcepts getConcepts(final Entry entry) 
+                                                            throws IOException {
+        assert entry != null;
+
+        try {
+            return entry.loading.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException ee) {
+            final Throwable cause = ee.getCause();
+            throw (cause instanceof IOException) ? (IOException)cause 
+                                                 : new IOException(cause);
+        }
+    }
+
+    /**
+     * @return the checksum of the file content, computed again only if its
+     * modification time or size changed since the last call
+     */
+    private static long getFileChecksum(final File file,
+                                        final Source source) 
+                                                            throws IOException {
+        assert file != null;
+        assert source != null;
+
+        final String path = file.getPath();
+        final long modified = file.lastModified();
+        final long length = file.length();
+        Stamp stamp;
+
+        synchronized (STAMPS) {
+            stamp = STAMPS.get(path);
+        }
+        if ((stamp == null) || (stamp.modified != modified) 
+                                                || (stamp.length != length)) {
+            stamp = new Stamp(modified, length, source.readChecksum());
+            synchronized (STAMPS) {
+                STAMPS.put(path, stamp);
+            }
+        }
+        source.length = length;
+
+        return stamp.checksum;
+    }
+
+    /**
+     * @return true if the file begins with the magic number of the files 
+     * written by DecsDictionaryCompiler
+     */
+    private static boolean isDictionary(final File file) throws IOException {
+        assert file != null;
+
+        final DataInputStream in = new DataInputStream(
+                                                   new FileInputStream(file));
+        boolean dict;
+
+        try {
+            dict = (in.readInt() == MappedDecsDictionary.MAGIC);
+        } catch (EOFException eofe) {
+            dict = false;
+        } finally {
+            in.close();
+        }
+
+        return dict;
+    }
+
+    /**
+     * Releases a handle got by acquire().
+     * @param handle - the handle of the shared DeCS map
+     */
+    public static void release(final DecsHandle handle) {
+        if (handle == null) {
+            throw new NullPointerException("handle");
+        }
+        synchronized (ENTRIES) {
+            final Ref ref = HANDLES.get(handle);
+
+            if (ref == null) {
+                throw new IllegalArgumentException("handle not registered");
+            }
+            if (--ref.count == 0) {
+                final Entry entry = ref.entry;
+                final DecsConcepts concepts = 
+                                           handle.getSnapshot().getConcepts();
+                HANDLES.remove(handle);
+                entry.refs.remove(ref.filterFpp);
+                if (entry.refs.isEmpty() && (entry.pending == 0)) {
+                    ENTRIES.remove(entry.key);
+                    DecsConcepts.unregister(entry.concepts);
+                }
+                if (concepts.getDecs() != entry.concepts.getDecs()) {
+                    DecsConcepts.unregister(concepts);  // a reloaded map
+                }
+            }
+        }
+    }
+
+    /**
+     * @param handle - the handle of a shared DeCS map
+     * @return number of acquire() calls not released or 0 if the handle is
+     * not registered
+     */
+    public static int getRefCount(final DecsHandle handle) {
+        if (handle == null) {
+            throw new NullPointerException("handle");
+        }
+        synchronized (ENTRIES) {
+            final Ref ref = HANDLES.get(handle);
+
+            return (ref == null) ? 0 : ref.count;
+        }
+    }
+
+    /**
+     * @return number of DeCS maps registered
+     */
+    public static int size() {
+        synchronized (ENTRIES) {
+            return ENTRIES.size();
+        }
+    }
+
+    private static Map<String,DecsSyn> load(final Source source)
+                                                            throws IOException {
+        assert source != null;
+
+        final InputStream in = new BufferedInputStream(source.open());
+
+        try {
+            return new StaxIndexDecs().indexTerms(in, 
+                  (int)Math.min(Integer.MAX_VALUE / 2, 
+                                source.length / StaxIndexDecs.BYTES_PER_KEY));
+        } catch (XMLStreamException ex) {
+            throw new IOException(ex);
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load time pool of the normalized DeCS strings. Equal strings (the same
+ * descriptor in many languages, repeated synonyms, qualifiers and 
+ * categories) are kept only once: intern() returns the first instance seen
+ * and the others can be garbage collected. The pool counts the strings and
+ * the bytes saved.
+ * The table is only needed while loading: clear() drops it and keeps the 
+ * counters. The pool can be used by many threads.
+ * @author agent
+ * date: 20261017
+ */
+public class DecsStringPool {
+    private final AtomicLong requests;
+    private final AtomicLong duplicates;
+    private final AtomicLong bytesSaved;
+    private volatile ConcurrentHashMap<String,String> table;
+
+    public DecsStringPool() {
+        this(1024);
+    }
+
+    /**
+     * @param expectedSize - expected number of distinct strings
+     */
+    public DecsStringPool(final int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("expectedSize[" + expectedSize
+                                                                    + "] < 0");
+        }
+        requests = new AtomicLong();
+        duplicates = new AtomicLong();
+        bytesSaved = new AtomicLong();
+        table = new ConcurrentHashMap<String,String>(expectedSize);
+    }
+
+    /**
+     * @param str - the string to be shared or null
+     * @return the pooled string equal to str (str itself if it is the first
+     * one) or null if str is null
+     */
+    public String intern(final String str) {
+        final String pooled;
+
+        if (str == null) {
+            pooled = null;
+        } else {
+            final ConcurrentHashMap<String,String> tab = table;
+            if (tab == null) {
+                throw new IllegalStateException("pool cleared");
+            }
+            final String previous = tab.putIfAbsent(str, str);
+
+            requests.incrementAndGet();
+            if (previous == null) {
+                pooled = str;
+            } else {
+                pooled = previous;
+                duplicates.incrementAndGet();
+                bytesSaved.addAndGet(getSizeOf(str));
+            }
+        }
+
+        return pooled;
+    }
+
+    /**
+     * Drops the table. The counters are kept, but intern() can not be called
+     * anymore.
+     */
+    public void clear() {
+        table = null;
+    }
+
+    /**
+     * @return number of intern() calls with a non null string
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * @return number of distinct strings
+     */
+    public long getDistinct() {
+        return requests.get() - duplicates.get();
+    }
+
+    /**
+     * @return number of strings replaced by a pooled one
+     */
+    public long getDuplicates() {
+        return duplicates.get();
+    }
+
+    /**
+     * @return estimated heap bytes of the strings replaced by a pooled one
+     */
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    /**
+     * Estimated heap size of a string and its char array on a 64 bits JVM
+     * with compressed references: 24 bytes of String object plus 16 bytes
+     * of array header plus 2 bytes per char, aligned to 8 bytes.
+     * @param str - the string
+     * @return the estimated size in bytes
+     */
+    static long getSizeOf(final String str) {
+        assert str != null;
+
+        return 24 + ((16 + 2L * str.length() + 7) & ~7L);
+    }
+
+    @Override
+    public String toString() {
+        return "requests=" + getRequests() + " distinct=" + getDistinct() +
+                        " duplicates=" + getDuplicates() + " bytesSaved=" + 
+                                                               getBytesSaved();
+    }
+}
@@ -19,177 +19,222 @@
     <http://www.gnu.org/licenses/>.
 
 =========================================================================*/
-
-package br.bireme.dengine;
-
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Objects;
-import java.util.Set;
-import java.util.TreeSet;
-
-/**
- *
- * @author vinicius.andrade
- * date: 20060721
- */
-public class DecsSyn {       
-    private final Set<String> category;
-    private final List<String> descriptor;
-    private final Set<String> synonym;
-    private String id;
-    private String treeId;
-    private String abbreviation;
-    
-    /** Creates a new instance of Term */
-    public DecsSyn() {
-        category = new TreeSet<String>();
-        descriptor = new ArrayList<String>();
-        synonym = new TreeSet<String>();
-    }
-    
-    public void clear() {
-        category.clear();
-        descriptor.clear();
-        synonym.clear();
-    }
-    
-    public void setId(String id) {
-        this.id = id;
-    }
-
-    public void setTreeId(String treeId) {
-        this.treeId = treeId;
-    }
-
-    public void setAbbreviation(String abbreviation) {
-        this.abbreviation = abbreviation;
-    }
-
-    public void addCategory(String category) {
-        if (category != null) {
-            this.category.add(category);
-        }
-    }
-    
-    public void addDescriptor(String descriptor) {
-        if (descriptor != null) {
-            this.descriptor.add(descriptor);
-        }
-    }
-    
-    public void addSynonym(String synonym) {
-        if (synonym != null) {
-            this.synonym.add(synonym);
-        }
-    }
-    
-    public String getId() {
-        return id;
-    }
-
-    public String getAbbreviation() {
-        return abbreviation;
-    }
-
-    public String getTreeId() {
-        return treeId;
-    }
-    
-    public Set<String> getCategory() {
-        //return category;
-        return new HashSet<String>(category);
-    }
-    
-    public List<String> getDescriptor() {
-        //return descriptor;
-        return new ArrayList<String>(descriptor);
-    }
-    
-    /*
-     * Description: retorna o descritor por idioma (1 - inglês, 2-espanhol, 3-português)
-     */
-    public String getDescriptor(final String lang) {
-        final String desc;
-        
-        if (lang.equals("en")) {
-            desc = descriptor.get(0);
-        } else if (lang.equals("es")) {
-            desc = this.descriptor.get(1);
-        } else if (lang.equals("pt")) {
-            desc = this.descriptor.get(2);
-        } else {
-            desc = null;
-        }
-        
-        return desc;
-    }
-    
-    public Set<String> getSynonym() {
-        //return synonym;
-        return new HashSet<String>(synonym);
-    }    
-    
-    @Override
-    public Object clone() {
-        final DecsSyn syn = new DecsSyn();
-        
-        for (String cat : category) {
-            syn.addCategory(cat);
-        }
-        for (String decs: descriptor) {
-            syn.addDescriptor(decs);
-        }
-        for (String sy: synonym) {
-            syn.addSynonym(sy);
-        }
-        syn.setId(id);
-        syn.setTreeId(treeId);
-        syn.setAbbreviation(abbreviation);
-        
-        return syn;
-    }
-    
-    @Override
-    public int hashCode() {
-        int hash = 5;
-        hash = 29 * hash + Objects.hashCode(this.category);
-        hash = 29 * hash + Objects.hashCode(this.descriptor);
-        hash = 29 * hash + Objects.hashCode(this.synonym);
-        hash = 29 * hash + Objects.hashCode(this.id);
-        hash = 29 * hash + Objects.hashCode(this.treeId);
-        hash = 29 * hash + Objects.hashCode(this.abbreviation);
-        return hash;
-    }
-
-    @Override
-    public boolean equals(Object obj) {
-        if (obj == null) {
-            return false;
-        }
-        if (getClass() != obj.getClass()) {
-            return false;
-        }
-        final DecsSyn other = (DecsSyn) obj;
-        if (!Objects.equals(this.category, other.category)) {
-            return false;
-        }
-        if (!Objects.equals(this.descriptor, other.descriptor)) {
-            return false;
-        }
-        if (!Objects.equals(this.synonym, other.synonym)) {
-            return false;
-        }
-        if (!Objects.equals(this.id, other.id)) {
-            return false;
-        }
-        if (!Objects.equals(this.treeId, other.treeId)) {
-            return false;
-        }
-        if (!Objects.equals(this.abbreviation, other.abbreviation)) {
-            return false;
-        }
-        return true;
-    }
-}
+
+package br.bireme.dengine;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A DeCS concept: descriptors (one by language), synonyms, categories 
+ * (tree numbers), abbreviation and id. Instances are immutable and are 
+ * created by DecsSynBuilder. The fields are kept in arrays: the collection 
+ * getters return read only views of them (no copies) and the indexed getters
+ * (getDescriptor(int), getSynonym(int), getCategory(int)) allocate nothing.
+ * @author vinicius.andrade
+ * date: 20060721
+ */
+public final class DecsSyn {
+    /**
+     * descriptor language indexes
+     */
+    public static final int ENGLISH = 0;
+    public static final int SPANISH = 1;
+    public static final int PORTUGUESE = 2;
+
+    private final String id;
+    private final String treeId;
+    private final String abbreviation;
+    private final String[] descriptor; // by language (see ENGLISH ...)
+    private final String[] synonym;    // sorted, without duplicates
+    private final String[] category;   // sorted, without duplicates
+    private final int hash;
+
+    /**
+     * The arrays are not copied. synonym and category should be sorted and
+     * without duplicates (see DecsSynBuilder).
+     */
+    DecsSyn(final String id,
+            final String treeId,
+            final String abbreviation,
+            final String[] descriptor,
+            final String[] synonym,
+            final String[] category) {
+        assert descriptor != null;
+        assert synonym != null;
+        assert category != null;
+
+        this.id = id;
+        this.treeId = treeId;
+        this.abbreviation = abbreviation;
+        this.descriptor = descriptor;
+        this.synonym = synonym;
+        this.category = category;
+
+        int hsh = 5;
+        hsh = 29 * hsh + Arrays.hashCode(category);
+        hsh = 29 * hsh + Arrays.hashCode(descriptor);
+        hsh = 29 * hsh + Arrays.hashCode(synonym);
+        hsh = 29 * hsh + Objects.hashCode(id);
+        hsh = 29 * hsh + Objects.hashCode(treeId);
+        hsh = 29 * hsh + Objects.hashCode(abbreviation);
+        this.hash = hsh;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getAbbreviation() {
+        return abbreviation;
+    }
+
+    public String getTreeId() {
+        return treeId;
+    }
+
+    /**
+     * @return read only view of the categories
+     */
+    public Set<String> getCategory() {
+        return new ArraySet(category);
+    }
+
+    public int getCategoryCount() {
+        return category.length;
+    }
+
+    public String getCategory(final int idx) {
+        return category[idx];
+    }
+
+    /**
+     * @return read only view of the descriptors
+     */
+    public List<String> getDescriptor() {
+        return Collections.unmodifiableList(Arrays.asList(descriptor));
+    }
+
+    public int getDescriptorCount() {
+        return descriptor.length;
+    }
+
+    /**
+     * @param idx - descriptor index (see ENGLISH, SPANISH and PORTUGUESE)
+     * @return the descriptor
+     */
+    public String getDescriptor(final int idx) {
+        return descriptor[idx];
+    }
+
+    /**
+     * @param lang - descriptor language: en (english), es (spanish) or
+     * pt (portuguese)
+     * @return the descriptor of the language or null if there is not one
+     */
+    public String getDescriptor(final String lang) {
+        if (lang == null) {
+            throw new NullPointerException("lang");
+        }
+        final int idx;
+
+        if (lang.equals("en")) {
+            idx = ENGLISH;
+        } else if (lang.equals("es")) {
+            idx = SPANISH;
+        } else if (lang.equals("pt")) {
+            idx = PORTUGUESE;
+        } else {
+            idx = -1;
+        }
+
+        return ((idx == -1) || (idx >= descriptor.length)) ? null
+                                                           : descriptor[idx];
+    }
+
+    /**
+     * @return read only view of the synonyms
+     */
+    public Set<String> getSynonym() {
+        return new ArraySet(synonym);
+    }
+
+    public int getSynonymCount() {
+        return synonym.length;
+    }
+
+    public String getSynonym(final int idx) {
+        return synonym[idx];
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof DecsSyn)) {
+            return false;
+        }
+        final DecsSyn other = (DecsSyn) obj;
+        if (hash != other.hash) {
+            return false;
+        }
+        if (!Arrays.equals(this.category, other.category)) {
+            return false;
+        }
+        if (!Arrays.equals(this.descriptor, other.descriptor)) {
+            return false;
+        }
+        if (!Arrays.equals(this.synonym, other.synonym)) {
+            return false;
+        }
+        if (!Objects.equals(this.id, other.id)) {
+            return false;
+        }
+        if (!Objects.equals(this.treeId, other.treeId)) {
+            return false;
+        }
+        if (!Objects.equals(this.abbreviation, other.abbreviation)) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Read only set view of a sorted array without duplicates.
+     */
+    private static final class ArraySet extends AbstractSet<String> {
+        private final String[] array;
+
+        ArraySet(final String[] array) {
+            this.array = array;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            // Arrays.asList iterator does not support remove
+            return Arrays.asList(array).iterator();
+        }
+
+        @Override
+        public int size() {
+            return array.length;
+        }
+
+        @Override
+        public boolean contains(final Object obj) {
+            return (obj instanceof String) &&
+                                 (Arrays.binarySearch(array, obj) >= 0);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects the fields of a DeCS concept and creates the immutable DecsSyn.
+ * The builder can be reused: build() does not change it and clear() starts
+ * a new concept.
+ * @author agent
+ * date: 20261017
+ */
+public class DecsSynBuilder {
+    private static final String[] EMPTY = new String[0];
+
+    private final List<String> descriptor;
+    private final List<String> synonym;
+    private final List<String> category;
+    private String id;
+    private String treeId;
+    private String abbreviation;
+
+    public DecsSynBuilder() {
+        descriptor = new ArrayList<String>();
+        synonym = new ArrayList<String>();
+        category = new ArrayList<String>();
+    }
+
+    /**
+     * Removes all fields.
+     * @return this builder
+     */
+    public DecsSynBuilder clear() {
+        descriptor.clear();
+        synonym.clear();
+        category.clear();
+        id = null;
+        treeId = null;
+        abbreviation = null;
+
+        return this;
+    }
+
+    public DecsSynBuilder setId(final String id) {
+        this.id = id;
+        return this;
+    }
+
+    public DecsSynBuilder setTreeId(final String treeId) {
+        this.treeId = treeId;
+        return this;
+    }
+
+    public DecsSynBuilder setAbbreviation(final String abbreviation) {
+        this.abbreviation = abbreviation;
+        return this;
+    }
+
+    /**
+     * @param descriptor - the next descriptor (english, spanish and
+     * portuguese order). Null is ignored.
+     * @return this builder
+     */
+    public DecsSynBuilder addDescriptor(final String descriptor) {
+        if (descriptor != null) {
+            this.descriptor.add(descriptor);
+        }
+        return this;
+    }
+
+    /**
+     * @param synonym - a synonym. Null and duplicates are ignored.
+     * @return this builder
+     */
+    public DecsSynBuilder addSynonym(final String synonym) {
+        if (synonym != null) {
+            this.synonym.add(synonym);
+        }
+        return this;
+    }
+
+    /**
+     * @param category - a category. Null and duplicates are ignored.
+     * @return this builder
+     */
+    public DecsSynBuilder addCategory(final String category) {
+        if (category != null) {
+            this.category.add(category);
+        }
+        return this;
+    }
+
+    /**
+     * @return a new concept with the current fields
+     */
+    public DecsSyn build() {
+        return new DecsSyn(id, treeId, abbreviation, toArray(descriptor),
+                                    toSortedSet(synonym), toSortedSet(category));
+    }
+
+    private static String[] toArray(final List<String> list) {
+        return list.isEmpty() ? EMPTY : list.toArray(new String[list.size()]);
+    }
+
+    /**
+     * @return the sorted strings without duplicates
+     */
+    private static String[] toSortedSet(final List<String> list) {
+        final String[] array = toArray(list);
+        int size = array.length;
+
+        if (size > 1) {
+            Arrays.sort(array);
+            size = 1;
+            for (int idx = 1; idx < array.length; idx++) {
+                if (!array[idx].equals(array[size - 1])) {
+                    array[size++] = array[idx];
+                }
+            }
+        }
+
+        return (size == array.length) ? array : Arrays.copyOf(array, size);
+    }
+}
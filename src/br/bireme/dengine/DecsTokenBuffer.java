@@ -0,0 +1,336 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.util.Arrays;
+
+/**
+ * The tokens created by DeCSTokenizer for its input, kept as records in
+ * parallel arrays: the token chars are appended to one char buffer. The
+ * buffer is cleared and reused for each input, so after its arrays grow to
+ * the size of the largest input no memory is allocated per token.
+ * The tokens are read in order by next().
+ * @author agent
+ * date: 20261017
+ */
+final class DecsTokenBuffer {
+    private char[] chars;
+    private int charCount;
+    private int[] starts;      // first char of each token in chars
+    private int[] lengths;     // number of chars of each token
+    private int[] begins;      // token initial position in the input
+    private int[] ends;        // token last position in the input
+    private boolean[] samePos; // token has the position of the previous one
+    private int size;
+    private int next;
+
+    DecsTokenBuffer() {
+        this(256, 16);
+    }
+
+    private DecsTokenBuffer(final int charCapacity,
+                            final int capacity) {
+        chars = new char[Math.max(1, charCapacity)];
+        starts = new int[Math.max(1, capacity)];
+        lengths = new int[starts.length];
+        begins = new int[starts.length];
+        ends = new int[starts.length];
+        samePos = new boolean[starts.length];
+    }
+
+    /**
+     * Removes all the tokens. The arrays are kept.
+     */
+    void clear() {
+        charCount = 0;
+        size = 0;
+        next = 0;
+    }
+
+    /**
+     * @return number of tokens
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return true if there are tokens not read by next()
+     */
+    boolean hasNext() {
+        return next < size;
+    }
+
+    /**
+     * @return the index of the next token
+     */
+    int next() {
+        assert next < size;
+
+        return next++;
+    }
+
+    char[] getChars() {
+        return chars;
+    }
+
+    int getStart(final int index) {
+        return starts[index];
+    }
+
+    int getLength(final int index) {
+        return lengths[index];
+    }
+
+    int getBegin(final int index) {
+        return begins[index];
+    }
+
+    int getEnd(final int index) {
+        return ends[index];
+    }
+
+    boolean getSamePos(final int index) {
+        return samePos[index];
+    }
+
+    /**
+     * Adds the token str[from, to[.
+     * @param str - the token chars
+     * @param from - first token char
+     * @param to - position after the last token char
+     * @param begin - token initial position in the input
+     * @param end - token last position in the input
+     * @param same - the token has the position of the previous one
+     */
+    void add(final String str,
+             final int from,
+             final int to,
+             final int begin,
+             final int end,
+             final boolean same) {
+        assert str != null;
+        assert from <= to;
+
+        final int len = to - from;
+
+        ensureChars(len);
+        str.getChars(from, to, chars, charCount);
+        addRecord(len, begin, end, same);
+    }
+
+    /**
+     * Adds the token str1 + str2.
+     */
+    void add(final String str1,
+             final String str2,
+             final int begin,
+             final int end,
+             final boolean same) {
+        assert str2 != null;
+
+        add(str1, str2, 0, str2.length(), begin, end, same);
+    }
+
+    /**
+     * Adds the token prefix + str[from, to[.
+     */
+    void add(final String prefix,
+             final String str,
+             final int from,
+             final int to,
+             final int begin,
+             final int end,
+             final boolean same) {
+        assert prefix != null;
+        assert str != null;
+        assert from <= to;
+
+        final int len1 = prefix.length();
+        final int len2 = to - from;
+
+        ensureChars(len1 + len2);
+        prefix.getChars(0, len1, chars, charCount);
+        str.getChars(from, to, chars, charCount + len1);
+        addRecord(len1 + len2, begin, end, same);
+    }
+
+    /**
+     * Appends all the tokens of other.
+     * @param other - the tokens to append
+     */
+    void addAll(final DecsTokenBuffer other) {
+        assert other != null;
+
+        ensureChars(other.charCount);
+        ensureRecords(other.size);
+        System.arraycopy(other.chars, 0, chars, charCount, other.charCount);
+        for (int idx = 0; idx < other.size; idx++) {
+            starts[size + idx] = other.starts[idx] + charCount;
+        }
+        System.arraycopy(other.lengths, 0, lengths, size, other.size);
+        System.arraycopy(other.begins, 0, begins, size, other.size);
+        System.arraycopy(other.ends, 0, ends, size, other.size);
+        System.arraycopy(other.samePos, 0, samePos, size, other.size);
+        charCount += other.charCount;
+        size += other.size;
+    }
+
+    /**
+     * Appends all the tokens of other with the given positions.
+     * @param other - the tokens to append
+     * @param begin - initial position of the appended tokens
+     * @param end - last position of the appended tokens
+     */
+    void addAll(final DecsTokenBuffer other,
+                final int begin,
+                final int end) {
+        assert other != null;
+
+        final int from = size;
+
+        addAll(other);
+        Arrays.fill(begins, from, size, begin);
+        Arrays.fill(ends, from, size, end);
+    }
+
+    /**
+     * @return a copy with the tokens of this buffer, its arrays are not 
+     * larger than needed
+     */
+    DecsTokenBuffer copy() {
+        final DecsTokenBuffer buffer = new DecsTokenBuffer(charCount, size);
+
+        buffer.addAll(this);
+
+        return buffer;
+    }
+
+    /**
+     * Sorts the tokens from the index from (by initial position and then 
+     * by chars, as FoundTerm.compareTo) and removes the repeated ones, 
+     * keeping the first added.
+     * @param from - index of the first token sorted
+     */
+    void sortUnique(final int from) {
+        assert (from >= 0) && (from <= size);
+
+        // insertion sort: it is stable and there are few tokens by term
+        for (int idx = from + 1; idx < size; idx++) {
+            for (int cur = idx; (cur > from) && (compare(cur - 1, cur) > 0); 
+                                                                       cur--) {
+                swap(cur - 1, cur);
+            }
+        }
+        int last = from;
+        for (int idx = from + 1; idx < size; idx++) {
+            if (compare(last, idx) != 0) {
+                last++;
+                if (last != idx) {
+                    starts[last] = starts[idx];
+                    lengths[last] = lengths[idx];
+                    begins[last] = begins[idx];
+                    ends[last] = ends[idx];
+                    samePos[last] = samePos[idx];
+                }
+            }
+        }
+        if (size > from) {
+            size = last + 1;
+        }
+    }
+
+    private int compare(final int idx1,
+                        final int idx2) {
+        int diff = begins[idx1] - begins[idx2];
+
+        if (diff == 0) {
+            final int len1 = lengths[idx1];
+            final int len2 = lengths[idx2];
+            final int len = Math.min(len1, len2);
+            final int start1 = starts[idx1];
+            final int start2 = starts[idx2];
+
+            for (int pos = 0; (diff == 0) && (pos < len); pos++) {
+                diff = chars[start1 + pos] - chars[start2 + pos];
+            }
+            if (diff == 0) {
+                diff = len1 - len2;
+            }
+        }
+        return diff;
+    }
+
+    private void swap(final int idx1,
+                      final int idx2) {
+        final int start = starts[idx1];
+        final int length = lengths[idx1];
+        final int begin = begins[idx1];
+        final int end = ends[idx1];
+        final boolean same = samePos[idx1];
+
+        starts[idx1] = starts[idx2];
+        lengths[idx1] = lengths[idx2];
+        begins[idx1] = begins[idx2];
+        ends[idx1] = ends[idx2];
+        samePos[idx1] = samePos[idx2];
+        starts[idx2] = start;
+        lengths[idx2] = length;
+        begins[idx2] = begin;
+        ends[idx2] = end;
+        samePos[idx2] = same;
+    }
+
+    private void addRecord(final int len,
+                           final int begin,
+                           final int end,
+                           final boolean same) {
+        ensureRecords(1);
+        starts[size] = charCount;
+        lengths[size] = len;
+        begins[size] = begin;
+        ends[size] = end;
+        samePos[size] = same;
+        charCount += len;
+        size++;
+    }
+
+    private void ensureChars(final int len) {
+        if (charCount + len > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(chars.length * 2, 
+                                                           charCount + len));
+        }
+    }
+
+    private void ensureRecords(final int count) {
+        if (size + count > starts.length) {
+            final int capacity = Math.max(starts.length * 2, size + count);
+
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            begins = Arrays.copyOf(begins, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            samePos = Arrays.copyOf(samePos, capacity);
+        }
+    }
+}
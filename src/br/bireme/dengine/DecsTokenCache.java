@@ -0,0 +1,255 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of the tokens created by DeCSTokenizer for a field
+ * value. Fields as keywords, subject headings or journal descriptors repeat
+ * the same values in many records: the tokens of a cached value are 
+ * replayed instead of locating and expanding its DeCS terms again. The 
+ * key is the value read by the tokenizer (with the accents already 
+ * removed) and an entry is only used with the DeCS map it was created 
+ * from, so a map swapped in a DecsHandle makes the old entries miss.
+ * A cache must be shared only by tokenizers with the same parameters (for 
+ * example the token streams of one analyzer). The entries are split in
+ * segments with their own lock, so the cache can be used by many threads.
+ * @author agent
+ * date: 20261017
+ */
+public class DecsTokenCache {
+    /**
+     * default maximum length of the values cached
+     */
+    public static final int DEF_MAX_VALUE_LENGTH = 256;
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private static final class Tokens {
+        private final Map<String,DecsSyn> decs;
+        private final DecsTokenBuffer tokens;
+
+        private Tokens(final Map<String,DecsSyn> decs,
+                      final DecsTokenBuffer tokens) {
+            this.decs = decs;
+            this.tokens = tokens;
+        }
+    }
+
+    private final class Segment extends LinkedHashMap<String,Tokens> {
+        private static final long serialVersionUID = 1L;
+        private final int capacity;
+
+        private Segment(final int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(
+                                      final Map.Entry<String,Tokens> eldest) {
+            final boolean remove = (size() > capacity);
+
+            if (remove) {
+                evictions.incrementAndGet();
+            }
+            return remove;
+        }
+    }
+
+    private final Segment[] segments;
+    private final int maxEntries;
+    private final int maxValueLength;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+
+    /**
+     * @param maxEntries - maximum number of values cached
+     */
+    public DecsTokenCache(final int maxEntries) {
+        this(maxEntries, DEF_MAX_VALUE_LENGTH);
+    }
+
+    /**
+     * @param maxEntries - maximum number of values cached
+     * @param maxValueLength - longer values are not cached
+     */
+    public DecsTokenCache(final int maxEntries,
+                          final int maxValueLength) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries[" + maxEntries 
+                                                                   + "] < 1");
+        }
+        if (maxValueLength < 1) {
+            throw new IllegalArgumentException("maxValueLength[" 
+                                                  + maxValueLength + "] < 1");
+        }
+        final int nsegs = Math.min(MAX_SEGMENTS, maxEntries);
+        final int capacity = (maxEntries + nsegs - 1) / nsegs;
+
+        this.segments = new Segment[nsegs];
+        for (int idx = 0; idx < nsegs; idx++) {
+            segments[idx] = new Segment(capacity);
+        }
+        this.maxEntries = maxEntries;
+        this.maxValueLength = maxValueLength;
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.evictions = new AtomicLong();
+    }
+
+    /**
+     * @param value - the field value
+     * @param decs - the DeCS map used by the tokenizer
+     * @return the cached tokens of value or null if they are not cached
+     */
+    DecsTokenBuffer get(final String value,
+                    final Map<String,DecsSyn> decs) {
+        assert value != null;
+        assert decs != null;
+
+        DecsTokenBuffer tokens = null;
+
+        if (value.length() <= maxValueLength) {
+            final Segment segment = getSegment(value);
+            final Tokens entry;
+
+            synchronized (segment) {
+                entry = segment.get(value);
+            }
+            if ((entry != null) && (entry.decs == decs)) {
+                tokens = entry.tokens;
+            }
+            if (tokens == null) {
+                misses.incrementAndGet();
+            } else {
+                hits.incrementAndGet();
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * @param value - the field value
+     * @param decs - the DeCS map used by the tokenizer
+     * @param tokens - the tokens of value. They must not be changed after 
+     * this call.
+     */
+    void put(final String value,
+             final Map<String,DecsSyn> decs,
+             final DecsTokenBuffer tokens) {
+        assert value != null;
+        assert decs != null;
+        assert tokens != null;
+
+        if (value.length() <= maxValueLength) {
+            final Segment segment = getSegment(value);
+
+            synchronized (segment) {
+                segment.put(value, new Tokens(decs, tokens));
+            }
+        }
+    }
+
+    private Segment getSegment(final String value) {
+        final int hash = value.hashCode();
+
+        return segments[((hash ^ (hash >>> 16)) & 0x7fffffff) 
+                                                           % segments.length];
+    }
+
+    /**
+     * Removes all the entries. The counters are kept.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * @return number of values cached
+     */
+    public int size() {
+        int size = 0;
+
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return maximum number of values cached
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * @return number of values found in the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of values not found in the cache (the values longer
+     * than the maximum length are not counted)
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of entries removed to keep the cache size
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return hits / (hits + misses) or 0 if the cache was not used
+     */
+    public double getHitRate() {
+        final long hit = hits.get();
+        final long total = hit + misses.get();
+
+        return (total == 0) ? 0 : (double)hit / total;
+    }
+
+    @Override
+    public String toString() {
+        return "size=" + size() + " hits=" + hits.get() + " misses=" 
+                        + misses.get() + " evictions=" + evictions.get() 
+                        + " hitRate=" + getHitRate();
+    }
+}
@@ -0,0 +1,420 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Trie of the DeCS keys where each edge is a whole word. Words are the 
+ * maximal sequences of chars that are neither white chars nor acceptable 
+ * delimiters, so 'abdomen, acute' is the path [abdomen] -> [acute] and
+ * '/blood' is the path [blood]. Each word is mapped to an integer id and
+ * the trie is walked with these ids. Keys made only of delimiters have no
+ * words and are not stored. The entries keep the concept ordinals of the keys
+ * (see DecsConcepts).
+ * The trie is immutable after construction and can be shared by many 
+ * locators (and threads).
+ * @author agent
+ * date: 20261017
+ */
+public class DecsWordTrie {
+    private final DecsConcepts concepts;
+    private final CharClassTable classes;
+    
+    // Word table (open addressing): word id -> pool[wordStart, wordStart+len)
+    private char[] pool;
+    private int poolSize;
+    private int[] wordStart;
+    private int[] wordLen;
+    private int words;
+    private int[] wordTable;    // word id + 1, 0 if the slot is empty
+    
+    // Trie edges (open addressing): (node, word id) -> child node
+    private long[] edgeKey;
+    private int[] edgeTarget;   // child node + 1, 0 if the slot is empty
+    private int edges;
+    private int nodes;
+    
+    // Keys ending at each node (linked lists)
+    private int[] nodeHead;
+    private int[] entryNext;
+    private String[] entryKey;
+    private int[] entryLead;    // delimiters before the first word
+    private int[] entryTrail;   // delimiters after the last word
+    private int[] entryOrdinal;
+    private int entries;
+    
+    private int maxWords;
+    
+    /**
+     *
+     * @param decs - set of DeCS descrptors and qualifiers
+     */
+    public DecsWordTrie(final Map<String,DecsSyn> decs) {
+        this(decs, CharClassTable.DEFAULT);
+    }
+    
+    /**
+     *
+     * @param decs - set of DeCS descrptors and qualifiers
+     * @param detector - decides the chars that split the keys into words
+     */
+    public DecsWordTrie(final Map<String,DecsSyn> decs,
+                        final BoundaryDetector detector) {
+        this(DecsConcepts.forMap(decs), detector);
+    }
+    
+    /**
+     *
+     * @param concepts - concept ordinals of the DeCS map
+     * @param detector - decides the chars that split the keys into words
+     */
+    public DecsWordTrie(final DecsConcepts concepts,
+                        final BoundaryDetector detector) {
+        if (concepts == null) {
+            throw new NullPointerException("concepts");
+        }
+        this.concepts = concepts;
+        this.classes = CharClassTable.valueOf(detector);
+        
+        final Map<String,DecsSyn> decs = concepts.getDecs();
+        final int size = Math.max(16, decs.size());
+        pool = new char[size * 8];
+        wordStart = new int[size];
+        wordLen = new int[size];
+        wordTable = new int[tableSize(size)];
+        edgeKey = new long[tableSize(size * 2)];
+        edgeTarget = new int[edgeKey.length];
+        nodeHead = new int[size];
+        entryNext = new int[size];
+        entryKey = new String[size];
+        entryLead = new int[size];
+        entryTrail = new int[size];
+        entryOrdinal = new int[size];
+        nodes = 1;
+        nodeHead[0] = -1;
+        
+        for (Map.Entry<String,DecsSyn> entry : decs.entrySet()) {
+            final String key = entry.getKey();
+            addKey(key, concepts.getKeyOrdinal(key));
+        }
+    }
+    
+    /**
+     * @return the map this trie was built from
+     */
+    public Map<String,DecsSyn> getDecs() {
+        return concepts.getDecs();
+    }
+    
+    /**
+     * @return the concept ordinals of the keys
+     */
+    public DecsConcepts getConcepts() {
+        return concepts;
+    }
+    
+    /**
+     * @return the char classes the keys were split into words with
+     */
+    public CharClassTable getCharClasses() {
+        return classes;
+    }
+    
+    /**
+     * @return the maximum number of words of a key
+     */
+    public int getMaxWords() {
+        return maxWords;
+    }
+    
+    /**
+     * @return number of distinct words
+     */
+    public int getWordCount() {
+        return words;
+    }
+    
+    /**
+     * @param in - input chars
+     * @param begin - word initial position
+     * @param end - word last position
+     * @return the id of the word in[begin, end] or -1 if no key has this word
+     */
+    public int getWordId(final char[] in,
+                         final int begin,
+                         final int end) {
+        final int len = end - begin + 1;
+        final int mask = wordTable.length - 1;
+        int slot = hash(in, begin, end) & mask;
+        int id = -1;
+        
+        while (wordTable[slot] != 0) {
+            final int wid = wordTable[slot] - 1;
+            if ((wordLen[wid] == len) && 
+                 equals(pool, wordStart[wid], in, begin, len)) {
+                id = wid;
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        
+        return id;
+    }
+    
+    /**
+     * @param node - a trie node (0 is the root)
+     * @param wordId - id of the next word
+     * @return the child node or -1 if there is no such child
+     */
+    public int getChild(final int node,
+                        final int wordId) {
+        final long key = ((long)node << 32) | wordId;
+        final int mask = edgeKey.length - 1;
+        int slot = hash(key) & mask;
+        int child = -1;
+        
+        while (edgeTarget[slot] != 0) {
+            if (edgeKey[slot] == key) {
+                child = edgeTarget[slot] - 1;
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        
+        return child;
+    }
+    
+    /**
+     * @param node - a trie node
+     * @return the first key entry of the node or -1 if no key ends there
+     */
+    public int getFirstEntry(final int node) {
+        return nodeHead[node];
+    }
+    
+    /**
+     * @param entry - a key entry
+     * @return the next key entry of the same node or -1
+     */
+    public int getNextEntry(final int entry) {
+        return entryNext[entry];
+    }
+    
+    public String getEntryKey(final int entry) {
+        return entryKey[entry];
+    }
+    
+    public int getEntryLead(final int entry) {
+        return entryLead[entry];
+    }
+
+    public int getEntryTrail(final int entry) {
+        return entryTrail[entry];
+    }
+    
+    public DecsSyn getEntrySyn(final int entry) {
+        return concepts.getConcept(entryOrdinal[entry]);
+    }
+    
+    public int getEntryOrdinal(final int entry) {
+        return entryOrdinal[entry];
+    }
+    
+    private void addKey(final String key,
+                        final int ordinal) {
+        final char[] chars = key.toCharArray();
+        final int last = chars.length - 1;
+        int lead = 0;
+        int trail = 0;
+        int node = 0;
+        int nwords = 0;
+        int pos = 0;
+        
+        while (pos <= last) {
+            if (classes.isBoundary(chars[pos])) {
+                pos++;
+                continue;
+            }
+            final int begin = pos;
+            while ((pos <= last) && !classes.isBoundary(chars[pos])) {
+                pos++;
+            }
+            if (nwords == 0) {
+                lead = begin;
+            }
+            trail = last - pos + 1;
+            node = addChild(node, addWord(chars, begin, pos - 1));
+            nwords++;
+        }
+        if (nwords > 0) {
+            if (entries == entryKey.length) {
+                final int nlen = entries * 2;
+                entryNext = Arrays.copyOf(entryNext, nlen);
+                entryKey = Arrays.copyOf(entryKey, nlen);
+                entryLead = Arrays.copyOf(entryLead, nlen);
+                entryTrail = Arrays.copyOf(entryTrail, nlen);
+                entryOrdinal = Arrays.copyOf(entryOrdinal, nlen);
+            }
+            entryKey[entries] = key;
+            entryLead[entries] = lead;
+            entryTrail[entries] = trail;
+            entryOrdinal[entries] = ordinal;
+            entryNext[entries] = nodeHead[node];
+            nodeHead[node] = entries++;
+            maxWords = Math.max(maxWords, nwords);
+        }
+    }
+    
+    private int addWord(final char[] chars,
+                        final int begin,
+                        final int end) {
+        int id = getWordId(chars, begin, end);
+        
+        if (id == -1) {
+            final int len = end - begin + 1;
+            
+            if (poolSize + len > pool.length) {
+                pool = Arrays.copyOf(pool, Math.max(pool.length * 2, 
+                                                              poolSize + len));
+            }
+            if (words == wordStart.length) {
+                wordStart = Arrays.copyOf(wordStart, words * 2);
+                wordLen = Arrays.copyOf(wordLen, words * 2);
+            }
+            System.arraycopy(chars, begin, pool, poolSize, len);
+            wordStart[words] = poolSize;
+            wordLen[words] = len;
+            poolSize += len;
+            id = words++;
+            if (words * 2 > wordTable.length) {
+                rehashWords();
+            } else {
+                putWord(id);
+            }
+        }
+        
+        return id;
+    }
+    
+    private void putWord(final int id) {
+        final int mask = wordTable.length - 1;
+        final int begin = wordStart[id];
+        int slot = hash(pool, begin, begin + wordLen[id] - 1) & mask;
+        
+        while (wordTable[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        wordTable[slot] = id + 1;
+    }
+    
+    private void rehashWords() {
+        wordTable = new int[wordTable.length * 2];
+        for (int id = 0; id < words; id++) {
+            putWord(id);
+        }
+    }
+    
+    private int addChild(final int node,
+                         final int wordId) {
+        int child = getChild(node, wordId);
+        
+        if (child == -1) {
+            if (nodes == nodeHead.length) {
+                nodeHead = Arrays.copyOf(nodeHead, nodes * 2);
+            }
+            child = nodes++;
+            nodeHead[child] = -1;
+            edges++;
+            if (edges * 2 > edgeKey.length) {
+                final long[] okeys = edgeKey;
+                final int[] otargets = edgeTarget;
+                edgeKey = new long[okeys.length * 2];
+                edgeTarget = new int[okeys.length * 2];
+                for (int slot = 0; slot < okeys.length; slot++) {
+                    if (otargets[slot] != 0) {
+                        putEdge(okeys[slot], otargets[slot]);
+                    }
+                }
+            }
+            putEdge(((long)node << 32) | wordId, child + 1);
+        }
+        
+        return child;
+    }
+    
+    private void putEdge(final long key,
+                         final int target) {
+        final int mask = edgeKey.length - 1;
+        int slot = hash(key) & mask;
+        
+        while (edgeTarget[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        edgeKey[slot] = key;
+        edgeTarget[slot] = target;
+    }
+    
+    private static int tableSize(final int elements) {
+        int size = 16;
+        
+        while (size < elements * 2) {
+            size <<= 1;
+        }
+        return size;
+    }
+    
+    private static int hash(final char[] in,
+                            final int begin,
+                            final int end) {
+        int hash = 0;
+        
+        for (int pos = begin; pos <= end; pos++) {
+            hash = 31 * hash + in[pos];
+        }
+        return hash ^ (hash >>> 16);
+    }
+    
+    private static int hash(final long key) {
+        final long hash = key * 0x9E3779B97F4A7C15L;
+        
+        return (int)(hash ^ (hash >>> 32));
+    }
+    
+    private static boolean equals(final char[] in1,
+                                  final int begin1,
+                                  final char[] in2,
+                                  final int begin2,
+                                  final int len) {
+        boolean equal = true;
+        
+        for (int idx = 0; idx < len; idx++) {
+            if (in1[begin1 + idx] != in2[begin2 + idx]) {
+                equal = false;
+                break;
+            }
+        }
+        return equal;
+    }
+}
@@ -32,6 +32,7 @@ public class FoundTerm implements Comparable<FoundTerm>{
     private final int endPos;
     private final String term;
     private final DecsSyn syn;
+    private final int ordinal;
     private final FoundTerm qualifier;
     private final boolean samePos;
 
@@ -41,6 +42,27 @@ public class FoundTerm implements Comparable<FoundTerm>{
                      final DecsSyn syn,
                      final FoundTerm qualifier,
                      final boolean samePos) {
+        this(term, beginPos, endPos, syn, DecsConcepts.NO_ORDINAL, qualifier,
+                                                                      samePos);
+    }
+    
+    /**
+     * @param term - the found term
+     * @param beginPos - term initial position
+     * @param endPos - term last position
+     * @param syn - the term concept
+     * @param ordinal - the concept ordinal (see DecsConcepts) or
+     * DecsConcepts.NO_ORDINAL if it is not known
+     * @param qualifier - the term qualifier or null
+     * @param samePos - true if the term has the position of the previous one
+     */
+    public FoundTerm(final String term, 
+                     final int beginPos, 
+                     final int endPos,
+                     final DecsSyn syn,
+                     final int ordinal,
+                     final FoundTerm qualifier,
+                     final boolean samePos) {
         if (term == null) {
             throw new NullPointerException("term");
         }
@@ -56,6 +78,7 @@ public class FoundTerm implements Comparable<FoundTerm>{
         this.beginPos = beginPos;
         this.endPos = endPos;
         this.syn = syn;
+        this.ordinal = ordinal;
         this.qualifier = qualifier;
         this.samePos = samePos;
     }    
@@ -76,6 +99,14 @@ public class FoundTerm implements Comparable<FoundTerm>{
         return syn;
     }
     
+    /**
+     * @return the concept ordinal (see DecsConcepts) or 
+     * DecsConcepts.NO_ORDINAL if it is not known
+     */
+    public int getOrdinal() {
+        return ordinal;
+    }
+    
     public FoundTerm getQualifier() {
         return qualifier;
     }
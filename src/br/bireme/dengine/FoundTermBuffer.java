@@ -0,0 +1,410 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The terms found by a DeCSBufferLocator, kept as records in parallel int
+ * arrays instead of FoundTerm objects: the term positions, the concept 
+ * ordinal and the position of the term text in the input string, and the 
+ * same fields for the qualifier of 'descriptor/qualifier' terms. The buffer
+ * is cleared and reused for each input, so after its arrays grow to the 
+ * number of terms of the largest input no memory is allocated per term. 
+ * The terms are kept in the order they were added until sort() is called;
+ * terms with the same initial position are all kept.
+ * @author agent
+ * date: 20261017
+ */
+public final class FoundTermBuffer {
+    private int[] begins;       // term initial position (see FoundTerm)
+    private int[] ends;         // term last position (see FoundTerm)
+    private int[] ordinals;     // concept ordinal or DecsConcepts.NO_ORDINAL
+    private int[] textBegins;   // first char of the term text in the input
+    private int[] textEnds;     // last char of the term text in the input
+    private boolean[] precods;  // precodified term ( ^d11111 )
+    private int[] qbegins;      // qualifier initial position or -1
+    private int[] qends;
+    private int[] qordinals;
+    private int[] qtextBegins;
+    private int[] qtextEnds;
+    private int size;
+    private DecsConcepts concepts;
+
+    public FoundTermBuffer() {
+        this(16);
+    }
+
+    /**
+     * @param capacity - initial number of terms
+     */
+    public FoundTermBuffer(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity[" + capacity 
+                                                                   + "] < 1");
+        }
+        begins = new int[capacity];
+        ends = new int[capacity];
+        ordinals = new int[capacity];
+        textBegins = new int[capacity];
+        textEnds = new int[capacity];
+        precods = new boolean[capacity];
+        qbegins = new int[capacity];
+        qends = new int[capacity];
+        qordinals = new int[capacity];
+        qtextBegins = new int[capacity];
+        qtextEnds = new int[capacity];
+    }
+
+    /**
+     * Removes all the terms and the concepts. The arrays are kept.
+     */
+    public void clear() {
+        size = 0;
+        concepts = null;
+    }
+
+    /**
+     * @return number of terms
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the concept ordinals the term ordinals refer to or null if 
+     * the terms do not carry ordinals
+     */
+    public DecsConcepts getConcepts() {
+        return concepts;
+    }
+
+    /**
+     * @param concepts - the concept ordinals the term ordinals refer to or
+     * null
+     */
+    public void setConcepts(final DecsConcepts concepts) {
+        this.concepts = concepts;
+    }
+
+    /**
+     * Adds a term without qualifier (see setQualifier).
+     * @param begin - term initial position
+     * @param end - term last position
+     * @param ordinal - concept ordinal or DecsConcepts.NO_ORDINAL
+     * @param textBegin - first char of the term text in the input
+     * @param textEnd - last char of the term text in the input
+     * @param precod - true if it is a precodified term: its text is "^d" 
+     * followed by the input chars [textBegin, textEnd]
+     * @return the index of the term
+     */
+    public int add(final int begin,
+                   final int end,
+                   final int ordinal,
+                   final int textBegin,
+                   final int textEnd,
+                   final boolean precod) {
+        if (begin < 0) {
+            throw new IllegalArgumentException("begin[" + begin + "] < 0");
+        }
+        if (end < begin) {
+            throw new IllegalArgumentException("end[" + end 
+                                                + "] < begin[" + begin + "]");
+        }
+        if (size == begins.length) {
+            grow(size * 2);
+        }
+        begins[size] = begin;
+        ends[size] = end;
+        ordinals[size] = ordinal;
+        textBegins[size] = textBegin;
+        textEnds[size] = textEnd;
+        precods[size] = precod;
+        qbegins[size] = -1;
+        
+        return size++;
+    }
+
+    /**
+     * Sets the qualifier of a term. The text of a precodified qualifier is 
+     * "^s" followed by the input chars [textBegin, textEnd].
+     * @param index - the term index
+     * @param begin - qualifier initial position
+     * @param end - qualifier last position
+     * @param ordinal - qualifier ordinal or DecsConcepts.NO_ORDINAL
+     * @param textBegin - first char of the qualifier text in the input
+     * @param textEnd - last char of the qualifier text in the input
+     */
+    public void setQualifier(final int index,
+                             final int begin,
+                             final int end,
+                             final int ordinal,
+                             final int textBegin,
+                             final int textEnd) {
+        if ((index < 0) || (index >= size)) {
+            throw new IndexOutOfBoundsException("index[" + index + "]");
+        }
+        if (begin < 0) {
+            throw new IllegalArgumentException("begin[" + begin + "] < 0");
+        }
+        if (end < begin) {
+            throw new IllegalArgumentException("end[" + end 
+                                                + "] < begin[" + begin + "]");
+        }
+        qbegins[index] = begin;
+        qends[index] = end;
+        qordinals[index] = ordinal;
+        qtextBegins[index] = textBegin;
+        qtextEnds[index] = textEnd;
+    }
+
+    public int getBegin(final int index) {
+        return begins[index];
+    }
+
+    public int getEnd(final int index) {
+        return ends[index];
+    }
+
+    /**
+     * @param index - the term index
+     * @return the qualifier last position or, if there is no qualifier, the
+     * term last position
+     */
+    public int getLastPos(final int index) {
+        return (qbegins[index] == -1) ? ends[index] : qends[index];
+    }
+
+    public int getOrdinal(final int index) {
+        return ordinals[index];
+    }
+
+    public int getTextBegin(final int index) {
+        return textBegins[index];
+    }
+
+    public int getTextEnd(final int index) {
+        return textEnds[index];
+    }
+
+    public boolean isPrecod(final int index) {
+        return precods[index];
+    }
+
+    public boolean hasQualifier(final int index) {
+        return qbegins[index] != -1;
+    }
+
+    public int getQualifierBegin(final int index) {
+        return qbegins[index];
+    }
+
+    public int getQualifierEnd(final int index) {
+        return qends[index];
+    }
+
+    public int getQualifierOrdinal(final int index) {
+        return qordinals[index];
+    }
+
+    public int getQualifierTextBegin(final int index) {
+        return qtextBegins[index];
+    }
+
+    public int getQualifierTextEnd(final int index) {
+        return qtextEnds[index];
+    }
+
+    /**
+     * @param index - the term index
+     * @return the concept of the term (see getConcepts)
+     */
+    public DecsSyn getSyn(final int index) {
+        if (concepts == null) {
+            throw new IllegalStateException("terms without ordinals");
+        }
+        return concepts.getConcept(ordinals[index]);
+    }
+
+    /**
+     * @param index - the term index
+     * @return the concept of the term qualifier (see getConcepts)
+     */
+    public DecsSyn getQualifierSyn(final int index) {
+        if (concepts == null) {
+            throw new IllegalStateException("terms without ordinals");
+        }
+        return concepts.getConcept(qordinals[index]);
+    }
+
+    /**
+     * Sorts the terms by initial position. The sort is stable: terms with 
+     * the same initial position keep the order they were added.
+     */
+    public void sort() {
+        boolean sorted = true;
+
+        for (int idx = 1; idx < size; idx++) {
+            if (begins[idx - 1] > begins[idx]) {
+                sorted = false;
+                break;
+            }
+        }
+        if (!sorted) {
+            final int[] order = new int[size];
+            final int[] aux = new int[size];
+
+            for (int idx = 0; idx < size; idx++) {
+                order[idx] = idx;
+            }
+            // bottom-up merge sort of the term indexes
+            int[] src = order;
+            int[] dst = aux;
+            for (int width = 1; width < size; width *= 2) {
+                for (int low = 0; low < size; low += 2 * width) {
+                    final int mid = Math.min(low + width, size);
+                    final int high = Math.min(low + 2 * width, size);
+                    int left = low;
+                    int right = mid;
+
+                    for (int pos = low; pos < high; pos++) {
+                        if ((left < mid) && ((right >= high) || 
+                               (begins[src[left]] <= begins[src[right]]))) {
+                            dst[pos] = src[left++];
+                        } else {
+                            dst[pos] = src[right++];
+                        }
+                    }
+                }
+                final int[] tmp = src;
+                src = dst;
+                dst = tmp;
+            }
+            begins = permute(begins, src);
+            ends = permute(ends, src);
+            ordinals = permute(ordinals, src);
+            textBegins = permute(textBegins, src);
+            textEnds = permute(textEnds, src);
+            qbegins = permute(qbegins, src);
+            qends = permute(qends, src);
+            qordinals = permute(qordinals, src);
+            qtextBegins = permute(qtextBegins, src);
+            qtextEnds = permute(qtextEnds, src);
+            
+            final boolean[] nprecods = new boolean[precods.length];
+            for (int idx = 0; idx < size; idx++) {
+                nprecods[idx] = precods[src[idx]];
+            }
+            precods = nprecods;
+        }
+    }
+
+    /**
+     * Creates the FoundTerm of a term. If the terms do not carry ordinals,
+     * the concepts are looked up in decs.
+     * @param index - the term index
+     * @param str - the input string the terms were found in
+     * @param decs - set of DeCS descrptors and qualifiers
+     * @return the found term
+     */
+    public FoundTerm getFoundTerm(final int index,
+                                  final String str,
+                                  final Map<String,DecsSyn> decs) {
+        if (str == null) {
+            throw new NullPointerException("str");
+        }
+        if (decs == null) {
+            throw new NullPointerException("decs");
+        }
+        final boolean precod = precods[index];
+        final FoundTerm qualifier;
+
+        if (qbegins[index] == -1) {
+            qualifier = null;
+        } else {
+            final String qkey = str.substring(qtextBegins[index], 
+                                                     qtextEnds[index] + 1);
+            final int qord = qordinals[index];
+            
+            qualifier = new FoundTerm(precod ? "^s" + qkey : qkey, 
+                  qbegins[index], qends[index], getSyn(qkey, qord, decs),
+                                                          qord, null, false);
+        }
+        final String key = str.substring(textBegins[index], 
+                                                        textEnds[index] + 1);
+        final int ord = ordinals[index];
+
+        return new FoundTerm(precod ? "^d" + key : key, begins[index], 
+                   ends[index], getSyn(key, ord, decs), ord, qualifier, false);
+    }
+
+    /**
+     * Adds the FoundTerm of every term to a set.
+     * @param str - the input string the terms were found in
+     * @param decs - set of DeCS descrptors and qualifiers
+     * @param foundTerms - the set of found terms
+     */
+    public void addFoundTerms(final String str,
+                              final Map<String,DecsSyn> decs,
+                              final Set<FoundTerm> foundTerms) {
+        if (foundTerms == null) {
+            throw new NullPointerException("foundTerms");
+        }
+        for (int idx = 0; idx < size; idx++) {
+            foundTerms.add(getFoundTerm(idx, str, decs));
+        }
+    }
+
+    private DecsSyn getSyn(final String key,
+                           final int ordinal,
+                           final Map<String,DecsSyn> decs) {
+        return (concepts == null) ? decs.get(key) 
+                                  : concepts.getConcept(ordinal);
+    }
+
+    private int[] permute(final int[] array,
+                          final int[] order) {
+        final int[] narray = new int[array.length];
+
+        for (int idx = 0; idx < size; idx++) {
+            narray[idx] = array[order[idx]];
+        }
+        return narray;
+    }
+
+    private void grow(final int capacity) {
+        begins = Arrays.copyOf(begins, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        ordinals = Arrays.copyOf(ordinals, capacity);
+        textBegins = Arrays.copyOf(textBegins, capacity);
+        textEnds = Arrays.copyOf(textEnds, capacity);
+        precods = Arrays.copyOf(precods, capacity);
+        qbegins = Arrays.copyOf(qbegins, capacity);
+        qends = Arrays.copyOf(qends, capacity);
+        qordinals = Arrays.copyOf(qordinals, capacity);
+        qtextBegins = Arrays.copyOf(qtextBegins, capacity);
+        qtextEnds = Arrays.copyOf(qtextEnds, capacity);
+    }
+}
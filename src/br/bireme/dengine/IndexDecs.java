@@ -1,192 +1,277 @@
-/*=========================================================================
-
-    Copyright © 2015 BIREME/PAHO/WHO
-
-    This file is part of IAHx-Analyzer.
-
-    IAHx-Analyzer is free software: you can redistribute it and/or
-    modify it under the terms of the GNU Lesser General Public License
-    as published by the Free Software Foundation, either version 2.1 of
-    the License, or (at your option) any later version.
-
-    IAHx-Analyzer is distributed in the hope that it will be useful,
-    but WITHOUT ANY WARRANTY; without even the implied warranty of
-    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
-    GNU Lesser General Public License for more details.
-
-    You should have received a copy of the GNU Lesser General Public
-    License along with IAHx-Analyzer. If not, see
-    <http://www.gnu.org/licenses/>.
-
-=========================================================================*/
-
-package br.bireme.dengine;
-
-import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.logging.Logger;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
-import org.apache.lucene.analysis.Analyzer;
-import org.xml.sax.Attributes;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
-import org.xml.sax.XMLReader;
-import org.xml.sax.helpers.DefaultHandler;
-
-/**
- *
- * Vinicius Andrade and Heitor Barbieri
- * date: 20060630 and 20141031
- */
-public class IndexDecs extends DefaultHandler {   
-    /** A buffer for each XML element */
-    private final HashMap<String,String> attributeMap;    
-    private final StringBuilder elementBuffer;        
-    private final DecsSyn decsSyn;
-    private final StringBuilder path;        
-    private final Analyzer analyzer;
-    private final Map<String,DecsSyn> map;
-    
-    public IndexDecs() throws IOException {        
-        attributeMap = new HashMap<String,String>();
-        elementBuffer = new StringBuilder();
-        decsSyn = new DecsSyn();
-        path = new StringBuilder("/");
-        analyzer = new SimpleKeywordAnalyzer();
-        map = new HashMap<String,DecsSyn>();
-    }
-    
-    public HashMap<String,DecsSyn> indexTerms(final String xml) 
-                                            throws ParserConfigurationException, 
-                                                     SAXException, IOException {
-        if (xml == null) {
-            throw new NullPointerException("xml");
-        }
-        final SAXParserFactory factory = SAXParserFactory.newInstance();                        
-        final InputSource xmlInput = new InputSource(xml);
-        xmlInput.setEncoding("ISO-8859-1");
-        
-        final SAXParser sax = factory.newSAXParser();
-        final XMLReader reader = sax.getXMLReader();
-            
-        map.clear();
-        
-        reader.setEntityResolver(null);
-        reader.setContentHandler(this);
-        reader.parse(xmlInput);
-        
-        return new HashMap<String,DecsSyn>(map);
-    }
-    
-    @Override
-    public void startDocument() {
-        attributeMap.clear();
-    }
-    
-    @Override
-    public void startElement(final String uri, 
-                             final String localName, 
-                             final String qName, 
-                             final Attributes atts) throws SAXException {
-        
-        path.append(qName).append("/");
-        
-        if (qName.equals("term")) {
-            decsSyn.clear();
-            decsSyn.setId(atts.getValue("mfn"));
-        }
-        
-        elementBuffer.setLength(0);
-        attributeMap.clear();
-        if (atts.getLength() > 0) {
-            for (int i = 0; i < atts.getLength(); i++) {
-                attributeMap.put(atts.getQName(i), atts.getValue(i));
-            }
-        }
-    }
-    
-    @Override
-    public void characters(final char[] text, 
-                           final int start, 
-                           final int length) {
-        elementBuffer.append(text, start, length);
-    }
-    
-    @Override
-    public void ignorableWhitespace(final char[] ch, 
-                                    final int start, 
-                                    final int length) throws SAXException {        
-    }
-    
-    @Override
-    public void endElement(final String uri, 
-                           final String localName, 
-                           final String qName) throws SAXException {
-        
-        final String text = elementBuffer.toString();
-        
-        try {
-            if (qName.equals("descriptor")) {
-                decsSyn.addDescriptor(getNormText(text));            
-            } else if (qName.equals("synonym")) {
-                decsSyn.addSynonym(getNormText(text));            
-            } else if( qName.equals("category")) {
-                decsSyn.addCategory(getNormText(text));            
-            } else if (qName.equals("abbreviation")) {
-                decsSyn.setAbbreviation(getNormText(text));
-            } else if (qName.equals("term")) {            
-                put((DecsSyn)decsSyn.clone());
-            //} else {
-            //    throw new IOException("qName=" + qName);
-            }
-            
-        } catch(IOException ioe) {
-            Logger.getGlobal().warning(ioe.getMessage());
-            //ioe.printStackTrace();
-        }
-    }
-    
-    private String getNormText(final String in) throws IOException {
-        assert in != null;
-        
-        return AnalyzerUtils.getTokens(analyzer, in);
-    }
-    
-    private void put(final DecsSyn dSyn) throws IOException {
-        assert dSyn != null;
-        
-        for (String term : dSyn.getDescriptor()) {
-            final DecsSyn other = map.put(term, dSyn);
-            if ((other != null) && !dSyn.equals(other)) {
-                throw new IOException("previous key[" + term + "] found.");
-            }
-        }
-        for (String term : dSyn.getSynonym()) {
-            final DecsSyn other = map.put(term, dSyn);
-            if ((other != null) && !dSyn.equals(other)) {
-                throw new IOException("previous key[" + term + "] found.");
-            }
-        }
-        final String abbr = dSyn.getAbbreviation();        
-        if (abbr != null) {
-            final DecsSyn other = map.put(abbr, dSyn);
-            if ((other != null) && !dSyn.equals(other)) {
-                throw new IOException("previous key[" + abbr + "] found.");
-            }
-        }        
-        final String id = dSyn.getId();
-        if (id != null) {
-            final DecsSyn other = map.put(id, dSyn);
-            if ((other != null) && !dSyn.equals(other)) {
-                throw new IOException("previous key[" + id + "] found.");
-            }
-        }
-    }    
-    
-    public static void main(String args[]) throws Exception {
-        new IndexDecs().indexTerms("resources/decs/xml/decs-metadata.xml");        
-    }
-}
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ *
+ * Vinicius Andrade and Heitor Barbieri
+ * date: 20060630 and 20141031
+ */
+public class IndexDecs extends DefaultHandler {   
+    /** A buffer for each XML element */
+    private final StringBuilder elementBuffer;        
+    private final DecsSynBuilder decsSyn;
+    private HashMap<String,DecsSyn> map;
+    private DecsStringPool strings;
+    private DecsCategoryTrie categories;
+    private DecsConcepts concepts;
+    
+    public IndexDecs() throws IOException {        
+        elementBuffer = new StringBuilder();
+        decsSyn = new DecsSynBuilder();
+    }
+    
+    public HashMap<String,DecsSyn> indexTerms(final String xml) 
+                                            throws ParserConfigurationException, 
+                                                     SAXException, IOException {
+        if (xml == null) {
+            throw new NullPointerException("xml");
+        }
+        final SAXParserFactory factory = SAXParserFactory.newInstance();                        
+        final InputSource xmlInput = new InputSource(xml);
+        xmlInput.setEncoding("ISO-8859-1");
+        
+        final SAXParser sax = factory.newSAXParser();
+        final XMLReader reader = sax.getXMLReader();
+            
+        map = new HashMap<String,DecsSyn>();  // handed to the caller
+        strings = new DecsStringPool();
+        categories = new DecsCategoryTrie();
+        
+        reader.setEntityResolver(null);
+        reader.setContentHandler(this);
+        try {
+            reader.parse(xmlInput);
+        } finally {
+            strings.clear();
+        }
+        concepts = new DecsConcepts(map, 0, categories);
+        DecsConcepts.register(concepts);
+        
+        return map;
+    }
+    
+    /**
+     * @return the string pool of the last indexTerms() call (its counters 
+     * report the strings shared) or null if it was not called
+     */
+    public DecsStringPool getStringPool() {
+        return strings;
+    }
+    
+    /**
+     * @return the tree numbers of the categories of the last indexTerms() 
+     * call and their ancestors or null if it was not called
+     */
+    public DecsCategoryTrie getCategoryTrie() {
+        return categories;
+    }
+    
+    /**
+     * The concepts are built with the map, using its category trie, and 
+     * registered, so DecsConcepts.forMap (and a DecsHandle of the map) 
+     * finds them.
+     * @return the concepts of the map of the last indexTerms() call or null
+     * if it was not called
+     */
+    public DecsConcepts getConcepts() {
+        return concepts;
+    }
+    
+    @Override
+    public void startElement(final String uri, 
+                             final String localName, 
+                             final String qName, 
+                             final Attributes atts) throws SAXException {
+        if (qName.equals("term")) {
+            decsSyn.clear().setId(atts.getValue("mfn"));
+        }
+        elementBuffer.setLength(0);
+    }
+    
+    @Override
+    public void characters(final char[] text, 
+                           final int start, 
+                           final int length) {
+        elementBuffer.append(text, start, length);
+    }
+    
+    @Override
+    public void ignorableWhitespace(final char[] ch, 
+                                    final int start, 
+                                    final int length) throws SAXException {        
+    }
+    
+    @Override
+    public void endElement(final String uri, 
+                           final String localName, 
+                           final String qName) throws SAXException {
+        
+        final String text = elementBuffer.toString();
+        
+        try {
+            if (qName.equals("descriptor")) {
+                decsSyn.addDescriptor(getNormText(text, strings));
+            } else if (qName.equals("synonym")) {
+                decsSyn.addSynonym(getNormText(text, strings));
+            } else if( qName.equals("category")) {
+                final String category = getNormText(text, strings);
+                decsSyn.addCategory(category);
+                categories.add(category);
+            } else if (qName.equals("abbreviation")) {
+                decsSyn.setAbbreviation(getNormText(text, strings));
+            } else if (qName.equals("term")) {            
+                put(map, decsSyn.build());
+            //} else {
+            //    throw new IOException("qName=" + qName);
+            }
+            
+        } catch(IOException ioe) {
+            Logger.getGlobal().warning(ioe.getMessage());
+            //ioe.printStackTrace();
+        }
+    }
+    
+    /**
+     * Normalizes a key as SimpleKeywordAnalyzer does, without creating a
+     * token stream.
+     * @param in - key text
+     * @return the normalized key
+     */
+    static String getNormText(final String in) {
+        assert in != null;
+        
+        final String key = (in.length() > SimpleKeywordAnalyzer.MAX_KEY_LEN)
+                   ? in.substring(0, SimpleKeywordAnalyzer.MAX_KEY_LEN) : in;
+        
+        return CharFolder.fold(key);
+    }
+    
+    /**
+     * Normalizes a key (see getNormText) and shares it through the pool.
+     * @param in - key text
+     * @param strings - pool of the normalized strings
+     * @return the pooled normalized key
+     */
+    static String getNormText(final String in,
+                              final DecsStringPool strings) {
+        assert strings != null;
+        
+        return strings.intern(getNormText(in));
+    }
+    
+    /**
+     * Adds the keys of a term (descriptors, synonyms, abbreviation and mfn)
+     * to the map.
+     * @param map - DeCS map being built
+     * @param dSyn - the term
+     * @throws IOException if a key of another term is found. The keys 
+     * already added, including the duplicated one, are kept.
+     */
+    static void put(final Map<String,DecsSyn> map,
+                    final DecsSyn dSyn) throws IOException {
+        assert map != null;
+        assert dSyn != null;
+        
+        for (int idx = 0; idx < dSyn.getDescriptorCount(); idx++) {
+            final String term = dSyn.getDescriptor(idx);
+            final DecsSyn other = map.put(term, dSyn);
+            if ((other != null) && !dSyn.equals(other)) {
+                throw new IOException("previous key[" + term + "] found.");
+            }
+        }
+        for (int idx = 0; idx < dSyn.getSynonymCount(); idx++) {
+            final String term = dSyn.getSynonym(idx);
+            final DecsSyn other = map.put(term, dSyn);
+            if ((other != null) && !dSyn.equals(other)) {
+                throw new IOException("previous key[" + term + "] found.");
+            }
+        }
+        final String abbr = dSyn.getAbbreviation();        
+        if (abbr != null) {
+            final DecsSyn other = map.put(abbr, dSyn);
+            if ((other != null) && !dSyn.equals(other)) {
+                throw new IOException("previous key[" + abbr + "] found.");
+            }
+        }        
+        final String id = dSyn.getId();
+        if (id != null) {
+            final DecsSyn other = map.put(id, dSyn);
+            if ((other != null) && !dSyn.equals(other)) {
+                throw new IOException("previous key[" + id + "] found.");
+            }
+        }
+    }
+
+    /**
+     * Removes the keys of a term (see put) from the map. A key now
+     * associated with another term is kept.
+     * @param map - DeCS map
+     * @param dSyn - the term
+     */
+    static void remove(final Map<String,DecsSyn> map,
+                       final DecsSyn dSyn) {
+        assert map != null;
+        assert dSyn != null;
+
+        for (int idx = 0; idx < dSyn.getDescriptorCount(); idx++) {
+            removeKey(map, dSyn.getDescriptor(idx), dSyn);
+        }
+        for (int idx = 0; idx < dSyn.getSynonymCount(); idx++) {
+            removeKey(map, dSyn.getSynonym(idx), dSyn);
+        }
+        final String abbr = dSyn.getAbbreviation();
+        if (abbr != null) {
+            removeKey(map, abbr, dSyn);
+        }
+        final String id = dSyn.getId();
+        if (id != null) {
+            removeKey(map, id, dSyn);
+        }
+    }
+
+    private static void removeKey(final Map<String,DecsSyn> map,
+                                  final String key,
+                                  final DecsSyn dSyn) {
+        if (dSyn.equals(map.get(key))) {
+            map.remove(key);
+        }
+    }
+
+    public static void main(String args[]) throws Exception {
+        new IndexDecs().indexTerms("resources/decs/xml/decs-metadata.xml");        
+    }
+}
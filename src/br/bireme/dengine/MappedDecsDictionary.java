@@ -0,0 +1,471 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Read only DeCS dictionary used directly from a memory mapped file written
+ * by DecsDictionaryCompiler. Nothing is loaded into the heap: keys are
+ * looked up by a binary search over the mapped key table and each concept
+ * (DecsSyn) is decoded when it is asked for. JVMs that open the same file
+ * share its pages through the operating system page cache.
+ * The file mapping is released when the dictionary is garbage collected.
+ * Instances are immutable and can be shared by many threads.
+ * <pre>
+ * File layout (big endian):
+ *   header: magic, version, CRC32 of the rest of the file, key count,
+ *           concept count, key chars offset, concept data offset, 
+ *           file length
+ *   int[keyCount + 1]      first char of each key in the key chars
+ *   int[keyCount]          concept ordinal of each key (keys are sorted)
+ *   int[conceptCount + 1]  first byte of each concept in the concept data
+ *   char[]                 key chars
+ *   byte[]                 concept data: id, treeId, abbreviation, 
+ *                          descriptors, synonyms and categories
+ * </pre>
+ * @author agent
+ * date: 20261017
+ */
+public class MappedDecsDictionary extends AbstractMap<String,DecsSyn> 
+                                                 implements DecsDictionary {
+    /**
+     * file magic number ("DECS")
+     */
+    public static final int MAGIC = 0x44454353;
+    /**
+     * current file format version
+     */
+    public static final int VERSION = 1;
+    
+    static final int HEADER_SIZE = 36;
+    static final int CHECKSUM_POS = 8;
+    
+    private final File file;
+    private final ByteBuffer buffer;
+    private final int keyCount;
+    private final int conceptCount;
+    private final int ordinalOffset;
+    private final int conceptOffset;
+    private final int keyCharsOffset;
+    private final int conceptDataOffset;
+    private Set<Map.Entry<String,DecsSyn>> entrySet;
+    
+    /**
+     * Maps the dictionary file and verifies its checksum.
+     * @param file - dictionary file
+     * @throws IOException if the file is not a valid dictionary file
+     */
+    public MappedDecsDictionary(final File file) throws IOException {
+        this(file, true);
+    }
+    
+    /**
+     * Maps the dictionary file. The checksum verification reads the whole
+     * file once and can be skipped for files already verified.
+     * @param file - dictionary file
+     * @param verify - verifies the file checksum
+     * @throws IOException if the file is not a valid dictionary file
+     */
+    public MappedDecsDictionary(final File file,
+                                final boolean verify) throws IOException {
+        if (file == null) {
+            throw new NullPointerException("file");
+        }
+        this.file = file;
+        
+        final FileChannel channel = FileChannel.open(file.toPath(), 
+                                                     StandardOpenOption.READ);
+        try {
+            final long length = channel.size();
+            if (length < HEADER_SIZE) {
+                throw new IOException("invalid dictionary file: " + file);
+            }
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("dictionary file too large: " + file);
+            }
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, 
+                                                                      length);
+        } finally {
+            channel.close();  // the mapping remains valid
+        }
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("invalid dictionary file: " + file);
+        }
+        final int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("unsupported dictionary version: " + 
+                                                                      version);
+        }
+        this.keyCount = buffer.getInt(16);
+        this.conceptCount = buffer.getInt(20);
+        this.keyCharsOffset = buffer.getInt(24);
+        this.conceptDataOffset = buffer.getInt(28);
+        if (buffer.getInt(32) != buffer.capacity()) {
+            throw new IOException("truncated dictionary file: " + file);
+        }
+        if (verify && (getChecksum(buffer) != buffer.getLong(CHECKSUM_POS))) {
+            throw new IOException("dictionary file checksum error: " + file);
+        }
+        this.ordinalOffset = HEADER_SIZE + 4 * (keyCount + 1);
+        this.conceptOffset = ordinalOffset + 4 * keyCount;
+    }
+    
+    /**
+     * @param buffer - dictionary file content
+     * @return the CRC32 of the file content after the header
+     */
+    static long getChecksum(final ByteBuffer buffer) {
+        assert buffer != null;
+        
+        final ByteBuffer body = buffer.duplicate();
+        final byte[] chunk = new byte[64 * 1024];
+        final CRC32 crc = new CRC32();
+        
+        body.position(HEADER_SIZE);
+        while (body.hasRemaining()) {
+            final int len = Math.min(chunk.length, body.remaining());
+            body.get(chunk, 0, len);
+            crc.update(chunk, 0, len);
+        }
+        
+        return crc.getValue();
+    }
+    
+    /**
+     * @return the dictionary file
+     */
+    public File getFile() {
+        return file;
+    }
+    
+    /**
+     * @return dictionary file size in bytes
+     */
+    public int getFileSize() {
+        return buffer.capacity();
+    }
+    
+    /**
+     * Decodes a concept from the mapped file. Each call creates a new 
+     * DecsSyn.
+     * @param ordinal - concept ordinal
+     * @return the concept with the given ordinal
+     */
+    @Override
+    public DecsSyn getConcept(final int ordinal) {
+        if ((ordinal < 0) || (ordinal >= conceptCount)) {
+            throw new IndexOutOfBoundsException("ordinal: " + ordinal);
+        }
+        int pos = conceptDataOffset + 
+                                    buffer.getInt(conceptOffset + 4 * ordinal);
+        final String id = getString(pos);
+        pos = skipString(pos);
+        final String treeId = getString(pos);
+        pos = skipString(pos);
+        final String abbreviation = getString(pos);
+        pos = skipString(pos);
+        
+        // the compiler writes the synonyms and categories sorted
+        final String[] descriptor = getStrings(pos);
+        pos = skipStrings(pos);
+        final String[] synonym = getStrings(pos);
+        pos = skipStrings(pos);
+        final String[] category = getStrings(pos);
+        final DecsSyn syn = new DecsSyn(id, treeId, abbreviation, descriptor, 
+                                                            synonym, category);
+        
+        return syn;
+    }
+    
+    /**
+     * @return number of distinct concepts
+     */
+    @Override
+    public int getConceptCount() {
+        return conceptCount;
+    }
+    
+    /**
+     * @param key - normalized term
+     * @return the concept ordinal of the key or -1 if the key is not found
+     */
+    public int getOrdinal(final String key) {
+        if (key == null) {
+            throw new NullPointerException("key");
+        }
+        return getOrdinal(key, 0, key.length() - 1);
+    }
+    
+    /**
+     * Looks up a key without creating a string.
+     * @param in - input chars
+     * @param begin - key initial position
+     * @param end - key last position
+     * @return the concept ordinal of in[begin, end] or -1 if it is not a key
+     */
+    @Override
+    public int getOrdinal(final CharSequence in,
+                          final int begin,
+                          final int end) {
+        if (in == null) {
+            throw new NullPointerException("in");
+        }
+        int low = 0;
+        int high = keyCount - 1;
+        int ordinal = -1;
+        
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int kbegin = keyCharsOffset + 2 * getKeyStart(mid);
+            final int kend = keyCharsOffset + 2 * getKeyStart(mid + 1);
+            int kpos = kbegin;
+            int pos = begin;
+            int cmp = 0;
+            
+            while ((cmp == 0) && (kpos < kend) && (pos <= end)) {
+                cmp = buffer.getChar(kpos) - in.charAt(pos);
+                kpos += 2;
+                pos++;
+            }
+            if (cmp == 0) {
+                cmp = (kend - kpos) / 2 - (end - pos + 1);
+            }
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                ordinal = buffer.getInt(ordinalOffset + 4 * mid);
+                break;
+            }
+        }
+        
+        return ordinal;
+    }
+    
+    /**
+     * Looks up a key without creating a string.
+     * @param in - input chars
+     * @param begin - key initial position
+     * @param end - key last position
+     * @return the concept ordinal of in[begin, end] or -1 if it is not a key
+     */
+    @Override
+    public int getOrdinal(final char[] in,
+                          final int begin,
+                          final int end) {
+        if (in == null) {
+            throw new NullPointerException("in");
+        }
+        int low = 0;
+        int high = keyCount - 1;
+        int ordinal = -1;
+        
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int kbegin = keyCharsOffset + 2 * getKeyStart(mid);
+            final int kend = keyCharsOffset + 2 * getKeyStart(mid + 1);
+            int kpos = kbegin;
+            int pos = begin;
+            int cmp = 0;
+            
+            while ((cmp == 0) && (kpos < kend) && (pos <= end)) {
+                cmp = buffer.getChar(kpos) - in[pos];
+                kpos += 2;
+                pos++;
+            }
+            if (cmp == 0) {
+                cmp = (kend - kpos) / 2 - (end - pos + 1);
+            }
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                ordinal = buffer.getInt(ordinalOffset + 4 * mid);
+                break;
+            }
+        }
+        
+        return ordinal;
+    }
+    
+    @Override
+    public DecsSyn get(final Object key) {
+        final DecsSyn syn;
+        
+        if (key instanceof String) {
+            final int ordinal = getOrdinal((String)key);
+            syn = (ordinal == -1) ? null : getConcept(ordinal);
+        } else {
+            syn = null;
+        }
+        
+        return syn;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return (key instanceof String) && (getOrdinal((String)key) != -1);
+    }
+    
+    @Override
+    public int size() {
+        return keyCount;
+    }
+    
+    @Override
+    public Set<Map.Entry<String,DecsSyn>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Map.Entry<String,DecsSyn>>() {
+                @Override
+                public Iterator<Map.Entry<String,DecsSyn>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return keyCount;
+                }
+            };
+        }
+        return entrySet;
+    }
+    
+    private int getKeyStart(final int key) {
+        return buffer.getInt(HEADER_SIZE + 4 * key);
+    }
+    
+    private String getKey(final int key) {
+        final int begin = getKeyStart(key);
+        final char[] chars = new char[getKeyStart(key + 1) - begin];
+        
+        for (int idx = 0; idx < chars.length; idx++) {
+            chars[idx] = buffer.getChar(keyCharsOffset + 2 * (begin + idx));
+        }
+        
+        return new String(chars);
+    }
+    
+    /**
+     * @param pos - position of a string (length followed by the chars)
+     * @return the string or null
+     */
+    private String getString(final int pos) {
+        final int len = buffer.getInt(pos);
+        final String str;
+        
+        if (len == -1) {
+            str = null;
+        } else {
+            final char[] chars = new char[len];
+            for (int idx = 0; idx < len; idx++) {
+                chars[idx] = buffer.getChar(pos + 4 + 2 * idx);
+            }
+            str = new String(chars);
+        }
+        
+        return str;
+    }
+    
+    /**
+     * @param pos - position of a string (length followed by the chars)
+     * @return the position after the string
+     */
+    private int skipString(final int pos) {
+        final int len = buffer.getInt(pos);
+        
+        return (len == -1) ? pos + 4 : pos + 4 + 2 * len;
+    }
+    
+    /**
+     * @param pos - position of a string list (count followed by the strings)
+     * @return the strings
+     */
+    private String[] getStrings(final int pos) {
+        final String[] strs = new String[buffer.getInt(pos)];
+        int cur = pos + 4;
+        
+        for (int idx = 0; idx < strs.length; idx++) {
+            strs[idx] = getString(cur);
+            cur = skipString(cur);
+        }
+        
+        return strs;
+    }
+    
+    /**
+     * @param pos - position of a string list (count followed by the strings)
+     * @return the position after the string list
+     */
+    private int skipStrings(final int pos) {
+        final int count = buffer.getInt(pos);
+        int cur = pos + 4;
+        
+        for (int idx = 0; idx < count; idx++) {
+            cur = skipString(cur);
+        }
+        
+        return cur;
+    }
+    
+    private class EntryIterator implements Iterator<Map.Entry<String,DecsSyn>> {
+        private int current = 0;
+        
+        @Override
+        public boolean hasNext() {
+            return current < keyCount;
+        }
+
+        @Override
+        public Map.Entry<String,DecsSyn> next() {
+            if (current >= keyCount) {
+                throw new NoSuchElementException();
+            }
+            final Map.Entry<String,DecsSyn> entry = 
+                    new AbstractMap.SimpleImmutableEntry<String,DecsSyn>(
+                                                getKey(current), getConcept(
+                                   buffer.getInt(ordinalOffset + 4 * current)));
+            current++;
+            
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Builds the same map as IndexDecs using many threads. The calling thread
+ * parses the XML and only collects the raw text of each term. Batches of
+ * raw terms are normalized (see IndexDecs.getNormText) and turned into
+ * DecsSyn objects by a pool of worker threads, and the resulting terms are merged into the 
+ * map in document order, so duplicated keys are detected and reported as 
+ * IndexDecs does.
+ * @author agent
+ * date: 20261017
+ */
+public class ParallelIndexDecs {
+    /**
+     * default number of terms normalized by each task
+     */
+    public static final int DEF_BATCH_SIZE = 256;
+    
+    private final int threads;
+    private final int batchSize;
+    private volatile DecsStringPool strings;
+    
+    public ParallelIndexDecs() {
+        this(Runtime.getRuntime().availableProcessors(), DEF_BATCH_SIZE);
+    }
+    
+    /**
+     * @param threads - number of worker threads
+     * @param batchSize - number of terms normalized by each task
+     */
+    public ParallelIndexDecs(final int threads,
+                             final int batchSize) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads[" + threads + "] < 1");
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize[" + batchSize + 
+                                                                      "] < 1");
+        }
+        this.threads = threads;
+        this.batchSize = batchSize;
+    }
+    
+    public HashMap<String,DecsSyn> indexTerms(final String xml) 
+                                            throws ParserConfigurationException, 
+                                                     SAXException, IOException {
+        if (xml == null) {
+            throw new NullPointerException("xml");
+        }
+        final SAXParserFactory factory = SAXParserFactory.newInstance();                        
+        final InputSource xmlInput = new InputSource(xml);
+        xmlInput.setEncoding("ISO-8859-1");
+        
+        final SAXParser sax = factory.newSAXParser();
+        final XMLReader reader = sax.getXMLReader();
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        final DecsStringPool lstrings = new DecsStringPool();
+        final Loader loader = new Loader(pool, lstrings);
+        
+        try {
+            reader.setEntityResolver(null);
+            reader.setContentHandler(loader);
+            reader.parse(xmlInput);
+            loader.finish();
+        } finally {
+            pool.shutdownNow();
+            lstrings.clear();
+            strings = lstrings;
+        }
+        
+        return loader.map;
+    }
+    
+    /**
+     * @return the string pool of the last indexTerms() call (its counters 
+     * report the strings shared) or null if it was not called
+     */
+    public DecsStringPool getStringPool() {
+        return strings;
+    }
+    
+    /**
+     * Raw text of a term
+     */
+    private static class RawTerm {
+        private final String id;
+        private final List<String> descriptors = new ArrayList<String>(3);
+        private final List<String> synonyms = new ArrayList<String>();
+        private final List<String> categories = new ArrayList<String>();
+        private final List<String> abbreviations = new ArrayList<String>(1);
+        
+        RawTerm(final String id) {
+            this.id = id;
+        }
+    }
+    
+    /**
+     * SAX handler that collects raw terms and merges the normalized ones.
+     */
+    private class Loader extends DefaultHandler {
+        private final HashMap<String,DecsSyn> map;
+        private final ExecutorService pool;
+        private final DecsStringPool strings;
+        private final ArrayDeque<Future<List<DecsSyn>>> pending;
+        private final StringBuilder elementBuffer;
+        private List<RawTerm> batch;
+        private RawTerm current;
+        
+        Loader(final ExecutorService pool,
+               final DecsStringPool strings) {
+            this.map = new HashMap<String,DecsSyn>();
+            this.pool = pool;
+            this.strings = strings;
+            this.pending = new ArrayDeque<Future<List<DecsSyn>>>();
+            this.elementBuffer = new StringBuilder();
+            this.batch = new ArrayList<RawTerm>(batchSize);
+        }
+        
+        @Override
+        public void startElement(final String uri, 
+                                 final String localName, 
+                                 final String qName, 
+                                 final Attributes atts) throws SAXException {
+            if (qName.equals("term")) {
+                current = new RawTerm(atts.getValue("mfn"));
+            }
+            elementBuffer.setLength(0);
+        }
+
+        @Override
+        public void characters(final char[] text, 
+                               final int start, 
+                               final int length) {
+            elementBuffer.append(text, start, length);
+        }
+        
+        @Override
+        public void endElement(final String uri, 
+                               final String localName, 
+                               final String qName) throws SAXException {
+            if (current != null) {
+                if (qName.equals("descriptor")) {
+                    current.descriptors.add(elementBuffer.toString());
+                } else if (qName.equals("synonym")) {
+                    current.synonyms.add(elementBuffer.toString());
+                } else if (qName.equals("category")) {
+                    current.categories.add(elementBuffer.toString());
+                } else if (qName.equals("abbreviation")) {
+                    current.abbreviations.add(elementBuffer.toString());
+                } else if (qName.equals("term")) {
+                    batch.add(current);
+                    current = null;
+                    if (batch.size() == batchSize) {
+                        try {
+                            submit();
+                        } catch (IOException ioe) {
+                            throw new SAXException(ioe);
+                        }
+                    }
+                }
+            }
+        }
+        
+        /**
+         * Normalizes the last batch and merges all pending ones.
+         */
+        void finish() throws IOException {
+            if (!batch.isEmpty()) {
+                submit();
+            }
+            while (!pending.isEmpty()) {
+                mergeHead();
+            }
+        }
+        
+        /**
+         * Sends the current batch to the pool and merges the batches already
+         * done. The parser waits if too many batches are pending.
+         */
+        private void submit() throws IOException {
+            pending.add(pool.submit(new Normalizer(batch, strings)));
+            batch = new ArrayList<RawTerm>(batchSize);
+            
+            while (!pending.isEmpty() && (pending.peek().isDone() || 
+                                           (pending.size() > 2 * threads))) {
+                mergeHead();
+            }
+        }
+        
+        private void mergeHead() throws IOException {
+            final List<DecsSyn> syns;
+            
+            try {
+                syns = pending.poll().get();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } catch (ExecutionException ee) {
+                throw new IOException(ee.getCause());
+            }
+            for (DecsSyn syn : syns) {
+                try {
+                    IndexDecs.put(map, syn);
+                } catch (IOException ioe) {
+                    Logger.getGlobal().warning(ioe.getMessage());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Worker task that normalizes a batch of raw terms.
+     */
+    private class Normalizer implements Callable<List<DecsSyn>> {
+        private final List<RawTerm> batch;
+        private final DecsStringPool strings;
+        
+        Normalizer(final List<RawTerm> batch,
+                   final DecsStringPool strings) {
+            this.batch = batch;
+            this.strings = strings;
+        }
+        
+        @Override
+        public List<DecsSyn> call() {
+            final List<DecsSyn> syns = new ArrayList<DecsSyn>(batch.size());
+            final DecsSynBuilder syn = new DecsSynBuilder();
+            
+            for (RawTerm raw : batch) {
+                syn.clear().setId(raw.id);
+                for (String text : raw.descriptors) {
+                    syn.addDescriptor(IndexDecs.getNormText(text, strings));
+                }
+                for (String text : raw.synonyms) {
+                    syn.addSynonym(IndexDecs.getNormText(text, strings));
+                }
+                for (String text : raw.categories) {
+                    syn.addCategory(IndexDecs.getNormText(text, strings));
+                }
+                for (String text : raw.abbreviations) {
+                    syn.setAbbreviation(IndexDecs.getNormText(text, strings));
+                }
+                syns.add(syn.build());
+            }
+            
+            return syns;
+        }
+    }
+}
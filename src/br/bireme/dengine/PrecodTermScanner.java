@@ -0,0 +1,481 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Finds precodified terms ( ^d11111 or ^d11111^s22222 ) with a single pass
+ * over the input chars. The ^d id and the optional ^s qualifier id are mfn
+ * keys of the DeCS map; the qualifier, if found, is stored in
+ * FoundTerm.getQualifier().
+ * Strings are only created for the ids of well formed precodified terms (and
+ * not even for them if the map is a DecsDictionary). With a DecsConcepts
+ * table, the ids are resolved to concept ordinals through an int indexed
+ * array, without hashing strings, and the terms added to a FoundTermBuffer
+ * create no objects.
+ * @author agent
+ * date: 20261017
+ */
+public class PrecodTermScanner {
+    /**
+     * maximum number of digits of a precodified id
+     */
+    public static final int MAX_ID_SIZE = 7;
+    
+    /**
+     * Looks for whitespace separated precodified tokens. A token is
+     * [punctuation]^d<id>[punctuation] or ^d<id> followed by subfields
+     * (^s<qualifier id>^x...). Tokens overlapping terms already in foundTerms
+     * are skipped.
+     * @param str - the input string
+     * @param decs - set of DeCS descrptors and qualifiers
+     * @param foundTerms - set of DeCS terms found in input string
+     */
+    public static void addTerms(final String str,
+                                final Map<String,DecsSyn> decs,
+                                final TreeSet<FoundTerm> foundTerms) {
+        if (decs == null) {
+            throw new NullPointerException("decs");
+        }
+        addTerms(str, decs, null, foundTerms);
+    }
+    
+    /**
+     * Looks for whitespace separated precodified tokens (see addTerms). The
+     * found terms carry the concept ordinals.
+     * @param str - the input string
+     * @param concepts - concept ordinals of the DeCS map
+     * @param foundTerms - set of DeCS terms found in input string
+     */
+    public static void addTerms(final String str,
+                                final DecsConcepts concepts,
+                                final TreeSet<FoundTerm> foundTerms) {
+        if (concepts == null) {
+            throw new NullPointerException("concepts");
+        }
+        addTerms(str, null, concepts, foundTerms);
+    }
+    
+    /**
+     * Either decs or concepts is null.
+     */
+    private static void addTerms(final String str,
+                                 final Map<String,DecsSyn> decs,
+                                 final DecsConcepts concepts,
+                                 final TreeSet<FoundTerm> foundTerms) {
+        if (str == null) {
+            throw new NullPointerException("str");
+        }
+        if (foundTerms == null) {
+            throw new NullPointerException("foundTerms");
+        }
+        if (str.indexOf('^') != -1) {  // no precodified terms otherwise
+            final int len = str.length();
+            final Iterator<FoundTerm> found = foundTerms.iterator();
+            FoundTerm next = found.hasNext() ? found.next() : null;
+            FoundTermBuffer precod = null;
+            int pos = 0;
+
+            while (pos < len) {
+                while ((pos < len) && isWhite(str.charAt(pos))) {
+                    pos++;
+                }
+                final int tbegin = pos;
+                while ((pos < len) && !isWhite(str.charAt(pos))) {
+                    pos++;
+                }
+                final int tend = pos - 1;
+
+                if (tbegin <= tend) {
+                    // skips the terms that end before this token
+                    while ((next != null) && (getEnd(next) < tbegin)) {
+                        next = found.hasNext() ? found.next() : null;
+                    }
+                    if ((next == null) || (next.getBeginPos() > tend)) {
+                        if (precod == null) {
+                            precod = new FoundTermBuffer();
+                            precod.setConcepts(concepts);
+                        }
+                        getToken(str, tbegin, tend, decs, concepts, precod);
+                    }
+                }
+            }
+            if (precod != null) {
+                precod.addFoundTerms(str, 
+                     (concepts == null) ? decs : concepts.getDecs(), 
+                                                                 foundTerms);
+            }
+        }
+    }
+    
+    /**
+     * Looks for whitespace separated precodified tokens (see addTerms) and 
+     * adds them to a buffer sorted by initial position. Tokens overlapping 
+     * the terms already in the buffer are skipped. The found terms carry the
+     * concept ordinals.
+     * @param str - the input string
+     * @param concepts - concept ordinals of the DeCS map
+     * @param found - buffer of the DeCS terms found in input string
+     */
+    static void addTerms(final String str,
+                         final DecsConcepts concepts,
+                         final FoundTermBuffer found) {
+        assert str != null;
+        assert found != null;
+        
+        addTerms(str, null, concepts, found);
+    }
+    
+    /**
+     * See addTerms above. Either decs or concepts is null.
+     */
+    static void addTerms(final String str,
+                         final Map<String,DecsSyn> decs,
+                         final DecsConcepts concepts,
+                         final FoundTermBuffer found) {
+        assert str != null;
+        assert found != null;
+        
+        if (str.indexOf('^') != -1) {  // no precodified terms otherwise
+            final int len = str.length();
+            final int size = found.size();
+            int next = 0;
+            int pos = 0;
+
+            found.sort();
+            while (pos < len) {
+                while ((pos < len) && isWhite(str.charAt(pos))) {
+                    pos++;
+                }
+                final int tbegin = pos;
+                while ((pos < len) && !isWhite(str.charAt(pos))) {
+                    pos++;
+                }
+                final int tend = pos - 1;
+
+                if (tbegin <= tend) {
+                    // skips the terms that end before this token
+                    while ((next < size) && (found.getLastPos(next) < tbegin)) {
+                        next++;
+                    }
+                    if ((next == size) || (found.getBegin(next) > tend)) {
+                        getToken(str, tbegin, tend, decs, concepts, found);
+                    }
+                }
+            }
+            found.sort();
+        }
+    }
+    
+    /**
+     * Checks if the whole string (surrounded or not by whitespaces) is a
+     * precodified term ^d<id> or ^d<id>^s<qualifier id>.
+     * @param str - the input string
+     * @param decs - set of DeCS descrptors and qualifiers
+     * @return the found term or null
+     */
+    public static FoundTerm getSentenceTerm(final String str,
+                                            final Map<String,DecsSyn> decs) {
+        if (decs == null) {
+            throw new NullPointerException("decs");
+        }
+        return getSentenceTerm(str, decs, null);
+    }
+    
+    /**
+     * Checks if the whole string is a precodified term (see getSentenceTerm).
+     * The found term carries the concept ordinal.
+     * @param str - the input string
+     * @param concepts - concept ordinals of the DeCS map
+     * @return the found term or null
+     */
+    public static FoundTerm getSentenceTerm(final String str,
+                                            final DecsConcepts concepts) {
+        if (concepts == null) {
+            throw new NullPointerException("concepts");
+        }
+        return getSentenceTerm(str, null, concepts);
+    }
+    
+    /**
+     * Either decs or concepts is null.
+     */
+    private static FoundTerm getSentenceTerm(final String str,
+                                             final Map<String,DecsSyn> decs,
+                                             final DecsConcepts concepts) {
+        if (str == null) {
+            throw new NullPointerException("str");
+        }
+        final FoundTermBuffer found = new FoundTermBuffer(1);
+        
+        found.setConcepts(concepts);
+        
+        return addSentenceTerm(str, decs, concepts, found) 
+              ? found.getFoundTerm(0, str, 
+                            (concepts == null) ? decs : concepts.getDecs())
+              : null;
+    }
+    
+    /**
+     * Checks if the whole string is a precodified term (see getSentenceTerm)
+     * and adds it to a buffer. The found term carries the concept ordinal.
+     * @param str - the input string
+     * @param concepts - concept ordinals of the DeCS map
+     * @param found - buffer of the DeCS terms found in input string
+     * @return true if the term was found
+     */
+    static boolean addSentenceTerm(final String str,
+                                   final DecsConcepts concepts,
+                                   final FoundTermBuffer found) {
+        assert str != null;
+        assert concepts != null;
+        assert found != null;
+        
+        return addSentenceTerm(str, null, concepts, found);
+    }
+    
+    /**
+     * Either decs or concepts is null.
+     */
+    private static boolean addSentenceTerm(final String str,
+                                           final Map<String,DecsSyn> decs,
+                                           final DecsConcepts concepts,
+                                           final FoundTermBuffer found) {
+        boolean added = false;
+        
+        if (str.indexOf('^') != -1) {
+            int begin = 0;
+            int end = str.length() - 1;
+            
+            while ((begin <= end) && isWhite(str.charAt(begin))) {
+                begin++;
+            }
+            while ((end >= begin) && isWhite(str.charAt(end))) {
+                end--;
+            }
+            final int idEnd = getIdEnd(str, begin, end, 'd');
+            
+            if (idEnd == end) {
+                added = addTerm(str, begin, begin + 2, idEnd, -1, -1, end, 
+                                                        decs, concepts, found);
+            } else if (idEnd != -1) {
+                final int qidEnd = getIdEnd(str, idEnd + 1, end, 's');
+                if (qidEnd == end) {
+                    added = addTerm(str, begin, begin + 2, idEnd, idEnd + 1, 
+                                          qidEnd, end, decs, concepts, found);
+                }
+            }
+        }
+        
+        return added;
+    }
+    
+    /**
+     * Parses the token str[begin, end] (no whitespaces inside) and adds its
+     * term to the buffer.
+     * @return true if the term was found
+     */
+    private static boolean getToken(final String str,
+                                    final int begin,
+                                    final int end,
+                                    final Map<String,DecsSyn> decs,
+                                    final DecsConcepts concepts,
+                                    final FoundTermBuffer found) {
+        boolean added = false;
+        
+        // leading punctuation
+        int pos = begin;
+        while ((pos <= end) && !isWordChar(str.charAt(pos))) {
+            pos++;
+        }
+        final int idEnd = (pos > begin) ? getIdEnd(str, pos - 1, end, 'd') 
+                                        : -1;
+        if (idEnd != -1) {
+            final int rest = end - idEnd;  // chars after the id
+            boolean punctuation = true;
+            
+            for (int cur = idEnd + 1; cur <= end; cur++) {
+                if (isWordChar(str.charAt(cur))) {
+                    punctuation = false;
+                    break;
+                }
+            }
+            // the term begins at the whitespace before it (see possibleStart)
+            final int tbegin = (begin == 0) ? 0 : begin - 1;
+            
+            if (punctuation) {
+                added = addTerm(str, tbegin, pos + 1, idEnd, -1, -1, end, 
+                                                        decs, concepts, found);
+            } else if ((rest >= 3) && (str.charAt(idEnd + 1) == '^') &&
+                                          isWordChar(str.charAt(idEnd + 2))) {
+                // subfields: looks for the ^s one
+                int qbegin = -1;
+                int qidEnd = -1;
+                
+                for (int cur = idEnd + 1; cur < end; cur++) {
+                    if (str.charAt(cur) == '^') {
+                        final int sEnd = getIdEnd(str, cur, end, 's');
+                        if ((sEnd != -1) && ((sEnd == end) || 
+                                              (str.charAt(sEnd + 1) == '^'))) {
+                            qbegin = cur;
+                            qidEnd = sEnd;
+                            break;
+                        }
+                    }
+                }
+                added = addTerm(str, tbegin, pos + 1, idEnd, qbegin, qidEnd,
+                                                   end, decs, concepts, found);
+            }
+        }
+        
+        return added;
+    }
+    
+    /**
+     * Checks for ^<subfield><digits> at str[begin].
+     * @return the position of the last digit or -1 if it is not a valid 
+     * subfield 
+     */
+    private static int getIdEnd(final String str,
+                                final int begin,
+                                final int end,
+                                final char subfield) {
+        int idEnd = -1;
+        
+        if ((begin + 2 <= end) && (str.charAt(begin) == '^') && 
+            (Character.toLowerCase(str.charAt(begin + 1)) == subfield)) {
+            int pos = begin + 2;
+            while ((pos <= end) && isDigit(str.charAt(pos))) {
+                pos++;
+            }
+            final int size = pos - begin - 2;
+            if ((size > 0) && (size <= MAX_ID_SIZE) && 
+                ((pos > end) || !isDigit(str.charAt(pos)))) {
+                idEnd = pos - 1;
+            }
+        }
+        
+        return idEnd;
+    }
+    
+    /**
+     * Adds to the buffer the found term of ^d<id> (id at str[idBegin, idEnd])
+     * with optional qualifier ^s<id> at str[qbegin, qidEnd]. The found term
+     * spans str[begin, end]. The ids are looked up in decs or, if it is 
+     * null, in concepts.
+     * @return true if the term was added, false if the ids are not DeCS keys
+     */
+    private static boolean addTerm(final String str,
+                                   final int begin,
+                                   final int idBegin,
+                                   final int idEnd,
+                                   final int qbegin,
+                                   final int qidEnd,
+                                   final int end,
+                                   final Map<String,DecsSyn> decs,
+                                   final DecsConcepts concepts,
+                                   final FoundTermBuffer found) {
+        final int ordinal = (concepts == null) ? DecsConcepts.NO_ORDINAL
+                            : concepts.getIdOrdinal(str, idBegin, idEnd);
+        final DecsSyn syn = (concepts == null) 
+                                   ? getSyn(str, idBegin, idEnd, decs)
+                                   : getConcept(ordinal, concepts);
+        boolean added = false;
+        
+        if (syn != null) {
+            final int qordinal = ((concepts == null) || (qbegin == -1))
+                                 ? DecsConcepts.NO_ORDINAL
+                                 : concepts.getIdOrdinal(str, qbegin + 2, 
+                                                                       qidEnd);
+            final DecsSyn qsyn;
+            
+            if (qbegin == -1) {
+                qsyn = null;
+            } else if (concepts == null) {
+                qsyn = getSyn(str, qbegin + 2, qidEnd, decs);
+            } else {
+                qsyn = getConcept(qordinal, concepts);
+            }
+            if (qsyn == null) {
+                found.add(begin, end, ordinal, idBegin, idEnd, true);
+            } else {
+                final int index = found.add(begin, qbegin - 1, ordinal, 
+                                                       idBegin, idEnd, true);
+                found.setQualifier(index, qbegin, end, qordinal, qbegin + 2,
+                                                                      qidEnd);
+            }
+            added = true;
+        }
+        
+        return added;
+    }
+    
+    private static DecsSyn getConcept(final int ordinal,
+                                      final DecsConcepts concepts) {
+        return (ordinal == DecsConcepts.NO_ORDINAL) ? null 
+                                              : concepts.getConcept(ordinal);
+    }
+    
+    private static DecsSyn getSyn(final String str,
+                                  final int begin,
+                                  final int end,
+                                  final Map<String,DecsSyn> decs) {
+        final DecsSyn syn;
+        
+        if (decs instanceof DecsDictionary) {
+            final DecsDictionary dict = (DecsDictionary)decs;
+            final int ordinal = dict.getOrdinal(str, begin, end);
+            syn = (ordinal == -1) ? null : dict.getConcept(ordinal);
+        } else {
+            syn = decs.get(str.substring(begin, end + 1));
+        }
+        
+        return syn;
+    }
+    
+    private static int getEnd(final FoundTerm term) {
+        final FoundTerm qualifier = term.getQualifier();
+        
+        return (qualifier == null) ? term.getEndPos() : qualifier.getEndPos();
+    }
+    
+    private static boolean isWhite(final char ch) {
+        return (ch == ' ') || (ch == '\t') || (ch == '\n') || (ch == '\r') ||
+               (ch == '\f') || (ch == '\u000B');
+    }
+    
+    private static boolean isDigit(final char ch) {
+        return (ch >= '0') && (ch <= '9');
+    }
+    
+    /**
+     * @return true if ch is a regular expression word char [a-zA-Z_0-9]
+     */
+    private static boolean isWordChar(final char ch) {
+        return ((ch >= 'a') && (ch <= 'z')) || ((ch >= 'A') && (ch <= 'Z')) ||
+                isDigit(ch) || (ch == '_');
+    }
+}
@@ -0,0 +1,194 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import org.apache.lucene.analysis.CharFilter;
+
+/**
+ * Removes the accents and lower cases the chars read (see CharFolder). The
+ * chars are folded in place in the caller's buffer, without any intermediate
+ * string. Removed chars (combining marks) are recorded as offset corrections,
+ * so correctOffset() maps an offset of the folded text back to the original
+ * text (and through the input, if it is a CharFilter).
+ * The filter can be reused for another reader (see setReader), as
+ * DeCSTokenizer does for each document, so it keeps the corrections itself
+ * instead of extending BaseCharFilter, whose corrections can not be cleared.
+ * @author agent
+ * date: 20261017
+ */
+public class RemoveAccentsCharFilter extends CharFilter {
+    // Size above which the corrections are dropped by setReader
+    private static final int MAX_CORRECTIONS = 16 * 1024;
+    
+    private int outputOffset;   // number of chars returned so far
+    private int cumulativeDiff; // number of chars removed so far
+    private int[] offsets;      // output offsets of the corrections
+    private int[] diffs;        // cumulative diff at each offset
+    private int size;           // number of corrections
+
+    public RemoveAccentsCharFilter(final Reader in) {
+        this(new InputReader(in));
+    }
+    
+    private RemoveAccentsCharFilter(final InputReader in) {
+        super(in);
+        this.offsets = new int[64];
+        this.diffs = new int[64];
+    }
+    
+    /**
+     * Makes the filter read from another reader, as if it were created with
+     * it. The current reader is not closed.
+     * @param in - the new input reader
+     */
+    void setReader(final Reader in) {
+        ((InputReader)input).setReader(in);
+        outputOffset = 0;
+        cumulativeDiff = 0;
+        size = 0;
+        if (offsets.length > MAX_CORRECTIONS) {
+            offsets = new int[64];
+            diffs = new int[64];
+        }
+    }
+
+    @Override
+    public int read(final char[] chars,
+                    final int off,
+                    final int len) throws IOException {
+        int ret = 0;
+
+        if (len > 0) {
+            // reads again if all chars read were removed
+            while (ret == 0) {
+                final int tot = input.read(chars, off, len);
+
+                ret = (tot == -1) ? -1 : fold(chars, off, tot);
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * @param currentOff - offset of the folded text
+     * @return offset of the text read from the input reader
+     */
+    @Override
+    protected int correct(final int currentOff) {
+        // last correction at or before currentOff
+        int lo = 0;
+        int hi = size - 1;
+        
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            
+            if (offsets[mid] <= currentOff) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        final int corrected = (hi == -1) ? currentOff 
+                                         : currentOff + diffs[hi];
+        final Reader reader = ((InputReader)input).in;
+        
+        return (reader instanceof CharFilter) 
+                  ? ((CharFilter)reader).correctOffset(corrected) : corrected;
+    }
+
+    /**
+     * Folds chars[off, off+len) in place.
+     * @return the number of chars after folding
+     */
+    private int fold(final char[] chars,
+                     final int off,
+                     final int len) {
+        final int end = off + len;
+        int out = off;
+
+        for (int pos = off; pos < end; pos++) {
+            final char ch = CharFolder.fold(chars[pos]);
+
+            if (ch == CharFolder.REMOVED) {
+                cumulativeDiff++;
+                addCorrection(outputOffset + out - off, cumulativeDiff);
+            } else {
+                chars[out++] = ch;
+            }
+        }
+        outputOffset += out - off;
+
+        return out - off;
+    }
+    
+    private void addCorrection(final int offset,
+                               final int diff) {
+        assert (size == 0) || (offset >= offsets[size - 1]);
+        
+        if ((size > 0) && (offsets[size - 1] == offset)) {
+            diffs[size - 1] = diff;
+        } else {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+                diffs = Arrays.copyOf(diffs, size * 2);
+            }
+            offsets[size] = offset;
+            diffs[size++] = diff;
+        }
+    }
+    
+    /**
+     * The input of the filter: a reader that passes the reads to the current
+     * input reader.
+     */
+    private static class InputReader extends Reader {
+        private Reader in;
+        
+        InputReader(final Reader in) {
+            setReader(in);
+        }
+        
+        void setReader(final Reader in) {
+            if (in == null) {
+                throw new NullPointerException("in");
+            }
+            this.in = in;
+        }
+        
+        @Override
+        public int read(final char[] chars,
+                        final int off,
+                        final int len) throws IOException {
+            return in.read(chars, off, len);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
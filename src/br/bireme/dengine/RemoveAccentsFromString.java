@@ -24,23 +24,19 @@ package br.bireme.dengine;
 
 import java.io.IOException;
 import java.io.Reader;
-import java.text.Normalizer;
-import java.text.Normalizer.Form;
 
 /**
- *
+ * Accent removal and lower casing of strings (see CharFolder).
  * @author Heitor Barbieri
  * date: 20141114
  */
 public class RemoveAccentsFromString {
     public static String removeAccents(final String text) {
-        return text == null ? null :
-            Normalizer.normalize(text, Form.NFD)
-            .replaceAll("\\p{InCombiningDiacriticalMarks}+", "");
+        return text == null ? null : CharFolder.removeAccents(text);
     }
     
     public static String filter(final String text) {
-        return text == null ? null : removeAccents(text).toLowerCase();
+        return text == null ? null : CharFolder.fold(text);
     }
     
     public static String filter(final Reader reader) throws IOException {
@@ -56,7 +52,7 @@ public class RemoveAccentsFromString {
             if (tot == -1) {
                 break;
             }
-            builder.append(filter(new String(buffer, 0, tot)));
+            builder.append(buffer, 0, CharFolder.fold(buffer, 0, tot));
         }
         reader.close();
         
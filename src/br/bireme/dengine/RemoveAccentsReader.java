@@ -26,10 +26,13 @@ import java.io.IOException;
 import java.io.Reader;
 
 /**
- *
+ * Removes the accents and lower cases the chars read (see CharFolder).
  * @author Heitor Barbieri
  * date: 20141126
+ * @deprecated does not correct the offsets of the removed chars, use
+ * RemoveAccentsCharFilter
  */
+@Deprecated
 public class RemoveAccentsReader extends Reader {
     private final Reader in;
     
@@ -45,20 +48,16 @@ public class RemoveAccentsReader extends Reader {
                     final int off, 
                     final int len) throws IOException {
         
-        final int ret;
-        final int tot = in.read(chars, off, len);
+        int ret = 0;
         
-        if (tot == -1) {
-            ret = -1;
-        } else {            
-            final String inStr = new String(chars, off, tot);
-            final String outStr = RemoveAccentsFromString.filter(inStr);
-            
-            ret = outStr.length();
-            for (int idx = off; idx < ret; idx++) {
-                chars[idx] = outStr.charAt(idx);
+        if (len > 0) {
+            // reads again if all chars read were removed
+            while (ret == 0) {
+                final int tot = in.read(chars, off, len);
+                
+                ret = (tot == -1) ? -1 : CharFolder.fold(chars, off, tot);
             }
-        }        
+        }
         
         return ret;
     }
@@ -0,0 +1,168 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.logging.Logger;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Builds the same map as IndexDecs pulling the XML with StAX. Each term is
+ * created once and added to a pre-sized DecsMapBuilder: there are no element
+ * paths, attribute maps, term clones or final map copy, so the load
+ * allocates little besides the map itself.
+ * @author agent
+ * date: 20261017
+ */
+public class StaxIndexDecs {
+    /**
+     * XML bytes per DeCS key, used to estimate the map size from the file 
+     * size
+     */
+    public static final int BYTES_PER_KEY = 64;
+    
+    private final XMLInputFactory factory;
+    private DecsStringPool strings;
+    
+    public StaxIndexDecs() {
+        factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, 
+                                                                        false);
+    }
+    
+    /**
+     * @param xml - DeCS XML file path
+     * @return the unmodifiable DeCS map
+     * @throws XMLStreamException
+     * @throws IOException 
+     */
+    public Map<String,DecsSyn> indexTerms(final String xml) 
+                                        throws XMLStreamException, IOException {
+        if (xml == null) {
+            throw new NullPointerException("xml");
+        }
+        final File file = new File(xml);
+        final int expectedKeys = (int)Math.min(Integer.MAX_VALUE / 2, 
+                                                file.length() / BYTES_PER_KEY);
+        final InputStream in = new BufferedInputStream(
+                                                    new FileInputStream(file));
+        try {
+            return indexTerms(in, expectedKeys);
+        } finally {
+            in.close();
+        }
+    }
+    
+    /**
+     * @param in - DeCS XML content (ISO-8859-1)
+     * @param expectedKeys - expected number of keys
+     * @return the unmodifiable DeCS map
+     * @throws XMLStreamException
+     * @throws IOException 
+     */
+    public Map<String,DecsSyn> indexTerms(final InputStream in,
+                                          final int expectedKeys) 
+                                        throws XMLStreamException, IOException {
+        if (in == null) {
+            throw new NullPointerException("in");
+        }
+        final DecsMapBuilder builder = new DecsMapBuilder(expectedKeys);
+        strings = new DecsStringPool(expectedKeys);
+        final XMLStreamReader reader = 
+                                factory.createXMLStreamReader(in, "ISO-8859-1");
+        try {
+            final DecsSynBuilder syn = new DecsSynBuilder();
+            boolean inTerm = false;
+            
+            while (reader.hasNext()) {
+                final int event = reader.next();
+                
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    final String name = reader.getLocalName();
+                    
+                    if (name.equals("term")) {
+                        syn.clear();
+                        syn.setId(reader.getAttributeValue(null, "mfn"));
+                        inTerm = true;
+                    } else if (inTerm) {
+                        addElement(syn, name, reader);
+                    }
+                } else if ((event == XMLStreamConstants.END_ELEMENT) && 
+                            inTerm && reader.getLocalName().equals("term")) {
+                    try {
+                        builder.add(syn.build());
+                    } catch (IOException ioe) {
+                        Logger.getGlobal().warning(ioe.getMessage());
+                    }
+                    inTerm = false;
+                }
+            }
+        } finally {
+            reader.close();
+            strings.clear();
+        }
+        
+        return builder.build();
+    }
+    
+    private void addElement(final DecsSynBuilder syn,
+                            final String name,
+                            final XMLStreamReader reader) 
+                                                    throws XMLStreamException {
+        assert syn != null;
+        assert name != null;
+        assert reader != null;
+        
+        if (name.equals("descriptor")) {
+            syn.addDescriptor(getNormText(reader));
+        } else if (name.equals("synonym")) {
+            syn.addSynonym(getNormText(reader));
+        } else if (name.equals("category")) {
+            syn.addCategory(getNormText(reader));
+        } else if (name.equals("abbreviation")) {
+            syn.setAbbreviation(getNormText(reader));
+        }
+    }
+    
+    private String getNormText(final XMLStreamReader reader) 
+                                                    throws XMLStreamException {
+        return IndexDecs.getNormText(reader.getElementText(), strings);
+    }
+    
+    /**
+     * @return the string pool of the last indexTerms() call (its counters 
+     * report the strings shared) or null if it was not called
+     */
+    public DecsStringPool getStringPool() {
+        return strings;
+    }
+}
@@ -0,0 +1,162 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import javax.xml.parsers.ParserConfigurationException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ *
+ * @author agent
+ * date: 20261017
+ */
+public class CharClassTableTest {
+    private static final String DECS_XML = "resources/decs/xml/decs-metadata.xml";
+    
+    private final Map<String,DecsSyn> decs;
+    
+    public CharClassTableTest() throws IOException, 
+                                                  ParserConfigurationException, 
+                                                                  SAXException {
+        decs = new IndexDecs().indexTerms(DECS_XML);
+    }
+    
+    private String toString(final Set<FoundTerm> terms) {
+        assert terms != null;
+        
+        final StringBuilder builder = new StringBuilder();
+        final Iterator<FoundTerm> it = terms.iterator();
+        
+        while (it.hasNext()) {
+            final FoundTerm term = it.next();
+            final FoundTerm qualif = term.getQualifier();
+            
+            builder.append("[").append(term.getTerm()).append(":")
+                   .append(term.getBeginPos()).append("->")
+                   .append(term.getEndPos());
+            if (qualif != null) {
+                builder.append(qualif.getTerm()).append(":")
+                       .append(qualif.getBeginPos()).append("->")
+                       .append(qualif.getEndPos());
+            }
+            builder.append("]");
+        }
+        
+        return builder.toString();
+    }
+    
+    private String getTerms(final DeCSLocator locator,
+                            final String in) {
+        assert locator != null;
+        assert in != null;
+        
+        return toString(locator.getTerms(RemoveAccentsFromString.filter(in), 
+                                                                 decs, false));
+    }
+    
+    /**
+     * Test of the default table.
+     */
+    @Test
+    public void testDefault() {
+        System.out.println("testDefault");
+        
+        final CharClassTable classes = CharClassTable.DEFAULT;
+        
+        assertEquals(BoundaryDetector.WHITE, classes.getCharClass(' '));
+        assertEquals(BoundaryDetector.WHITE, classes.getCharClass('\n'));
+        assertEquals(BoundaryDetector.WHITE, classes.getCharClass('\u00A0'));
+        assertEquals(BoundaryDetector.WHITE, classes.getCharClass('\u2009'));
+        assertEquals(BoundaryDetector.WHITE, classes.getCharClass('\u3000'));
+        assertEquals(BoundaryDetector.DELIMITER, classes.getCharClass(','));
+        assertEquals(BoundaryDetector.DELIMITER, classes.getCharClass('º'));
+        assertEquals(BoundaryDetector.DELIMITER, classes.getCharClass('\u2013'));
+        assertEquals(BoundaryDetector.DELIMITER, classes.getCharClass('\u2014'));
+        assertEquals(BoundaryDetector.DELIMITER, classes.getCharClass('\u3002'));
+        assertEquals(BoundaryDetector.DELIMITER, classes.getCharClass('\uFF0C'));
+        assertEquals(BoundaryDetector.WORD, classes.getCharClass('a'));
+        assertEquals(BoundaryDetector.WORD, classes.getCharClass('é'));
+        assertEquals(BoundaryDetector.WORD, classes.getCharClass('\u4E2D'));
+        assertEquals(BoundaryDetector.WORD, classes.getCharClass('\u000B'));
+        assertTrue(classes.isBoundary('\u000B'));
+        assertTrue(!classes.isWordChar('\u2014'));
+        System.out.println("Test 1");
+        
+        final DeCSLocator locator = new DeCSTermLocator();
+        assertEquals(getTerms(locator, "a Temefós b"), 
+                     getTerms(locator, "a\u00A0Temefós\u00A0b"));
+        assertEquals(getTerms(locator, "a (Temefós) b"), 
+                     getTerms(locator, "a\u3000\u300CTemefós\u300D\u3000b"));
+        assertEquals(getTerms(locator, "a -Temefós- b"), 
+                     getTerms(locator, "a \u2014Temefós\u2013 b"));
+        System.out.println("Test 2");
+    }
+    
+    /**
+     * Test of the table loaded from a properties file.
+     */
+    @Test
+    public void testLoad() throws IOException {
+        System.out.println("testLoad");
+        
+        final CharClassTable classes = CharClassTable.load(new StringReader(
+                   "# test\ndelimiter = «»\\u00BF\nwhite = \\u0020~\nword = _"));
+        
+        assertEquals(BoundaryDetector.DELIMITER, classes.getCharClass('«'));
+        assertEquals(BoundaryDetector.DELIMITER, classes.getCharClass('¿'));
+        assertEquals(BoundaryDetector.WHITE, classes.getCharClass(' '));
+        assertEquals(BoundaryDetector.WHITE, classes.getCharClass('~'));
+        assertEquals(BoundaryDetector.WORD, classes.getCharClass('_'));
+        assertEquals(BoundaryDetector.WHITE, classes.getCharClass('\u00A0'));
+        assertEquals(BoundaryDetector.WORD, CharClassTable.DEFAULT
+                                                         .getCharClass('«'));
+        System.out.println("Test 1");
+        
+        try {
+            CharClassTable.load(new StringReader("delimiters = «»"));
+            fail("unknown property");
+        } catch (IllegalArgumentException ex) {
+            System.out.println("Test 2");
+        }
+        
+        final String in = " Eu já disse: «Temefós» é o meu rei!~abattoirs~" +
+                          " ¿Abdomen, Acute/síntesis química? _Temefós_";
+        final String expResult = getTerms(new DeCSTermLocator(classes), in);
+        
+        assertTrue(expResult.contains("temefos"));
+        assertEquals(expResult, getTerms(new DeCSAhoCorasickLocator(
+                                  new DecsAutomaton(decs), classes), in));
+        assertEquals(expResult, getTerms(new DeCSWordTrieLocator(decs, 
+                                                               classes), in));
+        System.out.println("Test 3");
+    }
+}
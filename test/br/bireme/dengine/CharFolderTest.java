@@ -0,0 +1,120 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.IOException;
+import java.io.StringReader;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author agent
+ * date: 20261017
+ */
+public class CharFolderTest {
+    
+    /**
+     * Test of class CharFolder.
+     */
+    @Test
+    public void testFold() {
+        System.out.println("testFold");
+        
+        final String ascii = "neoplasias abdominais/sangue, 123 (x)";
+        assertSame(ascii, CharFolder.fold(ascii));
+        final String folded = "temefos ø";
+        assertEquals("temefos o", CharFolder.fold(folded));
+        System.out.println("Test 1");
+        
+        assertEquals("temefos abdome acao sao paulo", 
+                     CharFolder.fold("Temefós ABDOME Ação São Paulo"));
+        assertEquals("oeldilnh", CharFolder.fold("ØËŁĐİĹÑĦ"));
+        assertEquals("aeiou", CharFolder.fold("àéîõü"));
+        assertEquals("ae", CharFolder.fold("a\u0301e\u0300\u0302"));
+        assertEquals("αβ и", CharFolder.fold("ΆΒ Й"));
+        assertEquals("æß", CharFolder.fold("Æß"));
+        System.out.println("Test 2");
+        
+        final char[] buffer = "xÁe\u0301Ç".toCharArray();
+        assertEquals(3, CharFolder.fold(buffer, 1, 4));
+        assertEquals("xaec", new String(buffer, 0, 4));
+        System.out.println("Test 3");
+        
+        assertEquals("Temefos ABDOME Acao", 
+                     CharFolder.removeAccents("Temefós ABDOME Ac\u0327ão"));
+        System.out.println("Test 4");
+    }
+    
+    /**
+     * Keys and input text must be normalized the same way.
+     */
+    @Test
+    @SuppressWarnings("deprecation") // RemoveAccentsReader is still shipped
+    public void testAgreement() throws IOException {
+        System.out.println("testAgreement");
+        
+        final StringBuilder builder = new StringBuilder();
+        for (char ch = ' '; ch < 0x2000; ch++) {
+            if (!Character.isISOControl(ch)) {
+                builder.append(ch);
+            }
+        }
+        final String text = builder.toString();
+        final String key = IndexDecs.getNormText(text.substring(0, 
+                                             SimpleKeywordAnalyzer.MAX_KEY_LEN));
+        
+        assertEquals(key, AnalyzerUtils.getTokens(new SimpleKeywordAnalyzer(), 
+                                                                          text));
+        assertEquals(key, RemoveAccentsFromString.filter(text.substring(0, 
+                                             SimpleKeywordAnalyzer.MAX_KEY_LEN)));
+        assertEquals(CharFolder.fold(text), RemoveAccentsFromString.filter(
+                                                     new StringReader(text)));
+        System.out.println("Test 1");
+        
+        final RemoveAccentsReader reader = new RemoveAccentsReader(
+                      new StringReader("\u0301\u0301\u0301\u0301Abc\u0301"));
+        final char[] buffer = new char[2];
+        int read = reader.read(buffer, 0, 2);
+        assertEquals(2, read);
+        assertEquals("ab", new String(buffer));
+        read = reader.read(buffer, 0, 2);
+        assertEquals(1, read);
+        assertEquals('c', buffer[0]);
+        assertTrue(reader.read(buffer, 0, 2) == -1);
+        System.out.println("Test 2");
+        
+        final RemoveAccentsCharFilter filter = new RemoveAccentsCharFilter(
+                      new StringReader("\u0301\u0301\u0301\u0301Abc\u0301"));
+        read = filter.read(buffer, 0, 2);
+        assertEquals(2, read);
+        assertEquals("ab", new String(buffer));
+        read = filter.read(buffer, 0, 2);
+        assertEquals(1, read);
+        assertEquals('c', buffer[0]);
+        assertTrue(filter.read(buffer, 0, 2) == -1);
+        System.out.println("Test 3");
+    }
+}
@@ -0,0 +1,149 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import javax.xml.parsers.ParserConfigurationException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ *
+ * @author agent
+ * date: 20261017
+ */
+public class DeCSAhoCorasickLocatorTest {
+    private static final String DECS_XML = "resources/decs/xml/decs-metadata.xml";
+    
+    private final Map<String,DecsSyn> decs;
+    private final DeCSAhoCorasickLocator locator;
+    
+    public DeCSAhoCorasickLocatorTest() throws IOException, 
+                                                  ParserConfigurationException, 
+                                                                  SAXException {
+        decs = new IndexDecs().indexTerms(DECS_XML);
+        locator = new DeCSAhoCorasickLocator(decs);
+    }
+    
+    private String toString(final Set<FoundTerm> terms) {
+        assert terms != null;
+        
+        final StringBuilder builder = new StringBuilder();
+        final Iterator<FoundTerm> it = terms.iterator();
+        
+        while (it.hasNext()) {
+            final FoundTerm term = it.next();
+            final FoundTerm qualif = term.getQualifier();
+            
+            builder.append("[").append(term.getTerm()).append(":")
+                   .append(term.getBeginPos()).append("->")
+                   .append(term.getEndPos());
+            if (qualif != null) {
+                builder.append(qualif.getTerm()).append(":")
+                       .append(qualif.getBeginPos()).append("->")
+                       .append(qualif.getEndPos());
+            }
+            builder.append("]");
+        }
+        
+        return builder.toString();
+    }
+    
+    private void check(final String in) {
+        assert in != null;
+        
+        final String str = RemoveAccentsFromString.filter(in);
+        final String expResult = toString(
+                               new DeCSTermLocator().getTerms(str, decs, false));
+        final String result = toString(locator.getTerms(str, decs, false));
+        
+        assertEquals(expResult, result);
+    }
+    
+    /**
+     * Test of class DeCSAhoCorasickLocator.
+     */
+    @Test
+    public void testLocator() {
+        System.out.println("testLocator");
+        
+        check("   ");
+        check("word");
+        check(" Temefós ");
+        check(" xxxTemefósyyy ");
+        check(" (Temefós) ");
+        check(" #Temefós# rei");
+        check(" Eu já disse: Temefós é o meu rei!");
+        check("Mãe eles me chamaram de 'abattoirs' lá na rua!");
+        check("tais como:   neoplasias abdominais    ");
+        check("Temefós/sangue");
+        check(" Temefós/ sangue");
+        check(" (Temefós/sangue) ");
+        check("O qualificador (Temefós/sangue)não funciona.");
+        check(" Abdomen Agudo/síntesis química   ");
+        check("Abdomen, Acute/síntesis química");
+        check("xxneoplasias abdominais/sangue");
+        System.out.println("Test 1");
+        
+        final StringBuilder builder = new StringBuilder();
+        for (int idx = 0; idx < 20; idx++) {
+            builder.append("Abdomen Agudo ou abattoirs, (Temefós/sangue) e ")
+                   .append("neoplasias abdominais/blood; abdome ");
+        }
+        check(builder.toString());
+        System.out.println("Test 2");
+        
+        // the occurrence buffers grow above their maximum and are shrunk
+        for (int idx = 0; idx < 3000; idx++) {
+            builder.append("Abdomen Agudo ou abattoirs, (Temefós/sangue) e ")
+                   .append("neoplasias abdominais/blood; abdome ");
+        }
+        check(builder.toString());
+        check(" Abdomen Agudo/síntesis química   ");
+        System.out.println("Test 3");
+    }
+
+    /**
+     * Test of the automaton shared by the locators of the same concepts.
+     */
+    @Test
+    public void testShared() {
+        System.out.println("testShared");
+
+        final DecsConcepts concepts = DecsConcepts.forMap(decs);
+        assertSame(concepts.getAutomaton(), locator.getAutomaton());
+        System.out.println("Test 1");
+
+        final DeCSAhoCorasickLocator other = new DeCSAhoCorasickLocator(decs);
+        final FoundTermBuffer found = new FoundTermBuffer();
+        other.getTerms("abdomen agudo", concepts, false, found);
+        assertEquals(1, found.size());
+        assertSame(locator.getAutomaton(), other.getAutomaton());
+        System.out.println("Test 2");
+    }
+}
@@ -0,0 +1,145 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.xml.parsers.ParserConfigurationException;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ *
+ * @author agent
+ * date: 20261017
+ */
+public class DeCSTermLocatorTest {
+    private static final String DECS_XML = "resources/decs/xml/decs-metadata.xml";
+    private static final String CHUNK = "Abdomen Agudo ou abattoirs, " +
+            "(Temefós/sangue) e neoplasias abdominais/blood; abdome ^d8 xxx. ";
+    
+    private final Map<String,DecsSyn> decs;
+    
+    public DeCSTermLocatorTest() throws IOException, 
+                                                  ParserConfigurationException, 
+                                                                  SAXException {
+        decs = new IndexDecs().indexTerms(DECS_XML);
+    }
+    
+    /**
+     * @return the terms beginning inside in[begin, end[ with positions
+     * relative to begin
+     */
+    private String toString(final Set<FoundTerm> terms,
+                            final int begin,
+                            final int end) {
+        assert terms != null;
+        
+        final StringBuilder builder = new StringBuilder();
+        final Iterator<FoundTerm> it = terms.iterator();
+        
+        while (it.hasNext()) {
+            final FoundTerm term = it.next();
+            final FoundTerm qualif = term.getQualifier();
+            
+            if ((term.getBeginPos() >= begin) && (term.getBeginPos() < end)) {
+                builder.append("[").append(term.getTerm()).append(":")
+                       .append(term.getBeginPos() - begin).append("->")
+                       .append(term.getEndPos() - begin);
+                if (qualif != null) {
+                    builder.append(qualif.getTerm()).append(":")
+                           .append(qualif.getBeginPos() - begin).append("->")
+                           .append(qualif.getEndPos() - begin);
+                }
+                builder.append("]");
+            }
+        }
+        
+        return builder.toString();
+    }
+    
+    /**
+     * Test of class DeCSTermLocator.
+     */
+    @Test
+    public void testLocator() {
+        System.out.println("testLocator");
+        
+        final DeCSTermLocator locator = new DeCSTermLocator();
+        
+        assertEquals("", toString(locator.getTerms("", decs, false), 0, 1));
+        assertEquals("", toString(locator.getTerms(" ", decs, false), 0, 1));
+        assertEquals("[temefos:0->6]", 
+                     toString(locator.getTerms("temefos", decs, false), 0, 7));
+        System.out.println("Test 1");
+    }
+    
+    /**
+     * Multi-megabyte inputs must be processed with the default stack size.
+     */
+    @Test
+    public void testLongInput() {
+        System.out.println("testLongInput");
+        
+        final DeCSTermLocator locator = new DeCSTermLocator();
+        final String chunk = RemoveAccentsFromString.filter(CHUNK);
+        final int len = chunk.length();
+        final String expChunk = toString(locator.getTerms(chunk + chunk + 
+                         chunk + chunk + chunk, decs, false), 2 * len, 3 * len);
+        final int times = (4 * 1024 * 1024) / len;
+        final StringBuilder builder = new StringBuilder(times * len);
+        
+        for (int idx = 0; idx < times; idx++) {
+            builder.append(chunk);
+        }
+        
+        final Set<FoundTerm> terms = locator.getTerms(builder.toString(), decs,
+                                                                        false);
+        final Set<FoundTerm> chunkTerms = new TreeSet<FoundTerm>(
+                                                    new FoundTermComparator());
+        int chunkIdx = 0;
+        int checked = 0;
+        
+        // the chunks far from the string limits find the same terms
+        for (FoundTerm term : terms) {
+            final int idx = term.getBeginPos() / len;
+            
+            if (idx != chunkIdx) {
+                if ((chunkIdx >= 2) && (chunkIdx < times - 2)) {
+                    assertEquals(expChunk, toString(chunkTerms, chunkIdx * len,
+                                                         (chunkIdx + 1) * len));
+                    checked++;
+                }
+                chunkTerms.clear();
+                chunkIdx = idx;
+            }
+            chunkTerms.add(term);
+        }
+        assertEquals(times - 4, checked);
+        System.out.println("Test 1");
+    }
+}
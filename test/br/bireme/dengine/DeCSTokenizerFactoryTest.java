@@ -0,0 +1,268 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.xml.parsers.ParserConfigurationException;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.util.FilesystemResourceLoader;
+import org.apache.lucene.analysis.util.ResourceLoader;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ *
+ * @author agent
+ * date: 20261017
+ */
+public class DeCSTokenizerFactoryTest {
+    private static final String DECS_XML = "resources/decs/xml/decs-metadata.xml";
+    private static final String TEXT1 = "Neoplasias abdominais e abd\u00f4men agudo";
+    private static final String TEXT2 = "abattoirs ou matadouros ^d8";
+
+    private static DeCSTokenizerFactory newFactory() {
+        final Map<String,String> args = new HashMap<String,String>();
+        args.put("decs", DECS_XML);
+
+        return new DeCSTokenizerFactory(args);
+    }
+
+    /**
+     * Test of acquire and release methods, of class DecsRegistry.
+     */
+    @Test
+    public void testRegistry() throws IOException {
+        System.out.println("testRegistry");
+
+        final int size = DecsRegistry.size();
+        final DecsHandle handle1 = DecsRegistry.acquire(DECS_XML);
+        final DecsHandle handle2 = DecsRegistry.acquire(
+                                       new File(DECS_XML).getAbsolutePath());
+        assertSame(handle1, handle2);
+        assertEquals(2, DecsRegistry.getRefCount(handle1));
+        assertEquals(size + 1, DecsRegistry.size());
+        System.out.println("Test 1");
+
+        DecsRegistry.release(handle1);
+        assertEquals(1, DecsRegistry.getRefCount(handle1));
+        DecsRegistry.release(handle2);
+        assertEquals(0, DecsRegistry.getRefCount(handle1));
+        assertEquals(size, DecsRegistry.size());
+        try {
+            DecsRegistry.release(handle1);
+            fail();
+        } catch (IllegalArgumentException iae) {
+        }
+        System.out.println("Test 2");
+
+        final DecsHandle handle3 = DecsRegistry.acquire(DECS_XML);
+        assertNotSame(handle1, handle3);
+        DecsRegistry.release(handle3);
+        System.out.println("Test 3");
+
+        final DecsHandle handle4 = DecsRegistry.acquire(DECS_XML, 0.01);
+        final DecsHandle handle5 = DecsRegistry.acquire(DECS_XML);
+        assertNotSame(handle4, handle5);
+        assertSame(handle4.getDecs(), handle5.getDecs());
+        assertSame(handle4.getSnapshot().getConcepts().getLengthIndex(),
+                       handle5.getSnapshot().getConcepts().getLengthIndex());
+        assertEquals(size + 1, DecsRegistry.size());
+        assertTrue(handle4.getSnapshot().getConcepts().getFilter() != null);
+        assertTrue(handle5.getSnapshot().getConcepts().getFilter() == null);
+        assertSame(handle4, DecsRegistry.acquire(DECS_XML, 0.01));
+        DecsRegistry.release(handle4);
+        DecsRegistry.release(handle4);
+        DecsRegistry.release(handle5);
+        assertEquals(size, DecsRegistry.size());
+        System.out.println("Test 4");
+    }
+
+    /**
+     * Test of acquire method of class DecsRegistry called by many threads.
+     */
+    @Test
+    public void testConcurrentAcquire() throws Exception {
+        System.out.println("testConcurrentAcquire");
+
+        final int size = DecsRegistry.size();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final List<Future<DecsHandle>> handles = 
+                                        new ArrayList<Future<DecsHandle>>();
+        try {
+            for (int idx = 0; idx < 4; idx++) {
+                handles.add(executor.submit(new Callable<DecsHandle>() {
+                    @Override
+                    public DecsHandle call() throws IOException {
+                        return DecsRegistry.acquire(DECS_XML);
+                    }
+                }));
+            }
+            final DecsHandle handle = handles.get(0).get();
+            for (Future<DecsHandle> future : handles) {
+                assertSame(handle, future.get());
+            }
+            assertEquals(4, DecsRegistry.getRefCount(handle));
+            assertEquals(size + 1, DecsRegistry.size());
+            System.out.println("Test 1");
+
+            for (Future<DecsHandle> future : handles) {
+                DecsRegistry.release(future.get());
+            }
+            assertEquals(size, DecsRegistry.size());
+            System.out.println("Test 2");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test of create method, of class DeCSTokenizerFactory.
+     */
+    @Test
+    public void testFactory() throws IOException {
+        System.out.println("testFactory");
+
+        final ResourceLoader loader = new FilesystemResourceLoader(
+                                                              new File("."));
+        final DeCSTokenizerFactory factory1 = newFactory();
+        final DeCSTokenizerFactory factory2 = newFactory();
+        factory1.inform(loader);
+        factory2.inform(loader);
+        final DecsHandle handle = factory1.getDecsHandle();
+        assertSame(handle, factory2.getDecsHandle());
+        assertEquals(2, DecsRegistry.getRefCount(handle));
+        System.out.println("Test 1");
+
+        final DeCSStandardAnalyzer analyzer = new DeCSStandardAnalyzer(handle);
+        final Tokenizer tokenizer = factory1.create(new StringReader(TEXT1));
+        final List<String> tokens1 = AnalyzerUtils.getTokenList(tokenizer);
+        assertTrue(tokens1.contains("neoplasias abdominais"));
+        assertEquals(AnalyzerUtils.getTokenList(analyzer, TEXT1), tokens1);
+        System.out.println("Test 2");
+
+        // the tokenizer is reused with a new reader
+        tokenizer.setReader(new StringReader(TEXT2));
+        final List<String> tokens2 = AnalyzerUtils.getTokenList(tokenizer);
+        assertTrue(tokens2.contains("matadouros"));
+        assertEquals(AnalyzerUtils.getTokenList(analyzer, TEXT2), tokens2);
+        System.out.println("Test 3");
+
+        factory1.close();
+        factory2.close();
+        assertEquals(0, DecsRegistry.getRefCount(handle));
+        try {
+            factory1.create(new StringReader(TEXT1));
+            fail();
+        } catch (IllegalStateException ise) {
+        }
+        System.out.println("Test 4");
+    }
+
+    /**
+     * Test of a DeCSTokenizerFactory of a compiled dictionary file.
+     */
+    @Test
+    public void testDictionary() throws IOException, 
+                                                  ParserConfigurationException, 
+                                                                  SAXException {
+        System.out.println("testDictionary");
+
+        final File file = File.createTempFile("decs", ".dic");
+        file.deleteOnExit();
+        DecsDictionaryCompiler.compile(new IndexDecs().indexTerms(DECS_XML), 
+                                                                        file);
+        final Map<String,String> args = new HashMap<String,String>();
+        args.put("dict", file.getPath());
+        final DeCSTokenizerFactory factory1 = new DeCSTokenizerFactory(args);
+        final DeCSTokenizerFactory factory2 = newFactory();
+        final ResourceLoader loader = new FilesystemResourceLoader(
+                                                              new File("."));
+        factory1.inform(loader);
+        factory2.inform(loader);
+        assertTrue(factory1.getDecsHandle().getDecs() 
+                                              instanceof MappedDecsDictionary);
+        System.out.println("Test 1");
+
+        assertEquals(AnalyzerUtils.getTokenList(
+                                  factory2.create(new StringReader(TEXT1))),
+                     AnalyzerUtils.getTokenList(
+                                  factory1.create(new StringReader(TEXT1))));
+        assertEquals(AnalyzerUtils.getTokenList(
+                                  factory2.create(new StringReader(TEXT2))),
+                     AnalyzerUtils.getTokenList(
+                                  factory1.create(new StringReader(TEXT2))));
+        factory1.close();
+        factory2.close();
+        System.out.println("Test 2");
+    }
+
+    /**
+     * Test of the arguments of class DeCSTokenizerFactory.
+     */
+    @Test
+    public void testArgs() {
+        System.out.println("testArgs");
+
+        final Map<String,String> args = new HashMap<String,String>();
+        args.put("decs", DECS_XML);
+        args.put("addWord", "false");
+        try {
+            new DeCSTokenizerFactory(args);
+            fail();
+        } catch (IllegalArgumentException iae) {
+        }
+        System.out.println("Test 1");
+
+        try {
+            new DeCSTokenizerFactory(new HashMap<String,String>());
+            fail();
+        } catch (IllegalArgumentException iae) {
+        }
+        System.out.println("Test 2");
+
+        final Map<String,String> args2 = new HashMap<String,String>();
+        args2.put("decs", DECS_XML);
+        args2.put("dict", "decs.dic");
+        try {
+            new DeCSTokenizerFactory(args2);
+            fail();
+        } catch (IllegalArgumentException iae) {
+        }
+        System.out.println("Test 3");
+    }
+}
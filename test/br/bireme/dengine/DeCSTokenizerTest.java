@@ -0,0 +1,180 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Map;
+import java.util.Set;
+import javax.xml.parsers.ParserConfigurationException;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.util.AttributeFactory;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ *
+ * @author agent
+ * date: 20261017
+ */
+public class DeCSTokenizerTest {
+    private static final String DECS_XML = "resources/decs/xml/decs-metadata.xml";
+    private static final String CHUNK = "Abdomen Agudo ou abattoirs, e " +
+          "neoplasias abdominais;\tabdome ^d8 xxx ^d8^s22062 (Temefós) rei. ";
+    
+    private final Map<String,DecsSyn> decs;
+    private final DecsParams parameters;
+    
+    public DeCSTokenizerTest() throws IOException, 
+                                                  ParserConfigurationException, 
+                                                                  SAXException {
+        decs = new IndexDecs().indexTerms(DECS_XML);
+        parameters = new DecsParams(true, true, true, false, false, false);
+    }
+    
+    private String getTokens(final String in,
+                             final int chunkSize) throws IOException {
+        return getTokens(in, chunkSize, new DeCSTermLocator());
+    }
+    
+    private String getTokens(final String in,
+                             final int chunkSize,
+                             final DeCSLocator locator) throws IOException {
+        assert in != null;
+        assert locator != null;
+        
+        final Reader reader = new RemoveAccentsCharFilter(
+                                                     new StringReader(in));
+        final DeCSTokenizer tokenizer = new DeCSTokenizer(reader, decs, 
+                  parameters, true, DeCSTokenizer.DEF_MIN_TOKEN_SIZE, 
+                                                          locator, chunkSize);
+        
+        return getTokens(tokenizer);
+    }
+    
+    private String getTokens(final DeCSTokenizer tokenizer) 
+                                                          throws IOException {
+        assert tokenizer != null;
+        
+        final CharTermAttribute term = 
+                              tokenizer.getAttribute(CharTermAttribute.class);
+        final OffsetAttribute offset = 
+                                tokenizer.getAttribute(OffsetAttribute.class);
+        final PositionIncrementAttribute posIncr = 
+                     tokenizer.getAttribute(PositionIncrementAttribute.class);
+        final StringBuilder builder = new StringBuilder();
+        
+        tokenizer.reset();
+        while (tokenizer.incrementToken()) {
+            builder.append("[").append(term.toString()).append(":")
+                   .append(offset.startOffset()).append("->")
+                   .append(offset.endOffset()).append(":")
+                   .append(posIncr.getPositionIncrement()).append("]");
+        }
+        tokenizer.end();
+        builder.append("[").append(offset.endOffset()).append("]");
+        tokenizer.close();
+        
+        return builder.toString();
+    }
+    
+    /**
+     * Test of the streaming mode of class DeCSTokenizer.
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testStreaming() throws IOException {
+        System.out.println("testStreaming");
+        
+        assertEquals(getTokens("", 0), getTokens("", 
+                                                DeCSTokenizer.DEF_CHUNK_SIZE));
+        assertEquals(getTokens(CHUNK, 0), getTokens(CHUNK, 
+                                                DeCSTokenizer.DEF_CHUNK_SIZE));
+        System.out.println("Test 1");
+        
+        final StringBuilder builder = new StringBuilder();
+        for (int idx = 0; idx < 1000; idx++) {
+            builder.append(CHUNK);
+        }
+        final String in = builder.toString();
+        final String expResult = getTokens(in, 0);
+        
+        assertEquals(expResult, getTokens(in, DeCSTermLocator.MAX_TOKEN_SIZE));
+        assertEquals(expResult, getTokens(in, 1000));
+        assertEquals(expResult, getTokens(in, DeCSTokenizer.DEF_CHUNK_SIZE));
+        System.out.println("Test 2");
+    }
+    
+    /**
+     * Test of the reuse of a DeCSTokenizer by setReader.
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testReuse() throws IOException {
+        System.out.println("testReuse");
+        
+        final String[] inputs = { CHUNK, "", "abdome", CHUNK + CHUNK, " " };
+        final DeCSTokenizer tokenizer = new DeCSTokenizer(
+                  AttributeFactory.DEFAULT_ATTRIBUTE_FACTORY, 
+                  new StringReader(inputs[0]), new DecsHandle(decs), 
+                  parameters, true, DeCSTokenizer.DEF_MIN_TOKEN_SIZE, 
+                  new DeCSTermLocator(), 0);
+        
+        assertEquals(getTokens(inputs[0], 0), getTokens(tokenizer));
+        System.out.println("Test 1");
+        
+        for (String input : inputs) {
+            tokenizer.setReader(new StringReader(input));
+            assertEquals(getTokens(input, 0), getTokens(tokenizer));
+        }
+        System.out.println("Test 2");
+    }
+    
+    /**
+     * Test of a DeCSTokenizer with a locator that is not a DeCSBufferLocator.
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testPlainLocator() throws IOException {
+        System.out.println("testPlainLocator");
+        
+        final DeCSLocator plain = new DeCSLocator() {
+            private final DeCSLocator locator = new DeCSTermLocator();
+            
+            @Override
+            public Set<FoundTerm> getTerms(final String str,
+                                           final Map<String,DecsSyn> decs,
+                                           final boolean onlyPrecodTerms) {
+                return locator.getTerms(str, decs, onlyPrecodTerms);
+            }
+        };
+        
+        assertEquals(getTokens(CHUNK, 0), getTokens(CHUNK, 0, plain));
+        assertEquals(getTokens("abdome", 0), getTokens("abdome", 0, plain));
+        System.out.println("Test 1");
+    }
+}
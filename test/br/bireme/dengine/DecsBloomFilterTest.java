@@ -0,0 +1,158 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.xml.parsers.ParserConfigurationException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ *
+ * @author agent
+ * date: 20261017
+ */
+public class DecsBloomFilterTest {
+    private static final String DECS_XML = "resources/decs/xml/decs-metadata.xml";
+    private static final String[] TEXTS = {
+        "Abdomen Agudo ou abattoirs, (Temef\u00f3s/sangue) e neoplasias " +
+        "abdominais/blood; abdome ^d8 xxx. ",
+        "tumores do abdome e abdominal neoplasms ^d8^s22062 com matadouros",
+        "nada a ver com o dicionario"
+    };
+
+    private final Map<String,DecsSyn> decs;
+
+    public DecsBloomFilterTest() throws IOException, 
+                                 ParserConfigurationException, SAXException {
+        decs = new IndexDecs().indexTerms(DECS_XML);
+    }
+
+    /**
+     * Test of mightContain methods, of class DecsBloomFilter.
+     */
+    @Test
+    public void testFilter() {
+        System.out.println("testFilter");
+
+        final DecsBloomFilter filter = 
+                                  new DecsBloomFilter(decs.keySet(), 0.01);
+        for (String key : decs.keySet()) {
+            assertTrue(key, filter.mightContain(key));
+            final char[] chars = (" " + key + " ").toCharArray();
+            assertTrue(key, filter.mightContain(chars, 1, chars.length - 2));
+        }
+        System.out.println("Test 1");
+
+        final Random random = new Random(1234);
+        final int tries = 100000;
+        int positives = 0;
+        for (int idx = 0; idx < tries; idx++) {
+            final String str = Long.toString(random.nextLong(), 36) + " xq";
+            if (filter.mightContain(str)) {
+                positives++;
+            }
+        }
+        System.out.println("false positive rate: " + (double)positives/tries);
+        assertTrue(positives < tries * 0.02);
+        System.out.println("Test 2");
+    }
+
+    private static String toString(final Set<FoundTerm> terms) {
+        final StringBuilder builder = new StringBuilder();
+
+        for (FoundTerm term : terms) {
+            final FoundTerm qualif = term.getQualifier();
+            builder.append("[").append(term.getTerm()).append(":")
+                   .append(term.getBeginPos()).append("->")
+                   .append(term.getEndPos()).append("#")
+                   .append(term.getOrdinal());
+            if (qualif != null) {
+                builder.append(qualif.getTerm()).append("#")
+                       .append(qualif.getOrdinal());
+            }
+            builder.append("]");
+        }
+        return builder.toString();
+    }
+
+    private String getTerms(final DeCSBufferLocator locator,
+                            final String in,
+                            final DecsConcepts concepts) {
+        final FoundTermBuffer found = new FoundTermBuffer();
+        final Set<FoundTerm> terms = 
+                       new TreeSet<FoundTerm>(new FoundTermComparator());
+
+        locator.getTerms(in, concepts, false, found);
+        found.addFoundTerms(in, decs, terms);
+
+        return toString(terms);
+    }
+
+    /**
+     * Test of the locator with the Bloom filter of a handle.
+     */
+    @Test
+    public void testLocator() {
+        System.out.println("testLocator");
+
+        final DeCSTermLocator locator = new DeCSTermLocator();
+        final DecsConcepts plain = new DecsConcepts(decs);
+        final DecsConcepts filtered = new DecsHandle(decs, 0.01)
+                                                 .getSnapshot().getConcepts();
+        assertTrue(filtered.getFilter() != null);
+
+        for (String text : TEXTS) {
+            final String in = CharFolder.fold(text);
+            assertEquals(getTerms(locator, in, plain), 
+                                          getTerms(locator, in, filtered));
+        }
+        System.out.println("Test 1");
+    }
+
+    /**
+     * Test of withFilter method, of class DecsConcepts.
+     */
+    @Test
+    public void testWithFilter() {
+        System.out.println("testWithFilter");
+
+        final DecsConcepts plain = DecsConcepts.forMap(decs);
+        final DecsConcepts filtered = plain.withFilter(0.01);
+        assertTrue(filtered.getFilter() != null);
+        assertTrue(filtered != plain);
+        assertSame(filtered, plain.withFilter(0.01));
+        assertSame(plain, filtered.withFilter(0));
+        assertSame(plain.getLengthIndex(), filtered.getLengthIndex());
+        assertSame(plain.getCategoryTrie(), filtered.getCategoryTrie());
+        assertSame(plain, DecsConcepts.forMap(decs));
+        System.out.println("Test 1");
+    }
+}
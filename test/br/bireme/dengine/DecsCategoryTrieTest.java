@@ -0,0 +1,131 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import javax.xml.parsers.ParserConfigurationException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ *
+ * @author agent
+ * date: 20261017
+ */
+public class DecsCategoryTrieTest {
+    private static final String DECS_XML = "resources/decs/xml/decs-metadata.xml";
+    
+    private final IndexDecs index;
+    private final Map<String,DecsSyn> decs;
+    
+    public DecsCategoryTrieTest() throws IOException, 
+                                                  ParserConfigurationException, 
+                                                                  SAXException {
+        index = new IndexDecs();
+        decs = index.indexTerms(DECS_XML);
+    }
+    
+    /**
+     * Test of add method, of class DecsCategoryTrie.
+     */
+    @Test
+    public void testAdd() {
+        System.out.println("testAdd");
+        
+        final DecsCategoryTrie trie = new DecsCategoryTrie();
+        final String number = "d02.705.539.900";
+        final int node = trie.add(number);
+        
+        assertEquals(4, trie.size());
+        assertTrue(number == trie.getTreeNumber(node));
+        assertEquals(node, trie.add(new String(number)));
+        assertEquals(4, trie.size());
+        System.out.println("Test 1");
+        
+        final int parent = trie.add("d02.705.539");
+        assertEquals(parent, trie.getParent(node));
+        assertEquals(4, trie.size());
+        assertEquals("d02", trie.getTreeNumber(trie.getParent(
+                                                   trie.getParent(parent))));
+        assertEquals(DecsCategoryTrie.NO_NODE, trie.getParent(
+                                                       trie.getNode("d02")));
+        assertEquals(DecsCategoryTrie.NO_NODE, trie.getNode("d02.705.5"));
+        System.out.println("Test 2");
+        
+        for (int idx = 0; idx < 1000; idx++) {
+            trie.add("x" + (idx % 10) + "." + idx);
+        }
+        assertEquals(4 + 10 + 1000, trie.size());
+        for (int idx = 0; idx < 1000; idx++) {
+            final int cur = trie.getNode("x" + (idx % 10) + "." + idx);
+            assertEquals("x" + (idx % 10), 
+                                 trie.getTreeNumber(trie.getParent(cur)));
+        }
+        assertEquals(node, trie.getNode(number));
+        System.out.println("Test 3");
+    }
+    
+    /**
+     * Test of getAncestors method, of class DecsCategoryTrie.
+     */
+    @Test
+    public void testGetAncestors() {
+        System.out.println("testGetAncestors");
+        
+        final DecsCategoryTrie trie = index.getCategoryTrie();
+        
+        assertEquals(Arrays.asList("d02", "d02.705", "d02.705.539"), 
+                                     trie.getAncestors("d02.705.539.900"));
+        assertEquals(Collections.emptyList(), trie.getAncestors("d02"));
+        assertEquals(Collections.emptyList(), trie.getAncestors("z99"));
+        System.out.println("Test 1");
+        
+        final DecsCategoryTrie trie2 = DecsCategoryTrie.build(decs);
+        assertEquals(trie.size(), trie2.size());
+        assertEquals(trie.size(), new DecsConcepts(decs).getCategoryTrie()
+                                                                    .size());
+        for (DecsSyn syn : decs.values()) {
+            for (int idx = 0; idx < syn.getCategoryCount(); idx++) {
+                final String category = syn.getCategory(idx);
+                assertTrue(category == trie.getTreeNumber(
+                                                   trie.getNode(category)));
+                assertEquals(trie.getAncestors(category), 
+                                             trie2.getAncestors(category));
+            }
+        }
+        System.out.println("Test 2");
+        
+        assertTrue(trie == index.getConcepts().getCategoryTrie());
+        assertTrue(trie == DecsConcepts.forMap(decs).getCategoryTrie());
+        assertTrue(trie == new DecsHandle(decs).getSnapshot().getConcepts()
+                                                          .getCategoryTrie());
+        assertTrue(trie == new DecsHandle(decs, 0.01).getSnapshot()
+                                           .getConcepts().getCategoryTrie());
+        System.out.println("Test 3");
+    }
+}
@@ -0,0 +1,180 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.xml.parsers.ParserConfigurationException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ *
+ * @author agent
+ * date: 20261017
+ */
+public class DecsConceptsTest {
+    private static final String DECS_XML = "resources/decs/xml/decs-metadata.xml";
+
+    private final Map<String,DecsSyn> decs;
+
+    public DecsConceptsTest() throws IOException,
+                                                  ParserConfigurationException,
+                                                                  SAXException {
+        decs = new IndexDecs().indexTerms(DECS_XML);
+    }
+
+    /**
+     * Test of the ordinals of class DecsConcepts.
+     */
+    @Test
+    public void testOrdinals() {
+        System.out.println("testOrdinals");
+
+        final DecsConcepts concepts = new DecsConcepts(decs);
+        final Set<DecsSyn> syns = new HashSet<DecsSyn>(decs.values());
+        assertEquals(syns.size(), concepts.size());
+        for (Map.Entry<String,DecsSyn> entry : decs.entrySet()) {
+            final int ordinal = concepts.getKeyOrdinal(entry.getKey());
+            assertTrue(ordinal >= 0 && ordinal < concepts.size());
+            assertEquals(entry.getValue(), concepts.getConcept(ordinal));
+        }
+        assertEquals(DecsConcepts.NO_ORDINAL, 
+                                          concepts.getKeyOrdinal("xyzxyzxyz"));
+        System.out.println("Test 1");
+
+        for (String key : decs.keySet()) {
+            final String str = "^d" + key + "^s";
+            final int ordinal = concepts.getIdOrdinal(str, 2, 
+                                                            key.length() + 1);
+            if (key.matches("[1-9][0-9]{0,6}")) {
+                assertEquals(concepts.getKeyOrdinal(key), ordinal);
+            } else if (!key.matches("[0-9]+")) {
+                assertEquals(DecsConcepts.NO_ORDINAL, ordinal);
+            }
+        }
+        assertEquals(DecsConcepts.NO_ORDINAL, concepts.getIdOrdinal("08", 0, 
+                                                                          1));
+        assertEquals(DecsConcepts.NO_ORDINAL, concepts.getIdOrdinal("99999999", 
+                                                                       0, 7));
+        System.out.println("Test 2");
+    }
+
+    /**
+     * Test of the ordinals of the terms found by the locators.
+     */
+    @Test
+    public void testFoundTerms() {
+        System.out.println("testFoundTerms");
+
+        final String in = "neoplasias abdominais e abdomen agudo/sangue ^d8 " +
+                                                              "^d8^s22062 rei";
+        final DecsConcepts concepts = new DecsConcepts(decs);
+        final DeCSLocator[] locators = { new DeCSTermLocator(), 
+               new DeCSAhoCorasickLocator(new DecsAutomaton(concepts)), 
+               new DeCSWordTrieLocator(new DecsWordTrie(concepts, 
+                                                   CharClassTable.DEFAULT)) };
+        for (DeCSLocator locator : locators) {
+            final Set<FoundTerm> terms = locator.getTerms(in, decs, false);
+            assertEquals(4, terms.size());
+            for (FoundTerm term : terms) {
+                assertEquals(term.getSyn(), 
+                                     concepts.getConcept(term.getOrdinal()));
+                final FoundTerm qualif = term.getQualifier();
+                if (qualif != null) {
+                    assertEquals(qualif.getSyn(), 
+                                   concepts.getConcept(qualif.getOrdinal()));
+                }
+            }
+        }
+        System.out.println("Test 1");
+    }
+
+    /**
+     * Test of forMap method, of class DecsConcepts.
+     */
+    @Test
+    public void testForMap() {
+        System.out.println("testForMap");
+
+        final Map<String,DecsSyn> decs2 = new HashMap<String,DecsSyn>(decs);
+        final DecsConcepts concepts = DecsConcepts.forMap(decs2);
+        assertTrue(concepts == DecsConcepts.forMap(decs2));
+        assertTrue(concepts != DecsConcepts.forMap(decs));
+        assertTrue(concepts == new DecsHandle(decs2).getSnapshot()
+                                                              .getConcepts());
+        System.out.println("Test 1");
+
+        final FoundTermBuffer found = new FoundTermBuffer();
+        final DeCSBufferLocator[] locators = { new DeCSTermLocator(), 
+                    new DeCSSentenceTermLocator(),
+                    new DeCSAhoCorasickLocator(decs2), 
+                    new DeCSWordTrieLocator(decs2) };
+        for (DeCSBufferLocator locator : locators) {
+            locator.getTerms("abdomen agudo", decs2, false, found);
+            assertTrue(concepts == found.getConcepts());
+            assertEquals(1, found.size());
+        }
+        System.out.println("Test 2");
+
+        final DecsConcepts concepts2 = new DecsConcepts(decs2);
+        DecsConcepts.register(concepts2);
+        assertTrue(concepts2 == DecsConcepts.forMap(decs2));
+        DecsConcepts.unregister(decs2);
+        final DecsConcepts concepts3 = DecsConcepts.forMap(decs2);
+        assertTrue((concepts3 != concepts) && (concepts3 != concepts2));
+        System.out.println("Test 3");
+    }
+
+    /**
+     * Test of the concepts of a map changed after they were built.
+     */
+    @Test
+    public void testChangedMap() {
+        System.out.println("testChangedMap");
+
+        final Map<String,DecsSyn> decs2 = new HashMap<String,DecsSyn>(decs);
+        final DecsConcepts concepts = DecsConcepts.forMap(decs2);
+        final DecsSyn syn = decs2.get("abdomen agudo");
+        decs2.put("abdomx", syn);
+        final Set<FoundTerm> terms = new DeCSTermLocator().getTerms("abdomx",
+                                                                decs2, false);
+        assertEquals(1, terms.size());
+        assertEquals(syn, terms.iterator().next().getSyn());
+        assertTrue(concepts != DecsConcepts.forMap(decs2));
+        System.out.println("Test 1");
+
+        decs2.put("abdomen agudo", new DecsSynBuilder().setId("1")
+                                      .addDescriptor("abdomen agudo").build());
+        final DecsConcepts concepts2 = DecsConcepts.forMap(decs2);
+        assertEquals(DecsConcepts.NO_ORDINAL, 
+                                    concepts2.getKeyOrdinal("abdomen agudo"));
+        assertTrue(concepts2.getKeyOrdinal("abdomx") >= 0);
+        System.out.println("Test 2");
+    }
+}
@@ -0,0 +1,207 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ *
+ * @author agent
+ * date: 20261017
+ */
+public class DecsDeltaTest {
+    private static final String DECS_XML = "resources/decs/xml/decs-metadata.xml";
+    private static final String DELTA = 
+        "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n" +
+        "<decs-syn-list>\n" +
+        "  <term mfn=\"3\">\n" +
+        "    <descriptor_list>\n" +
+        "      <descriptor>Abattoirs</descriptor>\n" +
+        "      <descriptor>Mataderos</descriptor>\n" +
+        "      <descriptor>Matadouros</descriptor>\n" +
+        "    </descriptor_list>\n" +
+        "    <synonym_list>\n" +
+        "      <synonym>Frigorificos</synonym>\n" +
+        "    </synonym_list>\n" +
+        "  </term>\n" +
+        "  <term mfn=\"2\" action=\"remove\"/>\n" +
+        "  <term mfn=\"999999\">\n" +
+        "    <descriptor_list>\n" +
+        "      <descriptor>Delta Test Term</descriptor>\n" +
+        "    </descriptor_list>\n" +
+        "  </term>\n" +
+        "  <term mfn=\"999998\">\n" +
+        "    <descriptor_list>\n" +
+        "      <descriptor>Abattoirs</descriptor>\n" +
+        "    </descriptor_list>\n" +
+        "  </term>\n" +
+        "  <term mfn=\"999997\" action=\"remove\"/>\n" +
+        "</decs-syn-list>\n";
+
+    private final Map<String,DecsSyn> decs;
+
+    public DecsDeltaTest() throws IOException, ParserConfigurationException,
+                                                                 SAXException {
+        decs = new IndexDecs().indexTerms(DECS_XML);
+    }
+
+    private static String key(final String text) {
+        return IndexDecs.getNormText(text);
+    }
+
+    /**
+     * Test of read and apply methods, of class DecsDelta.
+     */
+    @Test
+    public void testApply() throws XMLStreamException {
+        System.out.println("testApply");
+
+        final DecsDelta delta = DecsDelta.read(
+              new ByteArrayInputStream(DELTA.getBytes(StandardCharsets.ISO_8859_1)));
+        assertEquals(5, delta.size());
+        System.out.println("Test 1");
+
+        final int size = decs.size();
+        final DecsDelta.Result result = delta.apply(decs);
+        final Map<String,DecsSyn> map = result.getDecs();
+        assertEquals(2, result.getAdded());
+        assertEquals(1, result.getChanged());
+        assertEquals(1, result.getRemoved());
+        assertEquals(2, result.getConflicts().size());
+        assertEquals(size, decs.size());
+        System.out.println("Test 2");
+
+        // changed: the old synonyms are gone, the new one is there
+        assertNull(map.get(key("Slaughterhouses")));
+        assertNull(map.get(key("Abatedouros")));
+        assertEquals("3", map.get(key("Frigorificos")).getId());
+        assertEquals("3", map.get(key("Mataderos")).getId());
+        assertEquals("3", decs.get(key("Slaughterhouses")).getId());
+        System.out.println("Test 3");
+
+        // removed
+        assertNull(map.get("2"));
+        assertNull(map.get(key("Temefos")));
+        assertEquals("2", decs.get(key("Temefos")).getId());
+        System.out.println("Test 4");
+
+        // added and the conflict with the key of term 3
+        assertEquals("999999", map.get(key("Delta Test Term")).getId());
+        assertEquals("999999", map.get("999999").getId());
+        assertTrue(result.getConflicts().get(0).startsWith("mfn[999998]"));
+        assertEquals("mfn[999997] not found.", result.getConflicts().get(1));
+        System.out.println("Test 5");
+    }
+
+    /**
+     * Test of apply method, of class DecsHandle.
+     */
+    @Test
+    public void testHandle() {
+        System.out.println("testHandle");
+
+        final DecsHandle handle = new DecsHandle(decs);
+        final DecsSyn term = new DecsSynBuilder().setId("999999")
+                                  .addDescriptor(key("Delta Test Term"))
+                                  .build();
+        final DecsDelta.Result result = handle.apply(
+                                           new DecsDelta().put(term));
+        assertEquals(2, handle.getVersion());
+        assertEquals(1, handle.getDeltaCount());
+        assertSame(result.getDecs(), handle.getDecs());
+        assertNotSame(decs, handle.getDecs());
+        assertEquals(decs.size() + 2, handle.getDecs().size());
+        System.out.println("Test 1");
+
+        final DecsDelta.Result undo = handle.apply(
+                                           new DecsDelta().remove("999999"));
+        assertEquals(1, undo.getRemoved());
+        assertEquals(3, handle.getVersion());
+        assertEquals(decs, handle.getDecs());
+        System.out.println("Test 2");
+    }
+
+    /**
+     * Test of the concepts updated by apply method, of class DecsHandle.
+     */
+    @Test
+    public void testConcepts() {
+        System.out.println("testConcepts");
+
+        final DecsHandle handle = new DecsHandle(decs, 0.01);
+        final DecsConcepts old = handle.getSnapshot().getConcepts();
+        final DecsSyn term = new DecsSynBuilder().setId("999999")
+                                  .addDescriptor(key("Delta Test Term"))
+                                  .build();
+        handle.apply(new DecsDelta().put(term));
+        final DecsConcepts concepts = handle.getSnapshot().getConcepts();
+        assertTrue(concepts.getDecs() instanceof DecsDeltaMap);
+        assertEquals(old.size() + 1, concepts.size());
+        assertEquals(0.01, concepts.getFilterFpp(), 0);
+        System.out.println("Test 1");
+
+        final int ordinal = concepts.getKeyOrdinal(key("Delta Test Term"));
+        assertSame(term, concepts.getConcept(ordinal));
+        assertEquals(ordinal, concepts.getIdOrdinal("999999", 0, 5));
+        final int ordinal2 = old.getKeyOrdinal(key("Mataderos"));
+        assertEquals(ordinal2, concepts.getKeyOrdinal(key("Mataderos")));
+        System.out.println("Test 2");
+
+        handle.apply(new DecsDelta().remove("3"));
+        final DecsConcepts concepts2 = handle.getSnapshot().getConcepts();
+        assertEquals(DecsConcepts.NO_ORDINAL, 
+                                   concepts2.getKeyOrdinal(key("Mataderos")));
+        assertEquals(DecsConcepts.NO_ORDINAL, 
+                                         concepts2.getIdOrdinal("3", 0, 0));
+        assertSame(term, concepts2.getConcept(
+                           concepts2.getKeyOrdinal(key("Delta Test Term"))));
+        System.out.println("Test 3");
+
+        final DeCSTermLocator locator = new DeCSTermLocator();
+        final String text = "delta test term e abdomen agudo e mataderos";
+        final FoundTermBuffer found = new FoundTermBuffer();
+        final FoundTermBuffer expected = new FoundTermBuffer();
+        locator.getTerms(text, concepts2, false, found);
+        locator.getTerms(text, new DecsConcepts(new HashMap<String,DecsSyn>(
+                               concepts2.getDecs())), false, expected);
+        assertEquals(2, found.size());
+        assertEquals(expected.size(), found.size());
+        for (int idx = 0; idx < found.size(); idx++) {
+            assertSame(expected.getSyn(idx), found.getSyn(idx));
+        }
+        System.out.println("Test 4");
+    }
+}
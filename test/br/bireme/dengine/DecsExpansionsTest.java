@@ -0,0 +1,178 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.parsers.ParserConfigurationException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ *
+ * @author agent
+ * date: 20261017
+ */
+public class DecsExpansionsTest {
+    private static final String DECS_XML = "resources/decs/xml/decs-metadata.xml";
+    
+    private final Map<String,DecsSyn> decs;
+    
+    public DecsExpansionsTest() throws IOException, 
+                                                  ParserConfigurationException, 
+                                                                  SAXException {
+        decs = new IndexDecs().indexTerms(DECS_XML);
+    }
+    
+    private String toString(final DecsTokenBuffer tokens) {
+        assert tokens != null;
+        
+        final StringBuilder builder = new StringBuilder();
+        
+        while (tokens.hasNext()) {
+            final int token = tokens.next();
+            builder.append("[").append(tokens.getChars(), 
+                   tokens.getStart(token), tokens.getLength(token))
+                   .append(tokens.getSamePos(token) ? ":0" : ":1")
+                   .append("]");
+        }
+        
+        return builder.toString();
+    }
+    
+    private String split(final String str) {
+        assert str != null;
+        
+        final String trim = str.trim();
+        final String str2 = trim.startsWith("/") ? trim.substring(1) : trim;
+        final String[] words = str2.split("[\\s\\-]+");
+        final StringBuilder builder = new StringBuilder();
+        
+        if (trim.startsWith("/")) {
+            builder.append("[").append(trim).append(":0]");
+        }
+        builder.append("[").append(str2).append(":0]");
+        if (words.length > 1) {
+            for (String word : words) {
+                builder.append("[").append(word).append(":0]");
+            }
+        }
+        
+        return builder.toString();
+    }
+    
+    /**
+     * Test of splitWords method, of class DecsExpansions.
+     */
+    @Test
+    public void testSplitWords() {
+        System.out.println("testSplitWords");
+        
+        final String[] inputs = { "a", " abdomen agudo ", "/sangue", 
+           "- x", "x -", "x--y  z", "\tneoplasias\u000Babdominais\f", 
+           "/ a", "--", "abdomen, acute" };
+        
+        for (String in : inputs) {
+            final DecsTokenBuffer tokens = new DecsTokenBuffer();
+            DecsExpansions.splitWords(tokens, in, 0, in.length(), 0, 0, true,
+                                                                       true);
+            assertEquals(in, split(in), toString(tokens));
+        }
+        System.out.println("Test 1");
+    }
+    
+    /**
+     * Test of getTokens method, of class DecsExpansions.
+     */
+    @Test
+    public void testGetTokens() {
+        System.out.println("testGetTokens");
+        
+        final DecsConcepts concepts = new DecsConcepts(decs);
+        final DecsParams params = 
+                         new DecsParams(true, true, true, false, false, false);
+        final DecsExpansions expansions = concepts.getExpansions(params);
+        final int ordinal = concepts.getKeyOrdinal("abdomen agudo");
+        final DecsTokenBuffer tokens = expansions.getTokens(ordinal, true);
+        
+        assertTrue(expansions == concepts.getExpansions(
+                  new DecsParams(true, true, true, true, false, true)));
+        assertTrue(tokens == expansions.getTokens(ordinal, true));
+        System.out.println("Test 1");
+        
+        final String str = toString(tokens.copy());
+        assertTrue(str, str.contains("[abdomen, acute:1]"));
+        assertTrue(str, str.contains("[agudo:0]"));
+        assertTrue(str, str.contains("[c23.888.821.030.249:0]"));
+        assertEquals(-1, toString(expansions.getTokens(ordinal, false).copy())
+                                                 .indexOf("abdomen, acute:1"));
+        System.out.println("Test 2");
+        
+        assertEquals(-1, str.indexOf("[c23:0]"));
+        final DecsExpansions ancestors = concepts.getExpansions(
+                  new DecsParams(true, true, true, true, false, false, false));
+        final String str2 = toString(ancestors.getTokens(ordinal, true).copy());
+        assertTrue(ancestors != expansions);
+        assertTrue(str2, str2.contains("[c23.888.821.030.249:0]"));
+        assertTrue(str2, str2.contains("[c23:0]"));
+        assertTrue(str2, str2.contains("[c23.888.821.030:0]"));
+        assertTrue(concepts.getExpansions(
+                 new DecsParams(false, true, true, false, false, false)) == 
+                 concepts.getExpansions(
+                 new DecsParams(false, true, true, true, false, false, false)));
+        System.out.println("Test 3");
+    }
+
+    /**
+     * Test of the expansions shared by the tokenizers of a map.
+     */
+    @Test
+    public void testShared() throws IOException {
+        System.out.println("testShared");
+        
+        final String text = "neoplasias abdominais e abdomen agudo";
+        final Map<String,DecsSyn> decs2 = new HashMap<String,DecsSyn>(decs);
+        final DecsHandle handle = new DecsHandle(decs2);
+        final DecsConcepts concepts = handle.getSnapshot().getConcepts();
+        final DecsExpansions expansions = concepts.getExpansions(
+                        new DecsParams(true, true, true, false, false, false));
+        final int ordinal = concepts.getKeyOrdinal("abdomen agudo");
+        
+        assertFalse(expansions.hasTokens(ordinal, true));
+        final List<String> tokens = AnalyzerUtils.getTokenList(
+                                       new DeCSStandardAnalyzer(handle), text);
+        assertTrue(expansions.hasTokens(ordinal, true));
+        System.out.println("Test 1");
+        
+        final DecsTokenBuffer buffer = expansions.getTokens(ordinal, true);
+        assertEquals(tokens, AnalyzerUtils.getTokenList(
+                                      new DeCSStandardAnalyzer(handle), text));
+        assertTrue(buffer == expansions.getTokens(ordinal, true));
+        System.out.println("Test 2");
+    }
+}
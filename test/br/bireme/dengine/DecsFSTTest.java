@@ -0,0 +1,124 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.parsers.ParserConfigurationException;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ *
+ * @author agent
+ * date: 20261017
+ */
+public class DecsFSTTest {
+    private static final String DECS_XML = "resources/decs/xml/decs-metadata.xml";
+    
+    private final Map<String,DecsSyn> decs;
+    private final DecsFST fst;
+    
+    public DecsFSTTest() throws IOException, ParserConfigurationException, 
+                                                                  SAXException {
+        decs = new IndexDecs().indexTerms(DECS_XML);
+        fst = new DecsFST(decs);
+    }
+    
+    /**
+     * Test of class DecsFST.
+     */
+    @Test
+    public void testFST() throws IOException {
+        System.out.println("testFST");
+        
+        assertEquals(decs.size(), fst.size());
+        assertEquals(decs, fst);
+        assertEquals(10, fst.getConceptCount());
+        System.out.println("Test 1");
+        
+        for (Map.Entry<String,DecsSyn> entry : decs.entrySet()) {
+            assertEquals(entry.getValue(), fst.get(entry.getKey()));
+        }
+        assertEquals(null, fst.get("temefo"));
+        assertEquals(null, fst.get("temefoss"));
+        assertEquals(-1, fst.getOrdinal(""));
+        System.out.println("Test 2");
+        
+        final char[] in = "abdomen, acute/x".toCharArray();
+        final int[] ends = new int[10];
+        final int[] ordinals = new int[10];
+        final int tot = fst.getPrefixes(in, 0, in.length - 1, ends, ordinals);
+        assertEquals(3, tot);
+        assertEquals(5, ends[0]);
+        assertEquals(decs.get("abdome"), fst.getConcept(ordinals[0]));
+        assertEquals(6, ends[1]);
+        assertEquals(decs.get("abdomen"), fst.getConcept(ordinals[1]));
+        assertEquals(13, ends[2]);
+        assertEquals(decs.get("abdomen, acute"), fst.getConcept(ordinals[2]));
+        System.out.println("Test 3");
+        
+        final Map<String,DecsSyn> map = new HashMap<String,DecsSyn>();
+        final DecsSyn syn = new DecsSynBuilder().setId("7")
+                                   .addDescriptor("Neoplasias").build();
+        map.put("7", syn);
+        map.put("neoplasias", syn);
+        final DecsFST fst2 = new DecsFST(map);
+        assertEquals(1, fst2.getConceptCount());
+        assertEquals(syn, fst2.getConcept(0));
+        assertEquals(null, fst2.getConcept(0).getTreeId());
+        assertEquals(0, fst2.getConcept(0).getSynonymCount());
+        System.out.println("Test 4");
+    }
+    
+    /**
+     * Test of DecsFST used in place of the IndexDecs map.
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testAnalyzer() throws IOException {
+        System.out.println("testAnalyzer");
+        
+        final DeCSStandardAnalyzer analyzer1 = new DeCSStandardAnalyzer(decs);
+        final DeCSStandardAnalyzer analyzer2 = new DeCSStandardAnalyzer(fst);
+        final String in1 = "Temefós proteja os abatedouros de doenças como "
+               + "<^D8> neoplasias abdominais/sangue dentre Abdomen Agudo";
+        final List<String> expResult1 = 
+                                    AnalyzerUtils.getTokenList(analyzer1, in1);
+        final List<String> result1 = AnalyzerUtils.getTokenList(analyzer2, in1);
+        assertEquals(expResult1, result1);
+        System.out.println("Test 1");
+        
+        final String in2 = "Mãe eles me chamaram de 'abattoirs' lá na rua!";
+        final List<String> expResult2 = Arrays.asList("mae", "eles", "me", 
+         "chamaram", "de", "abatedouros", "abattoirs", "j01.576.423.200.700.100", 
+          "mataderos", "matadouros", "slaughterhouses", "la", "na", "rua!");
+        final List<String> result2 = AnalyzerUtils.getTokenList(analyzer2, in2);
+        assertEquals(expResult2, result2);
+        System.out.println("Test 2");
+    }
+}
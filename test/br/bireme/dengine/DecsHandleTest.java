@@ -0,0 +1,178 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import javax.xml.parsers.ParserConfigurationException;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ *
+ * @author agent
+ * date: 20261017
+ */
+public class DecsHandleTest {
+    private static final String DECS_XML = "resources/decs/xml/decs-metadata.xml";
+    private static final String TEXT = "neoplasias abdominais e abdomen agudo";
+
+    private final Map<String,DecsSyn> decs;
+
+    public DecsHandleTest() throws IOException, ParserConfigurationException,
+                                                                 SAXException {
+        decs = new IndexDecs().indexTerms(DECS_XML);
+    }
+
+    /**
+     * Test of swap and reload methods, of class DecsHandle.
+     */
+    @Test
+    public void testReload() throws IOException {
+        System.out.println("testReload");
+
+        final Map<String,DecsSyn> empty = new HashMap<String,DecsSyn>();
+        final DecsHandle handle = new DecsHandle(empty);
+        final DeCSStandardAnalyzer analyzer = new DeCSStandardAnalyzer(handle);
+        final List<String> before = AnalyzerUtils.getTokenList(analyzer, TEXT);
+        assertEquals(1, handle.getVersion());
+        System.out.println("Test 1");
+
+        final long version = handle.reload(
+                                   new Callable<Map<String,DecsSyn>>() {
+            @Override
+            public Map<String,DecsSyn> call() {
+                return decs;
+            }
+        });
+        assertEquals(2, version);
+        assertSame(decs, handle.getDecs());
+        assertEquals(1, handle.getReloadCount());
+        assertTrue(handle.getLastLoadNanos() > 0);
+        final List<String> after = AnalyzerUtils.getTokenList(analyzer, TEXT);
+        assertEquals(AnalyzerUtils.getTokenList(new DeCSStandardAnalyzer(decs),
+                                                                 TEXT), after);
+        assertTrue(after.size() > before.size());
+        System.out.println("Test 2");
+
+        try {
+            handle.reload(new Callable<Map<String,DecsSyn>>() {
+                @Override
+                public Map<String,DecsSyn> call() throws IOException {
+                    throw new IOException("bad release");
+                }
+            });
+            fail("IOException expected");
+        } catch (IOException ioe) {
+            assertEquals(1, handle.getFailedReloadCount());
+            assertEquals(2, handle.getVersion());
+            assertSame(decs, handle.getDecs());
+            System.out.println("Test 3");
+        }
+    }
+
+    /**
+     * Test of a token stream in flight during a swap.
+     */
+    @Test
+    public void testInFlight() throws IOException {
+        System.out.println("testInFlight");
+
+        final DecsHandle handle = new DecsHandle(decs);
+        final DeCSStandardAnalyzer analyzer = new DeCSStandardAnalyzer(handle);
+        final List<String> expected = AnalyzerUtils.getTokenList(analyzer, 
+                                                                        TEXT);
+        final List<String> result = new ArrayList<String>();
+        final TokenStream stream = analyzer.tokenStream("x", 
+                                                        new StringReader(TEXT));
+        final CharTermAttribute term = 
+                                  stream.addAttribute(CharTermAttribute.class);
+        stream.reset();
+        assertTrue(stream.incrementToken());
+        result.add(term.toString());
+        handle.swap(new HashMap<String,DecsSyn>());
+        while (stream.incrementToken()) {
+            result.add(term.toString());
+        }
+        stream.end();
+        stream.close();
+        assertEquals(expected, result);
+        System.out.println("Test 1");
+
+        final List<String> next = AnalyzerUtils.getTokenList(analyzer, TEXT);
+        assertTrue(next.size() < expected.size());
+        System.out.println("Test 2");
+    }
+
+    /**
+     * Test of the concepts prepared before a swap.
+     */
+    @Test
+    public void testPrepare() throws IOException {
+        System.out.println("testPrepare");
+
+        final DecsHandle handle = new DecsHandle(decs);
+        final DecsConcepts old = handle.getSnapshot().getConcepts();
+        final DeCSStandardAnalyzer analyzer = new DeCSStandardAnalyzer(handle);
+        final DecsParams params = 
+                         new DecsParams(true, true, true, false, false, false);
+        final List<String> expected = AnalyzerUtils.getTokenList(analyzer, 
+                                                                        TEXT);
+        final Map<String,DecsSyn> decs2 = new HashMap<String,DecsSyn>(decs);
+        handle.reload(new Callable<Map<String,DecsSyn>>() {
+            @Override
+            public Map<String,DecsSyn> call() {
+                return decs2;
+            }
+        });
+        final DecsConcepts concepts = handle.getSnapshot().getConcepts();
+        assertSame(decs2, concepts.getDecs());
+        final DecsExpansions expansions = concepts.getExpansions(params);
+        assertTrue(expansions.hasTokens(
+                         concepts.getKeyOrdinal("abdomen agudo"), true));
+        assertTrue(expansions.hasTokens(
+                   concepts.getKeyOrdinal("neoplasias abdominais"), true));
+        assertFalse(expansions.hasTokens(
+                         concepts.getKeyOrdinal("mataderos"), true));
+        System.out.println("Test 1");
+        
+        assertEquals(expected, AnalyzerUtils.getTokenList(analyzer, TEXT));
+        System.out.println("Test 2");
+
+        assertSame(concepts, DecsConcepts.forMap(decs2));
+        assertTrue(old != DecsConcepts.forMap(decs));
+        System.out.println("Test 3");
+    }
+}
@@ -0,0 +1,149 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import javax.xml.parsers.ParserConfigurationException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ *
+ * @author agent
+ * date: 20261017
+ */
+public class DecsLengthIndexTest {
+    private static final String DECS_XML = "resources/decs/xml/decs-metadata.xml";
+    private static final String[] TEXTS = {
+        "Abdomen Agudo ou abattoirs, (Temef\u00f3s/sangue) e neoplasias " +
+        "abdominais/blood; abdome ^d8 xxx. ",
+        "tumores do abdome e abdominal neoplasms ^d8^s22062 com matadouros",
+        "  abdomen  /  blood ; x/y abdomen/blood/sangue / abattoirs  "
+    };
+
+    private final Map<String,DecsSyn> decs;
+
+    public DecsLengthIndexTest() throws IOException, 
+                                 ParserConfigurationException, SAXException {
+        decs = new IndexDecs().indexTerms(DECS_XML);
+    }
+
+    /**
+     * Test of mayContain method, of class DecsLengthIndex.
+     */
+    @Test
+    public void testIndex() {
+        System.out.println("testIndex");
+
+        final DecsLengthIndex index = new DecsLengthIndex(decs.keySet(), 
+                                              DeCSTermLocator.MAX_TOKEN_SIZE);
+        for (String key : decs.keySet()) {
+            final char[] chars = ("/" + key + "/").toCharArray();
+            assertTrue(key, index.mayContain(chars, 1, chars.length - 2));
+        }
+        System.out.println("Test 1");
+
+        final char[] chars = "abdomen agudo".toCharArray();
+        assertTrue(index.mayContain(chars, 0, chars.length - 1));
+        assertFalse(index.mayContain("@@@@".toCharArray(), 0, 3));
+        assertFalse(index.mayContain(chars, 0, -1));
+        System.out.println("Test 2");
+    }
+
+    private static String toString(final Set<FoundTerm> terms) {
+        final StringBuilder builder = new StringBuilder();
+
+        for (FoundTerm term : terms) {
+            final FoundTerm qualif = term.getQualifier();
+            builder.append("[").append(term.getTerm()).append(":")
+                   .append(term.getBeginPos()).append("->")
+                   .append(term.getEndPos());
+            if (qualif != null) {
+                builder.append(qualif.getTerm()).append(":")
+                       .append(qualif.getBeginPos()).append("->")
+                       .append(qualif.getEndPos());
+            }
+            builder.append("]");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Test of the pruned window search, of class DeCSTermLocator.
+     */
+    @Test
+    public void testLocator() {
+        System.out.println("testLocator");
+
+        final DeCSTermLocator locator = new DeCSTermLocator();
+
+        for (String text : TEXTS) {
+            final String in = CharFolder.fold(text);
+            final TreeSet<FoundTerm> expected = new TreeSet<FoundTerm>(
+                                                   new FoundTermComparator());
+            // without concepts, all the windows are looked up
+            DeCSTermLocator.getTerms(in, DeCSTermLocator.MAX_TOKEN_SIZE,
+                  DeCSTermLocator.MIN_TOKEN_SIZE, decs, false, expected);
+            assertEquals(toString(expected), 
+                               toString(locator.getTerms(in, decs, false)));
+        }
+        System.out.println("Test 1");
+    }
+
+    /**
+     * Test of the index shared by the versions of a map.
+     */
+    @Test
+    public void testShared() throws IOException {
+        System.out.println("testShared");
+
+        final DecsHandle handle = new DecsHandle(decs);
+        final DecsLengthIndex index = 
+                           handle.getSnapshot().getConcepts().getLengthIndex();
+        assertTrue(index == DecsConcepts.forMap(decs).getLengthIndex());
+        assertTrue(index == new DecsHandle(decs).getSnapshot().getConcepts()
+                                                           .getLengthIndex());
+        System.out.println("Test 1");
+
+        final Map<String,DecsSyn> decs2 = new HashMap<String,DecsSyn>(decs);
+        handle.reload(new Callable<Map<String,DecsSyn>>() {
+            @Override
+            public Map<String,DecsSyn> call() {
+                return decs2;
+            }
+        });
+        final DecsLengthIndex index2 = 
+                           handle.getSnapshot().getConcepts().getLengthIndex();
+        assertTrue(index2 != index);
+        assertTrue(index2 == DecsConcepts.forMap(decs2).getLengthIndex());
+        System.out.println("Test 2");
+    }
+}
@@ -0,0 +1,107 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.IOException;
+import java.util.Map;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ *
+ * @author agent
+ * date: 20261017
+ */
+public class DecsStringPoolTest {
+    private static final String DECS_XML = "resources/decs/xml/decs-metadata.xml";
+
+    /**
+     * Test of intern method, of class DecsStringPool.
+     */
+    @Test
+    public void testIntern() {
+        System.out.println("testIntern");
+
+        final DecsStringPool pool = new DecsStringPool();
+        final String str1 = new String("temefos");
+        final String str2 = new String("temefos");
+        assertSame(str1, pool.intern(str1));
+        assertSame(str1, pool.intern(str2));
+        assertSame(str1, pool.intern(str1));
+        assertNull(pool.intern(null));
+        assertEquals(3, pool.getRequests());
+        assertEquals(1, pool.getDistinct());
+        assertEquals(2, pool.getDuplicates());
+        assertEquals(2 * DecsStringPool.getSizeOf(str1), pool.getBytesSaved());
+        System.out.println("Test 1");
+
+        pool.clear();
+        assertEquals(2, pool.getDuplicates());
+        try {
+            pool.intern(str1);
+            fail("cleared pool");
+        } catch (IllegalStateException ise) {
+            System.out.println("Test 2");
+        }
+    }
+
+    /**
+     * Test of the string pool of the DeCS loaders.
+     */
+    @Test
+    public void testLoaders() throws IOException, ParserConfigurationException,
+                                             SAXException, XMLStreamException {
+        System.out.println("testLoaders");
+
+        final IndexDecs index = new IndexDecs();
+        final Map<String,DecsSyn> decs = index.indexTerms(DECS_XML);
+        final DecsStringPool pool = index.getStringPool();
+        assertTrue(pool.getDuplicates() > 0);
+        assertTrue(pool.getBytesSaved() > 0);
+        for (DecsSyn syn : decs.values()) {
+            for (int idx = 1; idx < syn.getDescriptorCount(); idx++) {
+                if (syn.getDescriptor(idx).equals(syn.getDescriptor(0))) {
+                    assertSame(syn.getDescriptor(0), syn.getDescriptor(idx));
+                }
+            }
+        }
+        System.out.println("Test 1");
+
+        final StaxIndexDecs stax = new StaxIndexDecs();
+        assertEquals(decs, stax.indexTerms(DECS_XML));
+        assertEquals(pool.getDuplicates(), 
+                                      stax.getStringPool().getDuplicates());
+        final ParallelIndexDecs parallel = new ParallelIndexDecs(4, 16);
+        assertEquals(decs, parallel.indexTerms(DECS_XML));
+        assertEquals(pool.getDuplicates(), 
+                                   parallel.getStringPool().getDuplicates());
+        System.out.println("Test 2");
+    }
+}
@@ -0,0 +1,104 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.util.Arrays;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ *
+ * @author agent
+ * date: 20261017
+ */
+public class DecsSynTest {
+    private static DecsSynBuilder getBuilder() {
+        return new DecsSynBuilder().setId("1").setAbbreviation("ab")
+                   .addDescriptor("abdomen").addDescriptor("abdomen es")
+                   .addDescriptor("abdome").addSynonym("zz").addSynonym("aa")
+                   .addSynonym("zz").addCategory("c2").addCategory("c1");
+    }
+
+    /**
+     * Test of class DecsSynBuilder.
+     */
+    @Test
+    public void testBuilder() {
+        System.out.println("testBuilder");
+
+        final DecsSynBuilder builder = getBuilder();
+        final DecsSyn syn = builder.build();
+        assertEquals("1", syn.getId());
+        assertEquals("ab", syn.getAbbreviation());
+        assertNull(syn.getTreeId());
+        assertEquals(Arrays.asList("abdomen", "abdomen es", "abdome"),
+                                                          syn.getDescriptor());
+        assertEquals(2, syn.getSynonymCount());
+        assertEquals("aa", syn.getSynonym(0));
+        assertEquals("zz", syn.getSynonym(1));
+        assertEquals("c1", syn.getCategory(0));
+        System.out.println("Test 1");
+
+        assertEquals(syn, builder.build());
+        assertEquals(syn.hashCode(), getBuilder().build().hashCode());
+        assertEquals(0, builder.clear().build().getDescriptorCount());
+        System.out.println("Test 2");
+    }
+
+    /**
+     * Test of the getters of class DecsSyn.
+     */
+    @Test
+    public void testGetters() {
+        System.out.println("testGetters");
+
+        final DecsSyn syn = getBuilder().build();
+        assertEquals("abdomen", syn.getDescriptor("en"));
+        assertEquals("abdomen es", syn.getDescriptor("es"));
+        assertEquals("abdome", syn.getDescriptor("pt"));
+        assertNull(syn.getDescriptor("fr"));
+        assertNull(new DecsSynBuilder().build().getDescriptor("en"));
+        System.out.println("Test 1");
+
+        final Set<String> synonyms = syn.getSynonym();
+        assertEquals(2, synonyms.size());
+        assertTrue(synonyms.contains("aa"));
+        assertTrue(!synonyms.contains("bb"));
+        try {
+            synonyms.remove("aa");
+            fail("read only view expected");
+        } catch (UnsupportedOperationException uoe) {
+            System.out.println("Test 2");
+        }
+        try {
+            syn.getDescriptor().set(0, "x");
+            fail("read only view expected");
+        } catch (UnsupportedOperationException uoe) {
+            System.out.println("Test 3");
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.parsers.ParserConfigurationException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ *
+ * @author agent
+ * date: 20261017
+ */
+public class DecsTokenCacheTest {
+    private static final String DECS_XML = "resources/decs/xml/decs-metadata.xml";
+    private static final String[] VALUES = {
+        "Abdomen Agudo", "neoplasias abdominais", "abattoirs", "Abdomen Agudo",
+        "abattoirs", "Abd\u00f4men Agudo", "^d8^s22062", "abattoirs"
+    };
+
+    private final Map<String,DecsSyn> decs;
+
+    public DecsTokenCacheTest() throws IOException, 
+                                 ParserConfigurationException, SAXException {
+        decs = new IndexDecs().indexTerms(DECS_XML);
+    }
+
+    /**
+     * Test of the replayed tokens, of class DecsTokenCache.
+     */
+    @Test
+    public void testReplay() throws IOException {
+        System.out.println("testReplay");
+
+        final DecsHandle handle = new DecsHandle(decs);
+        final DecsTokenCache cache = new DecsTokenCache(100);
+        final DeCSKeywordAnalyzer cached = 
+                                       new DeCSKeywordAnalyzer(handle, cache);
+        final DeCSKeywordAnalyzer plain = new DeCSKeywordAnalyzer(handle);
+
+        for (String value : VALUES) {
+            final List<String> tokens = 
+                                 AnalyzerUtils.getTokenList(cached, value);
+            assertEquals(AnalyzerUtils.getTokenList(plain, value), tokens);
+        }
+        assertEquals(4, cache.getHits());
+        assertEquals(4, cache.getMisses());
+        assertEquals(4, cache.size());
+        assertEquals(0.5, cache.getHitRate(), 0.0001);
+        System.out.println("Test 1");
+
+        // a new map makes the entries miss
+        handle.swap(new HashMap<String,DecsSyn>(decs));
+        AnalyzerUtils.getTokenList(cached, VALUES[0]);
+        assertEquals(5, cache.getMisses());
+        AnalyzerUtils.getTokenList(cached, VALUES[0]);
+        assertEquals(5, cache.getHits());
+        System.out.println("Test 2");
+    }
+
+    /**
+     * Test of the cache size and evictions, of class DecsTokenCache.
+     */
+    @Test
+    public void testEviction() throws IOException {
+        System.out.println("testEviction");
+
+        final DecsTokenCache cache = new DecsTokenCache(2, 25);
+        final DeCSKeywordAnalyzer analyzer = 
+                            new DeCSKeywordAnalyzer(new DecsHandle(decs), cache);
+
+        AnalyzerUtils.getTokenList(analyzer, "Abdomen Agudo");
+        AnalyzerUtils.getTokenList(analyzer, "neoplasias abdominais");
+        AnalyzerUtils.getTokenList(analyzer, "abattoirs");
+        assertTrue(cache.size() <= 2);
+        assertTrue(cache.getEvictions() >= 1);
+        System.out.println("Test 1");
+
+        // longer than the maximum value length
+        final long misses = cache.getMisses();
+        AnalyzerUtils.getTokenList(analyzer, "abattoirs e neoplasias abdominais");
+        assertEquals(misses, cache.getMisses());
+        System.out.println("Test 2");
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        System.out.println("Test 3");
+    }
+}
@@ -0,0 +1,190 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import javax.xml.parsers.ParserConfigurationException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ *
+ * @author agent
+ * date: 20261017
+ */
+public class FoundTermBufferTest {
+    private static final String DECS_XML = "resources/decs/xml/decs-metadata.xml";
+    
+    private final Map<String,DecsSyn> decs;
+    
+    public FoundTermBufferTest() throws IOException, 
+                                                  ParserConfigurationException, 
+                                                                  SAXException {
+        decs = new IndexDecs().indexTerms(DECS_XML);
+    }
+    
+    private String toString(final FoundTerm term) {
+        assert term != null;
+        
+        final StringBuilder builder = new StringBuilder();
+        final FoundTerm qualif = term.getQualifier();
+        
+        builder.append("[").append(term.getTerm()).append(":")
+               .append(term.getBeginPos()).append("->")
+               .append(term.getEndPos()).append(":")
+               .append(term.getSyn().getId());
+        if (qualif != null) {
+            builder.append(qualif.getTerm()).append(":")
+                   .append(qualif.getBeginPos()).append("->")
+                   .append(qualif.getEndPos()).append(":")
+                   .append(qualif.getSyn().getId());
+        }
+        builder.append("]");
+        
+        return builder.toString();
+    }
+    
+    private String toString(final Set<FoundTerm> terms) {
+        assert terms != null;
+        
+        final StringBuilder builder = new StringBuilder();
+        
+        for (FoundTerm term : terms) {
+            builder.append(toString(term));
+        }
+        
+        return builder.toString();
+    }
+    
+    private String toString(final FoundTermBuffer found,
+                            final String str) {
+        assert found != null;
+        assert str != null;
+        
+        final StringBuilder builder = new StringBuilder();
+        
+        for (int idx = 0; idx < found.size(); idx++) {
+            builder.append(toString(found.getFoundTerm(idx, str, decs)));
+        }
+        
+        return builder.toString();
+    }
+    
+    private void check(final DeCSBufferLocator locator,
+                       final FoundTermBuffer found,
+                       final String in) {
+        assert locator != null;
+        assert found != null;
+        assert in != null;
+        
+        final String str = RemoveAccentsFromString.filter(in);
+        
+        locator.getTerms(str, decs, false, found);
+        assertEquals(toString(locator.getTerms(str, decs, false)), 
+                                                       toString(found, str));
+        for (int idx = 0; idx < found.size(); idx++) {
+            assertTrue(found.getSyn(idx) == 
+                                  found.getFoundTerm(idx, str, decs).getSyn());
+        }
+    }
+    
+    /**
+     * Test of sort method, of class FoundTermBuffer.
+     */
+    @Test
+    public void testSort() {
+        System.out.println("testSort");
+        
+        final FoundTermBuffer found = new FoundTermBuffer(1);
+        
+        found.add(5, 8, 1, 5, 8, false);
+        found.add(0, 3, 2, 0, 3, false);
+        found.add(5, 6, 3, 5, 6, false);
+        found.add(10, 12, 4, 10, 11, true);
+        found.setQualifier(3, 12, 14, 5, 13, 14);
+        found.add(0, 1, 6, 0, 1, false);
+        found.sort();
+        
+        assertEquals(5, found.size());
+        assertEquals(2, found.getOrdinal(0));
+        assertEquals(6, found.getOrdinal(1));
+        assertEquals(1, found.getOrdinal(2));
+        assertEquals(3, found.getOrdinal(3));
+        assertEquals(4, found.getOrdinal(4));
+        System.out.println("Test 1");
+        
+        assertFalse(found.hasQualifier(0));
+        assertEquals(8, found.getLastPos(2));
+        assertTrue(found.hasQualifier(4));
+        assertTrue(found.isPrecod(4));
+        assertEquals(12, found.getEnd(4));
+        assertEquals(14, found.getLastPos(4));
+        assertEquals(5, found.getQualifierOrdinal(4));
+        assertEquals(13, found.getQualifierTextBegin(4));
+        System.out.println("Test 2");
+        
+        found.clear();
+        assertEquals(0, found.size());
+        assertTrue(found.getConcepts() == null);
+        System.out.println("Test 3");
+    }
+    
+    /**
+     * Test of the locators that fill a FoundTermBuffer.
+     */
+    @Test
+    public void testLocators() {
+        System.out.println("testLocators");
+        
+        final String[] inputs = { "", "   ", " Temef\u00F3s ", 
+            "Abdomen Agudo ou abattoirs, e neoplasias abdominais;\tabdome",
+            "^d8 xxx ^d8^s22062 (Temef\u00F3s) rei. ", "abdome/sangue x",
+            " ^d8^s22062 " };
+        final DeCSLocator plain = new DeCSLocator() {
+            private final DeCSLocator locator = new DeCSTermLocator();
+            
+            @Override
+            public Set<FoundTerm> getTerms(final String str,
+                                           final Map<String,DecsSyn> decs,
+                                           final boolean onlyPrecodTerms) {
+                return locator.getTerms(str, decs, onlyPrecodTerms);
+            }
+        };
+        final DeCSBufferLocator[] locators = { new DeCSTermLocator(), 
+            new DeCSAhoCorasickLocator(decs), new DeCSWordTrieLocator(decs),
+            new DeCSSentenceTermLocator(), DeCSLocatorAdapter.valueOf(plain) };
+        final FoundTermBuffer found = new FoundTermBuffer(1);
+        
+        for (DeCSBufferLocator locator : locators) {
+            for (String in : inputs) {
+                check(locator, found, in);
+            }
+        }
+        System.out.println("Test 1");
+    }
+}
@@ -0,0 +1,142 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.Map;
+import javax.xml.parsers.ParserConfigurationException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ *
+ * @author agent
+ * date: 20261017
+ */
+public class MappedDecsDictionaryTest {
+    private static final String DECS_XML = "resources/decs/xml/decs-metadata.xml";
+    
+    private final Map<String,DecsSyn> decs;
+    
+    public MappedDecsDictionaryTest() throws IOException, 
+                                                  ParserConfigurationException, 
+                                                                  SAXException {
+        decs = new IndexDecs().indexTerms(DECS_XML);
+    }
+    
+    private File compile() throws IOException {
+        final File file = File.createTempFile("decs", ".dic");
+        
+        file.deleteOnExit();
+        DecsDictionaryCompiler.compile(decs, file);
+        
+        return file;
+    }
+    
+    /**
+     * Test of class MappedDecsDictionary.
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testDictionary() throws IOException {
+        System.out.println("testDictionary");
+        
+        final MappedDecsDictionary dict = new MappedDecsDictionary(compile());
+        
+        assertEquals(decs.size(), dict.size());
+        assertEquals(decs, dict);
+        assertEquals(10, dict.getConceptCount());
+        System.out.println("Test 1");
+        
+        for (Map.Entry<String,DecsSyn> entry : decs.entrySet()) {
+            assertEquals(entry.getValue(), dict.get(entry.getKey()));
+        }
+        assertEquals(null, dict.get("temefo"));
+        assertEquals(null, dict.get("temefoss"));
+        assertEquals(-1, dict.getOrdinal(""));
+        System.out.println("Test 2");
+        
+        final char[] in = "xabdomen, acute/x".toCharArray();
+        assertEquals(decs.get("abdomen, acute"), 
+                                     dict.getConcept(dict.getOrdinal(in, 1, 14)));
+        assertEquals(decs.get("abdomen"), 
+                                      dict.getConcept(dict.getOrdinal(in, 1, 7)));
+        assertEquals(-1, dict.getOrdinal(in, 0, 7));
+        System.out.println("Test 3");
+        
+        final DeCSStandardAnalyzer analyzer1 = new DeCSStandardAnalyzer(decs);
+        final DeCSStandardAnalyzer analyzer2 = new DeCSStandardAnalyzer(dict);
+        final String in1 = "Temefós proteja os abatedouros de doenças como "
+               + "<^D8> neoplasias abdominais/sangue dentre Abdomen Agudo";
+        final List<String> expResult1 = 
+                                    AnalyzerUtils.getTokenList(analyzer1, in1);
+        final List<String> result1 = AnalyzerUtils.getTokenList(analyzer2, in1);
+        assertEquals(expResult1, result1);
+        System.out.println("Test 4");
+    }
+    
+    /**
+     * Test of the dictionary file validation.
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testValidation() throws IOException {
+        System.out.println("testValidation");
+        
+        final File file = compile();
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(raf.length() - 1);
+            final int last = raf.read();
+            raf.seek(raf.length() - 1);
+            raf.write(last ^ 0xFF);
+        } finally {
+            raf.close();
+        }
+        try {
+            new MappedDecsDictionary(file);
+            fail("checksum error expected");
+        } catch (IOException ioe) {
+            System.out.println("Test 1");
+        }
+        
+        final RandomAccessFile raf2 = new RandomAccessFile(file, "rw");
+        try {
+            raf2.seek(4);
+            raf2.writeInt(MappedDecsDictionary.VERSION + 1);
+        } finally {
+            raf2.close();
+        }
+        try {
+            new MappedDecsDictionary(file, false);
+            fail("version error expected");
+        } catch (IOException ioe) {
+            System.out.println("Test 2");
+        }
+    }
+}
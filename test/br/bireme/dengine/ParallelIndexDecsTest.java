@@ -0,0 +1,66 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.IOException;
+import java.util.Map;
+import javax.xml.parsers.ParserConfigurationException;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ *
+ * @author agent
+ * date: 20261017
+ */
+public class ParallelIndexDecsTest {
+    private static final String DECS_XML = "resources/decs/xml/decs-metadata.xml";
+    
+    /**
+     * Test of class ParallelIndexDecs.
+     */
+    @Test
+    public void testIndexTerms() throws IOException, 
+                                                  ParserConfigurationException, 
+                                                                  SAXException {
+        System.out.println("testIndexTerms");
+        
+        final Map<String,DecsSyn> expResult = 
+                                         new IndexDecs().indexTerms(DECS_XML);
+        
+        assertEquals(expResult, new ParallelIndexDecs().indexTerms(DECS_XML));
+        System.out.println("Test 1");
+        
+        assertEquals(expResult, 
+                           new ParallelIndexDecs(1, 1).indexTerms(DECS_XML));
+        assertEquals(expResult, 
+                           new ParallelIndexDecs(4, 3).indexTerms(DECS_XML));
+        System.out.println("Test 2");
+        
+        final ParallelIndexDecs loader = new ParallelIndexDecs(2, 2);
+        assertEquals(expResult, loader.indexTerms(DECS_XML));
+        assertEquals(expResult, loader.indexTerms(DECS_XML));
+        System.out.println("Test 3");
+    }
+}
@@ -0,0 +1,118 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.xml.parsers.ParserConfigurationException;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ *
+ * @author agent
+ * date: 20261017
+ */
+public class PrecodTermScannerTest {
+    private static final String DECS_XML = "resources/decs/xml/decs-metadata.xml";
+    
+    private final Map<String,DecsSyn> decs;
+    
+    public PrecodTermScannerTest() throws IOException, 
+                                                  ParserConfigurationException, 
+                                                                  SAXException {
+        decs = new IndexDecs().indexTerms(DECS_XML);
+    }
+    
+    private String toString(final Set<FoundTerm> terms) {
+        assert terms != null;
+        
+        final StringBuilder builder = new StringBuilder();
+        final Iterator<FoundTerm> it = terms.iterator();
+        
+        while (it.hasNext()) {
+            final FoundTerm term = it.next();
+            final FoundTerm qualif = term.getQualifier();
+            
+            builder.append("[").append(term.getTerm()).append(":")
+                   .append(term.getBeginPos()).append("->")
+                   .append(term.getEndPos());
+            if (qualif != null) {
+                builder.append(qualif.getTerm()).append(":")
+                       .append(qualif.getBeginPos()).append("->")
+                       .append(qualif.getEndPos());
+            }
+            builder.append("]");
+        }
+        
+        return builder.toString();
+    }
+    
+    private String scan(final String in) {
+        assert in != null;
+        
+        final TreeSet<FoundTerm> terms = new TreeSet<FoundTerm>(
+                                                    new FoundTermComparator());
+        PrecodTermScanner.addTerms(in, decs, terms);
+        
+        return toString(terms);
+    }
+    
+    /**
+     * Test of class PrecodTermScanner.
+     */
+    @Test
+    public void testScanner() {
+        System.out.println("testScanner");
+        
+        assertEquals("", scan("abdomen agudo"));
+        assertEquals("", scan("^d99999 ^x8 ^d12345678"));
+        assertEquals("[^d8:0->2]", scan("^d8"));
+        assertEquals("[^d8:0->4]", scan("#^d8# "));
+        assertEquals("[^d8:3->8]", scan("xxx (^d8) yyy"));
+        System.out.println("Test 1");
+        
+        assertEquals("[^d8:0->2^s22062:3->9]", scan("^d8^s22062"));
+        assertEquals("[^d8:2->5^s22062:6->15]", scan("xx ^d8^s22062^x1"));
+        assertEquals("[^d8:0->9]", scan("^d8^s99999"));
+        System.out.println("Test 2");
+        
+        final TreeSet<FoundTerm> terms = new TreeSet<FoundTerm>(
+                                                    new FoundTermComparator());
+        terms.add(new FoundTerm("abdomen", 4, 10, decs.get("abdomen"), null,
+                                                                        false));
+        PrecodTermScanner.addTerms("^d8 abdomen ^d5", decs, terms);
+        assertEquals("[^d8:0->2][abdomen:4->10][^d5:11->14]", toString(terms));
+        System.out.println("Test 3");
+        
+        assertEquals("^d8", 
+                PrecodTermScanner.getSentenceTerm(" ^d8^s22062 ", decs)
+                                                                   .getTerm());
+        assertEquals(null, PrecodTermScanner.getSentenceTerm("^d8 x", decs));
+        System.out.println("Test 4");
+    }
+}
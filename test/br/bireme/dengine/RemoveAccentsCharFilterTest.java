@@ -0,0 +1,151 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.xml.parsers.ParserConfigurationException;
+import org.apache.lucene.analysis.CharFilter;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ *
+ * @author agent
+ * date: 20261017
+ */
+public class RemoveAccentsCharFilterTest {
+    private static final String DECS_XML = "resources/decs/xml/decs-metadata.xml";
+    private static final String TEXT = "Neoplasias abdominais e " +
+                  "Temef\u00F3s no abdome ^d8^s22062 (\u00C1cido) rei.";
+
+    private final Map<String,DecsSyn> decs;
+
+    public RemoveAccentsCharFilterTest() throws IOException,
+                                                  ParserConfigurationException,
+                                                                  SAXException {
+        decs = new IndexDecs().indexTerms(DECS_XML);
+    }
+
+    private String read(final CharFilter filter) throws IOException {
+        final StringBuilder builder = new StringBuilder();
+        final char[] buffer = new char[3];
+        int tot;
+
+        while ((tot = filter.read(buffer, 0, buffer.length)) != -1) {
+            builder.append(buffer, 0, tot);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * @return the tokens of in as term:original text
+     */
+    private List<String> getTokens(final String in) throws IOException {
+        final DeCSTokenizer tokenizer = new DeCSTokenizer(
+                         new RemoveAccentsCharFilter(new StringReader(in)),
+                         decs, new DecsParams(true, true, true, false, false,
+                         false), true);
+        final CharTermAttribute term =
+                              tokenizer.getAttribute(CharTermAttribute.class);
+        final OffsetAttribute offset =
+                                tokenizer.getAttribute(OffsetAttribute.class);
+        final List<String> tokens = new ArrayList<String>();
+
+        tokenizer.reset();
+        while (tokenizer.incrementToken()) {
+            tokens.add(term.toString() + ":" + CharFolder.fold(
+                   in.substring(offset.startOffset(), offset.endOffset())));
+        }
+        tokenizer.end();
+        tokenizer.close();
+
+        return tokens;
+    }
+
+    /**
+     * Test of read and correctOffset methods, of class 
+     * RemoveAccentsCharFilter.
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testCorrectOffset() throws IOException {
+        System.out.println("testCorrectOffset");
+
+        final CharFilter filter = new RemoveAccentsCharFilter(
+                         new StringReader("A\u0301b\u0301\u0302c\u0301"));
+        assertEquals("abc", read(filter));
+        assertEquals(0, filter.correctOffset(0));
+        assertEquals(2, filter.correctOffset(1));
+        assertEquals(5, filter.correctOffset(2));
+        assertEquals(7, filter.correctOffset(3));
+        System.out.println("Test 1");
+
+        final CharFilter filter2 = new RemoveAccentsCharFilter(
+                                    new StringReader("\u0301\u0302"));
+        assertEquals("", read(filter2));
+        System.out.println("Test 2");
+
+        final RemoveAccentsCharFilter filter3 = new RemoveAccentsCharFilter(
+                                    new StringReader("\u0301\u0302xy"));
+        assertEquals("xy", read(filter3));
+        filter3.setReader(new StringReader("A\u0301b\u0301\u0302c\u0301"));
+        assertEquals("abc", read(filter3));
+        assertEquals(0, filter3.correctOffset(0));
+        assertEquals(2, filter3.correctOffset(1));
+        assertEquals(5, filter3.correctOffset(2));
+        assertEquals(7, filter3.correctOffset(3));
+        System.out.println("Test 3");
+
+        final CharFilter filter4 = new RemoveAccentsCharFilter(
+               new RemoveAccentsCharFilter(new StringReader("a\u0301b\u0301")));
+        assertEquals("ab", read(filter4));
+        assertEquals(2, filter4.correctOffset(1));
+        assertEquals(4, filter4.correctOffset(2));
+        System.out.println("Test 4");
+    }
+
+    /**
+     * Test of the offsets of the DeCSTokenizer tokens read from a
+     * RemoveAccentsCharFilter.
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testTokenOffsets() throws IOException {
+        System.out.println("testTokenOffsets");
+
+        final String decomposed = Normalizer.normalize(TEXT,
+                                                        Normalizer.Form.NFD);
+        assertEquals(TEXT.length() + 2, decomposed.length());
+        assertEquals(getTokens(TEXT), getTokens(decomposed));
+        System.out.println("Test 1");
+    }
+}
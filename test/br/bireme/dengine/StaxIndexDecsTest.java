@@ -0,0 +1,97 @@
+/*=========================================================================
+
+    Copyright © 2015 BIREME/PAHO/WHO
+
+    This file is part of IAHx-Analyzer.
+
+    IAHx-Analyzer is free software: you can redistribute it and/or
+    modify it under the terms of the GNU Lesser General Public License
+    as published by the Free Software Foundation, either version 2.1 of
+    the License, or (at your option) any later version.
+
+    IAHx-Analyzer is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public
+    License along with IAHx-Analyzer. If not, see
+    <http://www.gnu.org/licenses/>.
+
+=========================================================================*/
+
+package br.bireme.dengine;
+
+import java.io.IOException;
+import java.util.Map;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ *
+ * @author agent
+ * date: 20261017
+ */
+public class StaxIndexDecsTest {
+    private static final String DECS_XML = "resources/decs/xml/decs-metadata.xml";
+    
+    /**
+     * Test of class StaxIndexDecs.
+     */
+    @Test
+    public void testIndexTerms() throws IOException, XMLStreamException,
+                                                  ParserConfigurationException, 
+                                                                  SAXException {
+        System.out.println("testIndexTerms");
+        
+        final Map<String,DecsSyn> expResult = 
+                                         new IndexDecs().indexTerms(DECS_XML);
+        final Map<String,DecsSyn> result = 
+                                     new StaxIndexDecs().indexTerms(DECS_XML);
+        assertEquals(expResult, result);
+        System.out.println("Test 1");
+        
+        try {
+            result.put("x", new DecsSynBuilder().build());
+            fail("unmodifiable map expected");
+        } catch (UnsupportedOperationException uoe) {
+            System.out.println("Test 2");
+        }
+    }
+    
+    /**
+     * Test of class DecsMapBuilder.
+     */
+    @Test
+    public void testBuilder() throws IOException {
+        System.out.println("testBuilder");
+        
+        final DecsSyn syn1 = new DecsSynBuilder().setId("1")
+                                              .addDescriptor("abdomen").build();
+        final DecsSyn syn2 = new DecsSynBuilder().setId("2")
+                                              .addDescriptor("abdomen").build();
+        
+        final DecsMapBuilder builder = new DecsMapBuilder(4);
+        builder.add(syn1);
+        assertEquals(2, builder.size());
+        try {
+            builder.add(syn2);
+            fail("duplicated key expected");
+        } catch (IOException ioe) {
+            System.out.println("Test 1");
+        }
+        
+        final Map<String,DecsSyn> decs = builder.build();
+        assertEquals(syn1, decs.get("1"));
+        try {
+            builder.add(syn1);
+            fail("builder already built");
+        } catch (IllegalStateException ise) {
+            System.out.println("Test 2");
+        }
+    }
+}